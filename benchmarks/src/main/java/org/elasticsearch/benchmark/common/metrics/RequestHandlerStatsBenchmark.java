@@ -0,0 +1,57 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.benchmark.common.metrics;
+
+import org.elasticsearch.common.metrics.RequestHandlerStats;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead that recording the latency and the request size adds to every transport request and
+ * REST request, both when one thread records and when several threads record into the same tracker like the
+ * network threads of a busy node do.
+ */
+@Fork(2)
+@Warmup(iterations = 10)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class RequestHandlerStatsBenchmark {
+
+    private final RequestHandlerStats.Tracker tracker = new RequestHandlerStats.Tracker();
+
+    @Benchmark
+    public void record() {
+        doRecord();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordContended() {
+        doRecord();
+    }
+
+    private void doRecord() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        tracker.recordLatency(random.nextLong(TimeUnit.SECONDS.toNanos(1)));
+        tracker.recordRequestSize(random.nextLong(1 << 20));
+    }
+}
@@ -317,6 +317,11 @@ public class AggConstructionContentionBenchmark {
             return false;
         }
 
+        @Override
+        public Float minimumScore() {
+            return null;
+        }
+
         @Override
         public CircuitBreaker breaker() {
             return breaker;
@@ -0,0 +1,121 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+package org.elasticsearch.benchmark.search.aggregations;
+
+import com.carrotsearch.hppc.BitMixer;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.search.aggregations.metrics.AbstractHyperLogLogPlusPlus;
+import org.elasticsearch.search.aggregations.metrics.HyperLogLogPlusPlus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures collecting hashes into, merging and serializing the HyperLogLog++
+ * sketches of the {@code cardinality} aggregation, which are merged once
+ * per shard when the coordinating node reduces the shard results.
+ */
+@Warmup(iterations = 5)
+@Measurement(iterations = 7)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(value = 1)
+public class HyperLogLogPlusPlusBenchmark {
+    private static final int NUM_HASHES = 100_000;
+
+    /**
+     * The precision of the sketches, 14 is the default and 18 the maximum.
+     */
+    @Param({ "14", "18" })
+    public int precision;
+
+    /**
+     * The number of distinct values collected by the merged and serialized sketches.
+     */
+    @Param({ "10000", "1000000" })
+    public int cardinality;
+
+    private long[] hashes;
+    private HyperLogLogPlusPlus shardCounts;
+    private HyperLogLogPlusPlus reduced;
+    private byte[] serialized;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(0);
+        hashes = new long[NUM_HASHES];
+        for (int i = 0; i < NUM_HASHES; i++) {
+            hashes[i] = BitMixer.mix64(random.nextInt());
+        }
+        shardCounts = new HyperLogLogPlusPlus(precision, BigArrays.NON_RECYCLING_INSTANCE, 1);
+        for (int i = 0; i < cardinality; i++) {
+            shardCounts.collect(0, BitMixer.mix64(random.nextInt()));
+        }
+        reduced = new HyperLogLogPlusPlus(precision, BigArrays.NON_RECYCLING_INSTANCE, 1);
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            shardCounts.writeTo(0, out);
+            serialized = BytesReference.toBytes(out.bytes());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        shardCounts.close();
+        reduced.close();
+    }
+
+    @Benchmark
+    public long collect() {
+        try (HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(precision, BigArrays.NON_RECYCLING_INSTANCE, 1)) {
+            for (long hash : hashes) {
+                counts.collect(0, hash);
+            }
+            return counts.cardinality(0);
+        }
+    }
+
+    @Benchmark
+    public long merge() {
+        reduced.merge(0, shardCounts, 0);
+        return reduced.cardinality(0);
+    }
+
+    @Benchmark
+    public int serialize() throws IOException {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            shardCounts.writeTo(0, out);
+            return out.size();
+        }
+    }
+
+    @Benchmark
+    public long deserialize() throws IOException {
+        try (StreamInput in = StreamInput.wrap(serialized);
+             AbstractHyperLogLogPlusPlus counts = AbstractHyperLogLogPlusPlus.readFrom(in, BigArrays.NON_RECYCLING_INSTANCE)) {
+            return counts.maxOrd();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+package org.elasticsearch.benchmark.search.aggregations;
+
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.DoubleArray;
+import org.elasticsearch.index.fielddata.FieldData;
+import org.elasticsearch.index.fielddata.NumericDoubleValues;
+import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
+import org.elasticsearch.search.aggregations.BlockLeafBucketCollector;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.metrics.BlockDoubleValues;
+import org.elasticsearch.search.aggregations.metrics.CompensatedSum;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares collecting a numeric metric one document at a time, like the
+ * metric aggregators used to, with collecting it in blocks of documents
+ * through {@link BlockLeafBucketCollector}.
+ */
+@Warmup(iterations = 5)
+@Measurement(iterations = 7)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Fork(value = 1)
+public class NumericMetricCollectionBenchmark {
+    private static final int NUM_DOCS = 1_000_000;
+
+    /**
+     * The ratio of documents of the segment that match the query.
+     */
+    @Param({ "1", "0.1" })
+    public double density;
+
+    @Param({ "sum", "min" })
+    public String metric;
+
+    private double[] values;
+    private int[] matchingDocs;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        values = new double[NUM_DOCS];
+        for (int i = 0; i < NUM_DOCS; i++) {
+            values[i] = random.nextDouble() * 1000;
+        }
+        int[] docs = new int[NUM_DOCS];
+        int count = 0;
+        for (int i = 0; i < NUM_DOCS; i++) {
+            if (random.nextDouble() < density) {
+                docs[count++] = i;
+            }
+        }
+        matchingDocs = new int[count];
+        System.arraycopy(docs, 0, matchingDocs, 0, count);
+    }
+
+    private SortedNumericDoubleValues docValues() {
+        return FieldData.singleton(new NumericDoubleValues() {
+            private int doc = -1;
+
+            @Override
+            public boolean advanceExact(int target) {
+                doc = target;
+                return true;
+            }
+
+            @Override
+            public double doubleValue() {
+                return values[doc];
+            }
+        });
+    }
+
+    @Benchmark
+    public double perDocument() throws IOException {
+        DoubleArray results = BigArrays.NON_RECYCLING_INSTANCE.newDoubleArray(1, true);
+        SortedNumericDoubleValues docValues = docValues();
+        CompensatedSum kahanSummation = new CompensatedSum(0, 0);
+        LeafBucketCollector collector;
+        if (metric.equals("sum")) {
+            collector = new LeafBucketCollector() {
+                @Override
+                public void collect(int doc, long bucket) throws IOException {
+                    if (docValues.advanceExact(doc)) {
+                        kahanSummation.reset(results.get(bucket), 0);
+                        for (int i = 0; i < docValues.docValueCount(); i++) {
+                            kahanSummation.add(docValues.nextValue());
+                        }
+                        results.set(bucket, kahanSummation.value());
+                    }
+                }
+            };
+        } else {
+            results.set(0, Double.POSITIVE_INFINITY);
+            collector = new LeafBucketCollector() {
+                @Override
+                public void collect(int doc, long bucket) throws IOException {
+                    if (docValues.advanceExact(doc)) {
+                        results.set(bucket, Math.min(results.get(bucket), docValues.nextValue()));
+                    }
+                }
+            };
+        }
+        for (int doc : matchingDocs) {
+            collector.collect(doc, 0);
+        }
+        return results.get(0);
+    }
+
+    @Benchmark
+    public double blocks() throws IOException {
+        DoubleArray results = BigArrays.NON_RECYCLING_INSTANCE.newDoubleArray(1, true);
+        SortedNumericDoubleValues docValues = docValues();
+        BlockDoubleValues blockValues = new BlockDoubleValues(docValues);
+        CompensatedSum kahanSummation = new CompensatedSum(0, 0);
+        BlockLeafBucketCollector collector;
+        if (metric.equals("sum")) {
+            collector = new BlockLeafBucketCollector(LeafBucketCollector.NO_OP_COLLECTOR, docValues, true) {
+                @Override
+                public void collect(int[] docs, int count, long bucket) throws IOException {
+                    int valuesCount = blockValues.load(docs, count);
+                    double[] blockOfValues = blockValues.values();
+                    kahanSummation.reset(results.get(bucket), 0);
+                    for (int i = 0; i < valuesCount; i++) {
+                        kahanSummation.add(blockOfValues[i]);
+                    }
+                    results.set(bucket, kahanSummation.value());
+                }
+            };
+        } else {
+            results.set(0, Double.POSITIVE_INFINITY);
+            collector = new BlockLeafBucketCollector(LeafBucketCollector.NO_OP_COLLECTOR, docValues, true) {
+                @Override
+                public void collect(int[] docs, int count, long bucket) throws IOException {
+                    int valuesCount = blockValues.load(docs, count);
+                    double[] blockOfValues = blockValues.values();
+                    double min = results.get(bucket);
+                    for (int i = 0; i < valuesCount; i++) {
+                        min = Math.min(min, blockOfValues[i]);
+                    }
+                    results.set(bucket, min);
+                }
+            };
+        }
+        for (int doc : matchingDocs) {
+            collector.collect(doc, 0);
+        }
+        collector.flush();
+        return results.get(0);
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+package org.elasticsearch.benchmark.search.aggregations;
+
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.search.aggregations.metrics.DDSketchState;
+import org.elasticsearch.search.aggregations.metrics.TDigestState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the t-digest and DDSketch implementations of the {@code percentiles}
+ * aggregation: collecting values on a shard, reducing the sketches of many
+ * shards on the coordinating node and serializing a shard's sketch.
+ */
+@Warmup(iterations = 5)
+@Measurement(iterations = 7)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Fork(value = 1)
+public class PercentilesBenchmark {
+    private static final int NUM_VALUES = 100_000;
+    private static final int VALUES_PER_SHARD = 10_000;
+
+    /**
+     * The number of shard results reduced by the merge benchmarks.
+     */
+    @Param({ "5", "100" })
+    public int shards;
+
+    private double[] values;
+    private TDigestState[] tdigests;
+    private DDSketchState[] ddsketches;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        values = new double[NUM_VALUES];
+        for (int i = 0; i < NUM_VALUES; i++) {
+            // log-normal, like latencies
+            values[i] = Math.exp(random.nextGaussian() * 2 + 5);
+        }
+        tdigests = new TDigestState[shards];
+        ddsketches = new DDSketchState[shards];
+        for (int s = 0; s < shards; s++) {
+            tdigests[s] = new TDigestState(100);
+            ddsketches[s] = new DDSketchState(0.01);
+            for (int i = 0; i < VALUES_PER_SHARD; i++) {
+                double value = Math.exp(random.nextGaussian() * 2 + 5);
+                tdigests[s].add(value);
+                ddsketches[s].add(value);
+            }
+        }
+    }
+
+    @Benchmark
+    public double collectTDigest() {
+        TDigestState state = new TDigestState(100);
+        for (double value : values) {
+            state.add(value);
+        }
+        return state.quantile(0.99);
+    }
+
+    @Benchmark
+    public double collectDDSketch() {
+        DDSketchState state = new DDSketchState(0.01);
+        for (double value : values) {
+            state.add(value);
+        }
+        return state.quantile(0.99);
+    }
+
+    @Benchmark
+    public double mergeTDigest() {
+        TDigestState merged = new TDigestState(100);
+        for (TDigestState state : tdigests) {
+            merged.add(state);
+        }
+        return merged.quantile(0.99);
+    }
+
+    @Benchmark
+    public double mergeDDSketch() {
+        DDSketchState merged = new DDSketchState(0.01);
+        for (DDSketchState state : ddsketches) {
+            merged.add(state);
+        }
+        return merged.quantile(0.99);
+    }
+
+    @Benchmark
+    public int serializeTDigest() throws IOException {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            TDigestState.write(tdigests[0], out);
+            return out.size();
+        }
+    }
+
+    @Benchmark
+    public int serializeDDSketch() throws IOException {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            DDSketchState.write(ddsketches[0], out);
+            return out.size();
+        }
+    }
+}
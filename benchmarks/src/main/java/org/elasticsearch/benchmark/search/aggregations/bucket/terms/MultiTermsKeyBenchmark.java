@@ -0,0 +1,127 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.benchmark.search.aggregations.bucket.terms;
+
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.LongLongHash;
+import org.elasticsearch.common.util.PageCacheRecycler;
+import org.elasticsearch.search.aggregations.CardinalityUpperBound;
+import org.elasticsearch.search.aggregations.bucket.terms.BytesKeyedBucketOrds;
+import org.elasticsearch.search.aggregations.bucket.terms.LongKeyedBucketOrds;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ways that the {@code multi_terms} aggregation can key its
+ * buckets by a tuple of two terms: encoding the tuple into a {@code BytesRef},
+ * packing two global ordinals into a single {@code long} and packing two
+ * {@code long}s into an id from a {@link LongLongHash}.
+ */
+@Fork(2)
+@Warmup(iterations = 10)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@OperationsPerInvocation(1_000_000)
+@State(Scope.Benchmark)
+public class MultiTermsKeyBenchmark {
+    private static final long LIMIT = 1_000_000;
+    /**
+     * The number of distinct values of the first term.
+     */
+    private static final long DISTINCT_FIRST = 21;
+    /**
+     * The number of distinct values of the second term. This is relatively
+     * prime to {@link #DISTINCT_FIRST} so all combinations show up.
+     */
+    private static final long DISTINCT_SECOND = 10;
+    private static final long DISTINCT_TUPLES = DISTINCT_FIRST * DISTINCT_SECOND;
+    /**
+     * The number of bits that the ordinals of the first term need.
+     */
+    private static final int FIRST_BITS = Long.SIZE - Long.numberOfLeadingZeros(DISTINCT_FIRST - 1);
+
+    private final PageCacheRecycler recycler = new PageCacheRecycler(Settings.EMPTY);
+    private final BigArrays bigArrays = new BigArrays(recycler, null, "REQUEST");
+
+    /**
+     * The way that {@code multi_terms} keys buckets when the terms can't be packed.
+     */
+    @Benchmark
+    public void bytes(Blackhole bh) throws IOException {
+        try (BytesKeyedBucketOrds ords = BytesKeyedBucketOrds.build(bigArrays, CardinalityUpperBound.ONE)) {
+            for (long i = 0; i < LIMIT; i++) {
+                try (BytesStreamOutput output = new BytesStreamOutput()) {
+                    output.writeCollection(List.of(i % DISTINCT_FIRST, i % DISTINCT_SECOND), StreamOutput::writeGenericValue);
+                    ords.add(0, output.bytes().toBytesRef());
+                }
+            }
+            checkSize(ords.size());
+            bh.consume(ords);
+        }
+    }
+
+    /**
+     * The way that {@code multi_terms} keys buckets when the terms are global ordinals
+     * that fit into a single {@code long} together.
+     */
+    @Benchmark
+    public void packedOrdinals(Blackhole bh) {
+        try (LongKeyedBucketOrds ords = LongKeyedBucketOrds.build(bigArrays, CardinalityUpperBound.ONE)) {
+            for (long i = 0; i < LIMIT; i++) {
+                ords.add(0, (i % DISTINCT_FIRST) | ((i % DISTINCT_SECOND) << FIRST_BITS));
+            }
+            checkSize(ords.size());
+            bh.consume(ords);
+        }
+    }
+
+    /**
+     * The way that {@code multi_terms} keys buckets when the terms are two numbers.
+     */
+    @Benchmark
+    public void packedLongs(Blackhole bh) {
+        try (
+            LongLongHash tupleIds = new LongLongHash(1, bigArrays);
+            LongKeyedBucketOrds ords = LongKeyedBucketOrds.build(bigArrays, CardinalityUpperBound.ONE)
+        ) {
+            for (long i = 0; i < LIMIT; i++) {
+                long id = tupleIds.add(i % DISTINCT_FIRST, -(i % DISTINCT_SECOND));
+                if (id < 0) {
+                    id = -1 - id;
+                }
+                ords.add(0, id);
+            }
+            checkSize(ords.size());
+            bh.consume(ords);
+        }
+    }
+
+    private static void checkSize(long size) {
+        if (size != DISTINCT_TUPLES) {
+            throw new IllegalArgumentException("Expected [" + DISTINCT_TUPLES + "] but found [" + size + "]");
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.benchmark.search.query;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.search.query.QueryPhase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of fetching a single page of a search_after request sorted
+ * on a timestamp field at increasing depths, with and without the range filter
+ * that {@link QueryPhase} adds on the points of the leading sort field.
+ */
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class SearchAfterLongSortBenchmark {
+    private static final String FIELD = "@timestamp";
+    private static final int NUM_DOCS = 2_000_000;
+    private static final int PAGE_SIZE = 100;
+
+    /**
+     * Fraction of the sorted documents that sit before the cursor.
+     */
+    @Param({ "0.01", "0.5", "0.99" })
+    private double depth;
+
+    @Param({ "false", "true" })
+    private boolean reverse;
+
+    private Directory directory;
+    private IndexReader reader;
+    private IndexSearcher searcher;
+    private Sort sort;
+    private FieldDoc after;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = new ByteBuffersDirectory();
+        Random random = new Random(42);
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+            long timestamp = 1_600_000_000_000L;
+            for (int i = 0; i < NUM_DOCS; i++) {
+                // mostly increasing timestamps, like a time-based stream of events
+                timestamp += random.nextInt(10);
+                Document doc = new Document();
+                doc.add(new LongPoint(FIELD, timestamp));
+                doc.add(new NumericDocValuesField(FIELD, timestamp));
+                writer.addDocument(doc);
+            }
+            writer.commit();
+        }
+        reader = DirectoryReader.open(directory);
+        searcher = new IndexSearcher(reader);
+        searcher.setQueryCache(null);
+
+        SortField sortField = new SortField(FIELD, SortField.Type.LONG, reverse);
+        sortField.setMissingValue(reverse ? Long.MIN_VALUE : Long.MAX_VALUE);
+        sort = new Sort(sortField, SortField.FIELD_DOC);
+        int offset = (int) (NUM_DOCS * depth);
+        TopFieldDocs topDocs = searcher.search(new MatchAllDocsQuery(), offset, sort);
+        after = (FieldDoc) topDocs.scoreDocs[topDocs.scoreDocs.length - 1];
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        reader.close();
+        directory.close();
+    }
+
+    @Benchmark
+    public TopFieldDocs searchAfter() throws IOException {
+        return searcher.searchAfter(after, new MatchAllDocsQuery(), PAGE_SIZE, sort, false);
+    }
+
+    @Benchmark
+    public TopFieldDocs searchAfterWithRangeFilter() throws IOException {
+        Query query = new BooleanQuery.Builder().add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST)
+            .add(QueryPhase.createSearchAfterRangeQuery(FIELD, reverse, (Long) after.fields[0]), BooleanClause.Occur.FILTER)
+            .build();
+        return searcher.searchAfter(after, query, PAGE_SIZE, sort, false);
+    }
+}
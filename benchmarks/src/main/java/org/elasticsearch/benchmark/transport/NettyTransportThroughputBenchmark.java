@@ -0,0 +1,187 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.benchmark.transport;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import org.elasticsearch.transport.CopyBytesServerSocketChannel;
+import org.elasticsearch.transport.CopyBytesSocketChannel;
+import org.elasticsearch.transport.Netty4NioSocketChannel;
+import org.elasticsearch.transport.NettyAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many batches of messages the socket channels of the Netty transport write to and read from a loopback
+ * connection per second. The {@code copy_bytes} channels are used when Netty's direct buffer pooling is disabled and copy
+ * the heap buffers into a direct buffer per event loop, the {@code nio} channels write pooled direct buffers as they are.
+ * The {@code epoll} channels use the native transport that {@code transport.netty.event_loop} selects where it is available,
+ * with the allocator the transport gives them.
+ */
+@Fork(2)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+public class NettyTransportThroughputBenchmark {
+
+    @Param({ "nio", "copy_bytes", "epoll" })
+    public String channelType;
+
+    @Param({ "128", "16384", "1048576" })
+    public int messageSize;
+
+    @Param({ "1", "32" })
+    public int messagesPerBatch;
+
+    private EventLoopGroup eventLoopGroup;
+    private Channel serverChannel;
+    private Channel clientChannel;
+    private ByteBuf message;
+    private volatile CountDownLatch batchAcknowledged;
+
+    @Setup
+    public void setUp() {
+        final ByteBufAllocator allocator;
+        final Class<? extends ServerChannel> serverChannelType;
+        final Class<? extends Channel> socketChannelType;
+        switch (channelType) {
+            case "nio":
+                allocator = new PooledByteBufAllocator(true);
+                serverChannelType = NioServerSocketChannel.class;
+                socketChannelType = Netty4NioSocketChannel.class;
+                eventLoopGroup = new NioEventLoopGroup(2);
+                break;
+            case "copy_bytes":
+                allocator = new PooledByteBufAllocator(false);
+                serverChannelType = CopyBytesServerSocketChannel.class;
+                socketChannelType = CopyBytesSocketChannel.class;
+                eventLoopGroup = new NioEventLoopGroup(2);
+                break;
+            case "epoll":
+                Epoll.ensureAvailability();
+                allocator = NettyAllocator.getEpollAllocator();
+                serverChannelType = EpollServerSocketChannel.class;
+                socketChannelType = EpollSocketChannel.class;
+                eventLoopGroup = new EpollEventLoopGroup(2);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown channel type [" + channelType + "]");
+        }
+        final long batchSize = (long) messageSize * messagesPerBatch;
+
+        serverChannel = new ServerBootstrap().group(eventLoopGroup)
+            .channel(serverChannelType)
+            .option(ChannelOption.ALLOCATOR, allocator)
+            .childOption(ChannelOption.ALLOCATOR, allocator)
+            .childOption(ChannelOption.TCP_NODELAY, true)
+            .childHandler(new ChannelInitializer<Channel>() {
+                @Override
+                protected void initChannel(Channel ch) {
+                    ch.pipeline().addLast(new BatchAcknowledger(batchSize));
+                }
+            })
+            .bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))
+            .syncUninterruptibly()
+            .channel();
+        clientChannel = new Bootstrap().group(eventLoopGroup)
+            .channel(socketChannelType)
+            .option(ChannelOption.ALLOCATOR, allocator)
+            .option(ChannelOption.TCP_NODELAY, true)
+            .handler(new ChannelInboundHandlerAdapter() {
+                @Override
+                public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                    // only one batch is in flight at a time so this is the acknowledgement of the current batch
+                    ((ByteBuf) msg).release();
+                    batchAcknowledged.countDown();
+                }
+            })
+            .connect(serverChannel.localAddress())
+            .syncUninterruptibly()
+            .channel();
+
+        message = allocator.buffer(messageSize);
+        message.writerIndex(messageSize);
+    }
+
+    @TearDown
+    public void tearDown() {
+        message.release();
+        clientChannel.close().syncUninterruptibly();
+        serverChannel.close().syncUninterruptibly();
+        eventLoopGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    @Benchmark
+    public void writeBatch() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        batchAcknowledged = latch;
+        for (int i = 0; i < messagesPerBatch; i++) {
+            clientChannel.write(message.retainedDuplicate());
+        }
+        clientChannel.flush();
+        latch.await();
+    }
+
+    /**
+     * Counts the received bytes and answers with a single byte for every batch.
+     */
+    private static final class BatchAcknowledger extends ChannelInboundHandlerAdapter {
+
+        private final long batchSize;
+        private long received;
+
+        BatchAcknowledger(long batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            final ByteBuf bytes = (ByteBuf) msg;
+            received += bytes.readableBytes();
+            bytes.release();
+            while (received >= batchSize) {
+                received -= batchSize;
+                ctx.writeAndFlush(ctx.alloc().buffer(1).writeByte(1));
+            }
+        }
+    }
+}
@@ -37,6 +37,8 @@ public class PagedBytesReferenceReadVIntBenchmark {
 
     private StreamInput streamInput;
 
+    private StreamInput arrayStreamInput;
+
     @Setup
     public void initResults() throws IOException {
         final BytesStreamOutput tmp = new BytesStreamOutput();
@@ -51,6 +53,15 @@ public class PagedBytesReferenceReadVIntBenchmark {
             throw new AssertionError("expected PagedBytesReference but saw [" + pagedBytes.getClass() + "]");
         }
         this.streamInput = pagedBytes.streamInput();
+
+        final int[] values = new int[entries];
+        for (int i = 0; i < entries / 2; i++) {
+            values[i] = i;
+            values[entries / 2 + i] = Integer.MAX_VALUE - i;
+        }
+        final BytesStreamOutput arrayOut = new BytesStreamOutput();
+        arrayOut.writeVIntArray(values);
+        this.arrayStreamInput = arrayOut.bytes().streamInput();
     }
 
     @Benchmark
@@ -62,4 +73,10 @@ public class PagedBytesReferenceReadVIntBenchmark {
         }
         return res;
     }
+
+    @Benchmark
+    public int[] readVIntArray() throws IOException {
+        arrayStreamInput.reset();
+        return arrayStreamInput.readVIntArray();
+    }
 }
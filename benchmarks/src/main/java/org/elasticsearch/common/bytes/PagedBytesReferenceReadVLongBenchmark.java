@@ -37,6 +37,8 @@ public class PagedBytesReferenceReadVLongBenchmark {
 
     private StreamInput streamInput;
 
+    private StreamInput arrayStreamInput;
+
     @Setup
     public void initResults() throws IOException {
         final BytesStreamOutput tmp = new BytesStreamOutput();
@@ -51,6 +53,15 @@ public class PagedBytesReferenceReadVLongBenchmark {
             throw new AssertionError("expected PagedBytesReference but saw [" + pagedBytes.getClass() + "]");
         }
         this.streamInput = pagedBytes.streamInput();
+
+        final long[] values = new long[entries];
+        for (int i = 0; i < entries / 2; i++) {
+            values[i] = i;
+            values[entries / 2 + i] = Long.MAX_VALUE - i;
+        }
+        final BytesStreamOutput arrayOut = new BytesStreamOutput();
+        arrayOut.writeVLongArray(values);
+        this.arrayStreamInput = arrayOut.bytes().streamInput();
     }
 
     @Benchmark
@@ -62,4 +73,10 @@ public class PagedBytesReferenceReadVLongBenchmark {
         }
         return res;
     }
+
+    @Benchmark
+    public long[] readVLongArray() throws IOException {
+        arrayStreamInput.reset();
+        return arrayStreamInput.readVLongArray();
+    }
 }
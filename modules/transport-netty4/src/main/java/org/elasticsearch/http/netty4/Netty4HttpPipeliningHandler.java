@@ -36,8 +36,15 @@ public class Netty4HttpPipeliningHandler extends ChannelDuplexHandler {
      *                      required as events cannot queue up indefinitely
      */
     public Netty4HttpPipeliningHandler(Logger logger, final int maxEventsHeld) {
+        this(logger, maxEventsHeld, new HttpPipeliningAggregator.Counters());
+    }
+
+    /**
+     * Construct a new pipelining handler that counts pipelined requests and held back responses in the given counters.
+     */
+    public Netty4HttpPipeliningHandler(Logger logger, final int maxEventsHeld, final HttpPipeliningAggregator.Counters counters) {
         this.logger = logger;
-        this.aggregator = new HttpPipeliningAggregator<>(maxEventsHeld);
+        this.aggregator = new HttpPipeliningAggregator<>(maxEventsHeld, counters);
     }
 
     @Override
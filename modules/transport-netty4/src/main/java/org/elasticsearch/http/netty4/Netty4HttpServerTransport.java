@@ -9,6 +9,8 @@
 package org.elasticsearch.http.netty4;
 
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandler;
@@ -16,17 +18,27 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
 import io.netty.channel.FixedRecvByteBufAllocator;
 import io.netty.channel.RecvByteBufAllocator;
-import io.netty.channel.socket.nio.NioChannelOption;
 import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.http.HttpContentCompressor;
 import io.netty.handler.codec.http.HttpContentDecompressor;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpRequestDecoder;
 import io.netty.handler.codec.http.HttpResponseEncoder;
+import io.netty.handler.codec.http.HttpServerUpgradeHandler;
+import io.netty.handler.codec.http2.Http2CodecUtil;
+import io.netty.handler.codec.http2.Http2FrameCodec;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2ServerUpgradeCodec;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
 import io.netty.handler.timeout.ReadTimeoutException;
 import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.util.AsciiString;
 import io.netty.util.AttributeKey;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -42,7 +54,6 @@ import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.core.internal.io.IOUtils;
-import org.elasticsearch.core.internal.net.NetUtils;
 import org.elasticsearch.http.AbstractHttpServerTransport;
 import org.elasticsearch.http.HttpChannel;
 import org.elasticsearch.http.HttpHandlingSettings;
@@ -55,7 +66,7 @@ import org.elasticsearch.transport.SharedGroupFactory;
 import org.elasticsearch.transport.netty4.Netty4Utils;
 
 import java.net.InetSocketAddress;
-import java.net.SocketOption;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import static org.elasticsearch.http.HttpTransportSettings.SETTING_HTTP_MAX_CHUNK_SIZE;
@@ -119,6 +130,12 @@ public class Netty4HttpServerTransport extends AbstractHttpServerTransport {
     public static final Setting<ByteSizeValue> SETTING_HTTP_NETTY_RECEIVE_PREDICTOR_SIZE =
         Setting.byteSizeSetting("http.netty.receive_predictor_size", new ByteSizeValue(64, ByteSizeUnit.KB), Property.NodeScope);
 
+    /**
+     * Whether connections also accept HTTP/2, either with prior knowledge or through an HTTP/1.1 {@code Upgrade: h2c} request.
+     */
+    public static final Setting<Boolean> SETTING_HTTP_NETTY_HTTP2_ENABLED =
+        Setting.boolSetting("http.netty.http2.enabled", false, Property.NodeScope);
+
     private final ByteSizeValue maxInitialLineLength;
     private final ByteSizeValue maxHeaderSize;
     private final ByteSizeValue maxChunkSize;
@@ -131,6 +148,8 @@ public class Netty4HttpServerTransport extends AbstractHttpServerTransport {
 
     private final int maxCompositeBufferComponents;
 
+    private final boolean http2Enabled;
+
     private volatile ServerBootstrap serverBootstrap;
     private volatile SharedGroupFactory.SharedGroup sharedGroup;
 
@@ -151,19 +170,25 @@ public class Netty4HttpServerTransport extends AbstractHttpServerTransport {
 
         this.readTimeoutMillis = Math.toIntExact(SETTING_HTTP_READ_TIMEOUT.get(settings).getMillis());
 
+        this.http2Enabled = SETTING_HTTP_NETTY_HTTP2_ENABLED.get(settings);
+
         ByteSizeValue receivePredictor = SETTING_HTTP_NETTY_RECEIVE_PREDICTOR_SIZE.get(settings);
         recvByteBufAllocator = new FixedRecvByteBufAllocator(receivePredictor.bytesAsInt());
 
         logger.debug("using max_chunk_size[{}], max_header_size[{}], max_initial_line_length[{}], max_content_length[{}], " +
-                "receive_predictor[{}], max_composite_buffer_components[{}], pipelining_max_events[{}]",
+                "receive_predictor[{}], max_composite_buffer_components[{}], pipelining_max_events[{}], http2[{}]",
             maxChunkSize, maxHeaderSize, maxInitialLineLength, maxContentLength, receivePredictor, maxCompositeBufferComponents,
-            pipeliningMaxEvents);
+            pipeliningMaxEvents, http2Enabled);
     }
 
     public Settings settings() {
         return this.settings;
     }
 
+    public boolean isHttp2Enabled() {
+        return http2Enabled;
+    }
+
     @Override
     protected void doStart() {
         boolean success = false;
@@ -173,12 +198,12 @@ public class Netty4HttpServerTransport extends AbstractHttpServerTransport {
 
             serverBootstrap.group(sharedGroup.getLowLevelGroup());
 
-            // NettyAllocator will return the channel type designed to work with the configuredAllocator
-            serverBootstrap.channel(NettyAllocator.getServerChannelType());
+            // the shared group returns the channel type of its event loop designed to work with the configured allocator
+            serverBootstrap.channel(sharedGroup.getServerChannelType());
 
             // Set the allocators for both the server channel and the child channels created
-            serverBootstrap.option(ChannelOption.ALLOCATOR, NettyAllocator.getAllocator());
-            serverBootstrap.childOption(ChannelOption.ALLOCATOR, NettyAllocator.getAllocator());
+            serverBootstrap.option(ChannelOption.ALLOCATOR, sharedGroup.getAllocator());
+            serverBootstrap.childOption(ChannelOption.ALLOCATOR, sharedGroup.getAllocator());
 
             serverBootstrap.childHandler(configureServerChannelHandler());
             serverBootstrap.handler(new ServerChannelExceptionHandler(this));
@@ -190,22 +215,21 @@ public class Netty4HttpServerTransport extends AbstractHttpServerTransport {
                 // Netty logs a warning if it can't set the option, so try this only on supported platforms
                 if (IOUtils.LINUX || IOUtils.MAC_OS_X) {
                     if (SETTING_HTTP_TCP_KEEP_IDLE.get(settings) >= 0) {
-                        final SocketOption<Integer> keepIdleOption = NetUtils.getTcpKeepIdleSocketOptionOrNull();
+                        final ChannelOption<Integer> keepIdleOption = sharedGroup.getTcpKeepIdleOption();
                         if (keepIdleOption != null) {
-                            serverBootstrap.childOption(NioChannelOption.of(keepIdleOption), SETTING_HTTP_TCP_KEEP_IDLE.get(settings));
+                            serverBootstrap.childOption(keepIdleOption, SETTING_HTTP_TCP_KEEP_IDLE.get(settings));
                         }
                     }
                     if (SETTING_HTTP_TCP_KEEP_INTERVAL.get(settings) >= 0) {
-                        final SocketOption<Integer> keepIntervalOption = NetUtils.getTcpKeepIntervalSocketOptionOrNull();
+                        final ChannelOption<Integer> keepIntervalOption = sharedGroup.getTcpKeepIntervalOption();
                         if (keepIntervalOption != null) {
-                            serverBootstrap.childOption(NioChannelOption.of(keepIntervalOption),
-                                SETTING_HTTP_TCP_KEEP_INTERVAL.get(settings));
+                            serverBootstrap.childOption(keepIntervalOption, SETTING_HTTP_TCP_KEEP_INTERVAL.get(settings));
                         }
                     }
                     if (SETTING_HTTP_TCP_KEEP_COUNT.get(settings) >= 0) {
-                        final SocketOption<Integer> keepCountOption = NetUtils.getTcpKeepCountSocketOptionOrNull();
+                        final ChannelOption<Integer> keepCountOption = sharedGroup.getTcpKeepCountOption();
                         if (keepCountOption != null) {
-                            serverBootstrap.childOption(NioChannelOption.of(keepCountOption), SETTING_HTTP_TCP_KEEP_COUNT.get(settings));
+                            serverBootstrap.childOption(keepCountOption, SETTING_HTTP_TCP_KEEP_COUNT.get(settings));
                         }
                     }
                 }
@@ -272,11 +296,16 @@ public class Netty4HttpServerTransport extends AbstractHttpServerTransport {
 
     protected static class HttpChannelHandler extends ChannelInitializer<Channel> {
 
+        // the handlers that an HTTP/1.1 connection needs and that are removed if the connection switches to HTTP/2
+        private static final List<String> HTTP1_HANDLERS = List.of("decoder", "decoder_compress", "encoder", "aggregator",
+            "encoder_compress", "request_creator", "response_creator", "pipelining", "handler");
+
         private final Netty4HttpServerTransport transport;
         private final Netty4HttpRequestCreator requestCreator;
         private final Netty4HttpRequestHandler requestHandler;
         private final Netty4HttpResponseCreator responseCreator;
         private final HttpHandlingSettings handlingSettings;
+        private final Http2StreamHandler streamHandler;
 
         protected HttpChannelHandler(final Netty4HttpServerTransport transport, final HttpHandlingSettings handlingSettings) {
             this.transport = transport;
@@ -284,12 +313,14 @@ public class Netty4HttpServerTransport extends AbstractHttpServerTransport {
             this.requestCreator =  new Netty4HttpRequestCreator();
             this.requestHandler = new Netty4HttpRequestHandler(transport);
             this.responseCreator = new Netty4HttpResponseCreator();
+            this.streamHandler = new Http2StreamHandler();
         }
 
         @Override
         protected void initChannel(Channel ch) throws Exception {
             Netty4HttpChannel nettyHttpChannel = new Netty4HttpChannel(ch);
             ch.attr(HTTP_CHANNEL_KEY).set(nettyHttpChannel);
+            Netty4Utils.addWriteThrottlingHandler(ch);
             ch.pipeline().addLast("byte_buf_sizer", NettyByteBufSizer.INSTANCE);
             ch.pipeline().addLast("read_timeout", new ReadTimeoutHandler(transport.readTimeoutMillis, TimeUnit.MILLISECONDS));
             final HttpRequestDecoder decoder = new HttpRequestDecoder(
@@ -300,17 +331,91 @@ public class Netty4HttpServerTransport extends AbstractHttpServerTransport {
             ch.pipeline().addLast("decoder", decoder);
             ch.pipeline().addLast("decoder_compress", new HttpContentDecompressor());
             ch.pipeline().addLast("encoder", new HttpResponseEncoder());
+            if (transport.http2Enabled) {
+                ch.pipeline().addBefore("decoder", "http2_prior_knowledge", new Http2PriorKnowledgeHandler());
+                ch.pipeline().addLast("http2_upgrade", new HttpServerUpgradeHandler(ctx -> removeHttp1Handlers(ctx.pipeline()),
+                    protocol -> AsciiString.contentEquals(Http2CodecUtil.HTTP_UPGRADE_PROTOCOL_NAME, protocol)
+                        ? new Http2ServerUpgradeCodec(newHttp2FrameCodec(), new Http2MultiplexHandler(streamHandler))
+                        : null,
+                    handlingSettings.getMaxContentLength()));
+            }
+            addRequestHandlers(ch.pipeline());
+            transport.serverAcceptedChannel(nettyHttpChannel);
+        }
+
+        private void addRequestHandlers(ChannelPipeline pipeline) {
             final HttpObjectAggregator aggregator = new HttpObjectAggregator(handlingSettings.getMaxContentLength());
             aggregator.setMaxCumulationBufferComponents(transport.maxCompositeBufferComponents);
-            ch.pipeline().addLast("aggregator", aggregator);
+            pipeline.addLast("aggregator", aggregator);
             if (handlingSettings.isCompression()) {
-                ch.pipeline().addLast("encoder_compress", new HttpContentCompressor(handlingSettings.getCompressionLevel()));
+                pipeline.addLast("encoder_compress", new HttpContentCompressor(handlingSettings.getCompressionLevel()));
+            }
+            pipeline.addLast("request_creator", requestCreator);
+            pipeline.addLast("response_creator", responseCreator);
+            pipeline.addLast("pipelining", new Netty4HttpPipeliningHandler(logger, transport.pipeliningMaxEvents,
+                transport.getPipeliningCounters()));
+            pipeline.addLast("handler", requestHandler);
+        }
+
+        private static void removeHttp1Handlers(ChannelPipeline pipeline) {
+            for (String name : HTTP1_HANDLERS) {
+                if (pipeline.get(name) != null) {
+                    pipeline.remove(name);
+                }
+            }
+        }
+
+        private Http2FrameCodec newHttp2FrameCodec() {
+            return Http2FrameCodecBuilder.forServer()
+                .initialSettings(Http2Settings.defaultSettings()
+                    .maxConcurrentStreams(transport.pipeliningMaxEvents)
+                    .maxHeaderListSize(handlingSettings.getMaxHeaderSize()))
+                .build();
+        }
+
+        /**
+         * Switches the connection to HTTP/2 if it starts with the HTTP/2 connection preface, and otherwise removes itself and leaves
+         * the connection to the HTTP/1.1 handlers.
+         */
+        private final class Http2PriorKnowledgeHandler extends ByteToMessageDecoder {
+
+            @Override
+            protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+                final ByteBuf preface = Http2CodecUtil.connectionPrefaceBuf();
+                try {
+                    final int length = Math.min(in.readableBytes(), preface.readableBytes());
+                    if (ByteBufUtil.equals(preface, preface.readerIndex(), in, in.readerIndex(), length) == false) {
+                        ctx.pipeline().remove(this);
+                    } else if (length == preface.readableBytes()) {
+                        removeHttp1Handlers(ctx.pipeline());
+                        ctx.pipeline().remove("http2_upgrade");
+                        ctx.pipeline().addAfter(ctx.name(), "http2", newHttp2FrameCodec());
+                        ctx.pipeline().addAfter("http2", "http2_multiplex", new Http2MultiplexHandler(streamHandler));
+                        // the preface is passed on to the HTTP/2 codec when this handler is removed
+                        ctx.pipeline().remove(this);
+                    }
+                } finally {
+                    preface.release();
+                }
+            }
+        }
+
+        /**
+         * Sets up the pipeline of each HTTP/2 stream like that of an HTTP/1.1 connection. Each stream carries a single request and its
+         * response as its own {@link Netty4HttpChannel}, and the flow control window of the stream applies to both.
+         */
+        private final class Http2StreamHandler extends ChannelInitializer<Http2StreamChannel> {
+
+            @Override
+            protected void initChannel(Http2StreamChannel ch) {
+                final Netty4HttpChannel connection = ch.parent().attr(HTTP_CHANNEL_KEY).get();
+                final Netty4HttpChannel stream = new Netty4HttpChannel(ch);
+                ch.attr(HTTP_CHANNEL_KEY).set(stream);
+                ch.pipeline().addLast("http2_codec", new Http2StreamFrameToHttpObjectCodec(true));
+                ch.pipeline().addLast("decoder_compress", new HttpContentDecompressor());
+                addRequestHandlers(ch.pipeline());
+                transport.serverAcceptedStream(connection, stream);
             }
-            ch.pipeline().addLast("request_creator", requestCreator);
-            ch.pipeline().addLast("response_creator", responseCreator);
-            ch.pipeline().addLast("pipelining", new Netty4HttpPipeliningHandler(logger, transport.pipeliningMaxEvents));
-            ch.pipeline().addLast("handler", requestHandler);
-            transport.serverAcceptedChannel(nettyHttpChannel);
         }
 
         @Override
@@ -123,6 +123,23 @@ public class NettyAllocator {
         return DESCRIPTION;
     }
 
+    /**
+     * Returns the allocator for the channels of the native epoll transport. These channels read into direct buffers and copy the
+     * heap buffers they write into a direct buffer first, so if {@link #getAllocator()} does not hand out direct buffers then this
+     * allocator returns the same heap buffers but allocates the direct buffers that the channels ask for explicitly from a small
+     * pool. Like the thread local direct buffer of {@link CopyBytesSocketChannel} these are only used to move bytes between the
+     * heap and the socket: {@link NettyByteBufSizer} copies the bytes that are read back to the heap, and the write throttling
+     * handler of the epoll channels only writes slices of at most {@link CopyBytesSocketChannel#MAX_BYTES_PER_WRITE} bytes while
+     * the channel is writable, which bounds the direct buffers that are copied for writes.
+     */
+    public static ByteBufAllocator getEpollAllocator() {
+        if (ALLOCATOR instanceof NoDirectBuffers) {
+            return EpollAllocatorHolder.ALLOCATOR;
+        } else {
+            return ALLOCATOR;
+        }
+    }
+
     public static Class<? extends Channel> getChannelType() {
         if (ALLOCATOR instanceof NoDirectBuffers) {
             return CopyBytesSocketChannel.class;
@@ -293,4 +310,43 @@ public class NettyAllocator {
             return delegate;
         }
     }
+
+    static class DirectIOBuffers extends NoDirectBuffers {
+
+        private final ByteBufAllocator directDelegate;
+
+        private DirectIOBuffers(ByteBufAllocator delegate, ByteBufAllocator directDelegate) {
+            super(delegate);
+            this.directDelegate = directDelegate;
+        }
+
+        @Override
+        public ByteBuf directBuffer() {
+            return directDelegate.directBuffer();
+        }
+
+        @Override
+        public ByteBuf directBuffer(int initialCapacity) {
+            return directDelegate.directBuffer(initialCapacity);
+        }
+
+        @Override
+        public ByteBuf directBuffer(int initialCapacity, int maxCapacity) {
+            return directDelegate.directBuffer(initialCapacity, maxCapacity);
+        }
+
+        @Override
+        public boolean isDirectBufferPooled() {
+            return directDelegate.isDirectBufferPooled();
+        }
+    }
+
+    private static class EpollAllocatorHolder {
+
+        // a 8192 byte page size with max order 7 gives 1 MB chunks, the size of the direct buffer of CopyBytesSocketChannel
+        private static final ByteBufAllocator ALLOCATOR = new DirectIOBuffers(((NoDirectBuffers) NettyAllocator.ALLOCATOR).getDelegate(),
+            new PooledByteBufAllocator(true, 0, PooledByteBufAllocator.defaultNumDirectArena(), 8192, 7,
+                PooledByteBufAllocator.defaultTinyCacheSize(), PooledByteBufAllocator.defaultSmallCacheSize(),
+                PooledByteBufAllocator.defaultNormalCacheSize(), PooledByteBufAllocator.defaultUseCacheForAllThreads()));
+    }
 }
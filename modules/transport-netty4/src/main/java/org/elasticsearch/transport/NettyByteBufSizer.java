@@ -27,7 +27,11 @@ public class NettyByteBufSizer extends MessageToMessageDecoder<ByteBuf> {
     @Override
     protected void decode(ChannelHandlerContext ctx, ByteBuf buf, List<Object> out) {
         int readableBytes = buf.readableBytes();
-        if (buf.capacity() >= 1024) {
+        if (buf.isDirect() && ctx.alloc() instanceof NettyAllocator.DirectIOBuffers) {
+            // the epoll channels always read into direct buffers, but the allocator does not hand out direct buffers otherwise so
+            // copy the bytes to the heap to return the pooled direct buffer right away
+            out.add(ctx.alloc().heapBuffer(readableBytes).writeBytes(buf));
+        } else if (buf.capacity() >= 1024) {
             ByteBuf resized = buf.discardReadBytes().capacity(readableBytes);
             assert resized.readableBytes() == readableBytes;
             out.add(resized.retain());
@@ -8,17 +8,33 @@
 
 package org.elasticsearch.transport;
 
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioChannelOption;
 import io.netty.util.concurrent.Future;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.core.AbstractRefCounted;
+import org.elasticsearch.core.internal.net.NetUtils;
 import org.elasticsearch.http.HttpServerTransport;
 import org.elasticsearch.http.netty4.Netty4HttpServerTransport;
 import org.elasticsearch.transport.netty4.Netty4Transport;
 
+import java.net.SocketOption;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.Locale;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -29,6 +45,9 @@ import static org.elasticsearch.common.util.concurrent.EsExecutors.daemonThreadF
  * both {@link #getHttpGroup()} and {@link #getTransportGroup()} if
  * {@link org.elasticsearch.http.netty4.Netty4HttpServerTransport#SETTING_HTTP_WORKER_COUNT} is configured to be 0.
  * If that setting is not 0, then it will return a different group in the {@link #getHttpGroup()} call.
+ * <p>
+ * Both groups use the event loop that {@link Netty4Transport#EVENT_LOOP} selects, and the {@link SharedGroup} returns the
+ * channel types and socket options that go with it.
  */
 public final class SharedGroupFactory {
 
@@ -37,6 +56,7 @@ public final class SharedGroupFactory {
     private final Settings settings;
     private final int workerCount;
     private final int httpWorkerCount;
+    private final boolean epoll;
 
     private RefCountedGroup genericGroup;
     private SharedGroup dedicatedHttpGroup;
@@ -45,6 +65,39 @@ public final class SharedGroupFactory {
         this.settings = settings;
         this.workerCount = Netty4Transport.WORKER_COUNT.get(settings);
         this.httpWorkerCount = Netty4HttpServerTransport.SETTING_HTTP_WORKER_COUNT.get(settings);
+        final EventLoopType eventLoopType = Netty4Transport.EVENT_LOOP.get(settings);
+        final Throwable epollUnavailabilityCause = eventLoopType == EventLoopType.NIO ? null : epollUnavailabilityCause();
+        this.epoll = useEpoll(eventLoopType, epollUnavailabilityCause);
+        logger.info("using [{}] event loops for [{}={}]", epoll ? "epoll" : "nio", Netty4Transport.EVENT_LOOP.getKey(), eventLoopType);
+    }
+
+    /**
+     * Decides whether to use the epoll event loop, {@link EventLoopType#AUTO} falls back to nio if epoll is not available.
+     */
+    static boolean useEpoll(EventLoopType eventLoopType, Throwable epollUnavailabilityCause) {
+        switch (eventLoopType) {
+            case NIO:
+                return false;
+            case EPOLL:
+                if (epollUnavailabilityCause != null) {
+                    throw new IllegalArgumentException("[" + Netty4Transport.EVENT_LOOP.getKey() + "] is set to [epoll] but epoll is not " +
+                        "available on this platform", epollUnavailabilityCause);
+                }
+                return true;
+            case AUTO:
+                if (epollUnavailabilityCause != null) {
+                    logger.debug("epoll is not available, falling back to nio", epollUnavailabilityCause);
+                    return false;
+                }
+                return true;
+            default:
+                throw new AssertionError("unknown event loop type [" + eventLoopType + "]");
+        }
+    }
+
+    private static Throwable epollUnavailabilityCause() {
+        // loading the native library of the epoll transport needs privileges
+        return AccessController.doPrivileged((PrivilegedAction<Throwable>) Epoll::unavailabilityCause);
     }
 
     public Settings getSettings() {
@@ -55,6 +108,10 @@ public final class SharedGroupFactory {
         return workerCount;
     }
 
+    public boolean usesEpoll() {
+        return epoll;
+    }
+
     public synchronized SharedGroup getTransportGroup() {
         return getGenericGroup();
     }
@@ -64,9 +121,9 @@ public final class SharedGroupFactory {
             return getGenericGroup();
         } else {
             if (dedicatedHttpGroup == null) {
-                NioEventLoopGroup eventLoopGroup = new NioEventLoopGroup(httpWorkerCount,
+                EventLoopGroup eventLoopGroup = newEventLoopGroup(httpWorkerCount,
                     daemonThreadFactory(settings, HttpServerTransport.HTTP_SERVER_WORKER_THREAD_NAME_PREFIX));
-                dedicatedHttpGroup = new SharedGroup(new RefCountedGroup(eventLoopGroup));
+                dedicatedHttpGroup = new SharedGroup(new RefCountedGroup(eventLoopGroup), epoll);
             }
             return dedicatedHttpGroup;
         }
@@ -74,13 +131,32 @@ public final class SharedGroupFactory {
 
     private SharedGroup getGenericGroup() {
         if (genericGroup == null) {
-            EventLoopGroup eventLoopGroup = new NioEventLoopGroup(workerCount,
+            EventLoopGroup eventLoopGroup = newEventLoopGroup(workerCount,
                 daemonThreadFactory(settings, TcpTransport.TRANSPORT_WORKER_THREAD_NAME_PREFIX));
             this.genericGroup = new RefCountedGroup(eventLoopGroup);
         } else {
             genericGroup.incRef();
         }
-        return new SharedGroup(genericGroup);
+        return new SharedGroup(genericGroup, epoll);
+    }
+
+    private EventLoopGroup newEventLoopGroup(int threads, ThreadFactory threadFactory) {
+        return epoll ? new EpollEventLoopGroup(threads, threadFactory) : new NioEventLoopGroup(threads, threadFactory);
+    }
+
+    /**
+     * The event loops that {@link Netty4Transport#EVENT_LOOP} selects from. {@link #AUTO} uses epoll if it is available and nio
+     * otherwise.
+     */
+    public enum EventLoopType {
+        AUTO,
+        NIO,
+        EPOLL;
+
+        @Override
+        public String toString() {
+            return name().toLowerCase(Locale.ROOT);
+        }
     }
 
     private static class RefCountedGroup extends AbstractRefCounted {
@@ -110,17 +186,54 @@ public final class SharedGroupFactory {
     public static class SharedGroup {
 
         private final RefCountedGroup refCountedGroup;
+        private final boolean epoll;
 
         private final AtomicBoolean isOpen = new AtomicBoolean(true);
 
-        private SharedGroup(RefCountedGroup refCountedGroup) {
+        private SharedGroup(RefCountedGroup refCountedGroup, boolean epoll) {
             this.refCountedGroup = refCountedGroup;
+            this.epoll = epoll;
         }
 
         public EventLoopGroup getLowLevelGroup() {
             return refCountedGroup.eventLoopGroup;
         }
 
+        /**
+         * The socket channel type for this group. On nio {@link NettyAllocator} returns the channel type designed to work with
+         * the configured allocator.
+         */
+        public Class<? extends Channel> getChannelType() {
+            return epoll ? EpollSocketChannel.class : NettyAllocator.getChannelType();
+        }
+
+        public Class<? extends ServerChannel> getServerChannelType() {
+            return epoll ? EpollServerSocketChannel.class : NettyAllocator.getServerChannelType();
+        }
+
+        public ByteBufAllocator getAllocator() {
+            return epoll ? NettyAllocator.getEpollAllocator() : NettyAllocator.getAllocator();
+        }
+
+        /**
+         * The channel option for {@code TCP_KEEPIDLE} on the channels of this group, or {@code null} if it is not supported.
+         */
+        public ChannelOption<Integer> getTcpKeepIdleOption() {
+            return epoll ? EpollChannelOption.TCP_KEEPIDLE : nioChannelOption(NetUtils.getTcpKeepIdleSocketOptionOrNull());
+        }
+
+        public ChannelOption<Integer> getTcpKeepIntervalOption() {
+            return epoll ? EpollChannelOption.TCP_KEEPINTVL : nioChannelOption(NetUtils.getTcpKeepIntervalSocketOptionOrNull());
+        }
+
+        public ChannelOption<Integer> getTcpKeepCountOption() {
+            return epoll ? EpollChannelOption.TCP_KEEPCNT : nioChannelOption(NetUtils.getTcpKeepCountSocketOptionOrNull());
+        }
+
+        private static ChannelOption<Integer> nioChannelOption(SocketOption<Integer> option) {
+            return option == null ? null : NioChannelOption.of(option);
+        }
+
         public void shutdown() {
             if (isOpen.compareAndSet(true, false)) {
                 refCountedGroup.decRef();
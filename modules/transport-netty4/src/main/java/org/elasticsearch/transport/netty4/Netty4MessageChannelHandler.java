@@ -22,6 +22,7 @@ import org.elasticsearch.core.Releasables;
 import org.elasticsearch.common.util.PageCacheRecycler;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.InboundPipeline;
+import org.elasticsearch.transport.StatsTracker;
 import org.elasticsearch.transport.Transport;
 import org.elasticsearch.transport.Transports;
 
@@ -41,9 +42,14 @@ final class Netty4MessageChannelHandler extends ChannelDuplexHandler {
 
     private WriteOperation currentWrite;
     private final InboundPipeline pipeline;
+    private final StatsTracker statsTracker;
+
+    // only accessed on the event loop
+    private boolean flushScheduled;
 
     Netty4MessageChannelHandler(PageCacheRecycler recycler, Netty4Transport transport) {
         this.transport = transport;
+        this.statsTracker = transport.getStatsTracker();
         final ThreadPool threadPool = transport.getThreadPool();
         final Transport.RequestHandlers requestHandlers = transport.getRequestHandlers();
         this.pipeline = new InboundPipeline(transport.getVersion(), transport.getStatsTracker(), recycler, threadPool::relativeTimeInMillis,
@@ -99,10 +105,19 @@ final class Netty4MessageChannelHandler extends ChannelDuplexHandler {
     @Override
     public void flush(ChannelHandlerContext ctx) {
         assert Transports.assertDefaultThreadContext(transport.getThreadPool().getThreadContext());
-        Channel channel = ctx.channel();
-        if (channel.isWritable() || channel.isActive() == false) {
-            doFlush(ctx);
+        if (flushScheduled) {
+            return;
         }
+        flushScheduled = true;
+        // Defer the flush to the end of the tasks that are already queued on the event loop, so that the messages that are sent in the
+        // meantime, for instance by other threads or while handling the rest of the current read, are written out with a single flush.
+        ctx.executor().execute(() -> {
+            flushScheduled = false;
+            final Channel channel = ctx.channel();
+            if (channel.isWritable() || channel.isActive() == false) {
+                doFlush(ctx);
+            }
+        });
     }
 
     @Override
@@ -123,6 +138,9 @@ final class Netty4MessageChannelHandler extends ChannelDuplexHandler {
             failQueuedWrites();
             return;
         }
+        // the number of messages that were completely written since the last flush
+        int messages = 0;
+        boolean written = false;
         while (channel.isWritable()) {
             if (currentWrite == null) {
                 currentWrite = queuedWrites.poll();
@@ -148,7 +166,9 @@ final class Netty4MessageChannelHandler extends ChannelDuplexHandler {
                 writeBuffer = write.buf;
             }
             final ChannelFuture writeFuture = ctx.write(writeBuffer);
+            written = true;
             if (sliced == false || write.buf.readableBytes() == 0) {
+                messages++;
                 currentWrite = null;
                 writeFuture.addListener(future -> {
                     assert ctx.executor().inEventLoop();
@@ -166,10 +186,14 @@ final class Netty4MessageChannelHandler extends ChannelDuplexHandler {
                     }
                 });
             }
+        }
+        // Writes that haven't been flushed count towards the channel's write buffer so the loop above stops once a batch of messages
+        // fills it up. Flushing that batch all at once lets the channel write it with a single gathering write.
+        if (written) {
             ctx.flush();
+            statsTracker.markFlush(messages);
             if (channel.isActive() == false) {
                 failQueuedWrites();
-                return;
             }
         }
     }
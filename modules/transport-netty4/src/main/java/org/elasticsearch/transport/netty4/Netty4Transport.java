@@ -15,11 +15,13 @@ import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelException;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.FixedRecvByteBufAllocator;
 import io.netty.channel.RecvByteBufAllocator;
-import io.netty.channel.socket.nio.NioChannelOption;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannelConfig;
 import io.netty.util.AttributeKey;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -50,7 +52,6 @@ import org.elasticsearch.transport.TransportSettings;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.net.SocketOption;
 import java.util.Map;
 
 import static org.elasticsearch.common.settings.Setting.byteSizeSetting;
@@ -71,6 +72,9 @@ public class Netty4Transport extends TcpTransport {
             (s) -> Integer.toString(EsExecutors.allocatedProcessors(s)),
             (s) -> Setting.parseInt(s, 1, "transport.netty.worker_count"), Property.NodeScope);
 
+    public static final Setting<SharedGroupFactory.EventLoopType> EVENT_LOOP = Setting.enumSetting(SharedGroupFactory.EventLoopType.class,
+        "transport.netty.event_loop", SharedGroupFactory.EventLoopType.AUTO, Property.NodeScope);
+
     public static final Setting<ByteSizeValue> NETTY_RECEIVE_PREDICTOR_SIZE = Setting.byteSizeSetting(
         "transport.netty.receive_predictor_size", new ByteSizeValue(64, ByteSizeUnit.KB), Property.NodeScope);
     public static final Setting<ByteSizeValue> NETTY_RECEIVE_PREDICTOR_MIN =
@@ -132,31 +136,30 @@ public class Netty4Transport extends TcpTransport {
         final Bootstrap bootstrap = new Bootstrap();
         bootstrap.group(sharedGroup.getLowLevelGroup());
 
-        // NettyAllocator will return the channel type designed to work with the configured allocator
-        assert Netty4NioSocketChannel.class.isAssignableFrom(NettyAllocator.getChannelType());
-        bootstrap.channel(NettyAllocator.getChannelType());
-        bootstrap.option(ChannelOption.ALLOCATOR, NettyAllocator.getAllocator());
+        // the shared group returns the channel type of its event loop designed to work with the configured allocator
+        bootstrap.channel(sharedGroup.getChannelType());
+        bootstrap.option(ChannelOption.ALLOCATOR, sharedGroup.getAllocator());
 
         bootstrap.option(ChannelOption.TCP_NODELAY, TransportSettings.TCP_NO_DELAY.get(settings));
         bootstrap.option(ChannelOption.SO_KEEPALIVE, TransportSettings.TCP_KEEP_ALIVE.get(settings));
         if (TransportSettings.TCP_KEEP_ALIVE.get(settings)) {
             // Note that Netty logs a warning if it can't set the option
             if (TransportSettings.TCP_KEEP_IDLE.get(settings) >= 0) {
-                final SocketOption<Integer> keepIdleOption = NetUtils.getTcpKeepIdleSocketOptionOrNull();
+                final ChannelOption<Integer> keepIdleOption = sharedGroup.getTcpKeepIdleOption();
                 if (keepIdleOption != null) {
-                    bootstrap.option(NioChannelOption.of(keepIdleOption), TransportSettings.TCP_KEEP_IDLE.get(settings));
+                    bootstrap.option(keepIdleOption, TransportSettings.TCP_KEEP_IDLE.get(settings));
                 }
             }
             if (TransportSettings.TCP_KEEP_INTERVAL.get(settings) >= 0) {
-                final SocketOption<Integer> keepIntervalOption = NetUtils.getTcpKeepIntervalSocketOptionOrNull();
+                final ChannelOption<Integer> keepIntervalOption = sharedGroup.getTcpKeepIntervalOption();
                 if (keepIntervalOption != null) {
-                    bootstrap.option(NioChannelOption.of(keepIntervalOption), TransportSettings.TCP_KEEP_INTERVAL.get(settings));
+                    bootstrap.option(keepIntervalOption, TransportSettings.TCP_KEEP_INTERVAL.get(settings));
                 }
             }
             if (TransportSettings.TCP_KEEP_COUNT.get(settings) >= 0) {
-                final SocketOption<Integer> keepCountOption = NetUtils.getTcpKeepCountSocketOptionOrNull();
+                final ChannelOption<Integer> keepCountOption = sharedGroup.getTcpKeepCountOption();
                 if (keepCountOption != null) {
-                    bootstrap.option(NioChannelOption.of(keepCountOption), TransportSettings.TCP_KEEP_COUNT.get(settings));
+                    bootstrap.option(keepCountOption, TransportSettings.TCP_KEEP_COUNT.get(settings));
                 }
             }
         }
@@ -191,12 +194,12 @@ public class Netty4Transport extends TcpTransport {
 
         serverBootstrap.group(sharedGroup.getLowLevelGroup());
 
-        // NettyAllocator will return the channel type designed to work with the configuredAllocator
-        serverBootstrap.channel(NettyAllocator.getServerChannelType());
+        // the shared group returns the channel type of its event loop designed to work with the configured allocator
+        serverBootstrap.channel(sharedGroup.getServerChannelType());
 
         // Set the allocators for both the server channel and the child channels created
-        serverBootstrap.option(ChannelOption.ALLOCATOR, NettyAllocator.getAllocator());
-        serverBootstrap.childOption(ChannelOption.ALLOCATOR, NettyAllocator.getAllocator());
+        serverBootstrap.option(ChannelOption.ALLOCATOR, sharedGroup.getAllocator());
+        serverBootstrap.childOption(ChannelOption.ALLOCATOR, sharedGroup.getAllocator());
 
         serverBootstrap.childHandler(getServerChannelInitializer(name));
         serverBootstrap.handler(new ServerChannelExceptionHandler());
@@ -206,22 +209,22 @@ public class Netty4Transport extends TcpTransport {
         if (profileSettings.tcpKeepAlive) {
             // Note that Netty logs a warning if it can't set the option
             if (profileSettings.tcpKeepIdle >= 0) {
-                final SocketOption<Integer> keepIdleOption = NetUtils.getTcpKeepIdleSocketOptionOrNull();
+                final ChannelOption<Integer> keepIdleOption = sharedGroup.getTcpKeepIdleOption();
                 if (keepIdleOption != null) {
-                    serverBootstrap.childOption(NioChannelOption.of(keepIdleOption), profileSettings.tcpKeepIdle);
+                    serverBootstrap.childOption(keepIdleOption, profileSettings.tcpKeepIdle);
                 }
             }
             if (profileSettings.tcpKeepInterval >= 0) {
-                final SocketOption<Integer> keepIntervalOption = NetUtils.getTcpKeepIntervalSocketOptionOrNull();
+                final ChannelOption<Integer> keepIntervalOption = sharedGroup.getTcpKeepIntervalOption();
                 if (keepIntervalOption != null) {
-                    serverBootstrap.childOption(NioChannelOption.of(keepIntervalOption), profileSettings.tcpKeepInterval);
+                    serverBootstrap.childOption(keepIntervalOption, profileSettings.tcpKeepInterval);
                 }
 
             }
             if (profileSettings.tcpKeepCount >= 0) {
-                final SocketOption<Integer> keepCountOption = NetUtils.getTcpKeepCountSocketOptionOrNull();
+                final ChannelOption<Integer> keepCountOption = sharedGroup.getTcpKeepCountOption();
                 if (keepCountOption != null) {
-                    serverBootstrap.childOption(NioChannelOption.of(keepCountOption), profileSettings.tcpKeepCount);
+                    serverBootstrap.childOption(keepCountOption, profileSettings.tcpKeepCount);
                 }
             }
         }
@@ -293,13 +296,31 @@ public class Netty4Transport extends TcpTransport {
         }, serverBootstraps::clear, () -> clientBootstrap = null);
     }
 
+    private static void ensureReasonableKeepAliveConfig(Channel ch) {
+        if (ch instanceof EpollSocketChannel) {
+            final EpollSocketChannelConfig config = ((EpollSocketChannel) ch).config();
+            try {
+                if (config.isKeepAlive()) {
+                    // like NetUtils#tryEnsureReasonableKeepAliveConfig does for nio channels
+                    config.setTcpKeepIdle(Math.min(config.getTcpKeepIdle(), 300));
+                    config.setTcpKeepIntvl(Math.min(config.getTcpKeepIntvl(), 300));
+                }
+            } catch (ChannelException e) {
+                // Getting an exception here should be ok when concurrently closing the channel
+            }
+        } else {
+            assert ch instanceof Netty4NioSocketChannel;
+            NetUtils.tryEnsureReasonableKeepAliveConfig(((Netty4NioSocketChannel) ch).javaChannel());
+        }
+    }
+
     protected class ClientChannelInitializer extends ChannelInitializer<Channel> {
 
         @Override
         protected void initChannel(Channel ch) throws Exception {
             addClosedExceptionLogger(ch);
-            assert ch instanceof Netty4NioSocketChannel;
-            NetUtils.tryEnsureReasonableKeepAliveConfig(((Netty4NioSocketChannel) ch).javaChannel());
+            ensureReasonableKeepAliveConfig(ch);
+            Netty4Utils.addWriteThrottlingHandler(ch);
             ch.pipeline().addLast("byte_buf_sizer", NettyByteBufSizer.INSTANCE);
             ch.pipeline().addLast("logging", new ESLoggingHandler());
             // using a dot as a prefix means this cannot come from any settings parsed
@@ -324,8 +345,8 @@ public class Netty4Transport extends TcpTransport {
         @Override
         protected void initChannel(Channel ch) throws Exception {
             addClosedExceptionLogger(ch);
-            assert ch instanceof Netty4NioSocketChannel;
-            NetUtils.tryEnsureReasonableKeepAliveConfig(((Netty4NioSocketChannel) ch).javaChannel());
+            ensureReasonableKeepAliveConfig(ch);
+            Netty4Utils.addWriteThrottlingHandler(ch);
             Netty4TcpChannel nettyTcpChannel = new Netty4TcpChannel(ch, true, name, ch.newSucceededFuture());
             ch.attr(CHANNEL_KEY).set(nettyTcpChannel);
             ch.pipeline().addLast("byte_buf_sizer", NettyByteBufSizer.INSTANCE);
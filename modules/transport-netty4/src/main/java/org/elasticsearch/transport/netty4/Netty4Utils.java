@@ -11,6 +11,8 @@ package org.elasticsearch.transport.netty4;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.epoll.EpollSocketChannel;
 import io.netty.util.NettyRuntime;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefIterator;
@@ -105,4 +107,14 @@ public class Netty4Utils {
             return BytesReference.fromByteBuffers(byteBuffers);
         }
     }
+
+    /**
+     * Adds a {@link Netty4WriteThrottlingHandler} to the pipeline of the given channel if it is a native epoll channel. Must be called
+     * before any other handler is added so that it bounds the writes of all of them.
+     */
+    public static void addWriteThrottlingHandler(Channel channel) {
+        if (channel instanceof EpollSocketChannel) {
+            channel.pipeline().addLast("write_throttling", new Netty4WriteThrottlingHandler());
+        }
+    }
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.transport.netty4;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.util.ReferenceCountUtil;
+import org.elasticsearch.transport.CopyBytesSocketChannel;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * The native epoll channels copy every heap buffer that is written to them into a direct buffer of the same size as soon as it is
+ * written, and keep it until it is flushed to the socket. This handler queues the writes and only passes them on while the channel
+ * is writable, in slices of at most {@link CopyBytesSocketChannel#MAX_BYTES_PER_WRITE} bytes, so that like the direct buffer of
+ * {@link CopyBytesSocketChannel} the direct memory that a channel holds is bounded whatever the size of the messages.
+ */
+final class Netty4WriteThrottlingHandler extends ChannelDuplexHandler {
+
+    private final int maxBytesPerWrite;
+    private final Queue<WriteOperation> queuedWrites = new ArrayDeque<>();
+
+    Netty4WriteThrottlingHandler() {
+        this(CopyBytesSocketChannel.MAX_BYTES_PER_WRITE);
+    }
+
+    Netty4WriteThrottlingHandler(int maxBytesPerWrite) {
+        this.maxBytesPerWrite = maxBytesPerWrite;
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        queuedWrites.add(new WriteOperation(msg, promise));
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) {
+        doFlush(ctx);
+        ctx.flush();
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().isWritable()) {
+            doFlush(ctx);
+            ctx.flush();
+        }
+        ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        failQueuedWrites();
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) {
+        failQueuedWrites();
+    }
+
+    private void doFlush(ChannelHandlerContext ctx) {
+        while (ctx.channel().isWritable()) {
+            final WriteOperation write = queuedWrites.peek();
+            if (write == null) {
+                return;
+            }
+            if (write.msg instanceof ByteBuf && ((ByteBuf) write.msg).readableBytes() > maxBytesPerWrite) {
+                final ChannelFuture future = ctx.write(((ByteBuf) write.msg).readRetainedSlice(maxBytesPerWrite));
+                future.addListener(f -> {
+                    if (f.isSuccess() == false) {
+                        write.promise.tryFailure(f.cause());
+                    }
+                });
+            } else {
+                queuedWrites.remove();
+                // writes complete in order, a failure of an earlier slice has already failed the promise
+                ctx.write(write.msg).addListener(f -> {
+                    if (f.isSuccess()) {
+                        write.promise.trySuccess();
+                    } else {
+                        write.promise.tryFailure(f.cause());
+                    }
+                });
+            }
+        }
+    }
+
+    private void failQueuedWrites() {
+        WriteOperation write;
+        while ((write = queuedWrites.poll()) != null) {
+            ReferenceCountUtil.release(write.msg);
+            write.promise.tryFailure(new ClosedChannelException());
+        }
+    }
+
+    private static final class WriteOperation {
+
+        private final Object msg;
+        private final ChannelPromise promise;
+
+        private WriteOperation(Object msg, ChannelPromise promise) {
+            this.msg = msg;
+            this.promise = promise;
+        }
+    }
+}
@@ -22,6 +22,7 @@ import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.http.HttpPipelinedRequest;
 import org.elasticsearch.http.HttpPipelinedResponse;
+import org.elasticsearch.http.HttpPipeliningAggregator;
 import org.elasticsearch.http.HttpResponse;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.test.ESTestCase;
@@ -194,6 +195,35 @@ public class Netty4HttpPipeliningHandlerTests extends ESTestCase {
     }
 
 
+    public void testPipeliningCounters() {
+        final int numberOfRequests = randomIntBetween(2, 10);
+        final HttpPipeliningAggregator.Counters counters = new HttpPipeliningAggregator.Counters();
+        final EmbeddedChannel embeddedChannel = new EmbeddedChannel(new Netty4HttpPipeliningHandler(logger, numberOfRequests, counters));
+
+        for (int i = 0; i < numberOfRequests; i++) {
+            embeddedChannel.writeInbound(createHttpRequest("/" + i));
+        }
+        List<HttpPipelinedRequest> requests = new ArrayList<>();
+        HttpPipelinedRequest inbound;
+        while ((inbound = embeddedChannel.readInbound()) != null) {
+            requests.add(inbound);
+        }
+        // every request but the first was sent before the response to the first one was written
+        assertEquals(numberOfRequests - 1, counters.getPipelinedRequests());
+
+        // every response but the one to the first request has to wait for the earlier responses
+        for (int i = requests.size() - 1; i >= 0; i--) {
+            embeddedChannel.writeAndFlush(requests.get(i).createResponse(RestStatus.OK, BytesArray.EMPTY));
+        }
+        assertEquals(numberOfRequests - 1, counters.getHeldResponses());
+        assertEquals(numberOfRequests, embeddedChannel.outboundMessages().size());
+
+        // the connection is idle again so the next request isn't pipelined
+        embeddedChannel.writeInbound(createHttpRequest("/" + numberOfRequests));
+        assertEquals(numberOfRequests - 1, counters.getPipelinedRequests());
+        embeddedChannel.close().syncUninterruptibly();
+    }
+
     private void assertReadHttpMessageHasContent(EmbeddedChannel embeddedChannel, String expectedContent) {
         FullHttpResponse response = (FullHttpResponse) embeddedChannel.outboundMessages().poll();
         assertNotNull("Expected response to exist, maybe you did not wait long enough?", response);
@@ -0,0 +1,57 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.http.netty4;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.http.HttpRequest;
+import org.elasticsearch.test.ESTestCase;
+
+import java.nio.charset.StandardCharsets;
+
+public class Netty4HttpRequestTests extends ESTestCase {
+
+    public void testRetainedContentOutlivesRequest() {
+        final String body = randomAlphaOfLength(between(1, 1024));
+        final FullHttpRequest nettyRequest = request(body);
+        final Netty4HttpRequest request = new Netty4HttpRequest(nettyRequest);
+
+        final ReleasableBytesReference content = request.retainedContent();
+        assertEquals(2, nettyRequest.refCnt());
+        request.release();
+        assertEquals(1, nettyRequest.refCnt());
+        // the content is still readable after the request was released
+        assertEquals(body, content.utf8ToString());
+        content.close();
+        assertEquals(0, nettyRequest.refCnt());
+    }
+
+    public void testRetainedContentOfCopyDoesNotRetainPooledBuffers() {
+        final String body = randomAlphaOfLength(between(1, 1024));
+        final FullHttpRequest nettyRequest = request(body);
+        final HttpRequest copy = new Netty4HttpRequest(nettyRequest).releaseAndCopy();
+        assertEquals(0, nettyRequest.refCnt());
+
+        try (ReleasableBytesReference content = copy.retainedContent()) {
+            assertEquals(body, content.utf8ToString());
+        }
+        copy.release();
+    }
+
+    private static FullHttpRequest request(String body) {
+        final ByteBuf buffer = PooledByteBufAllocator.DEFAULT.heapBuffer();
+        buffer.writeBytes(body.getBytes(StandardCharsets.UTF_8));
+        return new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/", buffer);
+    }
+}
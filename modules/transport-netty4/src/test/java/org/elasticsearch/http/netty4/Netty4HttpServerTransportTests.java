@@ -15,10 +15,13 @@ import io.netty.buffer.PoolArenaMetric;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.PooledByteBufAllocatorMetric;
 import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
@@ -26,12 +29,22 @@ import io.netty.handler.codec.TooLongFrameException;
 import io.netty.handler.codec.http.DefaultFullHttpRequest;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpClientUpgradeHandler;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http2.Http2ClientUpgradeCodec;
+import io.netty.handler.codec.http2.Http2ConnectionHandler;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2StreamChannelBootstrap;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.handler.codec.http2.HttpConversionUtil;
 import org.apache.logging.log4j.message.ParameterizedMessage;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.common.bytes.BytesArray;
@@ -49,6 +62,7 @@ import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.http.BindHttpException;
 import org.elasticsearch.http.CorsHandler;
 import org.elasticsearch.http.HttpServerTransport;
+import org.elasticsearch.http.HttpStats;
 import org.elasticsearch.http.HttpTransportSettings;
 import org.elasticsearch.http.NullDispatcher;
 import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
@@ -68,7 +82,9 @@ import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -77,6 +93,7 @@ import static org.elasticsearch.http.HttpTransportSettings.SETTING_CORS_ENABLED;
 import static org.elasticsearch.rest.RestStatus.BAD_REQUEST;
 import static org.elasticsearch.rest.RestStatus.OK;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
@@ -451,6 +468,185 @@ public class Netty4HttpServerTransportTests extends ESTestCase {
         }
     }
 
+    public void testHttp2WithPriorKnowledge() throws Exception {
+        final AtomicReference<RestChannel> slowChannel = new AtomicReference<>();
+        final HttpServerTransport.Dispatcher dispatcher = new HttpServerTransport.Dispatcher() {
+
+            @Override
+            public void dispatchRequest(final RestRequest request, final RestChannel channel, final ThreadContext threadContext) {
+                if ("/slow".equals(request.uri())) {
+                    slowChannel.set(channel);
+                } else {
+                    channel.sendResponse(new BytesRestResponse(OK, request.uri()));
+                }
+            }
+
+            @Override
+            public void dispatchBadRequest(final RestChannel channel, final ThreadContext threadContext, final Throwable cause) {
+                logger.error(new ParameterizedMessage("--> Unexpected bad request [{}]",
+                    FakeRestRequest.requestToString(channel.request())), cause);
+                throw new AssertionError();
+            }
+
+        };
+
+        final Settings settings = createBuilderWithPort()
+            .put(Netty4HttpServerTransport.SETTING_HTTP_NETTY_HTTP2_ENABLED.getKey(), true)
+            .build();
+        final NioEventLoopGroup group = new NioEventLoopGroup(1);
+        try (Netty4HttpServerTransport transport = new Netty4HttpServerTransport(settings, networkService, bigArrays, threadPool,
+            xContentRegistry(), dispatcher, clusterSettings, new SharedGroupFactory(settings))) {
+            transport.start();
+            final TransportAddress remoteAddress = randomFrom(transport.boundAddress().boundAddresses());
+
+            final Channel connection = new Bootstrap()
+                .option(ChannelOption.ALLOCATOR, NettyAllocator.getAllocator())
+                .channel(NioSocketChannel.class)
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline().addLast(Http2FrameCodecBuilder.forClient().build());
+                        ch.pipeline().addLast(new Http2MultiplexHandler(new ChannelHandlerAdapter() {}));
+                    }
+                }).group(group).connect(remoteAddress.address()).sync().channel();
+            try {
+                final BlockingQueue<FullHttpResponse> responses = new LinkedBlockingQueue<>();
+                sendHttp2Request(connection, "/slow", responses);
+                assertBusy(() -> assertNotNull(slowChannel.get()));
+                sendHttp2Request(connection, "/fast", responses);
+                // the second request is answered on its own stream while the response to the first one is still pending
+                assertHttp2Response(responses.poll(10, TimeUnit.SECONDS), "/fast");
+                slowChannel.get().sendResponse(new BytesRestResponse(OK, "/slow"));
+                assertHttp2Response(responses.poll(10, TimeUnit.SECONDS), "/slow");
+
+                final HttpStats stats = transport.stats();
+                assertThat(stats.getServerOpen(), equalTo(1L));
+                assertThat(stats.getTotalStreams(), equalTo(2L));
+                assertThat(stats.getHeldResponses(), equalTo(0L));
+                assertThat(stats.getClientStats(), hasSize(1));
+                assertBusy(() -> assertThat(transport.stats().getCurrentStreams(), equalTo(0L)));
+            } finally {
+                connection.close().sync();
+            }
+
+            // clients that don't speak HTTP/2 are still served over HTTP/1.1
+            try (Netty4HttpClient client = new Netty4HttpClient()) {
+                final FullHttpResponse response =
+                    client.send(remoteAddress.address(), new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/http1"));
+                assertHttp2Response(response, "/http1");
+            }
+            assertThat(transport.stats().getTotalStreams(), equalTo(2L));
+        } finally {
+            group.shutdownGracefully().await();
+        }
+    }
+
+    public void testHttp2Upgrade() throws Exception {
+        final HttpServerTransport.Dispatcher dispatcher = new HttpServerTransport.Dispatcher() {
+
+            @Override
+            public void dispatchRequest(final RestRequest request, final RestChannel channel, final ThreadContext threadContext) {
+                channel.sendResponse(new BytesRestResponse(OK, request.uri()));
+            }
+
+            @Override
+            public void dispatchBadRequest(final RestChannel channel, final ThreadContext threadContext, final Throwable cause) {
+                logger.error(new ParameterizedMessage("--> Unexpected bad request [{}]",
+                    FakeRestRequest.requestToString(channel.request())), cause);
+                throw new AssertionError();
+            }
+
+        };
+
+        final Settings settings = createBuilderWithPort()
+            .put(Netty4HttpServerTransport.SETTING_HTTP_NETTY_HTTP2_ENABLED.getKey(), true)
+            .build();
+        final NioEventLoopGroup group = new NioEventLoopGroup(1);
+        try (Netty4HttpServerTransport transport = new Netty4HttpServerTransport(settings, networkService, bigArrays, threadPool,
+            xContentRegistry(), dispatcher, clusterSettings, new SharedGroupFactory(settings))) {
+            transport.start();
+            final TransportAddress remoteAddress = randomFrom(transport.boundAddress().boundAddresses());
+
+            final BlockingQueue<FullHttpResponse> responses = new LinkedBlockingQueue<>();
+            final Channel connection = new Bootstrap()
+                .option(ChannelOption.ALLOCATOR, NettyAllocator.getAllocator())
+                .channel(NioSocketChannel.class)
+                .handler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        // the response to the upgrade request arrives on the first stream
+                        final Http2MultiplexHandler multiplexHandler =
+                            new Http2MultiplexHandler(new ChannelHandlerAdapter() {}, new Http2ResponseHandler(responses));
+                        final Http2ConnectionHandler frameCodec = Http2FrameCodecBuilder.forClient().build();
+                        final HttpClientCodec sourceCodec = new HttpClientCodec();
+                        ch.pipeline().addLast(sourceCodec);
+                        ch.pipeline().addLast(new HttpClientUpgradeHandler(sourceCodec,
+                            new Http2ClientUpgradeCodec(frameCodec, multiplexHandler), 1024));
+                    }
+                }).group(group).connect(remoteAddress.address()).sync().channel();
+            try {
+                connection.writeAndFlush(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/upgrade")).sync();
+                assertHttp2Response(responses.poll(10, TimeUnit.SECONDS), "/upgrade");
+                sendHttp2Request(connection, "/next", responses);
+                assertHttp2Response(responses.poll(10, TimeUnit.SECONDS), "/next");
+
+                final HttpStats stats = transport.stats();
+                assertThat(stats.getServerOpen(), equalTo(1L));
+                assertThat(stats.getTotalStreams(), equalTo(2L));
+                assertThat(stats.getClientStats(), hasSize(1));
+            } finally {
+                connection.close().sync();
+            }
+        } finally {
+            group.shutdownGracefully().await();
+        }
+    }
+
+    private static void sendHttp2Request(Channel connection, String uri, BlockingQueue<FullHttpResponse> responses) {
+        final Channel stream = new Http2StreamChannelBootstrap(connection)
+            .handler(new Http2ResponseHandler(responses))
+            .open()
+            .syncUninterruptibly()
+            .getNow();
+        final FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, uri);
+        request.headers().set(HttpConversionUtil.ExtensionHeaderNames.SCHEME.text(), "http");
+        stream.writeAndFlush(request);
+    }
+
+    private static void assertHttp2Response(FullHttpResponse response, String content) {
+        assertNotNull("no response received", response);
+        try {
+            assertThat(response.status(), equalTo(HttpResponseStatus.OK));
+            assertThat(response.content().toString(StandardCharsets.UTF_8), equalTo(content));
+        } finally {
+            response.release();
+        }
+    }
+
+    /**
+     * Converts the frames a client receives on an HTTP/2 stream back to the response.
+     */
+    private static class Http2ResponseHandler extends ChannelInitializer<Channel> {
+
+        private final BlockingQueue<FullHttpResponse> responses;
+
+        Http2ResponseHandler(BlockingQueue<FullHttpResponse> responses) {
+            this.responses = responses;
+        }
+
+        @Override
+        protected void initChannel(Channel ch) {
+            ch.pipeline().addLast(new Http2StreamFrameToHttpObjectCodec(false));
+            ch.pipeline().addLast(new HttpObjectAggregator(1024));
+            ch.pipeline().addLast(new SimpleChannelInboundHandler<FullHttpResponse>() {
+                @Override
+                protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse response) {
+                    responses.add(response.retain());
+                }
+            });
+        }
+    }
+
     private Settings createSettings() {
         return createBuilderWithPort().build();
     }
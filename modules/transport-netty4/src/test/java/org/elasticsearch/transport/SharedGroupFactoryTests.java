@@ -8,9 +8,25 @@
 
 package org.elasticsearch.transport;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioChannelOption;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.core.internal.net.NetUtils;
 import org.elasticsearch.http.netty4.Netty4HttpServerTransport;
 import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.transport.SharedGroupFactory.EventLoopType;
+import org.elasticsearch.transport.netty4.Netty4Transport;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 
 public final class SharedGroupFactoryTests extends ESTestCase {
 
@@ -60,4 +76,74 @@ public final class SharedGroupFactoryTests extends ESTestCase {
             assertTrue(transportGroup.getLowLevelGroup().terminationFuture().isDone());
         }
     }
+
+    public void testNioEventLoops() {
+        Settings settings = Settings.builder().put(Netty4Transport.EVENT_LOOP.getKey(), "nio").build();
+        SharedGroupFactory sharedGroupFactory = new SharedGroupFactory(settings);
+        assertFalse(sharedGroupFactory.usesEpoll());
+        SharedGroupFactory.SharedGroup group = sharedGroupFactory.getTransportGroup();
+        try {
+            assertThat(group.getLowLevelGroup(), instanceOf(NioEventLoopGroup.class));
+            assertThat(group.getChannelType(), equalTo(NettyAllocator.getChannelType()));
+            assertThat(group.getServerChannelType(), equalTo(NettyAllocator.getServerChannelType()));
+            assertThat(group.getAllocator(), sameInstance(NettyAllocator.getAllocator()));
+            if (NetUtils.getTcpKeepIdleSocketOptionOrNull() == null) {
+                assertThat(group.getTcpKeepIdleOption(), nullValue());
+            } else {
+                assertThat(group.getTcpKeepIdleOption(), instanceOf(NioChannelOption.class));
+                assertThat(group.getTcpKeepIdleOption().name(), equalTo(NetUtils.getTcpKeepIdleSocketOptionOrNull().name()));
+            }
+        } finally {
+            group.shutdown();
+        }
+    }
+
+    public void testEpollEventLoops() {
+        assumeTrue("epoll is not available", Epoll.isAvailable());
+        Settings settings = Settings.builder().put(Netty4Transport.EVENT_LOOP.getKey(), randomFrom("auto", "epoll")).build();
+        SharedGroupFactory sharedGroupFactory = new SharedGroupFactory(settings);
+        assertTrue(sharedGroupFactory.usesEpoll());
+        SharedGroupFactory.SharedGroup group = sharedGroupFactory.getTransportGroup();
+        try {
+            assertThat(group.getLowLevelGroup(), instanceOf(EpollEventLoopGroup.class));
+            assertThat(group.getChannelType(), equalTo(EpollSocketChannel.class));
+            assertThat(group.getServerChannelType(), equalTo(EpollServerSocketChannel.class));
+            assertThat(group.getTcpKeepIdleOption(), sameInstance(EpollChannelOption.TCP_KEEPIDLE));
+            assertThat(group.getAllocator(), sameInstance(NettyAllocator.getEpollAllocator()));
+            // the epoll channels copy heap buffers into direct buffers before they write them
+            ByteBuf direct = group.getAllocator().directBuffer(randomIntBetween(1, 1024));
+            try {
+                assertTrue(direct.isDirect());
+            } finally {
+                direct.release();
+            }
+        } finally {
+            group.shutdown();
+        }
+    }
+
+    public void testAutoFallsBackToNio() {
+        assertTrue(SharedGroupFactory.useEpoll(EventLoopType.AUTO, null));
+        assertFalse(SharedGroupFactory.useEpoll(EventLoopType.AUTO, new UnsatisfiedLinkError("no epoll")));
+        assertFalse(SharedGroupFactory.useEpoll(EventLoopType.NIO, randomBoolean() ? null : new UnsatisfiedLinkError("no epoll")));
+    }
+
+    public void testEpollFailsIfUnavailable() {
+        assertTrue(SharedGroupFactory.useEpoll(EventLoopType.EPOLL, null));
+        UnsatisfiedLinkError cause = new UnsatisfiedLinkError("no epoll");
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> SharedGroupFactory.useEpoll(EventLoopType.EPOLL, cause));
+        assertThat(e.getMessage(), equalTo("[transport.netty.event_loop] is set to [epoll] but epoll is not available on this platform"));
+        assertThat(e.getCause(), sameInstance(cause));
+    }
+
+    public void testEventLoopSetting() {
+        assertThat(Netty4Transport.EVENT_LOOP.get(Settings.EMPTY), equalTo(EventLoopType.AUTO));
+        for (EventLoopType type : EventLoopType.values()) {
+            Settings settings = Settings.builder().put(Netty4Transport.EVENT_LOOP.getKey(), type.toString()).build();
+            assertThat(Netty4Transport.EVENT_LOOP.get(settings), equalTo(type));
+        }
+        expectThrows(IllegalArgumentException.class,
+            () -> Netty4Transport.EVENT_LOOP.get(Settings.builder().put(Netty4Transport.EVENT_LOOP.getKey(), "kqueue").build()));
+    }
 }
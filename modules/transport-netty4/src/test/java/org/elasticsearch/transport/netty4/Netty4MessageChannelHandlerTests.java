@@ -0,0 +1,187 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.transport.netty4;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.network.NetworkService;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.MockPageCacheRecycler;
+import org.elasticsearch.common.util.PageCacheRecycler;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.SharedGroupFactory;
+import org.junit.After;
+import org.junit.Before;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+
+/**
+ * Tests that {@link Netty4MessageChannelHandler} writes the messages that are sent before its event loop gets to a flush with a
+ * single flush, and completes the promise of each message once all of it is written.
+ */
+public class Netty4MessageChannelHandlerTests extends ESTestCase {
+
+    private ThreadPool threadPool;
+    private Netty4Transport transport;
+    private FlushCounter flushCounter;
+    private EmbeddedChannel channel;
+
+    @Before
+    public void setUpChannel() {
+        threadPool = new TestThreadPool(getTestName());
+        final PageCacheRecycler recycler = new MockPageCacheRecycler(Settings.EMPTY);
+        transport = new Netty4Transport(Settings.EMPTY, Version.CURRENT, threadPool, new NetworkService(Collections.emptyList()),
+            recycler, new NamedWriteableRegistry(Collections.emptyList()), new NoneCircuitBreakerService(),
+            new SharedGroupFactory(Settings.EMPTY));
+        flushCounter = new FlushCounter();
+        channel = new EmbeddedChannel(flushCounter, new Netty4MessageChannelHandler(recycler, transport));
+    }
+
+    @After
+    public void closeChannel() {
+        channel.finishAndReleaseAll();
+        terminate(threadPool);
+    }
+
+    public void testWritesUntilTheNextTickAreFlushedOnce() {
+        final int messages = randomIntBetween(2, 20);
+        final List<byte[]> contents = new ArrayList<>();
+        final List<ChannelPromise> promises = new ArrayList<>();
+        for (int i = 0; i < messages; i++) {
+            final byte[] content = randomByteArrayOfLength(randomIntBetween(1, 1024));
+            final ChannelPromise promise = channel.newPromise();
+            contents.add(content);
+            promises.add(promise);
+            // like Netty4TcpChannel#sendMessage, every message is flushed on its own
+            channel.writeAndFlush(Unpooled.wrappedBuffer(content), promise);
+        }
+        assertThat(flushCounter.flushes, equalTo(0));
+        assertFalse(promises.stream().anyMatch(ChannelPromise::isDone));
+
+        channel.runPendingTasks();
+
+        assertThat(flushCounter.flushes, equalTo(1));
+        for (int i = 0; i < messages; i++) {
+            assertTrue(promises.get(i).isSuccess());
+            assertArrayEquals(contents.get(i), readOutbound());
+        }
+        assertNull(channel.readOutbound());
+        assertThat(transport.getStatsTracker().getFlushes(), equalTo(1L));
+        assertThat(transport.getStatsTracker().getFlushedMessages(), equalTo((long) messages));
+        assertThat(transport.getStats().getTxMessagesPerFlush(), closeTo(messages, 0.0001));
+    }
+
+    public void testLargeMessageIsWrittenInSlicesWhileTheChannelIsWritable() {
+        final int sliceSize = 1 << 18;
+        final byte[] largeContent = randomByteArrayOfLength(2 * sliceSize + randomIntBetween(1, 1024));
+        final byte[] smallContent = randomByteArrayOfLength(randomIntBetween(1, 1024));
+        final ChannelPromise largePromise = channel.newPromise();
+        final ChannelPromise smallPromise = channel.newPromise();
+        channel.writeAndFlush(Unpooled.wrappedBuffer(largeContent), largePromise);
+        channel.writeAndFlush(Unpooled.wrappedBuffer(smallContent), smallPromise);
+
+        // hold the first slice in the write buffer of the channel so that it stays unwritable
+        flushCounter.holdFlushes = true;
+        channel.runPendingTasks();
+        assertThat(flushCounter.flushes, equalTo(1));
+        assertFalse(channel.isWritable());
+        assertFalse(largePromise.isDone());
+        assertFalse(smallPromise.isDone());
+        assertThat(transport.getStatsTracker().getFlushes(), equalTo(1L));
+        assertThat(transport.getStatsTracker().getFlushedMessages(), equalTo(0L));
+
+        // each slice fills the write buffer, so the handler writes the next one once the channel is writable again
+        flushCounter.holdFlushes = false;
+        channel.pipeline().context(flushCounter).flush();
+        assertTrue(largePromise.isSuccess());
+        assertTrue(smallPromise.isSuccess());
+        assertThat(flushCounter.flushes, equalTo(3));
+
+        final ByteArrayOutputStream largeMessage = new ByteArrayOutputStream();
+        for (int i = 0; i < 3; i++) {
+            final byte[] slice = readOutbound();
+            assertThat(slice.length, equalTo(i < 2 ? sliceSize : largeContent.length - 2 * sliceSize));
+            largeMessage.write(slice, 0, slice.length);
+        }
+        assertArrayEquals(largeContent, largeMessage.toByteArray());
+        assertArrayEquals(smallContent, readOutbound());
+        assertNull(channel.readOutbound());
+
+        // only the flush that sent the last slice counts the large message
+        assertThat(transport.getStatsTracker().getFlushes(), equalTo(3L));
+        assertThat(transport.getStatsTracker().getFlushedMessages(), equalTo(2L));
+        assertThat(transport.getStats().getTxMessagesPerFlush(), closeTo(2.0 / 3.0, 0.0001));
+    }
+
+    public void testPendingWritesFailWhenTheChannelCloses() {
+        final List<ChannelPromise> promises = new ArrayList<>();
+        final int messages = randomIntBetween(1, 10);
+        for (int i = 0; i < messages; i++) {
+            final ChannelPromise promise = channel.newPromise();
+            promises.add(promise);
+            channel.writeAndFlush(Unpooled.wrappedBuffer(randomByteArrayOfLength(randomIntBetween(1, 1024))), promise);
+        }
+
+        // the channel closes before its event loop gets to the flush, EmbeddedChannel#close would run the flush first
+        channel.unsafe().close(channel.newPromise());
+        channel.runPendingTasks();
+
+        for (ChannelPromise promise : promises) {
+            assertTrue(promise.isDone());
+            assertThat(promise.cause(), instanceOf(ClosedChannelException.class));
+        }
+        assertThat(flushCounter.flushes, equalTo(0));
+        assertThat(transport.getStatsTracker().getFlushes(), equalTo(0L));
+    }
+
+    private byte[] readOutbound() {
+        final ByteBuf buf = channel.readOutbound();
+        assertNotNull(buf);
+        try {
+            return ByteBufUtil.getBytes(buf);
+        } finally {
+            buf.release();
+        }
+    }
+
+    /**
+     * Counts the flushes that reach the head of the pipeline and optionally holds them back.
+     */
+    private static final class FlushCounter extends ChannelOutboundHandlerAdapter {
+
+        private int flushes;
+        private boolean holdFlushes;
+
+        @Override
+        public void flush(ChannelHandlerContext ctx) {
+            flushes++;
+            if (holdFlushes == false) {
+                ctx.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.transport.netty4;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.elasticsearch.test.ESTestCase;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class Netty4WriteThrottlingHandlerTests extends ESTestCase {
+
+    public void testWritesAreSliced() {
+        final int maxBytesPerWrite = randomIntBetween(1, 128);
+        final EmbeddedChannel channel = new EmbeddedChannel(new Netty4WriteThrottlingHandler(maxBytesPerWrite));
+        final List<byte[]> messages = new ArrayList<>();
+        final List<ChannelFuture> futures = new ArrayList<>();
+        for (int i = randomIntBetween(1, 5); i > 0; i--) {
+            final byte[] bytes = randomByteArrayOfLength(randomIntBetween(0, 1024));
+            messages.add(bytes);
+            futures.add(channel.write(Unpooled.wrappedBuffer(bytes)));
+        }
+        assertNull(channel.readOutbound());
+        channel.flush();
+
+        for (int i = 0; i < messages.size(); i++) {
+            assertTrue(futures.get(i).isSuccess());
+            final byte[] expected = messages.get(i);
+            final ByteBuf received = Unpooled.buffer(expected.length);
+            do {
+                final ByteBuf slice = channel.readOutbound();
+                assertThat(slice.readableBytes(), lessThanOrEqualTo(maxBytesPerWrite));
+                received.writeBytes(slice);
+                slice.release();
+            } while (received.readableBytes() < expected.length);
+            assertArrayEquals(expected, received.array());
+        }
+        assertNull(channel.readOutbound());
+        assertFalse(channel.finish());
+    }
+
+    public void testWritesStopWhileTheChannelIsNotWritable() {
+        final int maxBytesPerWrite = randomIntBetween(1, 128);
+        final EmbeddedChannel channel = new EmbeddedChannel(new Netty4WriteThrottlingHandler(maxBytesPerWrite));
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+        assertFalse(channel.isWritable());
+
+        final byte[] bytes = randomByteArrayOfLength(randomIntBetween(1, 1024));
+        final ChannelFuture future = channel.writeAndFlush(Unpooled.wrappedBuffer(bytes));
+        assertNull(channel.readOutbound());
+        assertFalse(future.isDone());
+
+        // becoming writable again writes and flushes the queued writes
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, true);
+        channel.runPendingTasks();
+        assertTrue(future.isSuccess());
+        final ByteBuf received = Unpooled.buffer(bytes.length);
+        ByteBuf slice;
+        while ((slice = channel.readOutbound()) != null) {
+            assertThat(slice.readableBytes(), lessThanOrEqualTo(maxBytesPerWrite));
+            received.writeBytes(slice);
+            slice.release();
+        }
+        assertArrayEquals(bytes, received.array());
+        assertFalse(channel.finish());
+    }
+
+    public void testQueuedWritesFailOnClose() {
+        final EmbeddedChannel channel = new EmbeddedChannel(new Netty4WriteThrottlingHandler(randomIntBetween(1, 128)));
+        final ByteBuf buf = Unpooled.wrappedBuffer(randomByteArrayOfLength(randomIntBetween(1, 1024)));
+        final ChannelFuture future = channel.write(buf);
+        channel.close();
+        assertTrue(future.isDone());
+        assertThat(future.cause(), instanceOf(ClosedChannelException.class));
+        assertEquals(0, buf.refCnt());
+    }
+}
@@ -8,6 +8,8 @@
 
 package org.elasticsearch.transport.netty4;
 
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannelConfig;
 import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.jdk.JavaVersion;
@@ -51,9 +53,14 @@ public class SimpleNetty4TransportTests extends AbstractSimpleTransportTestCase
     @Override
     protected Transport build(Settings settings, final Version version, ClusterSettings clusterSettings, boolean doHandshake) {
         NamedWriteableRegistry namedWriteableRegistry = new NamedWriteableRegistry(Collections.emptyList());
-        return new Netty4Transport(settings, version, threadPool, new NetworkService(Collections.emptyList()),
+        // auto uses the epoll event loop where it is available, so the nodes talk across both event loops
+        Settings transportSettings = Settings.builder()
+            .put(Netty4Transport.EVENT_LOOP.getKey(), randomFrom("auto", "nio"))
+            .put(settings)
+            .build();
+        return new Netty4Transport(transportSettings, version, threadPool, new NetworkService(Collections.emptyList()),
             PageCacheRecycler.NON_RECYCLING_INSTANCE, namedWriteableRegistry, new NoneCircuitBreakerService(),
-            new SharedGroupFactory(settings)) {
+            new SharedGroupFactory(transportSettings)) {
 
             @Override
             public void executeHandshake(DiscoveryNode node, TcpChannel channel, ConnectionProfile profile,
@@ -107,6 +114,12 @@ public class SimpleNetty4TransportTests extends AbstractSimpleTransportTestCase
     private void checkDefaultKeepAliveOptions(TcpChannel channel) throws IOException {
         assertThat(channel, instanceOf(Netty4TcpChannel.class));
         Netty4TcpChannel nettyChannel = (Netty4TcpChannel) channel;
+        if (nettyChannel.getNettyChannel() instanceof EpollSocketChannel) {
+            EpollSocketChannelConfig config = ((EpollSocketChannel) nettyChannel.getNettyChannel()).config();
+            assertThat(config.getTcpKeepIdle(), lessThanOrEqualTo(500));
+            assertThat(config.getTcpKeepIntvl(), lessThanOrEqualTo(500));
+            return;
+        }
         assertThat(nettyChannel.getNettyChannel(), instanceOf(Netty4NioSocketChannel.class));
         Netty4NioSocketChannel netty4NioSocketChannel = (Netty4NioSocketChannel) nettyChannel.getNettyChannel();
         SocketChannel socketChannel = netty4NioSocketChannel.javaChannel();
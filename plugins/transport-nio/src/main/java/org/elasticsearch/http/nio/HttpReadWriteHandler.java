@@ -67,7 +67,8 @@ public class HttpReadWriteHandler implements NioChannelHandler {
         }
         handlers.add(new NioHttpRequestCreator());
         handlers.add(new NioHttpResponseCreator());
-        handlers.add(new NioHttpPipeliningHandler(transport.getLogger(), settings.getPipeliningMaxEvents()));
+        handlers.add(new NioHttpPipeliningHandler(transport.getLogger(), settings.getPipeliningMaxEvents(),
+            transport.getPipeliningCounters()));
 
         adaptor = new NettyAdaptor(handlers.toArray(new ChannelHandler[0]));
         adaptor.addCloseListener((v, e) -> nioHttpChannel.close());
@@ -37,8 +37,15 @@ public class NioHttpPipeliningHandler extends ChannelDuplexHandler {
      *                      required as events cannot queue up indefinitely
      */
     public NioHttpPipeliningHandler(Logger logger, final int maxEventsHeld) {
+        this(logger, maxEventsHeld, new HttpPipeliningAggregator.Counters());
+    }
+
+    /**
+     * Construct a new pipelining handler that counts pipelined requests and held back responses in the given counters.
+     */
+    public NioHttpPipeliningHandler(Logger logger, final int maxEventsHeld, final HttpPipeliningAggregator.Counters counters) {
         this.logger = logger;
-        this.aggregator = new HttpPipeliningAggregator<>(maxEventsHeld);
+        this.aggregator = new HttpPipeliningAggregator<>(maxEventsHeld, counters);
     }
 
     @Override
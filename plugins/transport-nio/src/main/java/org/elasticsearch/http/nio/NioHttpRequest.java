@@ -20,6 +20,7 @@ import io.netty.handler.codec.http.cookie.Cookie;
 import io.netty.handler.codec.http.cookie.ServerCookieDecoder;
 import io.netty.handler.codec.http.cookie.ServerCookieEncoder;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
 import org.elasticsearch.http.HttpRequest;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.RestStatus;
@@ -116,6 +117,16 @@ public class NioHttpRequest implements HttpRequest {
         return content;
     }
 
+    @Override
+    public ReleasableBytesReference retainedContent() {
+        assert released.get() == false;
+        if (pooled == false) {
+            return ReleasableBytesReference.wrap(content);
+        }
+        request.retain();
+        return new ReleasableBytesReference(content, request::release);
+    }
+
     @Override
     public void release() {
         if (pooled && released.compareAndSet(false, true)) {
@@ -373,6 +373,9 @@ public class TasksIT extends ESIntegTestCase {
                 case SearchTransportService.QUERY_CAN_MATCH_NAME:
                     assertTrue(taskInfo.getDescription(), Regex.simpleMatch("shardId[[test][*]]", taskInfo.getDescription()));
                     break;
+                case SearchTransportService.QUERY_CAN_MATCH_NODE_NAME:
+                    assertTrue(taskInfo.getDescription(), Regex.simpleMatch("shardIds[[test][*]*]", taskInfo.getDescription()));
+                    break;
                 default:
                     fail("Unexpected action [" + taskInfo.getAction() + "] with description [" + taskInfo.getDescription() + "]");
             }
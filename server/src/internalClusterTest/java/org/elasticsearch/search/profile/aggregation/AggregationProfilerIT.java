@@ -75,6 +75,7 @@ public class AggregationProfilerIT extends ESIntegTestCase {
     private static final String TOTAL_BUCKETS = "total_buckets";
     private static final String BUILT_BUCKETS = "built_buckets";
     private static final String DEFERRED = "deferred_aggregators";
+    private static final String DEFERRED_REPLAY_TIME = "deferred_replay_time_in_nanos";
     private static final String COLLECTION_STRAT = "collection_strategy";
     private static final String RESULT_STRAT = "result_strategy";
     private static final String HAS_FILTER = "has_filter";
@@ -236,7 +237,7 @@ public class AggregationProfilerIT extends ESIntegTestCase {
             .entry(SEGMENTS_WITH_SINGLE, greaterThan(0))
             .entry(SEGMENTS_WITH_MULTI, 0);
         if (deferredAggregators.length > 0) {
-            matcher = matcher.entry(DEFERRED, List.of(deferredAggregators));
+            matcher = matcher.entry(DEFERRED, List.of(deferredAggregators)).entry(DEFERRED_REPLAY_TIME, greaterThan(0L));
         }
         assertMap(termsAggResult.getDebugInfo(), matcher);
     }
@@ -342,7 +343,12 @@ public class AggregationProfilerIT extends ESIntegTestCase {
             assertThat(diversifyBreakdown.get(POST_COLLECTION), greaterThan(0L));
             assertThat(diversifyBreakdown.get(BUILD_AGGREGATION), greaterThan(0L));
             assertThat(diversifyBreakdown.get(REDUCE), equalTo(0L));
-            assertMap(diversifyAggResult.getDebugInfo(), matchesMap().entry(BUILT_BUCKETS, greaterThan(0)).entry(DEFERRED, List.of("max")));
+            assertMap(
+                diversifyAggResult.getDebugInfo(),
+                matchesMap().entry(BUILT_BUCKETS, greaterThan(0))
+                    .entry(DEFERRED, List.of("max"))
+                    .entry(DEFERRED_REPLAY_TIME, greaterThan(0L))
+            );
 
             ProfileResult maxAggResult = diversifyAggResult.getProfiledChildren().get(0);
             assertThat(maxAggResult, notNullValue());
@@ -653,6 +659,7 @@ public class AggregationProfilerIT extends ESIntegTestCase {
                                         "filters",
                                         matchesList().item(
                                             matchesMap().entry("query", "DocValuesFieldExistsQuery [field=date]")
+                                                .entry("results_from_cached_bitset", 0)
                                                 .entry("specialized_for", "docvalues_field_exists")
                                                 .entry("results_from_metadata", 0)
                                         )
@@ -132,6 +132,11 @@ public class TransportShardBulkAction extends TransportWriteAction<BulkShardRequ
         );
     }
 
+    @Override
+    protected boolean accountsOperationBytes() {
+        return true;
+    }
+
     @Override
     protected long primaryOperationSize(BulkShardRequest request) {
         return request.ramBytesUsed();
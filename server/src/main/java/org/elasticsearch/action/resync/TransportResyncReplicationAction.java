@@ -89,6 +89,11 @@ public class TransportResyncReplicationAction extends TransportWriteAction<Resyn
             () -> new WritePrimaryResult<>(performOnPrimary(request), new ResyncReplicationResponse(), null, null, primary, logger));
     }
 
+    @Override
+    protected boolean accountsOperationBytes() {
+        return true;
+    }
+
     @Override
     protected long primaryOperationSize(ResyncReplicationRequest request) {
         return Stream.of(request.getOperations()).mapToLong(Translog.Operation::estimateSize).sum();
@@ -65,6 +65,8 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
     private final SearchTransportService searchTransportService;
     private final Executor executor;
     private final ActionListener<SearchResponse> listener;
+    // non-null if the response may be cached on the coordinating node
+    private final CoordinatorSearchResponseCache.CachingListener cachingListener;
     private final SearchRequest request;
     /**
      * Used by subclasses to resolve node ids to DiscoveryNodes.
@@ -141,6 +143,8 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
         this.request = request;
         this.task = task;
         this.listener = ActionListener.runAfter(listener, this::releaseContext);
+        this.cachingListener = listener instanceof CoordinatorSearchResponseCache.CachingListener
+            ? (CoordinatorSearchResponseCache.CachingListener) listener : null;
         this.nodeIdToConnection = nodeIdToConnection;
         this.clusterState = clusterState;
         this.concreteIndexBoosts = concreteIndexBoosts;
@@ -261,7 +265,8 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
         assert stackTraceElements[index++].getMethodName().equals("assertExecuteOnStartThread");
         assert stackTraceElements[index++].getMethodName().equals("performPhaseOnShard");
         if (stackTraceElements[index].getMethodName().equals("performPhaseOnShard")) {
-            assert stackTraceElements[index].getClassName().endsWith("CanMatchPreFilterSearchPhase");
+            assert stackTraceElements[index].getClassName().endsWith("CanMatchPreFilterSearchPhase")
+                || stackTraceElements[index].getClassName().endsWith("SearchQueryThenFetchAsyncAction");
             index++;
         }
         assert stackTraceElements[index].getClassName().endsWith("AbstractSearchAsyncAction");
@@ -652,6 +657,9 @@ abstract class AbstractSearchAsyncAction<Result extends SearchPhaseResult> exten
                     searchContextId = null;
                 }
             }
+            if (cachingListener != null) {
+                cachingListener.onQueryResults(queryResults.asList());
+            }
             listener.onResponse(buildSearchResponse(internalSearchResponse, failures, scrollId, searchContextId));
         }
     }
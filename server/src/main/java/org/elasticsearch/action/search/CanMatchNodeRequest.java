@@ -0,0 +1,31 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.search.internal.ShardSearchRequest;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A request to check whether a search can match documents on several shards that are
+ * allocated on the same node. It replaces a round trip per shard with a single round
+ * trip per node during the can_match phase.
+ */
+public class CanMatchNodeRequest extends ShardSearchNodeRequest {
+
+    public CanMatchNodeRequest(List<ShardSearchRequest> shardLevelRequests) {
+        super(shardLevelRequests);
+    }
+
+    public CanMatchNodeRequest(StreamInput in) throws IOException {
+        super(in);
+    }
+}
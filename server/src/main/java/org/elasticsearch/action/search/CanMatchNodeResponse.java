@@ -0,0 +1,30 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.search.SearchService.CanMatchResponse;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The response to a {@link CanMatchNodeRequest}: the result, or the failure, of each
+ * shard in the order of {@link CanMatchNodeRequest#getShardLevelRequests()}.
+ */
+public class CanMatchNodeResponse extends ShardSearchNodeResponse<CanMatchResponse> {
+
+    public CanMatchNodeResponse(List<ResponseOrFailure<CanMatchResponse>> responses) {
+        super(responses);
+    }
+
+    public CanMatchNodeResponse(StreamInput in) throws IOException {
+        super(in, CanMatchResponse::new);
+    }
+}
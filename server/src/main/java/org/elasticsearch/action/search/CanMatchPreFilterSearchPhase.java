@@ -42,6 +42,8 @@ import java.util.stream.Stream;
  * from the search. The extra round trip to the search shards is very cheap and is not subject to rejections
  * which allows to fan out to more shards at the same time without running into rejections even if we are hitting a
  * large portion of the clusters indices.
+ * The shard level requests are grouped per node so that a single round trip per node is needed, regardless of the
+ * number of shards that are allocated on the node. Retries on other shard copies are sent individually.
  * This phase can also be used to pre-sort shards based on min/max values in each shard of the provided primary sort.
  * When the query primary sort is perform on a field, this phase extracts the min/max value in each shard and
  * sort them according to the provided order. This can be useful for instance to ensure that shards that contain recent
@@ -53,6 +55,8 @@ final class CanMatchPreFilterSearchPhase extends AbstractSearchAsyncAction<CanMa
     private final GroupShardsIterator<SearchShardIterator> shardsIts;
     private final CoordinatorRewriteContextProvider coordinatorRewriteContextProvider;
 
+    private final ShardSearchNodeRequestBuffer<CanMatchResponse> requestBuffer;
+
     CanMatchPreFilterSearchPhase(Logger logger, SearchTransportService searchTransportService,
                                  BiFunction<String, String, Transport.Connection> nodeIdToConnection,
                                  Map<String, AliasFilter> aliasFilter, Map<String, Float> concreteIndexBoosts,
@@ -68,6 +72,7 @@ final class CanMatchPreFilterSearchPhase extends AbstractSearchAsyncAction<CanMa
         this.phaseFactory = phaseFactory;
         this.shardsIts = shardsIts;
         this.coordinatorRewriteContextProvider = coordinatorRewriteContextProvider;
+        this.requestBuffer = new ShardSearchNodeRequestBuffer<>(shardsIts, true, this::sendCanMatch);
     }
 
     @Override
@@ -78,8 +83,22 @@ final class CanMatchPreFilterSearchPhase extends AbstractSearchAsyncAction<CanMa
     @Override
     protected void executePhaseOnShard(SearchShardIterator shardIt, SearchShardTarget shard,
                                        SearchActionListener<CanMatchResponse> listener) {
-        getSearchTransport().sendCanMatch(getConnection(shard.getClusterAlias(), shard.getNodeId()),
-            buildShardSearchRequest(shardIt, listener.requestIndex), getTask(), listener);
+        final ShardSearchRequest request = buildShardSearchRequest(shardIt, listener.requestIndex);
+        // the first attempt of each shard is sent in a single request per node once all shards are started, retries on other
+        // shard copies are sent right away
+        if (requestBuffer.buffer(shard, request, listener) == false) {
+            sendCanMatch(shard.getClusterAlias(), shard.getNodeId(), List.of(request), List.of(listener));
+        }
+    }
+
+    private void sendCanMatch(String clusterAlias, String nodeId, List<ShardSearchRequest> requests,
+                              List<SearchActionListener<CanMatchResponse>> listeners) {
+        final ActionListener<CanMatchNodeResponse> listener = ShardSearchNodeResponse.shardListeners(listeners);
+        try {
+            getSearchTransport().sendCanMatch(getConnection(clusterAlias, nodeId), new CanMatchNodeRequest(requests), getTask(), listener);
+        } catch (Exception e) {
+            listener.onFailure(e);
+        }
     }
 
     @Override
@@ -125,12 +144,26 @@ final class CanMatchPreFilterSearchPhase extends AbstractSearchAsyncAction<CanMa
 
     @Override
     protected void performPhaseOnShard(int shardIndex, SearchShardIterator shardIt, SearchShardTarget shard) {
+        final boolean initialAttempt = requestBuffer.startShard(shardIndex);
+        try {
+            if (skipOnCoordinator(shardIndex, shardIt, shard) == false) {
+                super.performPhaseOnShard(shardIndex, shardIt, shard);
+            }
+        } finally {
+            requestBuffer.onShardStarted(initialAttempt);
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the query can be rewritten on the coordinating node to exclude the provided shard, in which
+     * case the result of the shard is already reported.
+     */
+    private boolean skipOnCoordinator(int shardIndex, SearchShardIterator shardIt, SearchShardTarget shard) {
         CoordinatorRewriteContext coordinatorRewriteContext =
             coordinatorRewriteContextProvider.getCoordinatorRewriteContext(shardIt.shardId().getIndex());
 
         if (coordinatorRewriteContext == null) {
-            super.performPhaseOnShard(shardIndex, shardIt, shard);
-            return;
+            return false;
         }
 
         try {
@@ -141,8 +174,7 @@ final class CanMatchPreFilterSearchPhase extends AbstractSearchAsyncAction<CanMa
             // this shard given other query filters that we cannot apply
             // in the coordinator
             if (canMatch) {
-                super.performPhaseOnShard(shardIndex, shardIt, shard);
-                return;
+                return false;
             }
 
             CanMatchResponse result = new CanMatchResponse(canMatch, null);
@@ -150,10 +182,11 @@ final class CanMatchPreFilterSearchPhase extends AbstractSearchAsyncAction<CanMa
                 shardIt.getOriginalIndices()) : shard);
             result.setShardIndex(shardIndex);
             fork(() -> onShardResult(result, shardIt));
+            return true;
         } catch (Exception e) {
             // If we fail to rewrite it on the coordinator, just try to execute
             // the query in the shard.
-            super.performPhaseOnShard(shardIndex, shardIt, shard);
+            return false;
         }
     }
 
@@ -0,0 +1,255 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.hash.MessageDigests;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.core.Nullable;
+import org.elasticsearch.core.TimeValue;
+import org.elasticsearch.search.SearchPhaseResult;
+import org.elasticsearch.search.internal.AliasFilter;
+import org.elasticsearch.search.query.QuerySearchResult;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * A cache of search responses on the coordinating node that allows identical searches, like the ones
+ * of a dashboard that is refreshed periodically, to be served without fanning out to the shards.
+ * <p>
+ * The coordinating node cannot tell when a shard refreshes without asking it, so only searches that
+ * target indices with a write or read-only block are cached: the content of their shards cannot change. The key
+ * contains the uuid and metadata version of these indices so that lifting the block, or any other
+ * change to their metadata, invalidates the cached responses. Responses are also only cached if all
+ * shards reported that their results only depend on the request and on their content (no use of
+ * {@code now} for instance), see {@link QuerySearchResult#isCacheable()}.
+ */
+public final class CoordinatorSearchResponseCache {
+
+    /**
+     * The maximum size of the cache, {@code 0} disables it.
+     */
+    public static final Setting<ByteSizeValue> SIZE_SETTING =
+        Setting.memorySizeSetting("search.coordinator_cache.size", "0b", Property.NodeScope);
+
+    /**
+     * The time after which cached responses expire, which bounds how long documents that were indexed
+     * but not yet refreshed when the write block was added can be missing from the cached responses.
+     */
+    public static final Setting<TimeValue> EXPIRE_SETTING =
+        Setting.positiveTimeSetting("search.coordinator_cache.expire", TimeValue.timeValueMinutes(10), Property.NodeScope);
+
+    /**
+     * The request headers that identify the user that executes a search and that are part of the key, so that responses
+     * are only shared between searches of the same user. Defaults to {@code _xpack_security_authentication}, the header
+     * under which security stores the authenticated principal, its realm and its run-as user. Other headers, like
+     * {@code X-Opaque-Id} or {@code traceparent}, differ between otherwise identical requests and are left out of the key.
+     */
+    public static final Setting<List<String>> KEY_HEADERS_SETTING = Setting.listSetting("search.coordinator_cache.key_headers",
+        List.of("_xpack_security_authentication"), Function.identity(), Property.NodeScope);
+
+    // null if the cache is disabled
+    private final Cache<BytesReference, BytesReference> cache;
+    private final NamedWriteableRegistry namedWriteableRegistry;
+    private final Set<String> keyHeaders;
+
+    CoordinatorSearchResponseCache(Settings settings, NamedWriteableRegistry namedWriteableRegistry) {
+        final long sizeInBytes = SIZE_SETTING.get(settings).getBytes();
+        if (sizeInBytes > 0) {
+            this.cache = CacheBuilder.<BytesReference, BytesReference>builder()
+                .setMaximumWeight(sizeInBytes)
+                .setExpireAfterWrite(EXPIRE_SETTING.get(settings))
+                .weigher((key, response) -> key.length() + response.length())
+                .build();
+        } else {
+            this.cache = null;
+        }
+        this.namedWriteableRegistry = namedWriteableRegistry;
+        this.keyHeaders = Set.copyOf(KEY_HEADERS_SETTING.get(settings));
+    }
+
+    /**
+     * Returns the key of the provided request in the cache, or <code>null</code> if its response cannot be cached.
+     *
+     * @param request the rewritten search request
+     * @param clusterState the cluster state the request is executed against
+     * @param indices the concrete indices targeted by the request
+     * @param aliasFilter the alias filters of the targeted indices, keyed by index uuid
+     * @param headers the headers of the request, only the ones listed in {@link #KEY_HEADERS_SETTING} are part of the key
+     */
+    @Nullable
+    BytesReference cacheKey(SearchRequest request, ClusterState clusterState, String[] indices,
+                            Map<String, AliasFilter> aliasFilter, Map<String, String> headers) {
+        if (cache == null
+                || request.source() == null
+                || request.source().profile()
+                || request.scroll() != null
+                || request.pointInTimeBuilder() != null
+                || request.getLocalClusterAlias() != null
+                || request.searchType() != SearchType.QUERY_THEN_FETCH
+                || Boolean.FALSE.equals(request.requestCache())
+                || indices.length == 0) {
+            return null;
+        }
+        final String[] sortedIndices = indices.clone();
+        Arrays.sort(sortedIndices);
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            for (String index : sortedIndices) {
+                final IndexMetadata indexMetadata = clusterState.metadata().index(index);
+                if (indexMetadata == null || hasWriteBlock(clusterState, index) == false) {
+                    return null;
+                }
+                out.writeString(indexMetadata.getIndexUUID());
+                out.writeVLong(indexMetadata.getVersion());
+                out.writeOptionalWriteable(aliasFilter.get(indexMetadata.getIndexUUID()));
+            }
+            request.source().writeTo(out);
+            out.writeOptionalString(request.routing());
+            out.writeOptionalString(request.preference());
+            request.indicesOptions().writeIndicesOptions(out);
+            out.writeOptionalBoolean(request.allowPartialSearchResults());
+            // responses are not shared between users: hash the headers rather than keeping credentials in the key
+            final MessageDigest digest = MessageDigests.sha256();
+            for (Map.Entry<String, String> header : new TreeMap<>(headers).entrySet()) {
+                if (keyHeaders.contains(header.getKey()) == false) {
+                    continue;
+                }
+                digest.update(header.getKey().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(header.getValue().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            out.writeByteArray(digest.digest());
+            return out.bytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns true if the provided index has a {@code index.blocks.write} or {@code index.blocks.read_only} block. Other blocks
+     * at the write level, like {@code index.blocks.read_only_allow_delete}, still allow documents to be deleted.
+     */
+    private static boolean hasWriteBlock(ClusterState clusterState, String index) {
+        return clusterState.blocks().hasIndexBlock(index, IndexMetadata.INDEX_WRITE_BLOCK)
+            || clusterState.blocks().hasIndexBlock(index, IndexMetadata.INDEX_READ_ONLY_BLOCK);
+    }
+
+    /**
+     * Returns the cached response for the provided key with an updated took time, or <code>null</code>
+     * if there is no such response.
+     */
+    @Nullable
+    SearchResponse get(BytesReference key, long tookInMillis) {
+        final BytesReference bytes = cache.get(key);
+        if (bytes == null) {
+            return null;
+        }
+        try (StreamInput in = new NamedWriteableAwareStreamInput(bytes.streamInput(), namedWriteableRegistry)) {
+            in.setVersion(Version.CURRENT);
+            final SearchResponse response = new SearchResponse(in);
+            return new SearchResponse(response.getInternalResponse(), null, response.getTotalShards(),
+                response.getSuccessfulShards(), response.getSkippedShards(), tookInMillis, ShardSearchFailure.EMPTY_ARRAY,
+                response.getClusters(), null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Wraps the provided listener so that the response is cached under the provided key if the
+     * shard results allow it.
+     */
+    ActionListener<SearchResponse> wrap(BytesReference key, ActionListener<SearchResponse> listener) {
+        assert cache != null;
+        return new CachingListener(key, listener);
+    }
+
+    int count() {
+        return cache == null ? 0 : cache.count();
+    }
+
+    private void put(BytesReference key, SearchResponse response) {
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.setVersion(Version.CURRENT);
+            response.writeTo(out);
+            cache.put(key, out.bytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A listener that caches the response if all shards that were queried returned cacheable
+     * results. It is notified of the shard results by {@link AbstractSearchAsyncAction} before
+     * the response is sent.
+     */
+    final class CachingListener implements ActionListener<SearchResponse> {
+        private final BytesReference key;
+        private final ActionListener<SearchResponse> delegate;
+        private volatile boolean cacheable = false;
+
+        private CachingListener(BytesReference key, ActionListener<SearchResponse> delegate) {
+            this.key = key;
+            this.delegate = delegate;
+        }
+
+        void onQueryResults(List<SearchPhaseResult> results) {
+            boolean cacheable = results.isEmpty() == false;
+            for (SearchPhaseResult result : results) {
+                final QuerySearchResult queryResult = result.queryResult();
+                if (queryResult == null || queryResult.isNull() || queryResult.isCacheable() == false) {
+                    cacheable = false;
+                    break;
+                }
+            }
+            this.cacheable = cacheable;
+        }
+
+        @Override
+        public void onResponse(SearchResponse response) {
+            // shards that were skipped by the can_match phase might have been skipped based on the current time
+            if (cacheable
+                    && response.getFailedShards() == 0
+                    && response.getSkippedShards() == 0
+                    && response.isTimedOut() == false
+                    && response.getSuccessfulShards() == response.getTotalShards()) {
+                put(key, response);
+            }
+            delegate.onResponse(response);
+        }
+
+        @Override
+        public void onFailure(Exception e) {
+            delegate.onFailure(e);
+        }
+    }
+}
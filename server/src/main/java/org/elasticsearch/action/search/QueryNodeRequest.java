@@ -0,0 +1,50 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.search.internal.ShardSearchRequest;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A request to execute the query phase of a search on several shards that are allocated
+ * on the same node. The node executes at most {@link #getMaxConcurrentShardRequests()}
+ * shards concurrently and partially reduces their results before sending them back.
+ */
+public class QueryNodeRequest extends ShardSearchNodeRequest {
+
+    private final int maxConcurrentShardRequests;
+
+    public QueryNodeRequest(List<ShardSearchRequest> shardLevelRequests, int maxConcurrentShardRequests) {
+        super(shardLevelRequests);
+        assert maxConcurrentShardRequests > 0 : maxConcurrentShardRequests;
+        this.maxConcurrentShardRequests = maxConcurrentShardRequests;
+    }
+
+    public QueryNodeRequest(StreamInput in) throws IOException {
+        super(in);
+        maxConcurrentShardRequests = in.readVInt();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeVInt(maxConcurrentShardRequests);
+    }
+
+    /**
+     * The maximum number of shards that the node queries concurrently.
+     */
+    public int getMaxConcurrentShardRequests() {
+        return maxConcurrentShardRequests;
+    }
+}
@@ -0,0 +1,328 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.cluster.metadata.MappingMetadata;
+import org.elasticsearch.cluster.metadata.Metadata;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.mapper.DateFieldMapper;
+import org.elasticsearch.index.query.MatchAllQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.histogram.RollupInterval;
+import org.elasticsearch.search.aggregations.metrics.AvgAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.MaxAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.MinAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.SumAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.ValueCountAggregationBuilder;
+import org.elasticsearch.search.aggregations.support.ValuesSourceAggregationBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rolling up a backing index of a data stream adds the rollup index to the data stream next to the raw index,
+ * and rollup indices can be rolled up again. A search that targets several of these copies of the same data
+ * would count it several times, so only one of them is searched: the coarsest rollup index that can answer
+ * the request exactly if there is one, the raw index otherwise.
+ * <p>
+ * Rollup indices are grouped with the raw index at the root of their lineage, so a rollup of a rollup is a copy
+ * of the same data as its source and of the raw index.
+ * <p>
+ * A rollup index can answer requests that need neither hits nor their total and only aggregate all documents into
+ * {@code date_histogram}s whose buckets are made of whole rollup buckets, with {@code min}, {@code max},
+ * {@code sum}, {@code avg} and {@code value_count} sub-aggregations on the rolled up metrics.
+ */
+final class RollupIndexSelector {
+    static final String AGGREGATE_METRIC_TYPE = "aggregate_metric_double";
+    static final String METRICS = "metrics";
+
+    /**
+     * The metrics that each supported sub-aggregation needs from an {@code aggregate_metric_double} field.
+     */
+    private static final Map<String, List<String>> REQUIRED_METRICS = Map.of(
+        MinAggregationBuilder.NAME, List.of("min"),
+        MaxAggregationBuilder.NAME, List.of("max"),
+        SumAggregationBuilder.NAME, List.of("sum"),
+        AvgAggregationBuilder.NAME, List.of("sum", "value_count"),
+        ValueCountAggregationBuilder.NAME, List.of("value_count")
+    );
+
+    /**
+     * The maximum number of indices whose parsed rollup metadata is cached.
+     */
+    static final int MAX_CACHED_INDICES = 1024;
+
+    // the parsed mapping of the rollup indices, keyed by index and invalidated by a change of the mapping version
+    private final Cache<Index, CachedRollupIndex> cache = CacheBuilder.<Index, CachedRollupIndex>builder()
+        .setMaximumWeight(MAX_CACHED_INDICES)
+        .build();
+
+    /**
+     * Removes the indices that hold the same data as another one of the provided indices.
+     */
+    Index[] selectIndices(SearchRequest request, Metadata metadata, Index[] indices) {
+        Map<String, IndexMetadata> indicesByUuid = null;
+        Map<String, List<IndexMetadata>> rollupsByRoot = null;
+        for (Index index : indices) {
+            IndexMetadata indexMetadata = metadata.index(index);
+            if (indexMetadata != null && IndexMetadata.INDEX_ROLLUP_SOURCE_UUID.exists(indexMetadata.getSettings())) {
+                if (rollupsByRoot == null) {
+                    indicesByUuid = new HashMap<>();
+                    for (Index other : indices) {
+                        IndexMetadata otherMetadata = metadata.index(other);
+                        if (otherMetadata != null) {
+                            indicesByUuid.put(other.getUUID(), otherMetadata);
+                        }
+                    }
+                    rollupsByRoot = new HashMap<>();
+                }
+                rollupsByRoot.computeIfAbsent(rootSourceUuid(indexMetadata, metadata, indicesByUuid), k -> new ArrayList<>())
+                    .add(indexMetadata);
+            }
+        }
+        if (rollupsByRoot == null) {
+            return indices;
+        }
+
+        Set<Index> skipped = new HashSet<>();
+        for (Map.Entry<String, List<IndexMetadata>> entry : rollupsByRoot.entrySet()) {
+            IndexMetadata rawMetadata = indicesByUuid.get(entry.getKey());
+            Index raw = rawMetadata == null ? null : rawMetadata.getIndex();
+            List<IndexMetadata> rollups = entry.getValue();
+            if (raw == null && rollups.size() == 1) {
+                continue;
+            }
+            IndexMetadata coarsestAnswering = null;
+            long coarsestMillis = Long.MIN_VALUE;
+            IndexMetadata finest = null;
+            long finestMillis = Long.MAX_VALUE;
+            for (IndexMetadata rollup : rollups) {
+                RollupIndex rollupIndex = rollupIndex(rollup);
+                if (rollupIndex == null) {
+                    continue;
+                }
+                long millis = rollupIndex.interval.estimateMillis();
+                if (millis > coarsestMillis && rollupIndex.canAnswer(request.source())) {
+                    coarsestAnswering = rollup;
+                    coarsestMillis = millis;
+                }
+                if (millis < finestMillis) {
+                    finest = rollup;
+                    finestMillis = millis;
+                }
+            }
+            IndexMetadata selected = coarsestAnswering;
+            if (selected == null && raw == null) {
+                // without the raw index, the finest rollup is the most likely to answer with a helpful error
+                selected = finest != null ? finest : rollups.get(0);
+            }
+            if (selected != null && raw != null) {
+                skipped.add(raw);
+            }
+            for (IndexMetadata rollup : rollups) {
+                if (rollup != selected) {
+                    skipped.add(rollup.getIndex());
+                }
+            }
+        }
+        if (skipped.isEmpty()) {
+            return indices;
+        }
+        List<Index> selected = new ArrayList<>(indices.length - skipped.size());
+        for (Index index : indices) {
+            if (skipped.contains(index) == false) {
+                selected.add(index);
+            }
+        }
+        return selected.toArray(Index.EMPTY_ARRAY);
+    }
+
+    /**
+     * Returns the uuid of the raw index at the root of the lineage of the provided rollup index. Rollup v2 records the
+     * raw index as the source of a rollup of a rollup, but a rollup whose recorded source is itself a rollup index is
+     * followed to the source of that index, so that all copies of the same data end up in the same group.
+     */
+    private static String rootSourceUuid(IndexMetadata rollup, Metadata metadata, Map<String, IndexMetadata> indicesByUuid) {
+        String sourceUuid = IndexMetadata.INDEX_ROLLUP_SOURCE_UUID.get(rollup.getSettings());
+        IndexMetadata source = sourceIndex(rollup, metadata, indicesByUuid);
+        Set<String> visited = new HashSet<>();
+        visited.add(rollup.getIndexUUID());
+        while (source != null
+            && IndexMetadata.INDEX_ROLLUP_SOURCE_UUID.exists(source.getSettings())
+            && visited.add(source.getIndexUUID())) {
+            sourceUuid = IndexMetadata.INDEX_ROLLUP_SOURCE_UUID.get(source.getSettings());
+            source = sourceIndex(source, metadata, indicesByUuid);
+        }
+        return sourceUuid;
+    }
+
+    /**
+     * Returns the source index of the provided rollup index, or <code>null</code> if it doesn't exist anymore.
+     */
+    private static IndexMetadata sourceIndex(IndexMetadata rollup, Metadata metadata, Map<String, IndexMetadata> indicesByUuid) {
+        String sourceUuid = IndexMetadata.INDEX_ROLLUP_SOURCE_UUID.get(rollup.getSettings());
+        IndexMetadata source = indicesByUuid.get(sourceUuid);
+        if (source == null && IndexMetadata.INDEX_ROLLUP_SOURCE_NAME.exists(rollup.getSettings())) {
+            source = metadata.index(IndexMetadata.INDEX_ROLLUP_SOURCE_NAME.get(rollup.getSettings()));
+        }
+        return source != null && sourceUuid.equals(source.getIndexUUID()) ? source : null;
+    }
+
+    /**
+     * Returns the parsed mapping of the provided rollup index, or <code>null</code> if it isn't a rollup v2 mapping.
+     * The mapping is only parsed again when its version changes.
+     */
+    RollupIndex rollupIndex(IndexMetadata indexMetadata) {
+        CachedRollupIndex cached = cache.get(indexMetadata.getIndex());
+        if (cached == null || cached.mappingVersion != indexMetadata.getMappingVersion()) {
+            cached = new CachedRollupIndex(indexMetadata.getMappingVersion(), RollupIndex.parse(indexMetadata));
+            cache.put(indexMetadata.getIndex(), cached);
+        }
+        return cached.rollupIndex;
+    }
+
+    int cacheCount() {
+        return cache.count();
+    }
+
+    private static final class CachedRollupIndex {
+        private final long mappingVersion;
+        private final RollupIndex rollupIndex;
+
+        private CachedRollupIndex(long mappingVersion, RollupIndex rollupIndex) {
+            this.mappingVersion = mappingVersion;
+            this.rollupIndex = rollupIndex;
+        }
+    }
+
+    /**
+     * The date histogram and metrics of a rollup index, read from its mapping.
+     */
+    static final class RollupIndex {
+        private final Map<String, List<String>> metrics = new HashMap<>();
+        private String dateField;
+        private RollupInterval interval;
+
+        static RollupIndex parse(IndexMetadata indexMetadata) {
+            MappingMetadata mapping = indexMetadata.mapping();
+            if (mapping == null) {
+                return null;
+            }
+            try {
+                Map<String, Object> properties = properties(mapping.sourceAsMap());
+                if (properties == null) {
+                    return null;
+                }
+                RollupIndex rollupIndex = new RollupIndex();
+                rollupIndex.parseProperties("", properties);
+                return rollupIndex.interval == null ? null : rollupIndex;
+            } catch (ElasticsearchParseException | IllegalArgumentException | DateTimeException e) {
+                return null;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Map<String, Object> properties(Map<String, Object> source) {
+            Object properties = source.get("properties");
+            return properties instanceof Map ? (Map<String, Object>) properties : null;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void parseProperties(String prefix, Map<String, Object> properties) {
+            for (Map.Entry<String, Object> entry : properties.entrySet()) {
+                if (entry.getValue() instanceof Map == false) {
+                    continue;
+                }
+                Map<String, Object> field = (Map<String, Object>) entry.getValue();
+                String path = prefix + entry.getKey();
+                Object type = field.get("type");
+                if (DateFieldMapper.CONTENT_TYPE.equals(type) && field.get("meta") instanceof Map) {
+                    RollupInterval rollupInterval = RollupInterval.fromMeta((Map<String, Object>) field.get("meta"));
+                    if (rollupInterval != null) {
+                        dateField = path;
+                        interval = rollupInterval;
+                    }
+                } else if (AGGREGATE_METRIC_TYPE.equals(type) && field.get(METRICS) instanceof List) {
+                    metrics.put(path, (List<String>) field.get(METRICS));
+                }
+                Map<String, Object> subProperties = properties(field);
+                if (subProperties != null) {
+                    parseProperties(path + ".", subProperties);
+                }
+            }
+        }
+
+        boolean canAnswer(SearchSourceBuilder source) {
+            if (source == null || source.size() != 0 || source.postFilter() != null || source.suggest() != null) {
+                return false;
+            }
+            // the total hits would count rollup documents, and these options count, score or read raw documents
+            if (source.trackTotalHitsUpTo() == null || source.trackTotalHitsUpTo() != SearchContext.TRACK_TOTAL_HITS_DISABLED
+                || source.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER
+                || source.minScore() != null
+                || source.runtimeMappings().isEmpty() == false) {
+                return false;
+            }
+            QueryBuilder query = source.query();
+            if (query != null && query instanceof MatchAllQueryBuilder == false) {
+                return false;
+            }
+            AggregatorFactories.Builder aggregations = source.aggregations();
+            if (aggregations == null || aggregations.getAggregatorFactories().isEmpty()) {
+                return false;
+            }
+            for (AggregationBuilder aggregation : aggregations.getAggregatorFactories()) {
+                if (aggregation instanceof DateHistogramAggregationBuilder == false) {
+                    return false;
+                }
+                DateHistogramAggregationBuilder histogram = (DateHistogramAggregationBuilder) aggregation;
+                if (dateField.equals(histogram.field()) == false
+                    || histogram.script() != null
+                    || histogram.hardBounds() != null
+                    || histogram.extendedBounds() != null
+                    || histogram.rollupIncompatibility(interval) != null) {
+                    return false;
+                }
+                for (AggregationBuilder subAggregation : histogram.getSubAggregations()) {
+                    if (isRolledUp(subAggregation) == false) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private boolean isRolledUp(AggregationBuilder aggregation) {
+            List<String> required = REQUIRED_METRICS.get(aggregation.getType());
+            if (required == null || aggregation.getSubAggregations().isEmpty() == false) {
+                return false;
+            }
+            ValuesSourceAggregationBuilder<?> metric = (ValuesSourceAggregationBuilder<?>) aggregation;
+            if (metric.field() == null || metric.script() != null || metric.missing() != null) {
+                return false;
+            }
+            List<String> available = metrics.get(metric.field());
+            return available != null && available.containsAll(required);
+        }
+    }
+}
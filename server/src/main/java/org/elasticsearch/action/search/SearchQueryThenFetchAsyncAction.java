@@ -21,6 +21,7 @@ import org.elasticsearch.search.internal.ShardSearchRequest;
 import org.elasticsearch.search.query.QuerySearchResult;
 import org.elasticsearch.transport.Transport;
 
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executor;
 import java.util.function.BiFunction;
@@ -37,6 +38,8 @@ class SearchQueryThenFetchAsyncAction extends AbstractSearchAsyncAction<SearchPh
     private final int trackTotalHitsUpTo;
     private volatile BottomSortValuesCollector bottomSortCollector;
 
+    private final ShardSearchNodeRequestBuffer<SearchPhaseResult> requestBuffer;
+
     SearchQueryThenFetchAsyncAction(final Logger logger, final SearchTransportService searchTransportService,
                                     final BiFunction<String, String, Transport.Connection> nodeIdToConnection,
                                     final Map<String, AliasFilter> aliasFilter,
@@ -47,9 +50,30 @@ class SearchQueryThenFetchAsyncAction extends AbstractSearchAsyncAction<SearchPh
                                     final GroupShardsIterator<SearchShardIterator> shardsIts,
                                     final TransportSearchAction.SearchTimeProvider timeProvider,
                                     ClusterState clusterState, SearchTask task, SearchResponse.Clusters clusters) {
+        this(logger, searchTransportService, nodeIdToConnection, aliasFilter, concreteIndexBoosts, searchPhaseController, executor,
+            resultConsumer, request, listener, shardsIts, timeProvider, clusterState, task, clusters, false);
+    }
+
+    /**
+     * @param batchPerNode whether the shard level requests that target the same node should be sent in a single request. The
+     *                     maximum number of concurrent shard requests per node is then enforced by the data nodes.
+     */
+    SearchQueryThenFetchAsyncAction(final Logger logger, final SearchTransportService searchTransportService,
+                                    final BiFunction<String, String, Transport.Connection> nodeIdToConnection,
+                                    final Map<String, AliasFilter> aliasFilter,
+                                    final Map<String, Float> concreteIndexBoosts,
+                                    final SearchPhaseController searchPhaseController, final Executor executor,
+                                    final QueryPhaseResultConsumer resultConsumer, final SearchRequest request,
+                                    final ActionListener<SearchResponse> listener,
+                                    final GroupShardsIterator<SearchShardIterator> shardsIts,
+                                    final TransportSearchAction.SearchTimeProvider timeProvider,
+                                    ClusterState clusterState, SearchTask task, SearchResponse.Clusters clusters,
+                                    boolean batchPerNode) {
         super("query", logger, searchTransportService, nodeIdToConnection, aliasFilter, concreteIndexBoosts,
                 executor, request, listener, shardsIts, timeProvider, clusterState, task,
-                resultConsumer, request.getMaxConcurrentShardRequests(), clusters);
+                resultConsumer, maxConcurrentRequestsPerNode(request, shardsIts, batchPerNode), clusters);
+        this.requestBuffer = new ShardSearchNodeRequestBuffer<>(shardsIts, shouldBatchPerNode(request, shardsIts, batchPerNode),
+            this::sendExecuteQuery);
         this.topDocsSize = getTopDocsSize(request);
         this.trackTotalHitsUpTo = request.resolveTrackTotalHitsUpTo();
         this.searchPhaseController = searchPhaseController;
@@ -64,13 +88,46 @@ class SearchQueryThenFetchAsyncAction extends AbstractSearchAsyncAction<SearchPh
             SearchProgressListener.buildSearchShards(toSkipShardsIts), clusters, hasFetchPhase);
     }
 
+    private static boolean shouldBatchPerNode(SearchRequest request, GroupShardsIterator<SearchShardIterator> shardsIts,
+                                              boolean batchPerNode) {
+        // scroll requests need all the top docs of each shard to track the last emitted doc per shard
+        return batchPerNode && request.scroll() == null && shardsIts.size() > 1;
+    }
+
+    private static int maxConcurrentRequestsPerNode(SearchRequest request, GroupShardsIterator<SearchShardIterator> shardsIts,
+                                                    boolean batchPerNode) {
+        // batched requests are throttled by the data nodes
+        return shouldBatchPerNode(request, shardsIts, batchPerNode)
+            ? Math.max(shardsIts.size(), request.getMaxConcurrentShardRequests())
+            : request.getMaxConcurrentShardRequests();
+    }
+
     protected void executePhaseOnShard(final SearchShardIterator shardIt,
                                        final SearchShardTarget shard,
                                        final SearchActionListener<SearchPhaseResult> listener) {
         ShardSearchRequest request = rewriteShardSearchRequest(super.buildShardSearchRequest(shardIt, listener.requestIndex));
+        if (requestBuffer.buffer(shard, request, listener)) {
+            return;
+        }
         getSearchTransport().sendExecuteQuery(getConnection(shard.getClusterAlias(), shard.getNodeId()), request, getTask(), listener);
     }
 
+    @Override
+    protected void performPhaseOnShard(int shardIndex, SearchShardIterator shardIt, SearchShardTarget shard) {
+        final boolean initialAttempt = requestBuffer.startShard(shardIndex);
+        try {
+            super.performPhaseOnShard(shardIndex, shardIt, shard);
+        } finally {
+            requestBuffer.onShardStarted(initialAttempt);
+        }
+    }
+
+    private void sendExecuteQuery(String clusterAlias, String nodeId, List<ShardSearchRequest> requests,
+                                  List<SearchActionListener<SearchPhaseResult>> listeners) {
+        getSearchTransport().sendExecuteQuery(getConnection(clusterAlias, nodeId),
+            new QueryNodeRequest(requests, getRequest().getMaxConcurrentShardRequests()), getTask(), listeners);
+    }
+
     @Override
     protected void onShardGroupFailure(int shardIndex, SearchShardTarget shardTarget, Exception exc) {
         progressListener.notifyQueryFailure(shardIndex, shardTarget, exc);
@@ -8,12 +8,14 @@
 
 package org.elasticsearch.action.search;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.ActionListenerResponseHandler;
 import org.elasticsearch.action.IndicesRequest;
 import org.elasticsearch.action.OriginalIndices;
 import org.elasticsearch.action.admin.cluster.node.tasks.cancel.CancelTasksRequest;
 import org.elasticsearch.action.admin.cluster.node.tasks.get.GetTaskAction;
+import org.elasticsearch.action.search.ShardSearchNodeResponse.ResponseOrFailure;
 import org.elasticsearch.action.support.ChannelActionListener;
 import org.elasticsearch.action.support.IndicesOptions;
 import org.elasticsearch.client.OriginSettingClient;
@@ -25,6 +27,7 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.common.util.concurrent.CountDown;
 import org.elasticsearch.search.SearchPhaseResult;
 import org.elasticsearch.search.SearchService;
 import org.elasticsearch.search.dfs.DfsSearchResult;
@@ -51,7 +54,10 @@ import org.elasticsearch.transport.TransportResponse;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.function.BiFunction;
@@ -67,12 +73,14 @@ public class SearchTransportService {
     public static final String CLEAR_SCROLL_CONTEXTS_ACTION_NAME = "indices:data/read/search[clear_scroll_contexts]";
     public static final String DFS_ACTION_NAME = "indices:data/read/search[phase/dfs]";
     public static final String QUERY_ACTION_NAME = "indices:data/read/search[phase/query]";
+    public static final String QUERY_NODE_ACTION_NAME = "indices:data/read/search[phase/query][n]";
     public static final String QUERY_ID_ACTION_NAME = "indices:data/read/search[phase/query/id]";
     public static final String QUERY_SCROLL_ACTION_NAME = "indices:data/read/search[phase/query/scroll]";
     public static final String QUERY_FETCH_SCROLL_ACTION_NAME = "indices:data/read/search[phase/query+fetch/scroll]";
     public static final String FETCH_ID_SCROLL_ACTION_NAME = "indices:data/read/search[phase/fetch/id/scroll]";
     public static final String FETCH_ID_ACTION_NAME = "indices:data/read/search[phase/fetch/id]";
     public static final String QUERY_CAN_MATCH_NAME = "indices:data/read/search[can_match]";
+    public static final String QUERY_CAN_MATCH_NODE_NAME = "indices:data/read/search[can_match][n]";
 
     private final TransportService transportService;
     private final NodeClient client;
@@ -113,6 +121,54 @@ public class SearchTransportService {
             TransportRequestOptions.EMPTY, new ActionListenerResponseHandler<>(listener, SearchService.CanMatchResponse::new));
     }
 
+    /**
+     * Sends a single can_match request for all the provided shards of the node. Nodes that do not support node level can_match
+     * requests get one request per shard, whose results are gathered into a single response.
+     */
+    public void sendCanMatch(Transport.Connection connection, final CanMatchNodeRequest request, SearchTask task,
+                             final ActionListener<CanMatchNodeResponse> listener) {
+        if (connection.getVersion().onOrAfter(Version.V_8_0_0)) {
+            transportService.sendChildRequest(connection, QUERY_CAN_MATCH_NODE_NAME, request, task,
+                TransportRequestOptions.EMPTY, new ActionListenerResponseHandler<>(listener, CanMatchNodeResponse::new));
+        } else {
+            sendCanMatchPerShard(connection, request, task, listener);
+        }
+    }
+
+    void sendCanMatchPerShard(Transport.Connection connection, CanMatchNodeRequest request, SearchTask task,
+                              ActionListener<CanMatchNodeResponse> listener) {
+        final List<ShardSearchRequest> shardLevelRequests = request.getShardLevelRequests();
+        @SuppressWarnings("unchecked")
+        final ResponseOrFailure<SearchService.CanMatchResponse>[] responses = new ResponseOrFailure[shardLevelRequests.size()];
+        final CountDown countDown = new CountDown(responses.length);
+        for (int i = 0; i < responses.length; i++) {
+            final int index = i;
+            final ActionListener<SearchService.CanMatchResponse> shardListener = new ActionListener<>() {
+                @Override
+                public void onResponse(SearchService.CanMatchResponse response) {
+                    onShardResponse(new ResponseOrFailure<>(response));
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    onShardResponse(new ResponseOrFailure<>(e));
+                }
+
+                private void onShardResponse(ResponseOrFailure<SearchService.CanMatchResponse> response) {
+                    responses[index] = response;
+                    if (countDown.countDown()) {
+                        listener.onResponse(new CanMatchNodeResponse(Arrays.asList(responses)));
+                    }
+                }
+            };
+            try {
+                sendCanMatch(connection, shardLevelRequests.get(i), task, shardListener);
+            } catch (Exception e) {
+                shardListener.onFailure(e);
+            }
+        }
+    }
+
     public void sendClearAllScrollContexts(Transport.Connection connection, final ActionListener<TransportResponse> listener) {
         transportService.sendRequest(connection, CLEAR_SCROLL_CONTEXTS_ACTION_NAME, TransportRequest.Empty.INSTANCE,
             TransportRequestOptions.EMPTY, new ActionListenerResponseHandler<>(listener, (in) -> TransportResponse.Empty.INSTANCE));
@@ -136,6 +192,35 @@ public class SearchTransportService {
                 new ConnectionCountingHandler<>(handler, reader, clientConnections, connection.getNode().getId()));
     }
 
+    /**
+     * Sends a single query request for all the provided shards of the node, the listeners are notified of the result of each
+     * shard in the order of the shard level requests. Nodes that do not support node level query requests get one request
+     * per shard.
+     */
+    public void sendExecuteQuery(Transport.Connection connection, final QueryNodeRequest request, SearchTask task,
+                                 final List<SearchActionListener<SearchPhaseResult>> listeners) {
+        assert request.getShardLevelRequests().size() == listeners.size();
+        if (connection.getVersion().before(Version.V_8_0_0)) {
+            for (int i = 0; i < listeners.size(); i++) {
+                try {
+                    sendExecuteQuery(connection, request.getShardLevelRequests().get(i), task, listeners.get(i));
+                } catch (Exception e) {
+                    listeners.get(i).onFailure(e);
+                }
+            }
+            return;
+        }
+        final List<ActionListener<SearchPhaseResult>> handlers = new ArrayList<>(listeners.size());
+        for (SearchActionListener<SearchPhaseResult> listener : listeners) {
+            @SuppressWarnings("unchecked")
+            final ActionListener<SearchPhaseResult> handler = responseWrapper.apply(connection, listener);
+            handlers.add(handler);
+        }
+        final ActionListener<QueryNodeResponse> nodeListener = ShardSearchNodeResponse.shardListeners(handlers);
+        transportService.sendChildRequest(connection, QUERY_NODE_ACTION_NAME, request, task,
+                new ConnectionCountingHandler<>(nodeListener, QueryNodeResponse::new, clientConnections, connection.getNode().getId()));
+    }
+
     public void sendExecuteQuery(Transport.Connection connection, final QuerySearchRequest request, SearchTask task,
                                  final SearchActionListener<QuerySearchResult> listener) {
         transportService.sendChildRequest(connection, QUERY_ID_ACTION_NAME, request, task,
@@ -314,6 +399,13 @@ public class SearchTransportService {
         TransportActionProxy.registerProxyActionWithDynamicResponseType(transportService, QUERY_ACTION_NAME, true,
             (request) -> ((ShardSearchRequest)request).numberOfShards() == 1 ? QueryFetchSearchResult::new : QuerySearchResult::new);
 
+        transportService.registerRequestHandler(QUERY_NODE_ACTION_NAME, ThreadPool.Names.SAME, QueryNodeRequest::new,
+            (request, channel, task) ->
+                searchService.executeQueryPhase(request, (SearchShardTask) task,
+                    new ChannelActionListener<>(channel, QUERY_NODE_ACTION_NAME, request))
+        );
+        TransportActionProxy.registerProxyAction(transportService, QUERY_NODE_ACTION_NAME, true, QueryNodeResponse::new);
+
         transportService.registerRequestHandler(QUERY_ID_ACTION_NAME, ThreadPool.Names.SAME, QuerySearchRequest::new,
             (request, channel, task) -> {
                 searchService.executeQueryPhase(request, (SearchShardTask) task,
@@ -355,6 +447,13 @@ public class SearchTransportService {
                 searchService.canMatch(request, new ChannelActionListener<>(channel, QUERY_CAN_MATCH_NAME, request));
             });
         TransportActionProxy.registerProxyAction(transportService, QUERY_CAN_MATCH_NAME, true, SearchService.CanMatchResponse::new);
+
+        // a node level request can target many shards, so it is forked to avoid blocking the networking thread
+        transportService.registerRequestHandler(QUERY_CAN_MATCH_NODE_NAME, ThreadPool.Names.SEARCH, true, true, CanMatchNodeRequest::new,
+            (request, channel, task) -> {
+                searchService.canMatch(request, new ChannelActionListener<>(channel, QUERY_CAN_MATCH_NODE_NAME, request));
+            });
+        TransportActionProxy.registerProxyAction(transportService, QUERY_CAN_MATCH_NODE_NAME, true, CanMatchNodeResponse::new);
     }
 
 
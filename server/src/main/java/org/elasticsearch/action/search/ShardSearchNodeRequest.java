@@ -0,0 +1,92 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.action.IndicesRequest;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.search.internal.ShardSearchRequest;
+import org.elasticsearch.tasks.Task;
+import org.elasticsearch.tasks.TaskId;
+import org.elasticsearch.transport.TransportRequest;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Base class for the requests that execute a search phase on several shards that are allocated on the same node, in a
+ * single round trip. Features that apply to shard level requests, like the request interceptors of security, must be
+ * applied to each of {@link #getShardLevelRequests()}.
+ */
+public abstract class ShardSearchNodeRequest extends TransportRequest implements IndicesRequest {
+
+    private final List<ShardSearchRequest> shardLevelRequests;
+
+    protected ShardSearchNodeRequest(List<ShardSearchRequest> shardLevelRequests) {
+        assert shardLevelRequests.isEmpty() == false;
+        this.shardLevelRequests = shardLevelRequests;
+    }
+
+    protected ShardSearchNodeRequest(StreamInput in) throws IOException {
+        super(in);
+        shardLevelRequests = in.readList(ShardSearchRequest::new);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeList(shardLevelRequests);
+    }
+
+    /**
+     * The requests of the shards, in the order of the responses.
+     */
+    public List<ShardSearchRequest> getShardLevelRequests() {
+        return shardLevelRequests;
+    }
+
+    @Override
+    public String[] indices() {
+        final Set<String> indices = new LinkedHashSet<>();
+        for (ShardSearchRequest request : shardLevelRequests) {
+            final String[] shardIndices = request.indices();
+            if (shardIndices != null) {
+                indices.addAll(List.of(shardIndices));
+            }
+        }
+        return indices.toArray(String[]::new);
+    }
+
+    @Override
+    public IndicesOptions indicesOptions() {
+        return shardLevelRequests.get(0).indicesOptions();
+    }
+
+    @Override
+    public Task createTask(long id, String type, String action, TaskId parentTaskId, Map<String, String> headers) {
+        return new SearchShardTask(id, type, action, getDescription(), parentTaskId, headers);
+    }
+
+    @Override
+    public String getDescription() {
+        // the shard ids are enough here, the request itself can be found by looking at the parent task description
+        final StringBuilder description = new StringBuilder("shardIds[");
+        for (int i = 0; i < shardLevelRequests.size(); i++) {
+            if (i > 0) {
+                description.append(", ");
+            }
+            description.append(shardLevelRequests.get(i).shardId());
+        }
+        return description.append("]").toString();
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.apache.lucene.util.FixedBitSet;
+import org.elasticsearch.cluster.routing.GroupShardsIterator;
+import org.elasticsearch.core.Tuple;
+import org.elasticsearch.search.SearchPhaseResult;
+import org.elasticsearch.search.SearchShardTarget;
+import org.elasticsearch.search.internal.ShardSearchRequest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Buffers the first attempt of the shard level requests of a search phase per node, so that they can be sent as a single
+ * {@link ShardSearchNodeRequest} per node once all shards have been started. Retries on other shard copies are not buffered.
+ */
+final class ShardSearchNodeRequestBuffer<Result extends SearchPhaseResult> {
+
+    /**
+     * Sends the shard level requests that target a node, the listeners are in the order of the requests.
+     */
+    @FunctionalInterface
+    interface NodeRequestSender<Result extends SearchPhaseResult> {
+        void send(String clusterAlias, String nodeId, List<ShardSearchRequest> requests, List<SearchActionListener<Result>> listeners);
+    }
+
+    private final NodeRequestSender<Result> sender;
+    // the shards that were already started at least once, guarded by this
+    private final FixedBitSet startedShards;
+    private final AtomicInteger remainingInitialShards;
+    // the requests that are buffered per node until all shards have been started, null if requests are not buffered or once they
+    // have been sent, guarded by this
+    private Map<Tuple<String, String>, PendingRequests<Result>> pendingRequestsPerNode;
+
+    /**
+     * @param enabled whether requests are buffered at all, if not {@link #buffer} always returns <code>false</code>
+     */
+    ShardSearchNodeRequestBuffer(GroupShardsIterator<SearchShardIterator> shardsIts, boolean enabled, NodeRequestSender<Result> sender) {
+        this.sender = sender;
+        this.startedShards = new FixedBitSet(shardsIts.size());
+        int initialShards = 0;
+        for (SearchShardIterator shardIt : shardsIts) {
+            if (shardIt.skip() == false) {
+                initialShards++;
+            }
+        }
+        this.remainingInitialShards = new AtomicInteger(initialShards);
+        this.pendingRequestsPerNode = enabled ? new HashMap<>() : null;
+    }
+
+    /**
+     * Marks the provided shard as started and returns whether this is its first attempt. The result must be passed to
+     * {@link #onShardStarted(boolean)} once the shard level request has been sent or buffered.
+     */
+    synchronized boolean startShard(int shardIndex) {
+        return startedShards.getAndSet(shardIndex) == false;
+    }
+
+    /**
+     * Sends the buffered requests if the first attempt of all shards has been started.
+     */
+    void onShardStarted(boolean initialAttempt) {
+        if (initialAttempt && remainingInitialShards.decrementAndGet() == 0) {
+            sendPendingRequests();
+        }
+    }
+
+    /**
+     * Buffers the provided shard level request until all shards have been started, or returns <code>false</code> if it
+     * must be sent right away.
+     */
+    synchronized boolean buffer(SearchShardTarget shard, ShardSearchRequest request, SearchActionListener<Result> listener) {
+        if (pendingRequestsPerNode == null) {
+            return false;
+        }
+        final PendingRequests<Result> pending =
+            pendingRequestsPerNode.computeIfAbsent(new Tuple<>(shard.getClusterAlias(), shard.getNodeId()), k -> new PendingRequests<>());
+        pending.requests.add(request);
+        pending.listeners.add(listener);
+        return true;
+    }
+
+    private void sendPendingRequests() {
+        final Map<Tuple<String, String>, PendingRequests<Result>> requestsPerNode;
+        synchronized (this) {
+            requestsPerNode = pendingRequestsPerNode;
+            pendingRequestsPerNode = null;
+        }
+        if (requestsPerNode == null) {
+            return;
+        }
+        for (Map.Entry<Tuple<String, String>, PendingRequests<Result>> entry : requestsPerNode.entrySet()) {
+            final PendingRequests<Result> pending = entry.getValue();
+            try {
+                sender.send(entry.getKey().v1(), entry.getKey().v2(), pending.requests, pending.listeners);
+            } catch (Exception e) {
+                for (SearchActionListener<Result> listener : pending.listeners) {
+                    listener.onFailure(e);
+                }
+            }
+        }
+    }
+
+    private static final class PendingRequests<Result extends SearchPhaseResult> {
+        private final List<ShardSearchRequest> requests = new ArrayList<>();
+        private final List<SearchActionListener<Result>> listeners = new ArrayList<>();
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.core.Nullable;
+import org.elasticsearch.transport.TransportResponse;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Base class for the responses to a {@link ShardSearchNodeRequest}: the result, or the failure, of each shard in the
+ * order of {@link ShardSearchNodeRequest#getShardLevelRequests()}.
+ */
+public abstract class ShardSearchNodeResponse<T extends Writeable> extends TransportResponse {
+
+    private final List<ResponseOrFailure<T>> responses;
+
+    protected ShardSearchNodeResponse(List<ResponseOrFailure<T>> responses) {
+        this.responses = responses;
+    }
+
+    protected ShardSearchNodeResponse(StreamInput in, Writeable.Reader<T> reader) throws IOException {
+        super(in);
+        responses = in.readList(i -> new ResponseOrFailure<>(i, reader));
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeList(responses);
+    }
+
+    public List<ResponseOrFailure<T>> getResponses() {
+        return responses;
+    }
+
+    /**
+     * Returns a listener for a node level response that notifies each of the provided listeners of the result, or the failure,
+     * of its shard. The listeners must be in the order of the shard level requests.
+     */
+    static <T extends Writeable, R extends ShardSearchNodeResponse<T>> ActionListener<R> shardListeners(
+        List<? extends ActionListener<? super T>> listeners) {
+        return new ActionListener<>() {
+            @Override
+            public void onResponse(R response) {
+                final List<ResponseOrFailure<T>> responses = response.getResponses();
+                assert responses.size() == listeners.size() : responses.size() + " != " + listeners.size();
+                for (int i = 0; i < listeners.size(); i++) {
+                    final ResponseOrFailure<T> shardResponse = responses.get(i);
+                    if (shardResponse.getResponse() != null) {
+                        listeners.get(i).onResponse(shardResponse.getResponse());
+                    } else {
+                        listeners.get(i).onFailure(shardResponse.getException());
+                    }
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                for (ActionListener<? super T> listener : listeners) {
+                    listener.onFailure(e);
+                }
+            }
+        };
+    }
+
+    public static class ResponseOrFailure<T extends Writeable> implements Writeable {
+
+        private final T response;
+        private final Exception exception;
+
+        public ResponseOrFailure(T response) {
+            this.response = response;
+            this.exception = null;
+        }
+
+        public ResponseOrFailure(Exception exception) {
+            this.exception = exception;
+            this.response = null;
+        }
+
+        ResponseOrFailure(StreamInput in, Writeable.Reader<T> reader) throws IOException {
+            if (in.readBoolean()) {
+                response = reader.read(in);
+                exception = null;
+            } else {
+                exception = in.readException();
+                response = null;
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            if (response != null) {
+                out.writeBoolean(true);
+                response.writeTo(out);
+            } else {
+                out.writeBoolean(false);
+                out.writeException(exception);
+            }
+        }
+
+        @Nullable
+        public T getResponse() {
+            return response;
+        }
+
+        @Nullable
+        public Exception getException() {
+            return exception;
+        }
+    }
+}
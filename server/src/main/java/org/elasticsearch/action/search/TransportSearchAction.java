@@ -31,6 +31,7 @@ import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.core.Nullable;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.io.stream.Writeable;
@@ -96,6 +97,12 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
     public static final Setting<Long> SHARD_COUNT_LIMIT_SETTING = Setting.longSetting(
             "action.search.shard_count.limit", Long.MAX_VALUE, 1L, Property.Dynamic, Property.NodeScope);
 
+    /**
+     * Whether the query phase sends a single request per node for all the shards of the node rather than a request per shard.
+     */
+    public static final Setting<Boolean> BATCH_QUERY_PHASE_SETTING = Setting.boolSetting(
+            "action.search.batch_query_phase", false, Property.Dynamic, Property.NodeScope);
+
     private final ThreadPool threadPool;
     private final ClusterService clusterService;
     private final SearchTransportService searchTransportService;
@@ -106,6 +113,9 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
     private final NamedWriteableRegistry namedWriteableRegistry;
     private final CircuitBreaker circuitBreaker;
     private final ExecutorSelector executorSelector;
+    private final CoordinatorSearchResponseCache responseCache;
+    private final RollupIndexSelector rollupIndexSelector;
+    private volatile boolean batchQueryPhase;
 
     @Inject
     public TransportSearchAction(ThreadPool threadPool,
@@ -130,7 +140,11 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
         this.searchService = searchService;
         this.indexNameExpressionResolver = indexNameExpressionResolver;
         this.namedWriteableRegistry = namedWriteableRegistry;
+        this.responseCache = new CoordinatorSearchResponseCache(clusterService.getSettings(), namedWriteableRegistry);
+        this.rollupIndexSelector = new RollupIndexSelector();
         this.executorSelector = executorSelector;
+        this.batchQueryPhase = BATCH_QUERY_PHASE_SETTING.get(clusterService.getSettings());
+        clusterService.getClusterSettings().addSettingsUpdateConsumer(BATCH_QUERY_PHASE_SETTING, value -> this.batchQueryPhase = value);
     }
 
     private Map<String, AliasFilter> buildPerIndexAliasFilter(SearchRequest request, ClusterState clusterState,
@@ -617,7 +631,8 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
             localShardIterators = getLocalLocalShardsIteratorFromPointInTime(clusterState, localIndices,
                 searchRequest.getLocalClusterAlias(), searchContext, searchRequest.pointInTimeBuilder().getKeepAlive());
         } else {
-            final Index[] indices = resolveLocalIndices(localIndices, clusterState, timeProvider);
+            final Index[] indices = rollupIndexSelector.selectIndices(searchRequest, clusterState.metadata(),
+                resolveLocalIndices(localIndices, clusterState, timeProvider));
             Map<String, Set<String>> routingMap = indexNameExpressionResolver.resolveSearchRouting(clusterState, searchRequest.routing(),
                 searchRequest.indices());
             routingMap = routingMap == null ? Collections.emptyMap() : Collections.unmodifiableMap(routingMap);
@@ -666,9 +681,22 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
         final Executor asyncSearchExecutor = asyncSearchExecutor(concreteLocalIndices);
         final boolean preFilterSearchShards = shouldPreFilterSearchShards(clusterState, searchRequest, concreteLocalIndices,
             localShardIterators.size() + remoteShardIterators.size());
+        ActionListener<SearchResponse> searchListener = listener;
+        if (searchContext == null && remoteShardIterators.isEmpty()) {
+            final BytesReference cacheKey = responseCache.cacheKey(searchRequest, clusterState, concreteLocalIndices, aliasFilter,
+                threadPool.getThreadContext().getHeaders());
+            if (cacheKey != null) {
+                final SearchResponse cachedResponse = responseCache.get(cacheKey, timeProvider.buildTookInMillis());
+                if (cachedResponse != null) {
+                    listener.onResponse(cachedResponse);
+                    return;
+                }
+                searchListener = responseCache.wrap(cacheKey, listener);
+            }
+        }
         searchAsyncActionProvider.asyncSearchAction(
             task, searchRequest, asyncSearchExecutor, shardIterators, timeProvider, connectionLookup, clusterState,
-            Collections.unmodifiableMap(aliasFilter), concreteIndexBoosts, listener,
+            Collections.unmodifiableMap(aliasFilter), concreteIndexBoosts, searchListener,
             preFilterSearchShards, threadPool, clusters).start();
     }
 
@@ -804,7 +832,8 @@ public class TransportSearchAction extends HandledTransportAction<SearchRequest,
                 case QUERY_THEN_FETCH:
                     searchAsyncAction = new SearchQueryThenFetchAsyncAction(logger, searchTransportService, connectionLookup,
                         aliasFilter, concreteIndexBoosts, searchPhaseController, executor, queryResultConsumer,
-                        searchRequest, listener, shardIterators, timeProvider, clusterState, task, clusters);
+                        searchRequest, listener, shardIterators, timeProvider, clusterState, task, clusters,
+                        batchQueryPhase);
                     break;
                 default:
                     throw new IllegalStateException("Unknown search type: [" + searchRequest.searchType() + "]");
@@ -153,11 +153,17 @@ public abstract class TransportReplicationAction<
         transportService.registerRequestHandler(actionName, ThreadPool.Names.SAME, requestReader, this::handleOperationRequest);
 
         transportService.registerRequestHandler(transportPrimaryAction, executor, forceExecutionOnPrimary, true,
-            in -> new ConcreteShardRequest<>(requestReader, in), this::handlePrimaryRequest);
+            in -> {
+                checkSerializedPrimaryLimits(in);
+                return new ConcreteShardRequest<>(requestReader, in);
+            }, this::handlePrimaryRequest);
 
         // we must never reject on because of thread pool capacity on replicas
         transportService.registerRequestHandler(transportReplicaAction, executor, true, true,
-            in -> new ConcreteReplicaRequest<>(replicaRequestReader, in), this::handleReplicaRequest);
+            in -> {
+                checkSerializedReplicaLimits(in);
+                return new ConcreteReplicaRequest<>(replicaRequestReader, in);
+            }, this::handleReplicaRequest);
 
         this.transportOptions = transportOptions();
 
@@ -301,6 +307,14 @@ public abstract class TransportReplicationAction<
         return () -> {};
     }
 
+    /**
+     * Checks the limits for a primary request that was received from the network before it is deserialized, so that a request
+     * that is rejected is never built. The stream is positioned at the start of the serialized {@link ConcreteShardRequest} and
+     * must be left there.
+     */
+    protected void checkSerializedPrimaryLimits(final StreamInput in) throws IOException {
+    }
+
     class AsyncPrimaryAction extends AbstractRunnable {
         private final ActionListener<Response> onCompletionListener;
         private final ReplicationTask replicationTask;
@@ -525,6 +539,14 @@ public abstract class TransportReplicationAction<
         return () -> {};
     }
 
+    /**
+     * Checks the limits for a replica request before it is deserialized, like {@link #checkSerializedPrimaryLimits} does for
+     * primary requests. The stream is positioned at the start of the serialized {@link ConcreteReplicaRequest} and must be
+     * left there.
+     */
+    protected void checkSerializedReplicaLimits(final StreamInput in) throws IOException {
+    }
+
     public static class RetryOnReplicaException extends ElasticsearchException {
 
         public RetryOnReplicaException(ShardId shardId, String msg) {
@@ -1123,6 +1145,27 @@ public abstract class TransportReplicationAction<
             this(request, targetAllocationID, primaryTerm, false, false);
         }
 
+        /**
+         * Reads the shard id of a serialized {@link ConcreteShardRequest} or {@link ConcreteReplicaRequest} that wraps a
+         * {@link ReplicationRequest} without deserializing the wrapped request, and leaves the stream where it was. Returns
+         * {@code null} if the stream does not support {@link StreamInput#mark} or if the wrapped request has no shard id.
+         */
+        @Nullable
+        static ShardId peekShardId(StreamInput in) throws IOException {
+            if (in.markSupported() == false) {
+                return null;
+            }
+            in.mark(Integer.MAX_VALUE);
+            try {
+                in.readString(); // target allocation id
+                in.readVLong(); // primary term
+                TaskId.readFromStream(in); // parent task id of the wrapped request
+                return in.readOptionalWriteable(ShardId::new);
+            } finally {
+                in.reset();
+            }
+        }
+
         public ConcreteShardRequest(R request, String targetAllocationID, long primaryTerm, boolean sentFromLocalReroute,
                                     boolean localRerouteInitiatedByNodeClient) {
             Objects.requireNonNull(request);
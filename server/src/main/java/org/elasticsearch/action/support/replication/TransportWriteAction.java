@@ -22,6 +22,7 @@ import org.elasticsearch.cluster.metadata.IndexAbstraction;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.core.Nullable;
+import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.Writeable;
 import org.elasticsearch.core.Releasable;
 import org.elasticsearch.common.settings.Settings;
@@ -38,6 +39,7 @@ import org.elasticsearch.indices.SystemIndices;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportService;
 
+import java.io.IOException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -85,7 +87,11 @@ public abstract class TransportWriteAction<
     }
 
     protected boolean force(ReplicatedWriteRequest<?> request) {
-        return forceExecutionOnPrimary || isSystemShard(request.shardId);
+        return force(request.shardId);
+    }
+
+    private boolean force(ShardId shardId) {
+        return forceExecutionOnPrimary || isSystemShard(shardId);
     }
 
     protected boolean isSystemShard(ShardId shardId) {
@@ -113,6 +119,28 @@ public abstract class TransportWriteAction<
         }
     }
 
+    @Override
+    protected void checkSerializedPrimaryLimits(StreamInput in) throws IOException {
+        // the serialized size of a write request is close to the size it is accounted with once it is deserialized, so reject it
+        // without building all its operations if the latter would be rejected anyway
+        if (accountsOperationBytes() == false) {
+            return;
+        }
+        final ShardId shardId = ConcreteShardRequest.peekShardId(in);
+        if (shardId != null) {
+            indexingPressure.checkPrimaryOperationBytes(in.available(), force(shardId));
+        }
+    }
+
+    /**
+     * Whether the operations of this action are accounted for with their size, see {@link #primaryOperationSize} and
+     * {@link #replicaOperationSize}. The requests of actions that aren't, such as retention lease syncs, are not checked on their
+     * serialized size either.
+     */
+    protected boolean accountsOperationBytes() {
+        return false;
+    }
+
     protected long primaryOperationSize(Request request) {
         return 0;
     }
@@ -126,6 +154,17 @@ public abstract class TransportWriteAction<
         return indexingPressure.markReplicaOperationStarted(replicaOperationCount(request), replicaOperationSize(request), force(request));
     }
 
+    @Override
+    protected void checkSerializedReplicaLimits(StreamInput in) throws IOException {
+        if (accountsOperationBytes() == false) {
+            return;
+        }
+        final ShardId shardId = ConcreteShardRequest.peekShardId(in);
+        if (shardId != null) {
+            indexingPressure.checkReplicaOperationBytes(in.available(), force(shardId));
+        }
+    }
+
     protected long replicaOperationSize(ReplicaRequest request) {
         return 0;
     }
@@ -174,6 +174,73 @@ class BytesReferenceStreamInput extends StreamInput {
         }
     }
 
+    @Override
+    protected void readVInts(int[] values) throws IOException {
+        int i = 0;
+        while (i < values.length) {
+            final byte[] buf = slice.bytes;
+            final int offset = slice.offset;
+            // a value that starts at or before this index ends in the current slice, so these values are decoded without
+            // checking the bounds of the slice for each of their bytes
+            final int lastCompleteIndex = slice.length - 5;
+            int index = sliceIndex;
+            while (i < values.length && index <= lastCompleteIndex) {
+                byte b;
+                int value = 0;
+                int shift = 0;
+                do {
+                    b = buf[offset + index++];
+                    value |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0 && shift < 35);
+                if (shift == 35 && (b & 0xF0) != 0) {
+                    sliceIndex = index;
+                    throwOnBrokenVInt(b, value);
+                }
+                values[i++] = value;
+            }
+            sliceIndex = index;
+            if (i < values.length) {
+                // the next value may span two slices
+                values[i++] = super.readVInt();
+            }
+        }
+    }
+
+    @Override
+    protected void readVLongs(long[] values) throws IOException {
+        int i = 0;
+        while (i < values.length) {
+            final byte[] buf = slice.bytes;
+            final int offset = slice.offset;
+            final int lastCompleteIndex = slice.length - 10;
+            int index = sliceIndex;
+            while (i < values.length && index <= lastCompleteIndex) {
+                byte b;
+                long value = 0;
+                int shift = 0;
+                do {
+                    b = buf[offset + index++];
+                    value |= (b & 0x7FL) << shift;
+                    shift += 7;
+                } while (b < 0 && shift < 63);
+                if (b < 0) {
+                    b = buf[offset + index++];
+                    if (b != 0 && b != 1) {
+                        sliceIndex = index;
+                        throwOnBrokenVLong(b, value);
+                    }
+                    value |= ((long) b) << 63;
+                }
+                values[i++] = value;
+            }
+            sliceIndex = index;
+            if (i < values.length) {
+                values[i++] = super.readVLong();
+            }
+        }
+    }
+
     protected int offset() {
         return sliceStartOffset + sliceIndex;
     }
@@ -65,11 +65,31 @@ public abstract class FilterStreamInput extends StreamInput {
         return delegate.readVLong();
     }
 
+    @Override
+    protected void readVInts(int[] values) throws IOException {
+        delegate.readVInts(values);
+    }
+
+    @Override
+    protected void readVLongs(long[] values) throws IOException {
+        delegate.readVLongs(values);
+    }
+
     @Override
     public void reset() throws IOException {
         delegate.reset();
     }
 
+    @Override
+    public boolean markSupported() {
+        return delegate.markSupported();
+    }
+
+    @Override
+    public void mark(int readLimit) {
+        delegate.mark(readLimit);
+    }
+
     @Override
     public int read() throws IOException {
         return delegate.read();
@@ -933,10 +933,18 @@ public abstract class StreamInput extends InputStream {
             return EMPTY_INT_ARRAY;
         }
         int[] values = new int[length];
-        for (int i = 0; i < length; i++) {
+        readVInts(values);
+        return values;
+    }
+
+    /**
+     * Reads {@code values.length} values written with {@link StreamOutput#writeVInt} into {@code values}. Streams that read
+     * from in-memory pages override this to decode the values in the current page in one go.
+     */
+    protected void readVInts(int[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
             values[i] = readVInt();
         }
-        return values;
     }
 
     private static final long[] EMPTY_LONG_ARRAY = new long[0];
@@ -959,10 +967,18 @@ public abstract class StreamInput extends InputStream {
             return EMPTY_LONG_ARRAY;
         }
         long[] values = new long[length];
-        for (int i = 0; i < length; i++) {
+        readVLongs(values);
+        return values;
+    }
+
+    /**
+     * Reads {@code values.length} values written with {@link StreamOutput#writeVLong} into {@code values}, see
+     * {@link #readVInts}.
+     */
+    protected void readVLongs(long[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
             values[i] = readVLong();
         }
-        return values;
     }
 
     private static final float[] EMPTY_FLOAT_ARRAY = new float[0];
@@ -829,7 +829,18 @@ public class Lucene {
             return new Bits.MatchNoBits(maxDoc);
         }
         // Since we want bits, we need random-access
-        final Scorer scorer = scorerSupplier.get(estimatedGetCount); // this never returns null
+        return asSequentialAccessBits(maxDoc, scorerSupplier.get(estimatedGetCount)); // this never returns null
+    }
+
+    /**
+     * Given a {@link Scorer}, return a {@link Bits} instance that will match
+     * all documents contained in the set.
+     * <b>NOTE</b>: that the returned {@link Bits} instance MUST be consumed in order.
+     */
+    public static Bits asSequentialAccessBits(final int maxDoc, @Nullable Scorer scorer) {
+        if (scorer == null) {
+            return new Bits.MatchNoBits(maxDoc);
+        }
         final TwoPhaseIterator twoPhase = scorer.twoPhaseIterator();
         final DocIdSetIterator iterator;
         if (twoPhase == null) {
@@ -0,0 +1,122 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.common.metrics;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.xcontent.ToXContentFragment;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * A summary of the distribution of the values recorded by a {@link HistogramMetric}.
+ */
+public final class DistributionStats implements Writeable, ToXContentFragment {
+
+    public static final DistributionStats EMPTY = new DistributionStats(0, 0, 0, 0, 0, 0, 0);
+
+    private final long count;
+    private final long min;
+    private final long mean;
+    private final long p50;
+    private final long p90;
+    private final long p99;
+    private final long max;
+
+    public DistributionStats(long count, long min, long mean, long p50, long p90, long p99, long max) {
+        this.count = count;
+        this.min = min;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.max = max;
+    }
+
+    public DistributionStats(StreamInput in) throws IOException {
+        count = in.readVLong();
+        min = in.readVLong();
+        mean = in.readVLong();
+        p50 = in.readVLong();
+        p90 = in.readVLong();
+        p99 = in.readVLong();
+        max = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(count);
+        out.writeVLong(min);
+        out.writeVLong(mean);
+        out.writeVLong(p50);
+        out.writeVLong(p90);
+        out.writeVLong(p99);
+        out.writeVLong(max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMin() {
+        return min;
+    }
+
+    public long getMean() {
+        return mean;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP90() {
+        return p90;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.field("min", min);
+        builder.field("mean", mean);
+        builder.field("p50", p50);
+        builder.field("p90", p90);
+        builder.field("p99", p99);
+        builder.field("max", max);
+        return builder;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        DistributionStats that = (DistributionStats) o;
+        return count == that.count && min == that.min && mean == that.mean && p50 == that.p50 && p90 == that.p90 && p99 == that.p99
+            && max == that.max;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(count, min, mean, p50, p90, p99, max);
+    }
+}
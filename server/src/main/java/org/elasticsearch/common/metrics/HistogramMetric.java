@@ -0,0 +1,43 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.common.metrics;
+
+import org.HdrHistogram.ConcurrentHistogram;
+
+/**
+ * Records the distribution of a value, like the latency or the size of requests, in an HDR histogram. Any number of
+ * threads can record values at the same time without locking. The histogram grows as larger values are recorded so it
+ * stays small for metrics that only ever see small values.
+ */
+public final class HistogramMetric {
+
+    /**
+     * Percentiles are accurate to within 1%.
+     */
+    private static final int SIGNIFICANT_VALUE_DIGITS = 2;
+
+    private final ConcurrentHistogram histogram = new ConcurrentHistogram(SIGNIFICANT_VALUE_DIGITS);
+
+    public void inc(long value) {
+        histogram.recordValue(Math.max(0, value));
+    }
+
+    public long count() {
+        return histogram.getTotalCount();
+    }
+
+    public DistributionStats stats() {
+        final ConcurrentHistogram copy = histogram.copy();
+        if (copy.getTotalCount() == 0) {
+            return DistributionStats.EMPTY;
+        }
+        return new DistributionStats(copy.getTotalCount(), copy.getMinValue(), Math.round(copy.getMean()),
+            copy.getValueAtPercentile(50), copy.getValueAtPercentile(90), copy.getValueAtPercentile(99), copy.getMaxValue());
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.common.metrics;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.xcontent.ToXContentObject;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The distribution of the latency and the request size of the requests that a transport action or a REST handler handled.
+ */
+public final class RequestHandlerStats implements Writeable, ToXContentObject {
+
+    private final DistributionStats latencyMicros;
+    private final DistributionStats requestSizeBytes;
+
+    public RequestHandlerStats(DistributionStats latencyMicros, DistributionStats requestSizeBytes) {
+        this.latencyMicros = latencyMicros;
+        this.requestSizeBytes = requestSizeBytes;
+    }
+
+    public RequestHandlerStats(StreamInput in) throws IOException {
+        latencyMicros = new DistributionStats(in);
+        requestSizeBytes = new DistributionStats(in);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        latencyMicros.writeTo(out);
+        requestSizeBytes.writeTo(out);
+    }
+
+    /**
+     * The time from the start of handling a request until its response was sent, in microseconds.
+     */
+    public DistributionStats getLatencyMicros() {
+        return latencyMicros;
+    }
+
+    public DistributionStats getRequestSizeBytes() {
+        return requestSizeBytes;
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject();
+        builder.field("count", latencyMicros.getCount());
+        builder.startObject("latency_in_micros");
+        latencyMicros.toXContent(builder, params);
+        builder.endObject();
+        builder.startObject("request_size_in_bytes");
+        requestSizeBytes.toXContent(builder, params);
+        builder.endObject();
+        return builder.endObject();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        RequestHandlerStats that = (RequestHandlerStats) o;
+        return latencyMicros.equals(that.latencyMicros) && requestSizeBytes.equals(that.requestSizeBytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(latencyMicros, requestSizeBytes);
+    }
+
+    /**
+     * Records the latency and the size of the requests that a handler handles.
+     */
+    public static final class Tracker {
+        private final HistogramMetric latencyMicros = new HistogramMetric();
+        private final HistogramMetric requestSizeBytes = new HistogramMetric();
+
+        public void recordLatency(long tookNanos) {
+            latencyMicros.inc(TimeUnit.NANOSECONDS.toMicros(tookNanos));
+        }
+
+        public void recordRequestSize(long bytes) {
+            requestSizeBytes.inc(bytes);
+        }
+
+        /**
+         * Whether no requests have been recorded yet.
+         */
+        public boolean isEmpty() {
+            return latencyMicros.count() == 0 && requestSizeBytes.count() == 0;
+        }
+
+        public RequestHandlerStats stats() {
+            return new RequestHandlerStats(latencyMicros.stats(), requestSizeBytes.stats());
+        }
+    }
+}
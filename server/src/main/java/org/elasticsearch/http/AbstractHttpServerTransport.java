@@ -82,8 +82,12 @@ public abstract class AbstractHttpServerTransport extends AbstractLifecycleCompo
     private volatile BoundTransportAddress boundAddress;
     private final AtomicLong totalChannelsAccepted = new AtomicLong();
     private final Set<HttpChannel> httpChannels = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final AtomicLong totalStreamsAccepted = new AtomicLong();
+    // the streams of multiplexed connections, mapped to the connection that carries them
+    private final Map<HttpChannel, HttpChannel> httpStreams = new ConcurrentHashMap<>();
     private final Set<HttpServerChannel> httpServerChannels = Collections.newSetFromMap(new ConcurrentHashMap<>());
     private final Map<Integer, HttpStats.ClientStats> httpChannelStats = new ConcurrentHashMap<>();
+    private final HttpPipeliningAggregator.Counters pipeliningCounters = new HttpPipeliningAggregator.Counters();
 
     private final HttpTracer tracer;
 
@@ -139,7 +143,16 @@ public abstract class AbstractHttpServerTransport extends AbstractLifecycleCompo
     @Override
     public HttpStats stats() {
         pruneClientStats(false);
-        return new HttpStats(new ArrayList<>(httpChannelStats.values()), httpChannels.size(), totalChannelsAccepted.get());
+        return new HttpStats(new ArrayList<>(httpChannelStats.values()), httpChannels.size(), totalChannelsAccepted.get(),
+            pipeliningCounters.getPipelinedRequests(), pipeliningCounters.getHeldResponses(), httpStreams.size(),
+            totalStreamsAccepted.get(), dispatcher.getRouteStats());
+    }
+
+    /**
+     * The counters that the {@link HttpPipeliningAggregator} of each connection of this transport should update.
+     */
+    public HttpPipeliningAggregator.Counters getPipeliningCounters() {
+        return pipeliningCounters;
     }
 
     /**
@@ -336,6 +349,17 @@ public abstract class AbstractHttpServerTransport extends AbstractLifecycleCompo
         logger.trace(() -> new ParameterizedMessage("Http channel accepted: {}", httpChannel));
     }
 
+    /**
+     * Registers a stream that a multiplexed connection, such as an HTTP/2 connection, opened for a request. The stream is not an
+     * accepted channel of its own, the requests it receives are accounted to the client stats of the connection.
+     */
+    protected void serverAcceptedStream(HttpChannel connection, HttpChannel stream) {
+        httpStreams.put(stream, connection);
+        totalStreamsAccepted.incrementAndGet();
+        stream.addCloseListener(ActionListener.wrap(() -> httpStreams.remove(stream)));
+        logger.trace(() -> new ParameterizedMessage("Http stream accepted: {} on {}", stream, connection));
+    }
+
     private HttpStats.ClientStats addClientStats(final HttpChannel httpChannel) {
         if (clientStatsEnabled) {
             final HttpStats.ClientStats clientStats;
@@ -386,8 +410,9 @@ public abstract class AbstractHttpServerTransport extends AbstractLifecycleCompo
         }
     }
 
-    void updateClientStats(final HttpRequest httpRequest, final HttpChannel httpChannel) {
-        if (clientStatsEnabled && httpChannel != null) {
+    void updateClientStats(final HttpRequest httpRequest, final HttpChannel requestChannel) {
+        if (clientStatsEnabled && requestChannel != null) {
+            final HttpChannel httpChannel = httpStreams.getOrDefault(requestChannel, requestChannel);
             HttpStats.ClientStats clientStats = httpChannelStats.get(HttpStats.ClientStats.getChannelKey(httpChannel));
             if (clientStats == null) {
                 // will always return a non-null value when httpChannel is non-null
@@ -9,6 +9,7 @@
 package org.elasticsearch.http;
 
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.RestStatus;
 
@@ -40,6 +41,11 @@ public class HttpPipelinedRequest implements HttpRequest, HttpPipelinedMessage {
         return delegate.content();
     }
 
+    @Override
+    public ReleasableBytesReference retainedContent() {
+        return delegate.retainedContent();
+    }
+
     @Override
     public Map<String, List<String>> getHeaders() {
         return delegate.getHeaders();
@@ -7,6 +7,7 @@
  */
 package org.elasticsearch.http;
 
+import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.core.Tuple;
 
 import java.util.ArrayList;
@@ -17,6 +18,7 @@ import java.util.PriorityQueue;
 public class HttpPipeliningAggregator<Listener> {
 
     private final int maxEventsHeld;
+    private final Counters counters;
     private final PriorityQueue<Tuple<HttpPipelinedResponse, Listener>> outboundHoldingQueue;
     /*
      * The current read and write sequence numbers. Read sequence numbers are attached to requests in the order they are read from the
@@ -27,16 +29,28 @@ public class HttpPipeliningAggregator<Listener> {
     private int writeSequence;
 
     public HttpPipeliningAggregator(int maxEventsHeld) {
+        this(maxEventsHeld, new Counters());
+    }
+
+    public HttpPipeliningAggregator(int maxEventsHeld, Counters counters) {
         this.maxEventsHeld = maxEventsHeld;
+        this.counters = counters;
         this.outboundHoldingQueue = new PriorityQueue<>(1, Comparator.comparing(Tuple::v1));
     }
 
     public HttpPipelinedRequest read(final HttpRequest request) {
+        if (readSequence != writeSequence) {
+            // the response to an earlier request on this connection has not been written yet
+            counters.pipelinedRequests.inc();
+        }
         return new HttpPipelinedRequest(readSequence++, request);
     }
 
     public List<Tuple<HttpPipelinedResponse, Listener>> write(final HttpPipelinedResponse response, Listener listener) {
         if (outboundHoldingQueue.size() < maxEventsHeld) {
+            if (response.getSequence() != writeSequence) {
+                counters.heldResponses.inc();
+            }
             ArrayList<Tuple<HttpPipelinedResponse, Listener>> readyResponses = new ArrayList<>();
             outboundHoldingQueue.add(new Tuple<>(response, listener));
             while (outboundHoldingQueue.isEmpty() == false) {
@@ -67,4 +81,22 @@ public class HttpPipeliningAggregator<Listener> {
         outboundHoldingQueue.clear();
         return responses;
     }
+
+    /**
+     * Counts the requests that were sent on a connection before the response to an earlier request on the same connection was written,
+     * and the responses that were ready before the response to an earlier request and had to be held back. The latter is the head-of-line
+     * blocking that HTTP pipelining suffers from. One instance is shared by all the connections of a transport.
+     */
+    public static final class Counters {
+        private final CounterMetric pipelinedRequests = new CounterMetric();
+        private final CounterMetric heldResponses = new CounterMetric();
+
+        public long getPipelinedRequests() {
+            return pipelinedRequests.count();
+        }
+
+        public long getHeldResponses() {
+            return heldResponses.count();
+        }
+    }
 }
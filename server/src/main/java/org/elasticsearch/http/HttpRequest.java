@@ -10,6 +10,7 @@ package org.elasticsearch.http;
 
 import org.elasticsearch.core.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
 import org.elasticsearch.rest.RestRequest;
 import org.elasticsearch.rest.RestStatus;
 
@@ -43,6 +44,14 @@ public interface HttpRequest {
 
     BytesReference content();
 
+    /**
+     * Returns the {@link #content()} of this request as a reference that keeps any pooled buffers backing it from being released until
+     * it is closed, even if this request is {@link #release() released} before that.
+     */
+    default ReleasableBytesReference retainedContent() {
+        return ReleasableBytesReference.wrap(content());
+    }
+
     /**
      * Get all of the headers and values associated with the headers. Modifications of this map are not supported.
      */
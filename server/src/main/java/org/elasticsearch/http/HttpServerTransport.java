@@ -9,12 +9,15 @@
 package org.elasticsearch.http;
 
 import org.elasticsearch.common.component.LifecycleComponent;
+import org.elasticsearch.common.metrics.RequestHandlerStats;
 import org.elasticsearch.common.transport.BoundTransportAddress;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.node.ReportingService;
 import org.elasticsearch.rest.RestChannel;
 import org.elasticsearch.rest.RestRequest;
 
+import java.util.Map;
+
 public interface HttpServerTransport extends LifecycleComponent, ReportingService<HttpInfo> {
 
     String HTTP_SERVER_WORKER_THREAD_NAME_PREFIX = "http_server_worker";
@@ -51,5 +54,11 @@ public interface HttpServerTransport extends LifecycleComponent, ReportingServic
          */
         void dispatchBadRequest(RestChannel channel, ThreadContext threadContext, Throwable cause);
 
+        /**
+         * The latency and request size stats of each route that handled requests, keyed by method and path.
+         */
+        default Map<String, RequestHandlerStats> getRouteStats() {
+            return Map.of();
+        }
     }
 }
@@ -10,24 +10,43 @@ package org.elasticsearch.http;
 
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.metrics.RequestHandlerStats;
 import org.elasticsearch.common.xcontent.ToXContentFragment;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.LongAdder;
 
 public class HttpStats implements Writeable, ToXContentFragment {
 
     private final long serverOpen;
     private final long totalOpen;
+    private final long pipelinedRequests;
+    private final long heldResponses;
+    private final long currentStreams;
+    private final long totalStreams;
     private final List<ClientStats> clientStats;
+    private final Map<String, RequestHandlerStats> routes;
 
-    public HttpStats(List<ClientStats> clientStats, long serverOpen, long totalOpened) {
+    public HttpStats(List<ClientStats> clientStats, long serverOpen, long totalOpened, long pipelinedRequests, long heldResponses,
+                     long currentStreams, long totalStreams, Map<String, RequestHandlerStats> routes) {
         this.clientStats = clientStats;
         this.serverOpen = serverOpen;
         this.totalOpen = totalOpened;
+        this.pipelinedRequests = pipelinedRequests;
+        this.heldResponses = heldResponses;
+        this.currentStreams = currentStreams;
+        this.totalStreams = totalStreams;
+        this.routes = routes;
+    }
+
+    public HttpStats(List<ClientStats> clientStats, long serverOpen, long totalOpened) {
+        this(clientStats, serverOpen, totalOpened, 0, 0, 0, 0, Map.of());
     }
 
     public HttpStats(long serverOpen, long totalOpened) {
@@ -38,6 +57,19 @@ public class HttpStats implements Writeable, ToXContentFragment {
         serverOpen = in.readVLong();
         totalOpen = in.readVLong();
         clientStats = in.readList(ClientStats::new);
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            pipelinedRequests = in.readVLong();
+            heldResponses = in.readVLong();
+            currentStreams = in.readVLong();
+            totalStreams = in.readVLong();
+            routes = in.readMap(StreamInput::readString, RequestHandlerStats::new);
+        } else {
+            pipelinedRequests = 0;
+            heldResponses = 0;
+            currentStreams = 0;
+            totalStreams = 0;
+            routes = Map.of();
+        }
     }
 
     @Override
@@ -45,6 +77,13 @@ public class HttpStats implements Writeable, ToXContentFragment {
         out.writeVLong(serverOpen);
         out.writeVLong(totalOpen);
         out.writeList(clientStats);
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeVLong(pipelinedRequests);
+            out.writeVLong(heldResponses);
+            out.writeVLong(currentStreams);
+            out.writeVLong(totalStreams);
+            out.writeMap(routes, StreamOutput::writeString, (o, stats) -> stats.writeTo(o));
+        }
     }
 
     public long getServerOpen() {
@@ -55,15 +94,55 @@ public class HttpStats implements Writeable, ToXContentFragment {
         return this.totalOpen;
     }
 
+    /**
+     * The number of requests that were sent before the response to an earlier request on the same connection was written.
+     */
+    public long getPipelinedRequests() {
+        return pipelinedRequests;
+    }
+
+    /**
+     * The number of responses that were held back until the responses to earlier requests on the same connection were written.
+     */
+    public long getHeldResponses() {
+        return heldResponses;
+    }
+
+    /**
+     * The number of HTTP/2 streams that are currently open.
+     */
+    public long getCurrentStreams() {
+        return currentStreams;
+    }
+
+    /**
+     * The number of HTTP/2 streams that were opened since the node started.
+     */
+    public long getTotalStreams() {
+        return totalStreams;
+    }
+
     public List<ClientStats> getClientStats() {
         return this.clientStats;
     }
 
+    /**
+     * The latency and request size stats of each REST route that handled requests, keyed by method and path.
+     */
+    public Map<String, RequestHandlerStats> getRoutes() {
+        return routes;
+    }
+
     static final class Fields {
         static final String HTTP = "http";
         static final String CURRENT_OPEN = "current_open";
         static final String TOTAL_OPENED = "total_opened";
+        static final String PIPELINED_REQUESTS = "pipelined_requests";
+        static final String HELD_RESPONSES = "held_responses";
+        static final String CURRENT_STREAMS = "current_streams";
+        static final String TOTAL_STREAMS = "total_streams";
         static final String CLIENTS = "clients";
+        static final String ROUTES = "routes";
         static final String CLIENT_ID = "id";
         static final String CLIENT_AGENT = "agent";
         static final String CLIENT_LOCAL_ADDRESS = "local_address";
@@ -83,11 +162,22 @@ public class HttpStats implements Writeable, ToXContentFragment {
         builder.startObject(Fields.HTTP);
         builder.field(Fields.CURRENT_OPEN, serverOpen);
         builder.field(Fields.TOTAL_OPENED, totalOpen);
+        builder.field(Fields.PIPELINED_REQUESTS, pipelinedRequests);
+        builder.field(Fields.HELD_RESPONSES, heldResponses);
+        builder.field(Fields.CURRENT_STREAMS, currentStreams);
+        builder.field(Fields.TOTAL_STREAMS, totalStreams);
         builder.startArray(Fields.CLIENTS);
         for (ClientStats clientStats : this.clientStats) {
             clientStats.toXContent(builder, params);
         }
         builder.endArray();
+        if (routes.isEmpty() == false) {
+            builder.startObject(Fields.ROUTES);
+            for (Map.Entry<String, RequestHandlerStats> entry : new TreeMap<>(routes).entrySet()) {
+                builder.field(entry.getKey(), entry.getValue());
+            }
+            builder.endObject();
+        }
         builder.endObject();
         return builder;
     }
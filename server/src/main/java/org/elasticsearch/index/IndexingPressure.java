@@ -136,6 +136,42 @@ public class IndexingPressure {
         });
     }
 
+    /**
+     * Rejects a primary operation that was received from the network if accepting its {@code bytes} serialized bytes would
+     * exceed the limit. This is checked before the operation is deserialized so that an operation that is rejected is
+     * never built. It does not account for the operation, {@link #markPrimaryOperationStarted} does that once the operation
+     * is deserialized.
+     */
+    public void checkPrimaryOperationBytes(long bytes, boolean forceExecution) {
+        long combinedBytes = this.currentCombinedCoordinatingAndPrimaryBytes.get();
+        long replicaWriteBytes = this.currentReplicaBytes.get();
+        long totalBytes = combinedBytes + replicaWriteBytes;
+        if (forceExecution == false && totalBytes + bytes > primaryAndCoordinatingLimits) {
+            this.primaryRejections.getAndIncrement();
+            throw new EsRejectedExecutionException("rejected execution of primary operation [" +
+                "coordinating_and_primary_bytes=" + combinedBytes + ", " +
+                "replica_bytes=" + replicaWriteBytes + ", " +
+                "all_bytes=" + totalBytes + ", " +
+                "primary_operation_serialized_bytes=" + bytes + ", " +
+                "max_coordinating_and_primary_bytes=" + primaryAndCoordinatingLimits + "]", false);
+        }
+    }
+
+    /**
+     * Rejects a replica operation before it is deserialized if accepting its {@code bytes} serialized bytes would exceed the
+     * limit, like {@link #checkPrimaryOperationBytes} does for primary operations.
+     */
+    public void checkReplicaOperationBytes(long bytes, boolean forceExecution) {
+        long replicaWriteBytes = this.currentReplicaBytes.get();
+        if (forceExecution == false && replicaWriteBytes + bytes > replicaLimits) {
+            this.replicaRejections.getAndIncrement();
+            throw new EsRejectedExecutionException("rejected execution of replica operation [" +
+                "replica_bytes=" + replicaWriteBytes + ", " +
+                "replica_operation_serialized_bytes=" + bytes + ", " +
+                "max_replica_bytes=" + replicaLimits + "]", false);
+        }
+    }
+
     public Releasable markReplicaOperationStarted(int operations, long bytes, boolean forceExecution) {
         long replicaWriteBytes = this.currentReplicaBytes.addAndGet(bytes);
         if (forceExecution == false && replicaWriteBytes > replicaLimits) {
@@ -11,6 +11,7 @@ package org.elasticsearch.index.cache.query;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.lucene.search.DocIdSet;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
@@ -18,8 +19,10 @@ import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.ToXContentFragment;
 import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.core.TimeValue;
 
 import java.io.IOException;
+import java.util.concurrent.TimeUnit;
 
 public class QueryCacheStats implements Writeable, ToXContentFragment {
 
@@ -30,6 +33,7 @@ public class QueryCacheStats implements Writeable, ToXContentFragment {
     private long missCount;
     private long cacheCount;
     private long cacheSize;
+    private long costSavedInNanos;
 
     public QueryCacheStats() {
     }
@@ -40,14 +44,22 @@ public class QueryCacheStats implements Writeable, ToXContentFragment {
         missCount = in.readLong();
         cacheCount = in.readLong();
         cacheSize = in.readLong();
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            costSavedInNanos = in.readVLong();
+        }
     }
 
     public QueryCacheStats(long ramBytesUsed, long hitCount, long missCount, long cacheCount, long cacheSize) {
+        this(ramBytesUsed, hitCount, missCount, cacheCount, cacheSize, 0L);
+    }
+
+    public QueryCacheStats(long ramBytesUsed, long hitCount, long missCount, long cacheCount, long cacheSize, long costSavedInNanos) {
         this.ramBytesUsed = ramBytesUsed;
         this.hitCount = hitCount;
         this.missCount = missCount;
         this.cacheCount = cacheCount;
         this.cacheSize = cacheSize;
+        this.costSavedInNanos = costSavedInNanos;
     }
 
     public void add(QueryCacheStats stats) {
@@ -56,6 +68,7 @@ public class QueryCacheStats implements Writeable, ToXContentFragment {
         missCount += stats.missCount;
         cacheCount += stats.cacheCount;
         cacheSize += stats.cacheSize;
+        costSavedInNanos += stats.costSavedInNanos;
     }
 
     public long getMemorySizeInBytes() {
@@ -108,6 +121,15 @@ public class QueryCacheStats implements Writeable, ToXContentFragment {
         return cacheCount - cacheSize;
     }
 
+    /**
+     * The estimated time that was saved by serving hits from the cache instead of evaluating
+     * the query, based on the time it took to build the cached {@link DocIdSet}s. Only tracked
+     * when the cost aware caching policy is enabled.
+     */
+    public TimeValue getCostSaved() {
+        return new TimeValue(costSavedInNanos, TimeUnit.NANOSECONDS);
+    }
+
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeLong(ramBytesUsed);
@@ -115,6 +137,9 @@ public class QueryCacheStats implements Writeable, ToXContentFragment {
         out.writeLong(missCount);
         out.writeLong(cacheCount);
         out.writeLong(cacheSize);
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeVLong(costSavedInNanos);
+        }
     }
 
     @Override
@@ -127,6 +152,7 @@ public class QueryCacheStats implements Writeable, ToXContentFragment {
         builder.field(Fields.CACHE_SIZE, getCacheSize());
         builder.field(Fields.CACHE_COUNT, getCacheCount());
         builder.field(Fields.EVICTIONS, getEvictions());
+        builder.humanReadableField(Fields.COST_SAVED_IN_MILLIS, Fields.COST_SAVED, getCostSaved());
         builder.endObject();
         return builder;
     }
@@ -141,6 +167,8 @@ public class QueryCacheStats implements Writeable, ToXContentFragment {
         static final String CACHE_SIZE = "cache_size";
         static final String CACHE_COUNT = "cache_count";
         static final String EVICTIONS = "evictions";
+        static final String COST_SAVED = "cost_saved";
+        static final String COST_SAVED_IN_MILLIS = "cost_saved_in_millis";
     }
 
 }
@@ -243,5 +243,13 @@ public interface IndexFieldData<FD extends LeafFieldData> {
 
         IndexFieldData<FD> loadGlobalDirect(DirectoryReader indexReader) throws Exception;
 
+        /**
+         * Same as {@link #loadGlobalDirect(DirectoryReader)} but may reuse the provided global view that was
+         * previously loaded for another reader of the same shard.
+         */
+        default IndexFieldData<FD> loadGlobalDirect(DirectoryReader indexReader, @Nullable IndexFieldData<FD> previous) throws Exception {
+            return loadGlobalDirect(indexReader);
+        }
+
     }
 }
@@ -11,6 +11,8 @@ package org.elasticsearch.index.fielddata;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.OrdinalMap;
+import org.apache.lucene.util.LongValues;
+import org.elasticsearch.core.Nullable;
 
 
 /**
@@ -31,12 +33,28 @@ public interface IndexOrdinalsFieldData extends IndexFieldData.Global<LeafOrdina
     @Override
     IndexOrdinalsFieldData loadGlobalDirect(DirectoryReader indexReader) throws Exception;
 
+    @Override
+    default IndexOrdinalsFieldData loadGlobalDirect(DirectoryReader indexReader,
+                                                    @Nullable IndexFieldData<LeafOrdinalsFieldData> previous) throws Exception {
+        return loadGlobalDirect(indexReader);
+    }
+
     /**
      * Returns the underlying {@link OrdinalMap} for this fielddata
      * or null if global ordinals are not needed (constant value or single segment).
      */
     OrdinalMap getOrdinalMap();
 
+    /**
+     * Returns the mapping from the ordinals of the segment at the provided index to global ordinals,
+     * or null if global ordinals are not needed. Unlike {@link #getOrdinalMap} this doesn't require
+     * global ordinals to be backed by an {@link OrdinalMap}.
+     */
+    default LongValues getGlobalOrds(int segmentIndex) {
+        final OrdinalMap ordinalMap = getOrdinalMap();
+        return ordinalMap == null ? null : ordinalMap.getGlobalOrds(segmentIndex);
+    }
+
     /**
      * Whether this field data is able to provide a mapping between global and segment ordinals,
      * by returning the underlying {@link OrdinalMap}. If this method returns false, then calling
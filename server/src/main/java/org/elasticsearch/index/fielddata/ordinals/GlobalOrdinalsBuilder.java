@@ -11,11 +11,14 @@ package org.elasticsearch.index.fielddata.ordinals;
 import org.apache.logging.log4j.Logger;
 import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.OrdinalMap;
 import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.packed.PackedInts;
 import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.index.fielddata.IndexOrdinalsFieldData;
 import org.elasticsearch.index.fielddata.LeafOrdinalsFieldData;
@@ -41,29 +44,57 @@ public enum GlobalOrdinalsBuilder {
     public static IndexOrdinalsFieldData build(final IndexReader indexReader, IndexOrdinalsFieldData indexFieldData,
             CircuitBreakerService breakerService, Logger logger,
             Function<SortedSetDocValues, ScriptDocValues<?>> scriptFunction) throws IOException {
+        return build(indexReader, indexFieldData, null, breakerService, logger, scriptFunction);
+    }
+
+    /**
+     * Build global ordinals for the provided {@link IndexReader}, reusing the global ordinals of the
+     * segments that were already part of the reader of the provided previous global ordinals if any.
+     */
+    public static IndexOrdinalsFieldData build(final IndexReader indexReader, IndexOrdinalsFieldData indexFieldData,
+            @Nullable GlobalOrdinalsIndexFieldData previous, CircuitBreakerService breakerService, Logger logger,
+            Function<SortedSetDocValues, ScriptDocValues<?>> scriptFunction) throws IOException {
         assert indexReader.leaves().size() > 1;
         long startTimeNS = System.nanoTime();
 
         final LeafOrdinalsFieldData[] atomicFD = new LeafOrdinalsFieldData[indexReader.leaves().size()];
         final SortedSetDocValues[] subs = new SortedSetDocValues[indexReader.leaves().size()];
+        final IndexReader.CacheKey[] keys = new IndexReader.CacheKey[indexReader.leaves().size()];
         for (int i = 0; i < indexReader.leaves().size(); ++i) {
+            final LeafReader reader = indexReader.leaves().get(i).reader();
             atomicFD[i] = indexFieldData.load(indexReader.leaves().get(i));
             subs[i] = atomicFD[i].getOrdinalsValues();
+            // fields that are not mapped in a segment are not cached and can't be reused
+            if (reader.getCoreCacheHelper() != null && reader.getFieldInfos().fieldInfo(indexFieldData.getFieldName()) != null) {
+                keys[i] = reader.getCoreCacheHelper().getKey();
+            }
         }
-        final OrdinalMap ordinalMap = OrdinalMap.build(null, subs, PackedInts.DEFAULT);
-        final long memorySizeInBytes = ordinalMap.ramBytesUsed();
-        breakerService.getBreaker(CircuitBreaker.FIELDDATA).addWithoutBreaking(memorySizeInBytes);
+        final CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.FIELDDATA);
+        GlobalOrdinalsMap globalOrdinals = null;
+        // global ordinals that are used by joins need an OrdinalMap so they are always fully rebuilt
+        if (previous != null && previous.getSegmentKeys() != null && previous.isOrdinalMapRequested() == false) {
+            // charges the memory of the new global ordinals to the breaker
+            globalOrdinals = IncrementalGlobalOrdinalsMap.build(previous.getGlobalOrdinals(), previous.getSegmentKeys(), keys, subs,
+                breaker);
+        }
+        final boolean incremental = globalOrdinals != null;
+        if (globalOrdinals == null) {
+            globalOrdinals = GlobalOrdinalsMap.wrap(OrdinalMap.build(null, subs, PackedInts.DEFAULT));
+            breaker.addWithoutBreaking(globalOrdinals.ramBytesUsed());
+        }
+        final long memorySizeInBytes = globalOrdinals.ramBytesUsed();
 
         if (logger.isDebugEnabled()) {
             logger.debug(
-                    "global-ordinals [{}][{}] took [{}]",
+                    "global-ordinals [{}][{}] took [{}], incremental [{}]",
                     indexFieldData.getFieldName(),
-                    ordinalMap.getValueCount(),
-                    new TimeValue(System.nanoTime() - startTimeNS, TimeUnit.NANOSECONDS)
+                    globalOrdinals.getValueCount(),
+                    new TimeValue(System.nanoTime() - startTimeNS, TimeUnit.NANOSECONDS),
+                    incremental
             );
         }
         return new GlobalOrdinalsIndexFieldData(indexFieldData.getFieldName(), indexFieldData.getValuesSourceType(),
-                atomicFD, ordinalMap, memorySizeInBytes, scriptFunction
+                atomicFD, keys, globalOrdinals, memorySizeInBytes, breaker, scriptFunction
         );
     }
 
@@ -97,7 +128,8 @@ public enum GlobalOrdinalsBuilder {
         }
         final OrdinalMap ordinalMap = OrdinalMap.build(null, subs, PackedInts.DEFAULT);
         return new GlobalOrdinalsIndexFieldData(indexFieldData.getFieldName(), indexFieldData.getValuesSourceType(),
-                atomicFD, ordinalMap, 0, AbstractLeafOrdinalsFieldData.DEFAULT_SCRIPT_FUNCTION
+                atomicFD, null, GlobalOrdinalsMap.wrap(ordinalMap), 0, new NoopCircuitBreaker(CircuitBreaker.FIELDDATA),
+                AbstractLeafOrdinalsFieldData.DEFAULT_SCRIPT_FUNCTION
         );
     }
 
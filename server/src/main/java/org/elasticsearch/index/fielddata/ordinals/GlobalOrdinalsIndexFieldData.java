@@ -8,12 +8,16 @@
 package org.elasticsearch.index.fielddata.ordinals;
 
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.OrdinalMap;
 import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.LongValues;
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.core.Nullable;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.index.fielddata.IndexFieldData.XFieldComparatorSource.Nested;
@@ -47,22 +51,36 @@ public final class GlobalOrdinalsIndexFieldData implements IndexOrdinalsFieldDat
     private final String fieldName;
     private final ValuesSourceType valuesSourceType;
     private final long memorySizeInBytes;
+    private final CircuitBreaker breaker;
 
-    private final OrdinalMap ordinalMap;
+    private final GlobalOrdinalsMap globalOrdinals;
     private final LeafOrdinalsFieldData[] segmentAfd;
+    private final IndexReader.CacheKey[] segmentKeys;
     private final Function<SortedSetDocValues, ScriptDocValues<?>> scriptFunction;
 
+    // built lazily if the global ordinals are not backed by an OrdinalMap
+    private volatile OrdinalMap ordinalMap;
+    private volatile long ordinalMapSizeInBytes;
+    private volatile boolean ordinalMapRequested;
+
     protected GlobalOrdinalsIndexFieldData(String fieldName,
                                            ValuesSourceType valuesSourceType,
                                            LeafOrdinalsFieldData[] segmentAfd,
-                                           OrdinalMap ordinalMap,
+                                           IndexReader.CacheKey[] segmentKeys,
+                                           GlobalOrdinalsMap globalOrdinals,
                                            long memorySizeInBytes,
+                                           CircuitBreaker breaker,
                                            Function<SortedSetDocValues, ScriptDocValues<?>> scriptFunction) {
         this.fieldName = fieldName;
         this.valuesSourceType = valuesSourceType;
         this.memorySizeInBytes = memorySizeInBytes;
-        this.ordinalMap = ordinalMap;
+        this.breaker = breaker;
+        this.globalOrdinals = globalOrdinals;
+        if (globalOrdinals instanceof GlobalOrdinalsMap.Lucene) {
+            this.ordinalMap = ((GlobalOrdinalsMap.Lucene) globalOrdinals).ordinalMap;
+        }
         this.segmentAfd = segmentAfd;
+        this.segmentKeys = segmentKeys;
         this.scriptFunction = scriptFunction;
     }
 
@@ -108,7 +126,7 @@ public final class GlobalOrdinalsIndexFieldData implements IndexOrdinalsFieldDat
 
     @Override
     public long ramBytesUsed() {
-        return memorySizeInBytes;
+        return memorySizeInBytes + ordinalMapSizeInBytes;
     }
 
     @Override
@@ -124,14 +142,59 @@ public final class GlobalOrdinalsIndexFieldData implements IndexOrdinalsFieldDat
 
     @Override
     public OrdinalMap getOrdinalMap() {
+        ordinalMapRequested = true;
+        final OrdinalMap ordinalMap = this.ordinalMap;
+        return ordinalMap == null ? buildOrdinalMap() : ordinalMap;
+    }
+
+    /**
+     * Builds the {@link OrdinalMap} of global ordinals that were built incrementally, for the rare consumers
+     * that need one, like joins. Its memory is accounted on top of the memory of the global ordinals.
+     */
+    private synchronized OrdinalMap buildOrdinalMap() {
+        if (ordinalMap == null) {
+            final SortedSetDocValues[] subs = new SortedSetDocValues[segmentAfd.length];
+            for (int i = 0; i < subs.length; i++) {
+                subs[i] = segmentAfd[i].getOrdinalsValues();
+            }
+            final OrdinalMap map;
+            try {
+                map = OrdinalMap.build(null, subs, PackedInts.DEFAULT);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to build ordinal map", e);
+            }
+            breaker.addWithoutBreaking(map.ramBytesUsed());
+            ordinalMapSizeInBytes = map.ramBytesUsed();
+            ordinalMap = map;
+        }
         return ordinalMap;
     }
 
+    @Override
+    public LongValues getGlobalOrds(int segmentIndex) {
+        return globalOrdinals.getGlobalOrds(segmentIndex);
+    }
+
     @Override
     public boolean supportsGlobalOrdinalsMapping() {
         return true;
     }
 
+    GlobalOrdinalsMap getGlobalOrdinals() {
+        return globalOrdinals;
+    }
+
+    IndexReader.CacheKey[] getSegmentKeys() {
+        return segmentKeys;
+    }
+
+    /**
+     * Whether a consumer needed the {@link OrdinalMap} of these global ordinals.
+     */
+    boolean isOrdinalMapRequested() {
+        return ordinalMapRequested;
+    }
+
     /**
      * A non-thread safe {@link IndexOrdinalsFieldData} for global ordinals that creates the {@link TermsEnum} of each
      * segment once and use them to provide a single lookup per segment.
@@ -199,7 +262,7 @@ public final class GlobalOrdinalsIndexFieldData implements IndexOrdinalsFieldDat
 
         @Override
         public long ramBytesUsed() {
-            return memorySizeInBytes;
+            return GlobalOrdinalsIndexFieldData.this.ramBytesUsed();
         }
 
         @Override
@@ -214,18 +277,18 @@ public final class GlobalOrdinalsIndexFieldData implements IndexOrdinalsFieldDat
                 @Override
                 public SortedSetDocValues getOrdinalsValues() {
                     final SortedSetDocValues values = segmentAfd[context.ord].getOrdinalsValues();
-                    if (values.getValueCount() == ordinalMap.getValueCount()) {
+                    if (values.getValueCount() == globalOrdinals.getValueCount()) {
                         // segment ordinals match global ordinals
                         return values;
                     }
                     TermsEnum[] atomicLookups = getOrLoadTermsEnums();
                     SortedSetDocValues singleton = SingletonGlobalOrdinalMapping.singletonIfPossible(
-                        ordinalMap,
+                        globalOrdinals,
                         values,
                         atomicLookups,
                         context.ord
                     );
-                    return singleton == null ? new GlobalOrdinalMapping(ordinalMap, values, atomicLookups, context.ord) : singleton;
+                    return singleton == null ? new GlobalOrdinalMapping(globalOrdinals, values, atomicLookups, context.ord) : singleton;
                 }
 
                 @Override
@@ -251,7 +314,12 @@ public final class GlobalOrdinalsIndexFieldData implements IndexOrdinalsFieldDat
 
         @Override
         public OrdinalMap getOrdinalMap() {
-            return ordinalMap;
+            return GlobalOrdinalsIndexFieldData.this.getOrdinalMap();
+        }
+
+        @Override
+        public LongValues getGlobalOrds(int segmentIndex) {
+            return globalOrdinals.getGlobalOrds(segmentIndex);
         }
 
     }
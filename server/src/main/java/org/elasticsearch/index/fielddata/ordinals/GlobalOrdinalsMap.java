@@ -0,0 +1,88 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.index.fielddata.ordinals;
+
+import org.apache.lucene.index.OrdinalMap;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.LongValues;
+
+import java.util.Collection;
+
+/**
+ * Maps the ordinals of the segments of a reader to global ordinals. This is the part of the
+ * {@link OrdinalMap} API that global ordinals rely on, which allows to build global ordinals
+ * from the global ordinals of a previous reader, see {@link IncrementalGlobalOrdinalsMap}.
+ */
+public abstract class GlobalOrdinalsMap implements Accountable {
+
+    /**
+     * Returns the total number of unique terms in global ordinals space.
+     */
+    public abstract long getValueCount();
+
+    /**
+     * Returns a {@link LongValues} instance that maps the ordinals of the provided segment to global ordinals.
+     */
+    public abstract LongValues getGlobalOrds(int segmentIndex);
+
+    /**
+     * Returns the ordinal of the provided global ordinal in the segment returned by {@link #getFirstSegmentNumber}.
+     */
+    public abstract long getFirstSegmentOrd(long globalOrd);
+
+    /**
+     * Returns the index of a segment that contains the term of the provided global ordinal.
+     */
+    public abstract int getFirstSegmentNumber(long globalOrd);
+
+    /**
+     * Wraps an {@link OrdinalMap}.
+     */
+    static GlobalOrdinalsMap wrap(OrdinalMap ordinalMap) {
+        return new Lucene(ordinalMap);
+    }
+
+    static final class Lucene extends GlobalOrdinalsMap {
+        final OrdinalMap ordinalMap;
+
+        private Lucene(OrdinalMap ordinalMap) {
+            this.ordinalMap = ordinalMap;
+        }
+
+        @Override
+        public long getValueCount() {
+            return ordinalMap.getValueCount();
+        }
+
+        @Override
+        public LongValues getGlobalOrds(int segmentIndex) {
+            return ordinalMap.getGlobalOrds(segmentIndex);
+        }
+
+        @Override
+        public long getFirstSegmentOrd(long globalOrd) {
+            return ordinalMap.getFirstSegmentOrd(globalOrd);
+        }
+
+        @Override
+        public int getFirstSegmentNumber(long globalOrd) {
+            return ordinalMap.getFirstSegmentNumber(globalOrd);
+        }
+
+        @Override
+        public long ramBytesUsed() {
+            return ordinalMap.ramBytesUsed();
+        }
+
+        @Override
+        public Collection<Accountable> getChildResources() {
+            return ordinalMap.getChildResources();
+        }
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.index.fielddata.ordinals;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.OrdinalMap;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.LongBitSet;
+import org.apache.lucene.util.LongValues;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.packed.PackedInts;
+import org.apache.lucene.util.packed.PackedLongValues;
+import org.apache.lucene.util.packed.PagedGrowableWriter;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.core.Nullable;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link GlobalOrdinalsMap} that is built from the global ordinals of a previous reader of the same shard.
+ * <p>
+ * After a refresh most segments of a reader are still part of the new reader. Rather than merging the terms
+ * of all segments like {@link OrdinalMap} does, the previous global ordinals of these retained segments are
+ * reused as they are already sorted, and only the terms of the new segments are merged and then looked up
+ * among the terms of the retained segments with a binary search. This makes the cost of a build proportional
+ * to the number of ordinals of the reader plus the number of new terms times the log of the number of terms,
+ * instead of the number of terms times the cost of reading a term from the terms dictionary.
+ */
+final class IncrementalGlobalOrdinalsMap extends GlobalOrdinalsMap {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(IncrementalGlobalOrdinalsMap.class);
+    private static final int PAGE_SIZE = 1 << 12;
+
+    private final long valueCount;
+    private final PackedLongValues[] segmentToGlobalOrds;
+    private final PackedLongValues firstSegments;
+    private final PackedLongValues firstSegmentOrds;
+    private final long ramBytesUsed;
+
+    private IncrementalGlobalOrdinalsMap(long valueCount, PackedLongValues[] segmentToGlobalOrds,
+                                         PackedLongValues firstSegments, PackedLongValues firstSegmentOrds) {
+        this.valueCount = valueCount;
+        this.segmentToGlobalOrds = segmentToGlobalOrds;
+        this.firstSegments = firstSegments;
+        this.firstSegmentOrds = firstSegmentOrds;
+        long ramBytesUsed = BASE_RAM_BYTES_USED + RamUsageEstimator.shallowSizeOf(segmentToGlobalOrds)
+            + firstSegments.ramBytesUsed() + firstSegmentOrds.ramBytesUsed();
+        for (PackedLongValues values : segmentToGlobalOrds) {
+            ramBytesUsed += values.ramBytesUsed();
+        }
+        this.ramBytesUsed = ramBytesUsed;
+    }
+
+    @Override
+    public long getValueCount() {
+        return valueCount;
+    }
+
+    @Override
+    public LongValues getGlobalOrds(int segmentIndex) {
+        return segmentToGlobalOrds[segmentIndex];
+    }
+
+    @Override
+    public long getFirstSegmentOrd(long globalOrd) {
+        return firstSegmentOrds.get(globalOrd);
+    }
+
+    @Override
+    public int getFirstSegmentNumber(long globalOrd) {
+        return (int) firstSegments.get(globalOrd);
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return ramBytesUsed;
+    }
+
+    /**
+     * Builds the global ordinals of the provided segments from the global ordinals of a previous reader, or
+     * returns <code>null</code> if merging the terms of all segments is expected to be cheaper.
+     * <p>
+     * The memory of the new global ordinals is accounted on the provided breaker. The size of the previous
+     * global ordinals, which the new ones are expected to be close to, is reserved before the build so that
+     * it can trip the breaker. Once built, the size of the new global ordinals is computed and the difference
+     * with the reserved size is charged or released, which releases it all if <code>null</code> is returned.
+     *
+     * @param previous the global ordinals of the previous reader
+     * @param previousKeys the core cache keys of the segments of the previous reader
+     * @param keys the core cache keys of the segments, <code>null</code> if a segment cannot be identified
+     * @param subs the ordinals of the segments
+     * @param breaker the breaker that accounts for the memory of the global ordinals
+     */
+    @Nullable
+    static GlobalOrdinalsMap build(GlobalOrdinalsMap previous, IndexReader.CacheKey[] previousKeys,
+                                   IndexReader.CacheKey[] keys, SortedSetDocValues[] subs, CircuitBreaker breaker) throws IOException {
+        final long reserved = previous.ramBytesUsed();
+        breaker.addEstimateBytesAndMaybeBreak(reserved, "incremental global ordinals");
+        GlobalOrdinalsMap globalOrdinals = null;
+        try {
+            globalOrdinals = build(previous, previousKeys, keys, subs);
+        } finally {
+            breaker.addWithoutBreaking((globalOrdinals == null ? 0 : globalOrdinals.ramBytesUsed()) - reserved);
+        }
+        return globalOrdinals;
+    }
+
+    @Nullable
+    private static GlobalOrdinalsMap build(GlobalOrdinalsMap previous, IndexReader.CacheKey[] previousKeys,
+                                           IndexReader.CacheKey[] keys, SortedSetDocValues[] subs) throws IOException {
+        final Map<IndexReader.CacheKey, Integer> previousSegments = new HashMap<>();
+        for (int i = 0; i < previousKeys.length; i++) {
+            if (previousKeys[i] != null) {
+                previousSegments.put(previousKeys[i], i);
+            }
+        }
+        final int[] previousIndices = new int[subs.length];
+        final int[] newIndices = new int[subs.length];
+        int numNewSegments = 0;
+        long maxNewTerms = 0;
+        for (int i = 0; i < subs.length; i++) {
+            final Integer previousIndex = keys[i] == null ? null : previousSegments.get(keys[i]);
+            if (previousIndex == null) {
+                previousIndices[i] = -1;
+                newIndices[i] = numNewSegments++;
+                maxNewTerms += subs[i].getValueCount();
+            } else {
+                previousIndices[i] = previousIndex;
+                newIndices[i] = -1;
+            }
+        }
+        final long previousValueCount = previous.getValueCount();
+        if (numNewSegments == subs.length
+                || previousValueCount == 0
+                || maxNewTerms * PackedInts.bitsRequired(previousValueCount) > previousValueCount) {
+            // looking up every new term would be more costly than merging all terms
+            return null;
+        }
+
+        // find the previous global ordinals that are still used by a retained segment and where to look them up
+        final LongBitSet live = new LongBitSet(previousValueCount);
+        final PagedGrowableWriter liveSegments =
+            new PagedGrowableWriter(previousValueCount, PAGE_SIZE, PackedInts.bitsRequired(subs.length - 1), PackedInts.COMPACT);
+        final PagedGrowableWriter liveSegmentOrds = new PagedGrowableWriter(previousValueCount, PAGE_SIZE, 1, PackedInts.COMPACT);
+        for (int i = 0; i < subs.length; i++) {
+            if (previousIndices[i] == -1) {
+                continue;
+            }
+            final LongValues globalOrds = previous.getGlobalOrds(previousIndices[i]);
+            final long segmentValueCount = subs[i].getValueCount();
+            for (long ord = 0; ord < segmentValueCount; ord++) {
+                final long globalOrd = globalOrds.get(ord);
+                if (live.getAndSet(globalOrd) == false) {
+                    liveSegments.set(globalOrd, i);
+                    liveSegmentOrds.set(globalOrd, ord);
+                }
+            }
+        }
+        final long liveCount = live.cardinality();
+        if (liveCount == 0) {
+            return null;
+        }
+        final PackedLongValues.Builder liveOrdsBuilder = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
+        for (long ord = live.nextSetBit(0); ord != -1; ord = ord + 1 < previousValueCount ? live.nextSetBit(ord + 1) : -1) {
+            liveOrdsBuilder.add(ord);
+        }
+        final PackedLongValues liveOrds = liveOrdsBuilder.build();
+
+        final TermsEnum[] lookups = new TermsEnum[subs.length];
+        for (int i = 0; i < subs.length; i++) {
+            lookups[i] = subs[i].termsEnum();
+        }
+
+        // merge the terms of the new segments and find where they go among the live terms
+        final OrdinalMap newTerms;
+        if (numNewSegments > 0) {
+            final SortedSetDocValues[] newSubs = new SortedSetDocValues[numNewSegments];
+            for (int i = 0; i < subs.length; i++) {
+                if (newIndices[i] != -1) {
+                    newSubs[newIndices[i]] = subs[i];
+                }
+            }
+            newTerms = OrdinalMap.build(null, newSubs, PackedInts.DEFAULT);
+        } else {
+            newTerms = null;
+        }
+        final long newValueCount = newTerms == null ? 0 : newTerms.getValueCount();
+        final int[] newSegments = new int[numNewSegments];
+        for (int i = 0; i < subs.length; i++) {
+            if (newIndices[i] != -1) {
+                newSegments[newIndices[i]] = i;
+            }
+        }
+        final PackedLongValues.Builder insertionsBuilder = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
+        final LongBitSet existing = new LongBitSet(newValueCount);
+        final BytesRefBuilder term = new BytesRefBuilder();
+        long low = 0;
+        for (long newOrd = 0; newOrd < newValueCount; newOrd++) {
+            final TermsEnum lookup = lookups[newSegments[newTerms.getFirstSegmentNumber(newOrd)]];
+            lookup.seekExact(newTerms.getFirstSegmentOrd(newOrd));
+            term.copyBytes(lookup.term());
+            // new terms are sorted so the search for the first live term that is greater or equal can start where the last one ended
+            long high = liveCount;
+            while (low < high) {
+                final long mid = (low + high) >>> 1;
+                final int cmp = liveTerm(mid, liveOrds, liveSegments, liveSegmentOrds, lookups).compareTo(term.get());
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else {
+                    if (cmp == 0) {
+                        existing.set(newOrd);
+                    }
+                    high = mid;
+                }
+            }
+            insertionsBuilder.add(low);
+        }
+
+        // assign global ordinals by interleaving live terms and terms that only exist in new segments
+        final long valueCount = liveCount + newValueCount - existing.cardinality();
+        final PagedGrowableWriter previousToGlobal = new PagedGrowableWriter(previousValueCount, PAGE_SIZE, 1, PackedInts.COMPACT);
+        final PagedGrowableWriter newToGlobal = new PagedGrowableWriter(newValueCount, PAGE_SIZE, 1, PackedInts.COMPACT);
+        final PackedLongValues.Builder firstSegments = PackedLongValues.packedBuilder(PackedInts.DEFAULT);
+        final PackedLongValues.Builder firstSegmentOrds = PackedLongValues.packedBuilder(PackedInts.DEFAULT);
+        final PackedLongValues.Iterator insertions = insertionsBuilder.build().iterator();
+        final PackedLongValues.Iterator liveOrdsIterator = liveOrds.iterator();
+        long globalOrd = 0;
+        long newOrd = 0;
+        long nextInsertion = newValueCount > 0 ? insertions.next() : Long.MAX_VALUE;
+        for (long liveIndex = 0; liveIndex <= liveCount; liveIndex++) {
+            while (nextInsertion == liveIndex && existing.get(newOrd) == false) {
+                newToGlobal.set(newOrd, globalOrd++);
+                firstSegments.add(newSegments[newTerms.getFirstSegmentNumber(newOrd)]);
+                firstSegmentOrds.add(newTerms.getFirstSegmentOrd(newOrd));
+                newOrd++;
+                nextInsertion = newOrd < newValueCount ? insertions.next() : Long.MAX_VALUE;
+            }
+            if (liveIndex == liveCount) {
+                break;
+            }
+            final long previousOrd = liveOrdsIterator.next();
+            previousToGlobal.set(previousOrd, globalOrd);
+            firstSegments.add(liveSegments.get(previousOrd));
+            firstSegmentOrds.add(liveSegmentOrds.get(previousOrd));
+            if (nextInsertion == liveIndex) {
+                assert existing.get(newOrd);
+                newToGlobal.set(newOrd, globalOrd);
+                newOrd++;
+                nextInsertion = newOrd < newValueCount ? insertions.next() : Long.MAX_VALUE;
+            }
+            globalOrd++;
+        }
+        assert globalOrd == valueCount && newOrd == newValueCount;
+
+        final PackedLongValues[] segmentToGlobalOrds = new PackedLongValues[subs.length];
+        for (int i = 0; i < subs.length; i++) {
+            final PackedLongValues.Builder builder = PackedLongValues.monotonicBuilder(PackedInts.DEFAULT);
+            final long segmentValueCount = subs[i].getValueCount();
+            if (previousIndices[i] == -1) {
+                final LongValues segmentToNewOrds = newTerms.getGlobalOrds(newIndices[i]);
+                for (long ord = 0; ord < segmentValueCount; ord++) {
+                    builder.add(newToGlobal.get(segmentToNewOrds.get(ord)));
+                }
+            } else {
+                final LongValues segmentToPreviousOrds = previous.getGlobalOrds(previousIndices[i]);
+                for (long ord = 0; ord < segmentValueCount; ord++) {
+                    builder.add(previousToGlobal.get(segmentToPreviousOrds.get(ord)));
+                }
+            }
+            segmentToGlobalOrds[i] = builder.build();
+        }
+        return new IncrementalGlobalOrdinalsMap(valueCount, segmentToGlobalOrds, firstSegments.build(), firstSegmentOrds.build());
+    }
+
+    private static BytesRef liveTerm(long liveIndex, PackedLongValues liveOrds, PagedGrowableWriter liveSegments,
+                                     PagedGrowableWriter liveSegmentOrds, TermsEnum[] lookups) throws IOException {
+        final long previousOrd = liveOrds.get(liveIndex);
+        final TermsEnum lookup = lookups[(int) liveSegments.get(previousOrd)];
+        lookup.seekExact(liveSegmentOrds.get(previousOrd));
+        return lookup.term();
+    }
+}
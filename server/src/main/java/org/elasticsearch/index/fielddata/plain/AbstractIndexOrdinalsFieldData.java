@@ -17,6 +17,7 @@ import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.index.fielddata.IndexFieldData;
 import org.elasticsearch.index.fielddata.IndexFieldDataCache;
 import org.elasticsearch.index.fielddata.IndexOrdinalsFieldData;
 import org.elasticsearch.index.fielddata.LeafOrdinalsFieldData;
@@ -146,6 +147,22 @@ public abstract class AbstractIndexOrdinalsFieldData implements IndexOrdinalsFie
         );
     }
 
+    @Override
+    public IndexOrdinalsFieldData loadGlobalDirect(DirectoryReader indexReader,
+                                                   IndexFieldData<LeafOrdinalsFieldData> previous) throws Exception {
+        if (previous instanceof GlobalOrdinalsIndexFieldData == false) {
+            return loadGlobalDirect(indexReader);
+        }
+        return GlobalOrdinalsBuilder.build(
+            indexReader,
+            this,
+            (GlobalOrdinalsIndexFieldData) previous,
+            breakerService,
+            logger,
+            scriptFunction
+        );
+    }
+
     @Override
     public boolean supportsGlobalOrdinalsMapping() {
         return false;
@@ -93,6 +93,21 @@ public final class BufferedChecksumStreamInput extends FilterStreamInput {
         return readVLongSlow();
     }
 
+    @Override
+    protected void readVInts(int[] values) throws IOException {
+        // read the values one by one so that all their bytes are checksummed
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readVInt();
+        }
+    }
+
+    @Override
+    protected void readVLongs(long[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readVLong();
+        }
+    }
+
     @Override
     public void reset() throws IOException {
         delegate.reset();
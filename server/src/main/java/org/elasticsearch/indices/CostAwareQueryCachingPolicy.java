@@ -0,0 +1,97 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.indices;
+
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryCachingPolicy;
+
+import java.io.IOException;
+import java.util.function.Function;
+
+/**
+ * A {@link QueryCachingPolicy} that admits queries based on the cost that was measured
+ * the previous times their results were cached. Queries always need to be admitted by the
+ * wrapped policy first. Queries that have been cached before are admitted again only if the
+ * time it took to evaluate them is also worth the memory their results use.
+ */
+final class CostAwareQueryCachingPolicy implements QueryCachingPolicy {
+
+    private final QueryCachingPolicy in;
+    private final Function<Query, QueryCost> costs;
+    private final double minNanosPerByte;
+
+    CostAwareQueryCachingPolicy(QueryCachingPolicy in, Function<Query, QueryCost> costs, double minNanosPerByte) {
+        this.in = in;
+        this.costs = costs;
+        this.minNanosPerByte = minNanosPerByte;
+    }
+
+    @Override
+    public void onUse(Query query) {
+        in.onUse(query);
+    }
+
+    @Override
+    public boolean shouldCache(Query query) throws IOException {
+        if (in.shouldCache(query) == false) {
+            // the usage based heuristics still decide how often a query must be used and which queries are never worth caching
+            return false;
+        }
+        final QueryCost cost = costs.apply(query);
+        // without a measurement yet the usage based heuristics decide alone
+        return cost == null || cost.nanosPerByte() >= minNanosPerByte;
+    }
+
+    /**
+     * The measured cost of building the cached results of a query, summed over all segments
+     * the query has been cached on.
+     */
+    static final class QueryCost {
+        private long builds;
+        private long buildTimeInNanos;
+        private long ramBytesUsed;
+        private long matchingDocs;
+        private long maxDocs;
+
+        synchronized void record(long tookInNanos, long ramBytesUsed, long matchingDocs, int maxDoc) {
+            this.builds++;
+            this.buildTimeInNanos += tookInNanos;
+            this.ramBytesUsed += ramBytesUsed;
+            this.matchingDocs += matchingDocs;
+            this.maxDocs += maxDoc;
+        }
+
+        /**
+         * The time it took to evaluate the query per byte of cached results.
+         */
+        synchronized double nanosPerByte() {
+            return (double) buildTimeInNanos / Math.max(1L, ramBytesUsed);
+        }
+
+        /**
+         * The average time it took to evaluate the query on a segment.
+         */
+        synchronized long averageBuildTimeInNanos() {
+            return builds == 0 ? 0L : buildTimeInNanos / builds;
+        }
+
+        /**
+         * The ratio of documents that matched the query.
+         */
+        synchronized double density() {
+            return maxDocs == 0 ? 1d : (double) matchingDocs / maxDocs;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "{builds=" + builds + ", buildTimeInNanos=" + buildTimeInNanos + ", ramBytesUsed=" + ramBytesUsed +
+                ", matchingDocs=" + matchingDocs + ", maxDocs=" + maxDocs + "}";
+        }
+    }
+}
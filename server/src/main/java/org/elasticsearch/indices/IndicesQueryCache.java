@@ -13,14 +13,23 @@ import org.apache.logging.log4j.Logger;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BulkScorer;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Explanation;
 import org.apache.lucene.search.LRUQueryCache;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.Matches;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.QueryCache;
 import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.Scorable;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.ScorerSupplier;
 import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.RoaringDocIdSet;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
 import org.elasticsearch.common.lucene.ShardCoreKeyMap;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
@@ -28,6 +37,7 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.index.cache.query.QueryCacheStats;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.indices.CostAwareQueryCachingPolicy.QueryCost;
 
 import java.io.Closeable;
 import java.io.IOException;
@@ -37,6 +47,7 @@ import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.function.Predicate;
 
 public class IndicesQueryCache implements QueryCache, Closeable {
@@ -52,6 +63,18 @@ public class IndicesQueryCache implements QueryCache, Closeable {
     // enables caching on all segments instead of only the larger ones, for testing only
     public static final Setting<Boolean> INDICES_QUERIES_CACHE_ALL_SEGMENTS_SETTING =
             Setting.boolSetting("indices.queries.cache.all_segments", false, Property.NodeScope);
+    // records the cost of building cached results and uses it to decide whether queries should be cached again
+    public static final Setting<Boolean> INDICES_QUERIES_CACHE_COST_AWARE_SETTING =
+            Setting.boolSetting("indices.queries.cache.cost_aware.enabled", false, Property.NodeScope);
+    // the minimum evaluation time per byte of cached results for a query to be admitted by the cost aware policy
+    public static final Setting<Double> INDICES_QUERIES_CACHE_COST_AWARE_MIN_NANOS_PER_BYTE_SETTING =
+            Setting.doubleSetting("indices.queries.cache.cost_aware.min_nanos_per_byte", 1d, 0d, Property.NodeScope);
+
+    /**
+     * Results that match less than 1 in 16 documents are stored in a {@link RoaringDocIdSet} by the cost aware
+     * cache, which only starts to be larger than a bit set above this density.
+     */
+    private static final int ROARING_MAX_DENSITY_DIVISOR = 16;
 
     private final LRUQueryCache cache;
     private final ShardCoreKeyMap shardKeyMap = new ShardCoreKeyMap();
@@ -63,11 +86,22 @@ public class IndicesQueryCache implements QueryCache, Closeable {
     // See onDocIdSetEviction for more info
     private final Map<Object, StatsAndCount> stats2 = Collections.synchronizedMap(new IdentityHashMap<>());
 
+    // null unless the cost aware caching policy is enabled
+    private final Cache<Query, QueryCost> costs;
+    private final double minNanosPerByte;
+
     public IndicesQueryCache(Settings settings) {
         final ByteSizeValue size = INDICES_CACHE_QUERY_SIZE_SETTING.get(settings);
         final int count = INDICES_CACHE_QUERY_COUNT_SETTING.get(settings);
         logger.debug("using [node] query cache with size [{}] max filter count [{}]",
                 size, count);
+        if (INDICES_QUERIES_CACHE_COST_AWARE_SETTING.get(settings)) {
+            costs = CacheBuilder.<Query, QueryCost>builder().setMaximumWeight(count).build();
+            minNanosPerByte = INDICES_QUERIES_CACHE_COST_AWARE_MIN_NANOS_PER_BYTE_SETTING.get(settings);
+        } else {
+            costs = null;
+            minNanosPerByte = 0d;
+        }
         if (INDICES_QUERIES_CACHE_ALL_SEGMENTS_SETTING.get(settings)) {
             cache = new ElasticsearchLRUQueryCache(count, size.getBytes(), context -> true, 1f);
         } else {
@@ -111,21 +145,30 @@ public class IndicesQueryCache implements QueryCache, Closeable {
     @Override
     public Weight doCache(Weight weight, QueryCachingPolicy policy) {
         while (weight instanceof CachingWeightWrapper) {
-            weight = ((CachingWeightWrapper) weight).in;
+            weight = ((CachingWeightWrapper) weight).uncached;
+        }
+        if (costs != null) {
+            if (weight instanceof CostTrackingWeight == false) {
+                weight = new CostTrackingWeight(weight);
+            }
+            policy = new CostAwareQueryCachingPolicy(policy, costs::get, minNanosPerByte);
         }
         final Weight in = cache.doCache(weight, policy);
         // We wrap the weight to track the readers it sees and map them with
         // the shards they belong to
-        return new CachingWeightWrapper(in);
+        return new CachingWeightWrapper(in, weight);
     }
 
     private class CachingWeightWrapper extends Weight {
 
         private final Weight in;
+        // the weight that was given to the lucene cache
+        private final Weight uncached;
 
-        protected CachingWeightWrapper(Weight in) {
+        protected CachingWeightWrapper(Weight in, Weight uncached) {
             super(in.getQuery());
             this.in = in;
+            this.uncached = uncached;
         }
 
         @Override
@@ -163,6 +206,77 @@ public class IndicesQueryCache implements QueryCache, Closeable {
         }
     }
 
+    /**
+     * Wraps the weight that is given to the lucene cache so that the bulk scorers that are used
+     * to build cached results can be mapped back to their query when measuring their cost.
+     */
+    private static class CostTrackingWeight extends Weight {
+
+        private final Weight in;
+
+        CostTrackingWeight(Weight in) {
+            super(in.getQuery());
+            this.in = in;
+        }
+
+        @Override
+        public void extractTerms(Set<Term> terms) {
+            in.extractTerms(terms);
+        }
+
+        @Override
+        public Matches matches(LeafReaderContext context, int doc) throws IOException {
+            return in.matches(context, doc);
+        }
+
+        @Override
+        public Explanation explain(LeafReaderContext context, int doc) throws IOException {
+            return in.explain(context, doc);
+        }
+
+        @Override
+        public Scorer scorer(LeafReaderContext context) throws IOException {
+            return in.scorer(context);
+        }
+
+        @Override
+        public ScorerSupplier scorerSupplier(LeafReaderContext context) throws IOException {
+            return in.scorerSupplier(context);
+        }
+
+        @Override
+        public BulkScorer bulkScorer(LeafReaderContext context) throws IOException {
+            final BulkScorer scorer = in.bulkScorer(context);
+            return scorer == null ? null : new CostTrackingBulkScorer(getQuery(), scorer);
+        }
+
+        @Override
+        public boolean isCacheable(LeafReaderContext ctx) {
+            return in.isCacheable(ctx);
+        }
+    }
+
+    private static class CostTrackingBulkScorer extends BulkScorer {
+
+        private final Query query;
+        private final BulkScorer in;
+
+        CostTrackingBulkScorer(Query query, BulkScorer in) {
+            this.query = query;
+            this.in = in;
+        }
+
+        @Override
+        public int score(LeafCollector collector, Bits acceptDocs, int min, int max) throws IOException {
+            return in.score(collector, acceptDocs, min, max);
+        }
+
+        @Override
+        public long cost() {
+            return in.cost();
+        }
+    }
+
     /** Clear all entries that belong to the given index. */
     public void clearIndex(String index) {
         final Set<Object> coreCacheKeys = shardKeyMap.getCoreKeysForIndex(index);
@@ -189,6 +303,9 @@ public class IndicesQueryCache implements QueryCache, Closeable {
         // we only know that there are no more doc id sets, but we still track
         // recently used queries, which we want to reclaim.
         cache.clear();
+        if (costs != null) {
+            costs.invalidateAll();
+        }
     }
 
     private static class Stats implements Cloneable {
@@ -199,19 +316,20 @@ public class IndicesQueryCache implements QueryCache, Closeable {
         volatile long missCount;
         volatile long cacheCount;
         volatile long cacheSize;
+        volatile long costSavedInNanos;
 
         Stats(ShardId shardId) {
             this.shardId = shardId;
         }
 
         QueryCacheStats toQueryCacheStats() {
-            return new QueryCacheStats(ramBytesUsed, hitCount, missCount, cacheCount, cacheSize);
+            return new QueryCacheStats(ramBytesUsed, hitCount, missCount, cacheCount, cacheSize, costSavedInNanos);
         }
 
         @Override
         public String toString() {
             return "{shardId=" + shardId + ", ramBytedUsed=" + ramBytesUsed + ", hitCount=" + hitCount + ", missCount=" + missCount +
-                    ", cacheCount=" + cacheCount + ", cacheSize=" + cacheSize + "}";
+                    ", cacheCount=" + cacheCount + ", cacheSize=" + cacheSize + ", costSavedInNanos=" + costSavedInNanos + "}";
         }
     }
 
@@ -340,6 +458,54 @@ public class IndicesQueryCache implements QueryCache, Closeable {
             super.onHit(readerCoreKey, filter);
             final Stats shardStats = getStats(readerCoreKey);
             shardStats.hitCount += 1;
+            if (costs != null) {
+                final QueryCost cost = costs.get(filter);
+                if (cost != null) {
+                    shardStats.costSavedInNanos += cost.averageBuildTimeInNanos();
+                }
+            }
+        }
+
+        @Override
+        protected DocIdSet cacheImpl(BulkScorer scorer, int maxDoc) throws IOException {
+            if (costs == null || scorer instanceof CostTrackingBulkScorer == false) {
+                return super.cacheImpl(scorer, maxDoc);
+            }
+            final Query query = ((CostTrackingBulkScorer) scorer).query;
+            QueryCost cost = costs.get(query);
+            // prefer the density that was measured on other segments over the estimated cost of the scorer
+            final boolean sparse = cost == null
+                ? scorer.cost() * ROARING_MAX_DENSITY_DIVISOR < maxDoc
+                : cost.density() * ROARING_MAX_DENSITY_DIVISOR < 1d;
+            final long startTime = System.nanoTime();
+            final DocIdSet docIdSet = sparse ? cacheIntoRoaringDocIdSet(scorer, maxDoc) : super.cacheImpl(scorer, maxDoc);
+            final long tookInNanos = System.nanoTime() - startTime;
+            final DocIdSetIterator iterator = docIdSet.iterator();
+            final long matchingDocs = iterator == null ? 0L : iterator.cost();
+            if (cost == null) {
+                try {
+                    // concurrent first builds of the same query must record into the same cost
+                    cost = costs.computeIfAbsent(query, k -> new QueryCost());
+                } catch (ExecutionException e) {
+                    throw new AssertionError("creating a query cost can't fail", e);
+                }
+            }
+            cost.record(tookInNanos, docIdSet.ramBytesUsed(), matchingDocs, maxDoc);
+            return docIdSet;
+        }
+
+        private DocIdSet cacheIntoRoaringDocIdSet(BulkScorer scorer, int maxDoc) throws IOException {
+            final RoaringDocIdSet.Builder builder = new RoaringDocIdSet.Builder(maxDoc);
+            scorer.score(new LeafCollector() {
+                @Override
+                public void setScorer(Scorable scorer) {}
+
+                @Override
+                public void collect(int doc) {
+                    builder.add(doc);
+                }
+            }, null);
+            return builder.build();
         }
 
         @Override
@@ -26,6 +26,7 @@ import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.fielddata.LeafFieldData;
 import org.elasticsearch.index.fielddata.IndexFieldData;
@@ -36,6 +37,7 @@ import org.elasticsearch.index.shard.ShardUtils;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.function.ToLongBiFunction;
 
 public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCache.Key, Accountable>, Releasable{
@@ -76,6 +78,7 @@ public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCa
         Key key = notification.getKey();
         assert key != null && key.listeners != null;
         IndexFieldCache indexCache = key.indexCache;
+        indexCache.onRemoval(key);
         final Accountable value = notification.getValue();
         for (IndexFieldDataCache.Listener listener : key.listeners) {
             try {
@@ -107,6 +110,8 @@ public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCa
         final String fieldName;
         private final Cache<Key, Accountable> cache;
         private final Listener[] listeners;
+        // the key of the global field data that was last loaded for each shard, so that it can be reused by the next one
+        private final Map<ShardId, Key> lastGlobalKeys = ConcurrentCollections.newConcurrentMap();
 
         IndexFieldCache(Logger logger,final Cache<Key, Accountable> cache, Index index, String fieldName, Listener... listeners) {
             this.logger = logger;
@@ -153,10 +158,15 @@ public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCa
                 throw new IllegalArgumentException("Reader " + indexReader + " does not support caching");
             }
             final Key key = new Key(this, cacheHelper.getKey(), shardId);
+            final Key lastKey = shardId == null ? null : lastGlobalKeys.get(shardId);
+            final Accountable previous = lastKey == null || lastKey.equals(key) ? null : cache.get(lastKey);
             final Accountable accountable = cache.computeIfAbsent(key, k -> {
                 ElasticsearchDirectoryReader.addReaderCloseListener(indexReader, IndexFieldCache.this);
                 Collections.addAll(k.listeners, this.listeners);
-                final Accountable ifd = (Accountable) indexFieldData.loadGlobalDirect(indexReader);
+                final Accountable ifd = (Accountable) indexFieldData.loadGlobalDirect(indexReader, (IndexFieldData<FD>) previous);
+                if (shardId != null) {
+                    lastGlobalKeys.put(shardId, k);
+                }
                 for (Listener listener : k.listeners) {
                     try {
                         listener.onCache(shardId, fieldName, ifd);
@@ -170,6 +180,12 @@ public class IndicesFieldDataCache implements RemovalListener<IndicesFieldDataCa
             return (IFD) accountable;
         }
 
+        void onRemoval(Key key) {
+            if (key.shardId != null) {
+                lastGlobalKeys.remove(key.shardId, key);
+            }
+        }
+
         @Override
         public void onClose(CacheKey key) {
             cache.invalidate(new Key(this, key, null));
@@ -359,6 +359,8 @@ public class RecoveryState implements ToXContentFragment, Writeable {
         static final String SOURCE_THROTTLE_TIME_IN_MILLIS = "source_throttle_time_in_millis";
         static final String TARGET_THROTTLE_TIME = "target_throttle_time";
         static final String TARGET_THROTTLE_TIME_IN_MILLIS = "target_throttle_time_in_millis";
+        static final String THROUGHPUT = "throughput";
+        static final String THROUGHPUT_IN_BYTES_PER_SEC = "throughput_in_bytes_per_sec";
     }
 
     public static class Timer implements Writeable {
@@ -1022,6 +1024,17 @@ public class RecoveryState implements ToXContentFragment, Writeable {
             return reused;
         }
 
+        /**
+         * the number of bytes recovered per second since this stage started, or {@code 0} if no time has passed yet
+         */
+        public synchronized long recoveredBytesPerSecond() {
+            final long millis = time();
+            if (millis <= 0) {
+                return 0;
+            }
+            return recoveredBytes() * 1000 / millis;
+        }
+
         @Override
         public synchronized XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
             // stream size first, as it matters more and the files section can be long
@@ -1042,6 +1055,11 @@ public class RecoveryState implements ToXContentFragment, Writeable {
             builder.humanReadableField(Fields.TOTAL_TIME_IN_MILLIS, Fields.TOTAL_TIME, new TimeValue(time()));
             builder.humanReadableField(Fields.SOURCE_THROTTLE_TIME_IN_MILLIS, Fields.SOURCE_THROTTLE_TIME, sourceThrottling());
             builder.humanReadableField(Fields.TARGET_THROTTLE_TIME_IN_MILLIS, Fields.TARGET_THROTTLE_TIME, targetThrottling());
+            final long bytesPerSecond = recoveredBytesPerSecond();
+            if (builder.humanReadable()) {
+                builder.field(Fields.THROUGHPUT, new ByteSizeValue(bytesPerSecond) + "/s");
+            }
+            builder.field(Fields.THROUGHPUT_IN_BYTES_PER_SEC, bytesPerSecond);
             return builder;
         }
 
@@ -8,6 +8,7 @@
 
 package org.elasticsearch.rest;
 
+import org.elasticsearch.common.metrics.RequestHandlerStats;
 import org.elasticsearch.core.RestApiVersion;
 
 import java.util.HashMap;
@@ -21,6 +22,7 @@ final class MethodHandlers {
 
     private final String path;
     private final Map<RestRequest.Method, Map<RestApiVersion, RestHandler>> methodHandlers;
+    private final Map<RestRequest.Method, RequestHandlerStats.Tracker> statsTrackers;
 
     MethodHandlers(String path) {
         this.path = path;
@@ -30,6 +32,11 @@ final class MethodHandlers {
         // array references, while those few that contain 3 or 4 elements will have been resized just once and will still
         // waste only 1 or 0 array references
         this.methodHandlers = new HashMap<>(2, 1);
+        this.statsTrackers = new HashMap<>(2, 1);
+    }
+
+    String getPath() {
+        return path;
     }
 
     /**
@@ -45,6 +52,7 @@ final class MethodHandlers {
         if (existing != null) {
             throw new IllegalArgumentException("Cannot replace existing handler for [" + path + "] for method: " + method);
         }
+        statsTrackers.computeIfAbsent(method, k -> new RequestHandlerStats.Tracker());
         return this;
     }
 
@@ -65,6 +73,26 @@ final class MethodHandlers {
         return handler == null ? versionToHandlers.get(RestApiVersion.current()) : handler;
     }
 
+    /**
+     * Returns the tracker for the latency and request size of the requests with the given method, which must have a handler.
+     */
+    RequestHandlerStats.Tracker getStatsTracker(RestRequest.Method method) {
+        return statsTrackers.get(method);
+    }
+
+    /**
+     * Returns the latency and request size stats of each method that has handled requests.
+     */
+    Map<RestRequest.Method, RequestHandlerStats> getStats() {
+        final Map<RestRequest.Method, RequestHandlerStats> stats = new HashMap<>();
+        statsTrackers.forEach((method, tracker) -> {
+            if (tracker.isEmpty() == false) {
+                stats.put(method, tracker.stats());
+            }
+        });
+        return stats;
+    }
+
     /**
      * Return a set of all valid HTTP methods for the particular path
      */
@@ -21,6 +21,7 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.core.RestApiVersion;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.logging.DeprecationLogger;
+import org.elasticsearch.common.metrics.RequestHandlerStats;
 import org.elasticsearch.common.path.PathTrie;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -40,6 +41,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
@@ -75,6 +78,8 @@ public class RestController implements HttpServerTransport.Dispatcher {
     }
 
     private final PathTrie<MethodHandlers> handlers = new PathTrie<>(RestUtils.REST_DECODER);
+    // the same handlers as above, by path, so that we can collect their stats
+    private final Map<String, MethodHandlers> handlersByPath = new ConcurrentHashMap<>();
 
     private final UnaryOperator<RestHandler> handlerWrapper;
 
@@ -184,9 +189,10 @@ public class RestController implements HttpServerTransport.Dispatcher {
         assert RestApiVersion.minimumSupported() == version || RestApiVersion.current() == version
             : "REST API compatibility is only supported for version " + RestApiVersion.minimumSupported().major;
 
-        handlers.insertOrUpdate(path,
-            new MethodHandlers(path).addMethod(method, version, handler),
-            (handlers, ignoredHandler) -> handlers.addMethod(method, version, handler));
+        final MethodHandlers methodHandlers = new MethodHandlers(path).addMethod(method, version, handler);
+        handlers.insertOrUpdate(path, methodHandlers, (handlers, ignoredHandler) -> handlers.addMethod(method, version, handler));
+        // if the path was already registered then the trie updated the existing handlers and this does nothing
+        handlersByPath.putIfAbsent(path, methodHandlers);
     }
 
     public void registerHandler(final Route route, final RestHandler handler) {
@@ -249,8 +255,17 @@ public class RestController implements HttpServerTransport.Dispatcher {
         }
     }
 
+    @Override
+    public Map<String, RequestHandlerStats> getRouteStats() {
+        final Map<String, RequestHandlerStats> stats = new TreeMap<>();
+        for (MethodHandlers methodHandlers : handlersByPath.values()) {
+            methodHandlers.getStats().forEach((method, handlerStats) -> stats.put(method + " " + methodHandlers.getPath(), handlerStats));
+        }
+        return stats;
+    }
+
     private void dispatchRequest(RestRequest request, RestChannel channel, RestHandler handler,
-                                 ThreadContext threadContext)
+                                 RequestHandlerStats.Tracker statsTracker, ThreadContext threadContext)
         throws Exception {
         final int contentLength = request.contentLength();
         if (contentLength > 0) {
@@ -275,7 +290,8 @@ public class RestController implements HttpServerTransport.Dispatcher {
                 inFlightRequestsBreaker(circuitBreakerService).addWithoutBreaking(contentLength);
             }
             // iff we could reserve bytes for the request we need to send the response also over this channel
-            responseChannel = new ResourceHandlingHttpChannel(channel, circuitBreakerService, contentLength);
+            statsTracker.recordRequestSize(contentLength);
+            responseChannel = new ResourceHandlingHttpChannel(channel, circuitBreakerService, contentLength, statsTracker);
             // TODO: Count requests double in the circuit breaker if they need copying?
             if (handler.allowsUnsafeBuffers() == false) {
                 request.ensureSafeBuffers();
@@ -366,7 +382,7 @@ public class RestController implements HttpServerTransport.Dispatcher {
                         return;
                     }
                 } else {
-                    dispatchRequest(request, channel, handler, threadContext);
+                    dispatchRequest(request, channel, handler, handlers.getStatsTracker(requestMethod), threadContext);
                     return;
                 }
             }
@@ -512,12 +528,16 @@ public class RestController implements HttpServerTransport.Dispatcher {
         private final RestChannel delegate;
         private final CircuitBreakerService circuitBreakerService;
         private final int contentLength;
+        private final RequestHandlerStats.Tracker statsTracker;
+        private final long startNanos = System.nanoTime();
         private final AtomicBoolean closed = new AtomicBoolean();
 
-        ResourceHandlingHttpChannel(RestChannel delegate, CircuitBreakerService circuitBreakerService, int contentLength) {
+        ResourceHandlingHttpChannel(RestChannel delegate, CircuitBreakerService circuitBreakerService, int contentLength,
+                                    RequestHandlerStats.Tracker statsTracker) {
             this.delegate = delegate;
             this.circuitBreakerService = circuitBreakerService;
             this.contentLength = contentLength;
+            this.statsTracker = statsTracker;
         }
 
         @Override
@@ -568,6 +588,7 @@ public class RestController implements HttpServerTransport.Dispatcher {
                 throw new IllegalStateException("Channel is already closed");
             }
             inFlightRequestsBreaker(circuitBreakerService).addWithoutBreaking(-contentLength);
+            statsTracker.recordLatency(System.nanoTime() - startNanos);
         }
 
     }
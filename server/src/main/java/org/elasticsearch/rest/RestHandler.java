@@ -51,7 +51,9 @@ public interface RestHandler {
      * Indicates if the RestHandler supports working with pooled buffers. If the request handler will not escape the return
      * {@link RestRequest#content()} or any buffers extracted from it then there is no need to make a copies of any pooled buffers in the
      * {@link RestRequest} instance before passing a request to this handler. If this instance does not support pooled/unsafe buffers
-     * {@link RestRequest#ensureSafeBuffers()} should be called on any request before passing it to {@link #handleRequest}.
+     * {@link RestRequest#ensureSafeBuffers()} should be called on any request before passing it to {@link #handleRequest}. Handlers
+     * that pass buffers extracted from the content on to an action must hold on to {@link RestRequest#retainedContent()} until the
+     * action completes.
      *
      * @return true iff the handler supports requests that make use of pooled buffers
      */
@@ -16,6 +16,7 @@ import org.elasticsearch.core.Nullable;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
 import org.elasticsearch.core.Tuple;
 import org.elasticsearch.core.RestApiVersion;
 import org.elasticsearch.common.unit.ByteSizeValue;
@@ -237,6 +238,17 @@ public class RestRequest implements ToXContent.Params {
         return httpRequest.content();
     }
 
+    /**
+     * Returns the {@link #content()} of this request as a reference that must be closed once it is no longer needed. Until then the
+     * pooled buffers backing the content are not released, not even once the response was sent. Handlers that
+     * {@link RestHandler#allowsUnsafeBuffers() allow unsafe buffers} and hand slices of the content to an action use this to keep the
+     * content alive until the action completes instead of copying it.
+     */
+    public ReleasableBytesReference retainedContent() {
+        this.contentConsumed = true;
+        return httpRequest.retainedContent();
+    }
+
     /**
      * @return content of the request body or throw an exception if the body or content type is missing
      */
@@ -8,12 +8,14 @@
 
 package org.elasticsearch.rest.action.document;
 
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkShardRequest;
 import org.elasticsearch.action.support.ActiveShardCount;
 import org.elasticsearch.client.Requests;
 import org.elasticsearch.client.node.NodeClient;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
 import org.elasticsearch.core.RestApiVersion;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.rest.BaseRestHandler;
@@ -87,7 +89,11 @@ public class RestBulkAction extends BaseRestHandler {
             defaultFetchSourceContext, defaultPipeline, defaultRequireAlias, allowExplicitIndex, request.getXContentType(),
             request.getRestApiVersion());
 
-        return channel -> client.bulk(bulkRequest, new RestStatusToXContentListener<>(channel));
+        return channel -> {
+            // the sources of the items are slices of the content so it must stay around until the bulk request completes
+            final ReleasableBytesReference content = request.retainedContent();
+            client.bulk(bulkRequest, ActionListener.runAfter(new RestStatusToXContentListener<>(channel), content::close));
+        };
     }
 
     @Override
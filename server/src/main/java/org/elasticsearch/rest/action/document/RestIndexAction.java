@@ -9,11 +9,13 @@
 package org.elasticsearch.rest.action.document;
 
 import org.elasticsearch.Version;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.support.ActiveShardCount;
 import org.elasticsearch.client.node.NodeClient;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
 import org.elasticsearch.core.RestApiVersion;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.rest.BaseRestHandler;
@@ -146,8 +148,17 @@ public class RestIndexAction extends BaseRestHandler {
             indexRequest.opType(sOpType);
         }
 
-        return channel ->
-                client.index(indexRequest, new RestStatusToXContentListener<>(channel, r -> r.getLocation(indexRequest.routing())));
+        return channel -> {
+            // the source is the content itself so it must stay around until the index request completes
+            final ReleasableBytesReference content = request.retainedContent();
+            client.index(indexRequest, ActionListener.runAfter(
+                new RestStatusToXContentListener<>(channel, r -> r.getLocation(indexRequest.routing())), content::close));
+        };
+    }
+
+    @Override
+    public boolean allowsUnsafeBuffers() {
+        return true;
     }
 
 }
@@ -97,4 +97,8 @@ public class RestUpdateAction extends BaseRestHandler {
                 client.update(updateRequest, new RestStatusToXContentListener<>(channel, r -> r.getLocation(updateRequest.routing())));
     }
 
+    @Override
+    public boolean allowsUnsafeBuffers() {
+        return true;
+    }
 }
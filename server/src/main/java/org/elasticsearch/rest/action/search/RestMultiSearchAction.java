@@ -173,4 +173,9 @@ public class RestMultiSearchAction extends BaseRestHandler {
     protected Set<String> responseParams() {
         return RESPONSE_PARAMS;
     }
+
+    @Override
+    public boolean allowsUnsafeBuffers() {
+        return true;
+    }
 }
@@ -13,15 +13,24 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.grouping.CollapseTopFieldDocs;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.ActionRunnable;
 import org.elasticsearch.action.OriginalIndices;
+import org.elasticsearch.action.search.CanMatchNodeRequest;
+import org.elasticsearch.action.search.CanMatchNodeResponse;
+import org.elasticsearch.action.search.QueryNodeRequest;
+import org.elasticsearch.action.search.QueryNodeResponse;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchShardTask;
 import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.action.search.ShardSearchNodeResponse.ResponseOrFailure;
 import org.elasticsearch.action.support.TransportActions;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.routing.ShardRouting;
@@ -37,6 +46,7 @@ import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.core.Releasable;
 import org.elasticsearch.core.Releasables;
 import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.common.lucene.search.TopDocsAndMaxScore;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
 import org.elasticsearch.common.settings.Settings;
@@ -45,6 +55,7 @@ import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.CollectionUtils;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.ConcurrentMapLong;
+import org.elasticsearch.common.util.concurrent.CountDown;
 import org.elasticsearch.core.internal.io.IOUtils;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexNotFoundException;
@@ -74,6 +85,7 @@ import org.elasticsearch.search.aggregations.AggregationInitializationException;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
+import org.elasticsearch.search.aggregations.InternalAggregations;
 import org.elasticsearch.search.aggregations.MultiBucketConsumerService;
 import org.elasticsearch.search.aggregations.SearchContextAggregations;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator.PipelineTree;
@@ -121,7 +133,10 @@ import org.elasticsearch.threadpool.ThreadPool.Names;
 import org.elasticsearch.transport.TransportRequest;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -174,6 +189,18 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         Property.NodeScope
     );
 
+    /**
+     * The number of tasks that a deferred sub-aggregation may run on the search_worker thread pool to select the
+     * documents it replays in several segments at once. {@code 0} replays on the calling thread only.
+     */
+    public static final Setting<Integer> AGGS_DEFERRED_REPLAY_HELPERS = Setting.intSetting(
+        "search.aggs.deferred_replay_helpers",
+        0,
+        0,
+        Property.Dynamic,
+        Property.NodeScope
+    );
+
     public static final Setting<ByteSizeValue> MAX_ASYNC_SEARCH_RESPONSE_SIZE_SETTING = Setting.byteSizeSetting(
         "search.max_async_search_response_size",
         new ByteSizeValue(10, ByteSizeUnit.MB),
@@ -218,6 +245,8 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
 
     private volatile boolean enableRewriteAggsToFilterByFilter;
 
+    private volatile int aggsDeferredReplayHelpers;
+
     private final Cancellable keepAliveReaper;
 
     private final AtomicLong idGenerator = new AtomicLong();
@@ -270,6 +299,9 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         enableRewriteAggsToFilterByFilter = ENABLE_REWRITE_AGGS_TO_FILTER_BY_FILTER.get(settings);
         clusterService.getClusterSettings()
             .addSettingsUpdateConsumer(ENABLE_REWRITE_AGGS_TO_FILTER_BY_FILTER, this::setEnableRewriteAggsToFilterByFilter);
+
+        aggsDeferredReplayHelpers = AGGS_DEFERRED_REPLAY_HELPERS.get(settings);
+        clusterService.getClusterSettings().addSettingsUpdateConsumer(AGGS_DEFERRED_REPLAY_HELPERS, this::setAggsDeferredReplayHelpers);
     }
 
     private void validateKeepAlives(TimeValue defaultKeepAlive, TimeValue maxKeepAlive) {
@@ -310,6 +342,10 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         this.enableRewriteAggsToFilterByFilter = enableRewriteAggsToFilterByFilter;
     }
 
+    private void setAggsDeferredReplayHelpers(int aggsDeferredReplayHelpers) {
+        this.aggsDeferredReplayHelpers = aggsDeferredReplayHelpers;
+    }
+
     @Override
     public void afterIndexRemoved(Index index, IndexSettings indexSettings, IndexRemovalReason reason) {
         // once an index is removed due to deletion or closing, we can just clean up all the pending search context information
@@ -393,6 +429,7 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
     private void loadOrExecuteQueryPhase(final ShardSearchRequest request, final SearchContext context) throws Exception {
         final boolean canCache = indicesService.canCache(request, context);
         context.getSearchExecutionContext().freezeContext();
+        context.queryResult().cacheable(context.getSearchExecutionContext().isCacheable());
         if (canCache) {
             indicesService.loadIntoContext(request, context, queryPhase);
         } else {
@@ -426,6 +463,167 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         }));
     }
 
+    /**
+     * Executes the query phase on all the shards of the provided node level request, at most
+     * {@link QueryNodeRequest#getMaxConcurrentShardRequests()} at a time, and partially reduces the results of the shards
+     * before returning them: the aggregations are merged into the result of a single shard and the top docs of each shard
+     * are trimmed to the ones that are competitive on this node.
+     */
+    public void executeQueryPhase(QueryNodeRequest request, SearchShardTask task, ActionListener<QueryNodeResponse> listener) {
+        final List<ShardSearchRequest> shardSearchRequests = request.getShardLevelRequests();
+        @SuppressWarnings("unchecked")
+        final ResponseOrFailure<QuerySearchResult>[] responses = new ResponseOrFailure[shardSearchRequests.size()];
+        final CountDown countDown = new CountDown(responses.length);
+        final AtomicInteger nextShard = new AtomicInteger();
+        final Runnable executeNextShard = new Runnable() {
+            @Override
+            public void run() {
+                final int index = nextShard.getAndIncrement();
+                if (index >= responses.length) {
+                    return;
+                }
+                final ShardSearchRequest shardSearchRequest = shardSearchRequests.get(index);
+                assert shardSearchRequest.numberOfShards() > 1 : "single shard searches fetch in the query phase";
+                final ActionListener<SearchPhaseResult> shardListener = new ActionListener<>() {
+                    @Override
+                    public void onResponse(SearchPhaseResult result) {
+                        onShardResponse(new ResponseOrFailure<>(result.queryResult()));
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        onShardResponse(new ResponseOrFailure<>(e));
+                    }
+
+                    private void onShardResponse(ResponseOrFailure<QuerySearchResult> response) {
+                        responses[index] = response;
+                        if (countDown.countDown()) {
+                            reduceNodeResults(shardSearchRequests, responses);
+                            listener.onResponse(new QueryNodeResponse(Arrays.asList(responses)));
+                        } else {
+                            run();
+                        }
+                    }
+                };
+                try {
+                    executeQueryPhase(shardSearchRequest, task, shardListener);
+                } catch (Exception e) {
+                    shardListener.onFailure(e);
+                }
+            }
+        };
+        for (int i = 0; i < Math.min(request.getMaxConcurrentShardRequests(), responses.length); i++) {
+            executeNextShard.run();
+        }
+    }
+
+    private void reduceNodeResults(List<ShardSearchRequest> shardSearchRequests, ResponseOrFailure<QuerySearchResult>[] responses) {
+        final List<Integer> successful = new ArrayList<>();
+        for (int i = 0; i < responses.length; i++) {
+            final QuerySearchResult result = responses[i].getResponse();
+            if (result != null && result.isNull() == false) {
+                successful.add(i);
+            }
+        }
+        if (successful.size() <= 1) {
+            return;
+        }
+        // order the shards like the coordinating node does so that ties are broken the same way
+        successful.sort(Comparator.comparingInt(i -> shardSearchRequests.get(i).shardRequestIndex()));
+        final List<QuerySearchResult> results = new ArrayList<>(successful.size());
+        for (int i : successful) {
+            results.add(responses[i].getResponse());
+        }
+        final SearchSourceBuilder source = shardSearchRequests.get(successful.get(0)).source();
+        try {
+            if (source != null && source.aggregations() != null) {
+                reduceNodeAggregations(source, results);
+            }
+            if (source == null || source.collapse() == null) {
+                trimNodeTopDocs(results);
+            }
+        } catch (Exception e) {
+            logger.debug("failed to reduce the query results of the node", e);
+            // the search contexts of the shards will never be used by the coordinating node
+            for (int i : successful) {
+                final QuerySearchResult result = responses[i].getResponse();
+                if (result.hasSearchContext()) {
+                    freeReaderContext(result.getContextId());
+                }
+                result.consumeAll();
+                responses[i] = new ResponseOrFailure<>(e);
+            }
+        }
+    }
+
+    private void reduceNodeAggregations(SearchSourceBuilder source, List<QuerySearchResult> results) {
+        final List<InternalAggregations> aggregations = new ArrayList<>(results.size());
+        for (QuerySearchResult result : results) {
+            if (result.aggregations() != null) {
+                aggregations.add(result.consumeAggs());
+            }
+        }
+        final ReduceContext reduceContext = ReduceContext.forPartialReduction(bigArrays, scriptService,
+            () -> source.aggregations().buildPipelineTree());
+        final InternalAggregations reduced = InternalAggregations.topLevelReduce(aggregations, reduceContext);
+        // the coordinating node expects aggregations from every shard, the empty ones are ignored by the reduction
+        results.get(0).aggregations(reduced);
+        for (int i = 1; i < results.size(); i++) {
+            results.get(i).aggregations(InternalAggregations.EMPTY);
+        }
+    }
+
+    /**
+     * Keeps only the top docs of each shard that are part of the top docs of the node, since other top docs cannot make it to the
+     * top docs of the search.
+     */
+    private static void trimNodeTopDocs(List<QuerySearchResult> results) {
+        final TopDocs[] shardTopDocs = new TopDocs[results.size()];
+        int topN = 0;
+        for (int i = 0; i < shardTopDocs.length; i++) {
+            final QuerySearchResult result = results.get(i);
+            if (result.hasConsumedTopDocs() || result.topDocs().topDocs instanceof CollapseTopFieldDocs) {
+                return;
+            }
+            shardTopDocs[i] = result.topDocs().topDocs;
+            topN = Math.max(topN, result.from() + result.size());
+        }
+        final TopDocs merged;
+        if (shardTopDocs[0] instanceof TopFieldDocs) {
+            final TopFieldDocs[] shardTopFieldDocs = new TopFieldDocs[shardTopDocs.length];
+            for (int i = 0; i < shardTopDocs.length; i++) {
+                if (shardTopDocs[i] instanceof TopFieldDocs == false) {
+                    return;
+                }
+                shardTopFieldDocs[i] = (TopFieldDocs) shardTopDocs[i];
+            }
+            merged = TopDocs.merge(new Sort(shardTopFieldDocs[0].fields), 0, topN, shardTopFieldDocs, true);
+        } else {
+            merged = TopDocs.merge(0, topN, shardTopDocs, true);
+        }
+        final List<List<ScoreDoc>> competitiveDocs = new ArrayList<>(shardTopDocs.length);
+        for (int i = 0; i < shardTopDocs.length; i++) {
+            competitiveDocs.add(new ArrayList<>());
+        }
+        for (ScoreDoc scoreDoc : merged.scoreDocs) {
+            competitiveDocs.get(scoreDoc.shardIndex).add(scoreDoc);
+            // the coordinating node sets the shard index
+            scoreDoc.shardIndex = -1;
+        }
+        for (int i = 0; i < shardTopDocs.length; i++) {
+            final QuerySearchResult result = results.get(i);
+            final TopDocs topDocs = shardTopDocs[i];
+            final ScoreDoc[] scoreDocs = competitiveDocs.get(i).toArray(ScoreDoc[]::new);
+            if (scoreDocs.length == topDocs.scoreDocs.length) {
+                continue;
+            }
+            final TopDocs trimmed = topDocs instanceof TopFieldDocs
+                ? new TopFieldDocs(topDocs.totalHits, scoreDocs, ((TopFieldDocs) topDocs).fields)
+                : new TopDocs(topDocs.totalHits, scoreDocs);
+            result.topDocs(new TopDocsAndMaxScore(trimmed, result.topDocs().maxScore), result.sortValueFormats());
+        }
+    }
+
     private IndexShard getShard(ShardSearchRequest request) {
         final ShardSearchContextId contextId = request.readerId();
         if (contextId != null) {
@@ -999,8 +1197,13 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
                 context.indexShard().shardId().hashCode(),
                 context::getRelativeTimeInMillis,
                 context::isCancelled,
+                context.minimumScore(),
                 context::buildFilteredQuery,
-                enableRewriteAggsToFilterByFilter
+                enableRewriteAggsToFilterByFilter,
+                context.readerContext(),
+                source.runtimeMappings(),
+                aggsDeferredReplayHelpers == 0 ? null : threadPool.executor(Names.SEARCH_WORKER),
+                aggsDeferredReplayHelpers
             );
             context.addReleasable(aggContext);
             try {
@@ -1219,6 +1422,23 @@ public class SearchService extends AbstractLifecycleComponent implements IndexEv
         }
     }
 
+    /**
+     * Checks whether the search can match documents on each of the shards of the provided node level request. The shards are
+     * evaluated one after the other and a failure on a shard is reported in the response rather than failing the whole request.
+     */
+    public void canMatch(CanMatchNodeRequest request, ActionListener<CanMatchNodeResponse> listener) {
+        final List<ShardSearchRequest> shardSearchRequests = request.getShardLevelRequests();
+        final List<ResponseOrFailure<CanMatchResponse>> responses = new ArrayList<>(shardSearchRequests.size());
+        for (ShardSearchRequest shardSearchRequest : shardSearchRequests) {
+            try {
+                responses.add(new ResponseOrFailure<>(canMatch(shardSearchRequest)));
+            } catch (Exception e) {
+                responses.add(new ResponseOrFailure<>(e));
+            }
+        }
+        listener.onResponse(new CanMatchNodeResponse(responses));
+    }
+
     /**
      * This method uses a lightweight searcher without wrapping (i.e., not open a full reader on frozen indices) to rewrite the query
      * to check if the query can match any documents. This method can have false positives while if it returns {@code false} the query
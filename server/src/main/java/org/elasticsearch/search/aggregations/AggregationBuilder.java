@@ -174,6 +174,15 @@ public abstract class AggregationBuilder
         return DEFAULT_PREALLOCATION;
     }
 
+    /**
+     * Whether the results of this aggregation can be scaled up to estimate the results on all matching documents
+     * when it is collected on a random sample of them, see {@link InternalAggregation#finalizeSampling}. Aggregations
+     * that don't support it can't be used under a {@code random_sampler} aggregation.
+     */
+    public boolean supportsSampling() {
+        return false;
+    }
+
     /** Common xcontent fields shared among aggregator builders */
     public static final class CommonFields extends ParseField.CommonFields {
         public static final ParseField VALUE_TYPE = new ParseField("value_type");
@@ -22,6 +22,7 @@ import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.index.query.QueryRewriteContext;
 import org.elasticsearch.index.query.Rewriteable;
 import org.elasticsearch.search.aggregations.bucket.global.GlobalAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.sampler.random.RandomSamplerAggregationBuilder;
 import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregationBuilder;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator.PipelineTree;
@@ -329,6 +330,13 @@ public class AggregatorFactories {
             for (AggregationBuilder agg : aggregationBuilders) {
                 PipelineAggregationBuilder.ValidationContext context =
                         PipelineAggregationBuilder.ValidationContext.forInsideTree(agg, e);
+                for (AggregationBuilder sub : agg.factoriesBuilder.aggregationBuilders) {
+                    if (sub instanceof RandomSamplerAggregationBuilder) {
+                        context.addValidationError("Aggregation [" + agg.getName() + "] cannot have a "
+                            + RandomSamplerAggregationBuilder.NAME + " sub-aggregation [" + sub.getName()
+                            + "]. Random sampler aggregations can only be defined as top level aggregations");
+                    }
+                }
                 agg.factoriesBuilder.validatePipelines(context);
                 e = agg.factoriesBuilder.validateChildren(context.getValidationException());
             }
@@ -0,0 +1,72 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations;
+
+import java.io.IOException;
+
+/**
+ * A {@link LeafBucketCollector} that buffers the documents that are collected
+ * in the same bucket and collects them in blocks with
+ * {@link #collect(int[], int, long)}. A block is collected when it is full,
+ * when a document is collected in another bucket or when {@link #flush()} is
+ * called. The aggregator must flush the collector once the segment has been
+ * collected, typically when it moves on to the next segment and in
+ * {@link Aggregator#postCollection()}.
+ * <p>
+ * Documents can only be buffered if their values don't depend on the current
+ * position of the scorer, so collectors that need scores should pass
+ * {@code false} for {@code buffer} which collects each document immediately.
+ */
+public abstract class BlockLeafBucketCollector extends LeafBucketCollectorBase {
+    /**
+     * The maximum number of documents in a block.
+     */
+    public static final int BLOCK_SIZE = 128;
+
+    private final int[] docs;
+    private int count = 0;
+    private long bucket = -1;
+
+    /**
+     * @param sub    The leaf collector for sub aggregations.
+     * @param values The values. {@link org.elasticsearch.common.lucene.ScorerAware#setScorer} will be called automatically on them
+     *               if they implement {@link org.elasticsearch.common.lucene.ScorerAware}.
+     * @param buffer Whether documents should be buffered into blocks, or collected immediately.
+     */
+    protected BlockLeafBucketCollector(LeafBucketCollector sub, Object values, boolean buffer) {
+        super(sub, values);
+        this.docs = new int[buffer ? BLOCK_SIZE : 1];
+    }
+
+    @Override
+    public final void collect(int doc, long owningBucketOrd) throws IOException {
+        if (count > 0 && owningBucketOrd != bucket) {
+            flush();
+        }
+        bucket = owningBucketOrd;
+        docs[count++] = doc;
+        if (count == docs.length) {
+            flush();
+        }
+    }
+
+    @Override
+    public abstract void collect(int[] docs, int count, long owningBucketOrd) throws IOException;
+
+    /**
+     * Collect the buffered documents.
+     */
+    public final void flush() throws IOException {
+        if (count > 0) {
+            final int toCollect = count;
+            count = 0;
+            collect(docs, toCollect, bucket);
+        }
+    }
+}
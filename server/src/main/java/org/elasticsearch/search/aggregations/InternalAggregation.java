@@ -18,6 +18,7 @@ import org.elasticsearch.script.ScriptService;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator.PipelineTree;
 import org.elasticsearch.search.aggregations.support.AggregationPath;
+import org.elasticsearch.search.aggregations.support.SamplingContext;
 
 import java.io.IOException;
 import java.util.Iterator;
@@ -194,6 +195,18 @@ public abstract class InternalAggregation implements Aggregation, NamedWriteable
      */
     public void forEachBucket(Consumer<InternalAggregations> consumer) {}
 
+    /**
+     * Scales the results of this aggregation, which were computed on a random sample of the
+     * matching documents, so that they estimate the results on all matching documents. Only
+     * called on fully reduced aggregations. The default implementation returns this
+     * aggregation because most results, like averages or extrema, do not depend on the number
+     * of documents. Aggregations that count or sum must override it before their builder
+     * reports that it {@link AggregationBuilder#supportsSampling() supports sampling}.
+     */
+    public InternalAggregation finalizeSampling(SamplingContext samplingContext) {
+        return this;
+    }
+
     /**
      * Creates the output from all pipeline aggs that this aggregation is associated with.  Should only
      * be called after all aggregations have been fully reduced
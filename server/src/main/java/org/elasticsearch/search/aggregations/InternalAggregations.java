@@ -14,6 +14,7 @@ import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.pipeline.SiblingPipelineAggregator;
 import org.elasticsearch.search.aggregations.support.AggregationPath;
+import org.elasticsearch.search.aggregations.support.SamplingContext;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -121,6 +122,16 @@ public final class InternalAggregations extends Aggregations implements Writeabl
         return reduced;
     }
 
+    /**
+     * Scales all the aggregations, see {@link InternalAggregation#finalizeSampling(SamplingContext)}.
+     */
+    public InternalAggregations finalizeSampling(SamplingContext samplingContext) {
+        if (samplingContext.isSampled() == false) {
+            return this;
+        }
+        return from(getInternalAggregations().stream().map(agg -> agg.finalizeSampling(samplingContext)).collect(Collectors.toList()));
+    }
+
     /**
      * Reduces the given list of aggregations as well as the top-level pipeline aggregators extracted from the first
      * {@link InternalAggregations} object found in the list.
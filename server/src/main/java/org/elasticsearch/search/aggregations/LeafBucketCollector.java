@@ -71,6 +71,22 @@ public abstract class LeafBucketCollector implements LeafCollector {
      */
     public abstract void collect(int doc, long owningBucketOrd) throws IOException;
 
+    /**
+     * Collect the first {@code count} documents of {@code docs} in the bucket
+     * owned by {@code owningBucketOrd}. The documents belong to the segment
+     * of this collector and are in increasing order.
+     * <p>
+     * The default implementation collects the documents one at a time.
+     * Collectors that can load the values of a whole block of documents and
+     * aggregate them in a tight loop should override it, see
+     * {@link BlockLeafBucketCollector}.
+     */
+    public void collect(int[] docs, int count, long owningBucketOrd) throws IOException {
+        for (int i = 0; i < count; i++) {
+            collect(docs[i], owningBucketOrd);
+        }
+    }
+
     /**
      * Does this collector collect anything? If this returns true we can safely
      * just never call {@link #collect}.
@@ -19,8 +19,12 @@ import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.util.packed.PackedInts;
 import org.apache.lucene.util.packed.PackedLongValues;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.LongHash;
+import org.elasticsearch.common.util.concurrent.FutureUtils;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.BucketCollector;
 import org.elasticsearch.search.aggregations.InternalAggregation;
@@ -31,6 +35,9 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.LongUnaryOperator;
 
 /**
@@ -38,6 +45,11 @@ import java.util.function.LongUnaryOperator;
  * matches and then is able to replay a given subset of buckets which represent
  * the survivors from a pruning process performed by the aggregator that owns
  * this collector.
+ * <p>
+ * When it is given an executor, the collector selects the documents of the
+ * surviving buckets in several segments at once and only feeds them to the
+ * deferred collectors, which aren't thread safe, on the calling thread. The
+ * copies of the selected documents are accounted on the provided breaker.
  */
 public class BestBucketsDeferringCollector extends DeferringBucketCollector {
     static class Entry {
@@ -50,11 +62,18 @@ public class BestBucketsDeferringCollector extends DeferringBucketCollector {
             this.docDeltas = Objects.requireNonNull(docDeltas);
             this.buckets = Objects.requireNonNull(buckets);
         }
+
+        long ramBytesUsed() {
+            return docDeltas.ramBytesUsed() + buckets.ramBytesUsed();
+        }
     }
 
     private final Query topLevelQuery;
     private final IndexSearcher searcher;
     private final boolean isGlobal;
+    private final Executor replayExecutor;
+    private final int replayHelpers;
+    private final CircuitBreaker breaker;
 
     private List<Entry> entries = new ArrayList<>();
     private BucketCollector collector;
@@ -69,9 +88,24 @@ public class BestBucketsDeferringCollector extends DeferringBucketCollector {
      * @param isGlobal Whether this collector visits all documents (global context)
      */
     public BestBucketsDeferringCollector(Query topLevelQuery, IndexSearcher searcher, boolean isGlobal) {
+        this(topLevelQuery, searcher, isGlobal, null, 0, new NoopCircuitBreaker(CircuitBreaker.REQUEST));
+    }
+
+    /**
+     * Build the collector.
+     * @param isGlobal Whether this collector visits all documents (global context)
+     * @param replayExecutor Executor on which up to {@code replayHelpers} tasks select the documents to replay
+     *                       while the calling thread replays them, or {@code null} to do everything on the calling thread
+     * @param breaker Breaker that accounts for the copies of the documents selected by the {@code replayHelpers}
+     */
+    public BestBucketsDeferringCollector(Query topLevelQuery, IndexSearcher searcher, boolean isGlobal,
+                                         @Nullable Executor replayExecutor, int replayHelpers, CircuitBreaker breaker) {
         this.topLevelQuery = topLevelQuery;
         this.searcher = searcher;
         this.isGlobal = isGlobal;
+        this.replayExecutor = replayExecutor;
+        this.replayHelpers = replayHelpers;
+        this.breaker = Objects.requireNonNull(breaker);
     }
 
     @Override
@@ -165,44 +199,127 @@ public class BestBucketsDeferringCollector extends DeferringBucketCollector {
             weight = searcher.createWeight(searcher.rewrite(query), ScoreMode.COMPLETE, 1f);
         }
 
-        for (Entry entry : entries) {
-            assert entry.docDeltas.size() > 0 : "segment should have at least one document to replay, got 0";
+        int helpers = replayExecutor == null ? 0 : Math.min(replayHelpers, entries.size() - 1);
+        if (helpers <= 0) {
+            for (Entry entry : entries) {
+                replay(entry, weight, this.selectedBuckets::find);
+            }
+        } else {
+            List<FutureTask<Entry>> selections = new ArrayList<>(entries.size());
+            for (Entry entry : entries) {
+                selections.add(new FutureTask<>(() -> select(entry)));
+            }
+            /*
+             * Helpers select the documents of the segments that the calling thread hasn't reached yet. Running
+             * a selection that is already running or done is a noop so the calling thread never waits on a
+             * helper that hasn't started: it runs the selection itself.
+             */
+            Runnable helper = () -> {
+                for (FutureTask<Entry> selection : selections) {
+                    selection.run();
+                }
+            };
+            /*
+             * The helpers may select all segments before the calling thread replays the first one, so the copies
+             * of all segments can be alive at once. A copy holds at most as many values as the recorded documents
+             * of its segment so their size is reserved up front and released as each segment is replayed.
+             */
+            long reserved = 0;
+            for (Entry entry : entries) {
+                reserved += entry.ramBytesUsed();
+            }
+            breaker.addEstimateBytesAndMaybeBreak(reserved, "<deferred replay>");
             try {
-                final LeafBucketCollector leafCollector = collector.getLeafCollector(entry.context);
-                DocIdSetIterator scoreIt = null;
-                if (needsScores) {
-                    Scorer scorer = weight.scorer(entry.context);
-                    // We don't need to check if the scorer is null
-                    // since we are sure that there are documents to replay (entry.docDeltas it not empty).
-                    scoreIt = scorer.iterator();
-                    leafCollector.setScorer(scorer);
+                try {
+                    for (int i = 0; i < helpers; i++) {
+                        replayExecutor.execute(helper);
+                    }
+                } catch (RejectedExecutionException e) {
+                    // the executor is busy, we'll do the work ourselves
                 }
-                final PackedLongValues.Iterator docDeltaIterator = entry.docDeltas.iterator();
-                final PackedLongValues.Iterator buckets = entry.buckets.iterator();
-                int doc = 0;
-                for (long i = 0, end = entry.docDeltas.size(); i < end; ++i) {
-                    doc += docDeltaIterator.next();
-                    final long bucket = buckets.next();
-                    final long rebasedBucket = this.selectedBuckets.find(bucket);
-                    if (rebasedBucket != -1) {
-                        if (needsScores) {
-                            if (scoreIt.docID() < doc) {
-                                scoreIt.advance(doc);
-                            }
-                            // aggregations should only be replayed on matching documents
-                            assert scoreIt.docID() == doc;
-                        }
-                        leafCollector.collect(doc, rebasedBucket);
+                for (int i = 0; i < selections.size(); i++) {
+                    FutureTask<Entry> selection = selections.get(i);
+                    selection.run();
+                    Entry selected = FutureUtils.get(selection);
+                    if (selected != null) {
+                        // the buckets of the selected documents are already rebased
+                        replay(selected, weight, LongUnaryOperator.identity());
                     }
+                    long released = entries.get(i).ramBytesUsed();
+                    breaker.addWithoutBreaking(-released);
+                    reserved -= released;
                 }
-            } catch (CollectionTerminatedException e) {
-                // collection was terminated prematurely
-                // continue with the following leaf
+            } finally {
+                breaker.addWithoutBreaking(-reserved);
             }
         }
         collector.postCollection();
     }
 
+    /**
+     * Keep only the documents of a segment that belong to the selected buckets
+     * and rebase their buckets. This doesn't modify any state so it can run
+     * on several segments at once.
+     *
+     * @return the selected documents or {@code null} if there aren't any
+     */
+    private Entry select(Entry entry) {
+        PackedLongValues.Builder docDeltas = PackedLongValues.packedBuilder(PackedInts.DEFAULT);
+        PackedLongValues.Builder buckets = PackedLongValues.packedBuilder(PackedInts.DEFAULT);
+        PackedLongValues.Iterator docDeltaIterator = entry.docDeltas.iterator();
+        PackedLongValues.Iterator bucketIterator = entry.buckets.iterator();
+        long delta = 0;
+        for (long i = 0, end = entry.docDeltas.size(); i < end; ++i) {
+            delta += docDeltaIterator.next();
+            long rebasedBucket = selectedBuckets.find(bucketIterator.next());
+            if (rebasedBucket != -1) {
+                docDeltas.add(delta);
+                buckets.add(rebasedBucket);
+                delta = 0;
+            }
+        }
+        return buckets.size() == 0 ? null : new Entry(entry.context, docDeltas.build(), buckets.build());
+    }
+
+    /**
+     * Replay the documents of a segment whose bucket {@code rebase} maps to something other than {@code -1}.
+     */
+    private void replay(Entry entry, @Nullable Weight weight, LongUnaryOperator rebase) throws IOException {
+        assert entry.docDeltas.size() > 0 : "segment should have at least one document to replay, got 0";
+        try {
+            final LeafBucketCollector leafCollector = collector.getLeafCollector(entry.context);
+            DocIdSetIterator scoreIt = null;
+            if (weight != null) {
+                Scorer scorer = weight.scorer(entry.context);
+                // We don't need to check if the scorer is null
+                // since we are sure that there are documents to replay (entry.docDeltas it not empty).
+                scoreIt = scorer.iterator();
+                leafCollector.setScorer(scorer);
+            }
+            final PackedLongValues.Iterator docDeltaIterator = entry.docDeltas.iterator();
+            final PackedLongValues.Iterator buckets = entry.buckets.iterator();
+            int doc = 0;
+            for (long i = 0, end = entry.docDeltas.size(); i < end; ++i) {
+                doc += docDeltaIterator.next();
+                final long bucket = buckets.next();
+                final long rebasedBucket = rebase.applyAsLong(bucket);
+                if (rebasedBucket != -1) {
+                    if (weight != null) {
+                        if (scoreIt.docID() < doc) {
+                            scoreIt.advance(doc);
+                        }
+                        // aggregations should only be replayed on matching documents
+                        assert scoreIt.docID() == doc;
+                    }
+                    leafCollector.collect(doc, rebasedBucket);
+                }
+            }
+        } catch (CollectionTerminatedException e) {
+            // collection was terminated prematurely
+            // continue with the following leaf
+        }
+    }
+
     /**
      * Wrap the provided aggregator so that it behaves (almost) as if it had
      * been collected directly.
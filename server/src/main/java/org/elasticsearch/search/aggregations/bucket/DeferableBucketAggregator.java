@@ -28,11 +28,17 @@ public abstract class DeferableBucketAggregator extends BucketsAggregator {
      */
     private DeferringBucketCollector deferringCollector;
     private List<String> deferredAggregationNames;
+    private final AggregationContext context;
+    /**
+     * Time spent replaying the deferred aggregations, only measured when profiling.
+     */
+    private long replayNanos;
 
     protected DeferableBucketAggregator(String name, AggregatorFactories factories, AggregationContext context, Aggregator parent,
             Map<String, Object> metadata) throws IOException {
         // Assumes that we're collecting MANY buckets.
         super(name, factories, context, parent, CardinalityUpperBound.MANY, metadata);
+        this.context = context;
     }
 
     @Override
@@ -73,7 +79,22 @@ public abstract class DeferableBucketAggregator extends BucketsAggregator {
      * {#link {@link DeferringBucketCollector#prepareSelectedBuckets(long...)}.
      */
     protected DeferringBucketCollector buildDeferringCollector() {
-        return new BestBucketsDeferringCollector(topLevelQuery(), searcher(), descendsFromGlobalAggregator(parent()));
+        return bestBucketsDeferringCollector();
+    }
+
+    /**
+     * Build a {@link BestBucketsDeferringCollector} that replays on the
+     * executor configured for deferred aggregations if there is one.
+     */
+    protected final BestBucketsDeferringCollector bestBucketsDeferringCollector() {
+        return new BestBucketsDeferringCollector(
+            topLevelQuery(),
+            searcher(),
+            descendsFromGlobalAggregator(parent()),
+            context.deferredReplayExecutor(),
+            context.deferredReplayHelpers(),
+            context.breaker()
+        );
     }
 
     /**
@@ -92,7 +113,13 @@ public abstract class DeferableBucketAggregator extends BucketsAggregator {
     @Override
     protected final void prepareSubAggs(long[] bucketOrdsToCollect) throws IOException {
         if (deferringCollector != null) {
-            deferringCollector.prepareSelectedBuckets(bucketOrdsToCollect);
+            if (context.profiling()) {
+                long start = System.nanoTime();
+                deferringCollector.prepareSelectedBuckets(bucketOrdsToCollect);
+                replayNanos += System.nanoTime() - start;
+            } else {
+                deferringCollector.prepareSelectedBuckets(bucketOrdsToCollect);
+            }
         }
     }
 
@@ -100,6 +127,9 @@ public abstract class DeferableBucketAggregator extends BucketsAggregator {
     public void collectDebugInfo(BiConsumer<String, Object> add) {
         if (deferredAggregationNames != null) {
             add.accept("deferred_aggregators", deferredAggregationNames);
+            if (context.profiling()) {
+                add.accept("deferred_replay_time_in_nanos", replayNanos);
+            }
         }
         super.collectDebugInfo(add);
     }
@@ -15,6 +15,7 @@ import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.InternalAggregations;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator.PipelineTree;
 import org.elasticsearch.search.aggregations.support.AggregationPath;
+import org.elasticsearch.search.aggregations.support.SamplingContext;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -102,6 +103,11 @@ public abstract class InternalSingleBucketAggregation extends InternalAggregatio
         return newAggregation(getName(), docCount, aggs);
     }
 
+    @Override
+    public InternalAggregation finalizeSampling(SamplingContext samplingContext) {
+        return newAggregation(getName(), samplingContext.scaleUp(docCount), aggregations.finalizeSampling(samplingContext));
+    }
+
     /**
      * Amulti-bucket agg needs to first reduce the buckets and *their* pipelines
      * before allowing sibling pipelines to materialize.
@@ -245,6 +245,11 @@ public class AdjacencyMatrixAggregationBuilder extends AbstractAggregationBuilde
         return Objects.equals(filters, other.filters) && Objects.equals(separator, other.separator);
     }
 
+    @Override
+    public boolean supportsSampling() {
+        return true;
+    }
+
     @Override
     public String getType() {
         return NAME;
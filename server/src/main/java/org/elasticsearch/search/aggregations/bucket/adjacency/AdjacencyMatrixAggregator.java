@@ -9,8 +9,14 @@
 package org.elasticsearch.search.aggregations.bucket.adjacency;
 
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.BitSetIterator;
 import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
 import org.elasticsearch.common.xcontent.ParseField;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -36,6 +42,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.BiConsumer;
 
 import static org.elasticsearch.index.query.AbstractQueryBuilder.parseInnerQueryBuilder;
 
@@ -117,6 +124,19 @@ public class AdjacencyMatrixAggregator extends BucketsAggregator {
     private final int totalNumKeys;
     private final int totalNumIntersections;
     private final String separator;
+    /**
+     * Can we count the buckets from bitsets instead of collecting documents?
+     * That's only possible if we are at the top level and all we need is doc
+     * counts.
+     */
+    private final boolean countOnly;
+    /**
+     * The weight for the top level query or {@code null} if it matches all
+     * documents. Only built if we {@link #countOnly can count}.
+     */
+    private final Weight topLevelQuery;
+    private int segmentsCountedFromBitSets;
+    private int segmentsCollected;
 
     public AdjacencyMatrixAggregator(String name, AggregatorFactories factories, String separator, String[] keys,
             Weight[] filters, AggregationContext context, Aggregator parent, Map<String, Object> metadata) throws IOException {
@@ -126,15 +146,40 @@ public class AdjacencyMatrixAggregator extends BucketsAggregator {
         this.filters = filters;
         this.totalNumIntersections = ((keys.length * keys.length) - keys.length) / 2;
         this.totalNumKeys = keys.length + totalNumIntersections;
+        this.countOnly = parent == null && subAggregators.length == 0;
+        if (countOnly) {
+            Query query = context.searcher().rewrite(context.query());
+            this.topLevelQuery = query instanceof MatchAllDocsQuery
+                ? null
+                : context.searcher().createWeight(query, ScoreMode.COMPLETE_NO_SCORES, 1f);
+        } else {
+            this.topLevelQuery = null;
+        }
     }
 
     @Override
     public LeafBucketCollector getLeafCollector(LeafReaderContext ctx, final LeafBucketCollector sub) throws IOException {
-        // no need to provide deleted docs to the filter
+        final int maxDoc = ctx.reader().maxDoc();
         final Bits[] bits = new Bits[filters.length];
-        for (int i = 0; i < filters.length; ++i) {
-            bits[i] = Lucene.asSequentialAccessBits(ctx.reader().maxDoc(), filters[i].scorerSupplier(ctx));
+        if (countOnly && ctx.reader().getLiveDocs() == null && docCountProvider.alwaysOne()) {
+            Scorer[] scorers = new Scorer[filters.length];
+            for (int i = 0; i < filters.length; ++i) {
+                scorers[i] = filters[i].scorer(ctx);
+            }
+            if (countFromBitSets(ctx, scorers)) {
+                segmentsCountedFromBitSets++;
+                return LeafBucketCollector.NO_OP_COLLECTOR;
+            }
+            for (int i = 0; i < filters.length; ++i) {
+                bits[i] = Lucene.asSequentialAccessBits(maxDoc, scorers[i]);
+            }
+        } else {
+            // no need to provide deleted docs to the filter
+            for (int i = 0; i < filters.length; ++i) {
+                bits[i] = Lucene.asSequentialAccessBits(maxDoc, filters[i].scorerSupplier(ctx));
+            }
         }
+        segmentsCollected++;
         return new LeafBucketCollectorBase(sub, null) {
             @Override
             public void collect(int doc, long bucket) throws IOException {
@@ -164,6 +209,77 @@ public class AdjacencyMatrixAggregator extends BucketsAggregator {
         };
     }
 
+    /**
+     * Count the documents in each bucket by intersecting the bitsets that the
+     * query cache holds for the filters, a word at a time, rather than
+     * checking every filter for every document. Every document counts as one
+     * so this only works if the segment doesn't have deleted documents or a
+     * {@code _doc_count} field.
+     *
+     * @return {@code false} if any of the filters isn't cached as a bitset
+     */
+    private boolean countFromBitSets(LeafReaderContext ctx, Scorer[] scorers) throws IOException {
+        FixedBitSet[] bitSets = new FixedBitSet[scorers.length];
+        for (int i = 0; i < scorers.length; i++) {
+            if (scorers[i] == null) {
+                // Matches nothing in this segment
+                continue;
+            }
+            bitSets[i] = BitSetIterator.getFixedBitSetOrNull(scorers[i].iterator());
+            if (bitSets[i] == null) {
+                return false;
+            }
+        }
+        FixedBitSet query = null;
+        if (topLevelQuery != null) {
+            Scorer scorer = topLevelQuery.scorer(ctx);
+            if (scorer == null) {
+                // The top level query doesn't match anything in this segment
+                return true;
+            }
+            query = BitSetIterator.getFixedBitSetOrNull(scorer.iterator());
+            if (query == null) {
+                query = new FixedBitSet(ctx.reader().maxDoc());
+                query.or(scorer.iterator());
+            }
+        }
+        for (int i = 0; i < bitSets.length; i++) {
+            if (bitSets[i] != null) {
+                long count = query == null ? bitSets[i].cardinality() : FixedBitSet.intersectionCount(bitSets[i], query);
+                incrementBucketDocCount(bucketOrd(0, i), count);
+            }
+        }
+        int pos = bitSets.length;
+        for (int i = 0; i < bitSets.length; i++) {
+            for (int j = i + 1; j < bitSets.length; j++) {
+                if (bitSets[i] != null && bitSets[j] != null) {
+                    long count = query == null
+                        ? FixedBitSet.intersectionCount(bitSets[i], bitSets[j])
+                        : intersectionCount(bitSets[i], bitSets[j], query);
+                    incrementBucketDocCount(bucketOrd(0, pos), count);
+                }
+                pos++;
+            }
+        }
+        assert pos == bitSets.length + totalNumIntersections;
+        return true;
+    }
+
+    /**
+     * Count the documents in all three bitsets.
+     */
+    static long intersectionCount(FixedBitSet a, FixedBitSet b, FixedBitSet c) {
+        long[] aBits = a.getBits();
+        long[] bBits = b.getBits();
+        long[] cBits = c.getBits();
+        int numWords = FixedBitSet.bits2words(Math.min(a.length(), Math.min(b.length(), c.length())));
+        long count = 0;
+        for (int i = 0; i < numWords; i++) {
+            count += Long.bitCount(aBits[i] & bBits[i] & cBits[i]);
+        }
+        return count;
+    }
+
     @Override
     public InternalAggregation[] buildAggregations(long[] owningBucketOrds) throws IOException {
         // Buckets are ordered into groups - [keyed filters] [key1&key2 intersects]
@@ -226,6 +342,13 @@ public class AdjacencyMatrixAggregator extends BucketsAggregator {
         return new InternalAdjacencyMatrix(name, buckets, metadata());
     }
 
+    @Override
+    public void collectDebugInfo(BiConsumer<String, Object> add) {
+        super.collectDebugInfo(add);
+        add.accept("segments_counted_from_bitsets", segmentsCountedFromBitSets);
+        add.accept("segments_collected", segmentsCollected);
+    }
+
     final long bucketOrd(long owningBucketOrdinal, int filterOrd) {
         return owningBucketOrdinal * totalNumKeys + filterOrd;
     }
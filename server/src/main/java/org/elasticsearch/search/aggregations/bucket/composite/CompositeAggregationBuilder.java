@@ -8,6 +8,7 @@
 
 package org.elasticsearch.search.aggregations.bucket.composite;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.xcontent.ParseField;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -38,6 +39,7 @@ public class CompositeAggregationBuilder extends AbstractAggregationBuilder<Comp
     public static final ParseField AFTER_FIELD_NAME = new ParseField("after");
     public static final ParseField SIZE_FIELD_NAME = new ParseField("size");
     public static final ParseField SOURCES_FIELD_NAME = new ParseField("sources");
+    public static final ParseField EXHAUSTIVE_FIELD_NAME = new ParseField("exhaustive");
 
     public static final ConstructingObjectParser<CompositeAggregationBuilder, String> PARSER = new ConstructingObjectParser<>(
             NAME, false, (args, name) -> {
@@ -50,6 +52,7 @@ public class CompositeAggregationBuilder extends AbstractAggregationBuilder<Comp
             (p, c) -> CompositeValuesSourceParserHelper.fromXContent(p), SOURCES_FIELD_NAME);
         PARSER.declareInt(CompositeAggregationBuilder::size, SIZE_FIELD_NAME);
         PARSER.declareObject(CompositeAggregationBuilder::aggregateAfter, (p, context) -> p.map(), AFTER_FIELD_NAME);
+        PARSER.declareBoolean(CompositeAggregationBuilder::exhaustive, EXHAUSTIVE_FIELD_NAME);
     }
 
     public static void registerAggregators(ValuesSourceRegistry.Builder builder) {
@@ -63,6 +66,7 @@ public class CompositeAggregationBuilder extends AbstractAggregationBuilder<Comp
     private List<CompositeValuesSourceBuilder<?>> sources;
     private Map<String, Object> after;
     private int size = 10;
+    private boolean exhaustive = false;
 
     public CompositeAggregationBuilder(String name, List<CompositeValuesSourceBuilder<?>> sources) {
         super(name);
@@ -76,6 +80,7 @@ public class CompositeAggregationBuilder extends AbstractAggregationBuilder<Comp
         this.sources = new ArrayList<>(clone.sources);
         this.after = clone.after;
         this.size = clone.size;
+        this.exhaustive = clone.exhaustive;
     }
 
     @Override
@@ -95,6 +100,9 @@ public class CompositeAggregationBuilder extends AbstractAggregationBuilder<Comp
         if (in.readBoolean()) {
             this.after = in.readMap();
         }
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            this.exhaustive = in.readBoolean();
+        }
     }
 
     @Override
@@ -108,6 +116,14 @@ public class CompositeAggregationBuilder extends AbstractAggregationBuilder<Comp
         if (after != null) {
             out.writeMap(after);
         }
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeBoolean(exhaustive);
+        }
+    }
+
+    @Override
+    public boolean supportsSampling() {
+        return true;
     }
 
     @Override
@@ -146,6 +162,28 @@ public class CompositeAggregationBuilder extends AbstractAggregationBuilder<Comp
         return size;
     }
 
+    /**
+     * Set to {@code true} when all the pages of this aggregation will be retrieved. When
+     * the search runs against a point in time, the first page then sorts the keys of all
+     * the matching documents in a temporary file rather than keeping only the top buckets
+     * in memory, and the next pages are read from this file instead of re-executing the
+     * query on each shard. The file is deleted when the point in time is closed. Without
+     * a point in time the file couldn't be reused so the pages are collected as usual.
+     * Exhaustive composite aggregations must be at the top level and cannot have
+     * sub-aggregations. Defaults to {@code false}.
+     */
+    public CompositeAggregationBuilder exhaustive(boolean exhaustive) {
+        this.exhaustive = exhaustive;
+        return this;
+    }
+
+    /**
+     * @return whether all the pages of this aggregation will be retrieved. Defaults to {@code false}.
+     */
+    public boolean exhaustive() {
+        return exhaustive;
+    }
+
     @Override
     public BucketCardinality bucketCardinality() {
         /*
@@ -201,6 +239,16 @@ public class CompositeAggregationBuilder extends AbstractAggregationBuilder<Comp
             throw new IllegalArgumentException("[composite] aggregation cannot be used with a parent aggregation of" +
                 " type: [" + invalid.getClass().getSimpleName() + "]");
         }
+        if (exhaustive) {
+            if (parent != null) {
+                throw new IllegalArgumentException("[" + EXHAUSTIVE_FIELD_NAME.getPreferredName() + "] composite aggregations " +
+                    "must be at the top level");
+            }
+            if (subfactoriesBuilder.count() > 0) {
+                throw new IllegalArgumentException("[" + EXHAUSTIVE_FIELD_NAME.getPreferredName() + "] composite aggregations " +
+                    "cannot have sub-aggregations");
+            }
+        }
         CompositeValuesSourceConfig[] configs = new CompositeValuesSourceConfig[sources.size()];
         for (int i = 0; i < configs.length; i++) {
             configs[i] = sources.get(i).build(context);
@@ -234,7 +282,8 @@ public class CompositeAggregationBuilder extends AbstractAggregationBuilder<Comp
         } else {
             afterKey = null;
         }
-        return new CompositeAggregationFactory(name, context, parent, subfactoriesBuilder, metadata, size, configs, afterKey);
+        return new CompositeAggregationFactory(name, context, parent, subfactoriesBuilder, metadata, size, configs, afterKey,
+            exhaustive && context.pointInTime() ? sources : null);
     }
 
 
@@ -250,13 +299,16 @@ public class CompositeAggregationBuilder extends AbstractAggregationBuilder<Comp
         if (after != null) {
             CompositeAggregation.buildCompositeMap(AFTER_FIELD_NAME.getPreferredName(), after, builder);
         }
+        if (exhaustive) {
+            builder.field(EXHAUSTIVE_FIELD_NAME.getPreferredName(), exhaustive);
+        }
         builder.endObject();
         return builder;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(super.hashCode(), sources, size, after);
+        return Objects.hash(super.hashCode(), sources, size, after, exhaustive);
     }
 
     @Override
@@ -266,6 +318,7 @@ public class CompositeAggregationBuilder extends AbstractAggregationBuilder<Comp
         if (super.equals(obj) == false) return false;
         CompositeAggregationBuilder other = (CompositeAggregationBuilder) obj;
         return size == other.size &&
+            exhaustive == other.exhaustive &&
             Objects.equals(sources, other.sources) &&
             Objects.equals(after, other.after);
     }
@@ -15,25 +15,29 @@ import org.elasticsearch.search.aggregations.CardinalityUpperBound;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
 class CompositeAggregationFactory extends AggregatorFactory {
     private final int size;
     private final CompositeValuesSourceConfig[] sources;
     private final CompositeKey afterKey;
+    private final List<CompositeValuesSourceBuilder<?>> exhaustiveSources;
 
     CompositeAggregationFactory(String name, AggregationContext context, AggregatorFactory parent,
                                 AggregatorFactories.Builder subFactoriesBuilder, Map<String, Object> metadata,
-                                int size, CompositeValuesSourceConfig[] sources, CompositeKey afterKey) throws IOException {
+                                int size, CompositeValuesSourceConfig[] sources, CompositeKey afterKey,
+                                List<CompositeValuesSourceBuilder<?>> exhaustiveSources) throws IOException {
         super(name, context, parent, subFactoriesBuilder, metadata);
         this.size = size;
         this.sources = sources;
         this.afterKey = afterKey;
+        this.exhaustiveSources = exhaustiveSources;
     }
 
     @Override
     protected Aggregator createInternal(Aggregator parent, CardinalityUpperBound cardinality, Map<String, Object> metadata)
         throws IOException {
-        return new CompositeAggregator(name, factories, context, parent, metadata, size, sources, afterKey);
+        return new CompositeAggregator(name, factories, context, parent, metadata, size, sources, afterKey, exhaustiveSources);
     }
 }
@@ -33,6 +33,7 @@ import org.apache.lucene.search.comparators.LongComparator;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.RoaringDocIdSet;
 import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.core.RefCounted;
 import org.elasticsearch.core.Releasables;
 import org.elasticsearch.index.IndexSortConfig;
 import org.elasticsearch.search.DocValueFormat;
@@ -79,9 +80,18 @@ final class CompositeAggregator extends BucketsAggregator {
 
     private boolean earlyTerminated;
 
+    private final AggregationContext context;
+    // the sources of an exhaustive composite aggregation, null otherwise
+    private final List<CompositeValuesSourceBuilder<?>> exhaustiveSources;
+    private final CompositeKeyCursor.ValueType[] valueTypes;
+    private final byte[] encodedAfterKey;
+    private CompositeKeyCursor.Builder cursorBuilder;
+    private CompositeKeyCursor cursor;
+
     CompositeAggregator(String name, AggregatorFactories factories, AggregationContext context, Aggregator parent,
                         Map<String, Object> metadata,
-                        int size, CompositeValuesSourceConfig[] sourceConfigs, CompositeKey rawAfterKey) throws IOException {
+                        int size, CompositeValuesSourceConfig[] sourceConfigs, CompositeKey rawAfterKey,
+                        List<CompositeValuesSourceBuilder<?>> exhaustiveSources) throws IOException {
         super(name, factories, context, parent, CardinalityUpperBound.MANY, metadata);
         this.size = size;
         this.sourceNames = Arrays.stream(sourceConfigs).map(CompositeValuesSourceConfig::name).collect(Collectors.toList());
@@ -114,14 +124,28 @@ final class CompositeAggregator extends BucketsAggregator {
             }
         }
         this.rawAfterKey = rawAfterKey;
+        this.context = context;
+        this.exhaustiveSources = exhaustiveSources;
+        this.valueTypes = Arrays.stream(sources).map(CompositeKeyCursor.ValueType::of).toArray(CompositeKeyCursor.ValueType[]::new);
+        if (exhaustiveSources != null && rawAfterKey != null) {
+            this.encodedAfterKey = CompositeKeyCursor.encode(queue.parsedAfterKey(), valueTypes, reverseMuls);
+        } else {
+            this.encodedAfterKey = null;
+        }
     }
 
     @Override
     protected void doClose() {
         try {
-            Releasables.close(queue);
+            Releasables.close(queue, cursorBuilder);
         } finally {
-            Releasables.close(sources);
+            try {
+                Releasables.close(sources);
+            } finally {
+                if (cursor != null) {
+                    cursor.decRef();
+                }
+            }
         }
     }
 
@@ -129,17 +153,51 @@ final class CompositeAggregator extends BucketsAggregator {
     protected void doPreCollection() throws IOException {
         deferredCollectors = MultiBucketCollector.wrap(false, Arrays.asList(subAggregators));
         collectableSubAggregators = BucketCollector.NO_OP_COLLECTOR;
+        if (exhaustiveSources != null) {
+            RefCounted state = context.acquireReaderState(cursorStateKey());
+            if (state instanceof CompositeKeyCursor && ((CompositeKeyCursor) state).canResume(cursorIdentity(), encodedAfterKey)) {
+                // a previous page on the same point in time already sorted the keys that follow the after key
+                cursor = (CompositeKeyCursor) state;
+            } else {
+                if (state != null) {
+                    state.decRef();
+                }
+                cursorBuilder = new CompositeKeyCursor.Builder(context.tempDirectory(), bigArrays(), valueTypes, reverseMuls);
+            }
+        }
     }
 
     @Override
     protected void doPostCollection() throws IOException {
         finishLeaf();
+        if (cursorBuilder != null) {
+            cursor = cursorBuilder.build(cursorIdentity(), encodedAfterKey);
+            Releasables.close(cursorBuilder);
+            cursorBuilder = null;
+            context.putReaderState(cursorStateKey(), cursor);
+        }
+    }
+
+    private String cursorStateKey() {
+        return "composite_cursor[" + name + "]";
+    }
+
+    /**
+     * Identifies the keys that an exhaustive composite aggregation collects: they depend on the
+     * sources, on the runtime fields that they may read and on the query but not on the after
+     * key or on the size of the pages.
+     */
+    private Object cursorIdentity() {
+        return Arrays.asList(exhaustiveSources, context.runtimeMappings(), topLevelQuery());
     }
 
     @Override
     public InternalAggregation[] buildAggregations(long[] owningBucketOrds) throws IOException {
         // Composite aggregator must be at the top of the aggregation tree
         assert owningBucketOrds.length == 1 && owningBucketOrds[0] == 0L;
+        if (exhaustiveSources != null) {
+            return new InternalAggregation[] { buildPageFromCursor() };
+        }
         if (deferredCollectors != NO_OP_COLLECTOR) {
             // Replay all documents that contain at least one top bucket (collected during the first pass).
             runDeferredCollections();
@@ -166,6 +224,21 @@ final class CompositeAggregator extends BucketsAggregator {
         };
     }
 
+    /**
+     * Reads the page that follows the after key from the sorted keys of an exhaustive composite aggregation.
+     */
+    private InternalAggregation buildPageFromCursor() throws IOException {
+        if (cursor == null) {
+            return buildEmptyAggregation();
+        }
+        List<InternalComposite.InternalBucket> buckets = new ArrayList<>();
+        cursor.readPage(encodedAfterKey, size, (key, docCount) -> buckets.add(
+            new InternalComposite.InternalBucket(sourceNames, formats, key, reverseMuls, docCount, InternalAggregations.EMPTY)
+        ));
+        CompositeKey lastBucket = buckets.isEmpty() ? null : buckets.get(buckets.size() - 1).getRawKey();
+        return new InternalComposite(name, size, sourceNames, formats, buckets, lastBucket, reverseMuls, false, metadata());
+    }
+
     @Override
     public InternalAggregation buildEmptyAggregation() {
         return new InternalComposite(name, size, sourceNames, formats, Collections.emptyList(), null, reverseMuls,
@@ -377,6 +450,10 @@ final class CompositeAggregator extends BucketsAggregator {
     protected LeafBucketCollector getLeafCollector(LeafReaderContext ctx, LeafBucketCollector sub) throws IOException {
         finishLeaf();
 
+        if (exhaustiveSources != null) {
+            return getExhaustiveLeafCollector(ctx);
+        }
+
         boolean fillDocIdSet = deferredCollectors != NO_OP_COLLECTOR;
 
         Sort indexSortPrefix = buildIndexSortPrefix(ctx);
@@ -433,6 +510,38 @@ final class CompositeAggregator extends BucketsAggregator {
         }
     }
 
+    /**
+     * Adds the keys of all the matching documents that follow the after key to the cursor, or
+     * skips the collection entirely if a previous page on the same point in time built the cursor.
+     */
+    private LeafBucketCollector getExhaustiveLeafCollector(LeafReaderContext ctx) throws IOException {
+        if (cursorBuilder == null) {
+            // The cursor is reused so there is nothing to collect. Returning the noop collector rather than
+            // throwing lets the top level collector terminate the collection of the segment, see MultiBucketCollector.
+            return LeafBucketCollector.NO_OP_COLLECTOR;
+        }
+        final LeafBucketCollector inner;
+        try {
+            inner = queue.getLeafCollector(ctx, new LeafBucketCollector() {
+                @Override
+                public void collect(int doc, long bucket) throws IOException {
+                    if (queue.currentFollowsAfterKey()) {
+                        cursorBuilder.add(queue.currentToCompositeKey(), docCountProvider.getDocCount(doc));
+                    }
+                }
+            });
+        } catch (CollectionTerminatedException e) {
+            return LeafBucketCollector.NO_OP_COLLECTOR;
+        }
+        return new LeafBucketCollector() {
+            @Override
+            public void collect(int doc, long zeroBucket) throws IOException {
+                assert zeroBucket == 0L;
+                inner.collect(doc);
+            }
+        };
+    }
+
     /**
      * The first pass selects the top composite buckets from all matching documents.
      */
@@ -0,0 +1,457 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.store.ChecksumIndexInput;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.NumericUtils;
+import org.apache.lucene.util.OfflineSorter;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.BytesRefHash;
+import org.elasticsearch.common.util.LongArray;
+import org.elasticsearch.core.AbstractRefCounted;
+import org.elasticsearch.core.Nullable;
+import org.elasticsearch.core.Releasable;
+import org.elasticsearch.core.Releasables;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+
+/**
+ * The composite keys of all the documents that match a query, with their document
+ * counts, sorted in a temporary file. The {@link CompositeAggregator} builds it on
+ * the first page of an {@code exhaustive} composite aggregation and, when the search
+ * runs against a point in time, keeps it so that the next pages are read from the
+ * file instead of re-executing the query.
+ * <p>
+ * Keys are encoded so that their natural byte order is the order of the composite
+ * buckets: each value is prefixed with a byte that sorts missing values first,
+ * numbers are written as sortable bytes, terms are escaped and terminated, and the
+ * bytes of the sources that are sorted in descending order are inverted. Records
+ * are prefixed with their length as a vInt, rather than the short that
+ * {@link OfflineSorter} writes by default, so that long terms can be sorted too.
+ * <p>
+ * The files are written to the node's {@link AggregationContext#tempDirectory temporary
+ * directory} rather than to the directory of the shard's store.
+ */
+final class CompositeKeyCursor extends AbstractRefCounted {
+    private static final String FILE_PREFIX = "composite";
+    private static final long MAX_BUFFERED_BYTES = ByteSizeUnit.MB.toBytes(16);
+    private static final int SORT_BUFFER_MB = 16;
+
+    /**
+     * The type of the values of a source.
+     */
+    enum ValueType {
+        LONG,
+        DOUBLE,
+        BYTES;
+
+        static ValueType of(SingleDimensionValuesSource<?> source) {
+            if (source instanceof LongValuesSource) {
+                return LONG;
+            } else if (source instanceof DoubleValuesSource) {
+                return DOUBLE;
+            } else {
+                return BYTES;
+            }
+        }
+    }
+
+    private final Directory directory;
+    private final String fileName;
+    private final Object identity;
+    private final byte[] startAfter;
+    private final ValueType[] types;
+    private final int[] reverseMuls;
+
+    // the last after key that was read and the position of the first key that follows it
+    private byte[] lastAfter;
+    private long lastAfterPointer;
+
+    private CompositeKeyCursor(Directory directory, String fileName, Object identity, @Nullable byte[] startAfter,
+                               ValueType[] types, int[] reverseMuls) {
+        super("composite_key_cursor");
+        this.directory = directory;
+        this.fileName = fileName;
+        this.identity = identity;
+        this.startAfter = startAfter;
+        this.types = types;
+        this.reverseMuls = reverseMuls;
+    }
+
+    /**
+     * Returns {@code true} if this cursor was built for the same sources and query
+     * and contains all the keys that follow the provided encoded after key.
+     */
+    boolean canResume(Object identity, @Nullable byte[] after) {
+        if (this.identity.equals(identity) == false) {
+            return false;
+        }
+        return startAfter == null || (after != null && Arrays.compareUnsigned(after, startAfter) >= 0);
+    }
+
+    /**
+     * Reads the (at most) {@code size} keys that follow the provided encoded after key
+     * and passes them, with their document count, to {@code consumer}.
+     */
+    synchronized void readPage(@Nullable byte[] after, int size, BiConsumer<CompositeKey, Long> consumer) throws IOException {
+        // the file is only opened while a page is read so that the cursor doesn't hold a file handle between the pages
+        try (IndexInput input = directory.openInput(fileName, IOContext.DEFAULT)) {
+            readPage(input, after, size, consumer);
+        }
+    }
+
+    private void readPage(IndexInput input, @Nullable byte[] after, int size, BiConsumer<CompositeKey, Long> consumer) throws IOException {
+        long endOfRecords = input.length() - CodecUtil.footerLength();
+        if (after != null && lastAfter != null && Arrays.compareUnsigned(after, lastAfter) >= 0) {
+            // pages are requested in order so we can skip the keys that were visited by the previous page
+            input.seek(lastAfterPointer);
+        } else {
+            input.seek(0);
+        }
+        BytesRefBuilder record = new BytesRefBuilder();
+        BytesRefBuilder currentKey = null;
+        long currentCount = 0;
+        int count = 0;
+        long pagePointer = -1;
+        while (input.getFilePointer() < endOfRecords) {
+            long pointer = input.getFilePointer();
+            int length = input.readVInt();
+            record.grow(length);
+            record.setLength(length);
+            input.readBytes(record.bytes(), 0, length);
+            int keyLength = length - Long.BYTES;
+            if (after != null && Arrays.compareUnsigned(record.bytes(), 0, keyLength, after, 0, after.length) <= 0) {
+                continue;
+            }
+            if (pagePointer == -1) {
+                pagePointer = pointer;
+            }
+            long docCount = readLong(record.bytes(), keyLength);
+            if (currentKey != null && keyEquals(currentKey, record.bytes(), keyLength)) {
+                currentCount += docCount;
+                continue;
+            }
+            if (currentKey != null) {
+                consumer.accept(decode(currentKey.get(), types, reverseMuls), currentCount);
+                if (++count == size) {
+                    break;
+                }
+            } else {
+                currentKey = new BytesRefBuilder();
+            }
+            currentKey.copyBytes(record.bytes(), 0, keyLength);
+            currentCount = docCount;
+        }
+        if (currentKey != null && count < size) {
+            consumer.accept(decode(currentKey.get(), types, reverseMuls), currentCount);
+        }
+        if (after != null && pagePointer != -1) {
+            lastAfter = after;
+            lastAfterPointer = pagePointer;
+        }
+    }
+
+    private static boolean keyEquals(BytesRefBuilder key, byte[] bytes, int length) {
+        return Arrays.equals(key.bytes(), 0, key.length(), bytes, 0, length);
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < Long.BYTES; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xFFL);
+        }
+        return value;
+    }
+
+    private static void writeLong(BytesRefBuilder builder, long value) {
+        for (int i = Long.BYTES - 1; i >= 0; i--) {
+            builder.append((byte) (value >>> (i * 8)));
+        }
+    }
+
+    /**
+     * Encodes the provided after key so that it can be compared with the keys of a cursor.
+     */
+    static byte[] encode(CompositeKey key, ValueType[] types, int[] reverseMuls) {
+        BytesRefBuilder builder = new BytesRefBuilder();
+        encode(key, types, reverseMuls, builder);
+        return BytesRef.deepCopyOf(builder.get()).bytes;
+    }
+
+    /**
+     * Encodes the provided key so that the natural order of the encoded bytes is the order of the keys.
+     */
+    static void encode(CompositeKey key, ValueType[] types, int[] reverseMuls, BytesRefBuilder builder) {
+        assert key.size() == types.length;
+        byte[] scratch = new byte[Long.BYTES];
+        for (int i = 0; i < types.length; i++) {
+            int start = builder.length();
+            Comparable<?> value = key.get(i);
+            if (value == null) {
+                builder.append((byte) 0);
+            } else {
+                builder.append((byte) 1);
+                switch (types[i]) {
+                    case LONG:
+                        NumericUtils.longToSortableBytes(((Number) value).longValue(), scratch, 0);
+                        builder.append(scratch, 0, scratch.length);
+                        break;
+                    case DOUBLE:
+                        NumericUtils.longToSortableBytes(NumericUtils.doubleToSortableLong(((Number) value).doubleValue()), scratch, 0);
+                        builder.append(scratch, 0, scratch.length);
+                        break;
+                    case BYTES:
+                        BytesRef bytes = (BytesRef) value;
+                        for (int j = bytes.offset; j < bytes.offset + bytes.length; j++) {
+                            builder.append(bytes.bytes[j]);
+                            if (bytes.bytes[j] == 0) {
+                                builder.append((byte) 0xFF);
+                            }
+                        }
+                        builder.append((byte) 0);
+                        builder.append((byte) 0);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown value type [" + types[i] + "]");
+                }
+            }
+            if (reverseMuls[i] < 0) {
+                for (int j = start; j < builder.length(); j++) {
+                    builder.setByteAt(j, (byte) ~builder.byteAt(j));
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes a key that was encoded with {@link #encode}.
+     */
+    static CompositeKey decode(BytesRef encoded, ValueType[] types, int[] reverseMuls) {
+        Comparable<?>[] values = new Comparable<?>[types.length];
+        int pos = encoded.offset;
+        byte[] scratch = new byte[Long.BYTES];
+        for (int i = 0; i < types.length; i++) {
+            int mask = reverseMuls[i] < 0 ? 0xFF : 0;
+            if (((encoded.bytes[pos++] ^ mask) & 0xFF) == 0) {
+                values[i] = null;
+                continue;
+            }
+            switch (types[i]) {
+                case LONG:
+                case DOUBLE:
+                    for (int j = 0; j < Long.BYTES; j++) {
+                        scratch[j] = (byte) (encoded.bytes[pos++] ^ mask);
+                    }
+                    long sortable = NumericUtils.sortableBytesToLong(scratch, 0);
+                    if (types[i] == ValueType.LONG) {
+                        values[i] = sortable;
+                    } else {
+                        values[i] = NumericUtils.sortableLongToDouble(sortable);
+                    }
+                    break;
+                case BYTES:
+                    BytesRefBuilder term = new BytesRefBuilder();
+                    while (true) {
+                        byte b = (byte) (encoded.bytes[pos++] ^ mask);
+                        if (b == 0) {
+                            if ((byte) (encoded.bytes[pos++] ^ mask) == 0) {
+                                break;
+                            }
+                        }
+                        term.append(b);
+                    }
+                    values[i] = term.toBytesRef();
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown value type [" + types[i] + "]");
+            }
+        }
+        return new CompositeKey(values);
+    }
+
+    @Override
+    protected void closeInternal() {
+        try {
+            IOUtils.deleteFilesIgnoringExceptions(directory, fileName);
+        } finally {
+            IOUtils.closeWhileHandlingException(directory);
+        }
+    }
+
+    /**
+     * An {@link OfflineSorter} that reads and writes records that are prefixed with their length as a vInt.
+     */
+    private static final class Sorter extends OfflineSorter {
+        Sorter(Directory directory) {
+            super(directory, FILE_PREFIX, BytesRef::compareTo, BufferSize.megabytes(SORT_BUFFER_MB), MAX_TEMPFILES, -1, null, 0);
+        }
+
+        @Override
+        protected ByteSequencesWriter getWriter(IndexOutput out, long itemCount) {
+            return new RecordWriter(out);
+        }
+
+        @Override
+        protected ByteSequencesReader getReader(ChecksumIndexInput in, String name) throws IOException {
+            return new RecordReader(in, name);
+        }
+    }
+
+    private static final class RecordWriter extends OfflineSorter.ByteSequencesWriter {
+        RecordWriter(IndexOutput out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] bytes, int off, int len) throws IOException {
+            out.writeVInt(len);
+            out.writeBytes(bytes, off, len);
+        }
+    }
+
+    private static final class RecordReader extends OfflineSorter.ByteSequencesReader {
+        private final BytesRefBuilder record = new BytesRefBuilder();
+
+        RecordReader(ChecksumIndexInput in, String name) {
+            super(in, name);
+        }
+
+        @Override
+        public BytesRef next() throws IOException {
+            if (in.getFilePointer() >= end) {
+                return null;
+            }
+            int length = in.readVInt();
+            record.grow(length);
+            record.setLength(length);
+            in.readBytes(record.bytes(), 0, length);
+            return record.get();
+        }
+    }
+
+    /**
+     * Buffers the keys of the collected documents in memory and spills them to a temporary
+     * file when the buffer is full. The spilled keys are sorted on {@link #build}.
+     */
+    static final class Builder implements Releasable {
+        private Directory directory;
+        private final BigArrays bigArrays;
+        private final ValueType[] types;
+        private final int[] reverseMuls;
+        private final BytesRefBuilder scratch = new BytesRefBuilder();
+
+        private BytesRefHash keys;
+        private LongArray docCounts;
+        private long bufferedBytes;
+        private IndexOutput output;
+        private OfflineSorter.ByteSequencesWriter writer;
+
+        Builder(Path tempDirectory, BigArrays bigArrays, ValueType[] types, int[] reverseMuls) throws IOException {
+            this.directory = new NIOFSDirectory(tempDirectory);
+            this.bigArrays = bigArrays;
+            this.types = types;
+            this.reverseMuls = reverseMuls;
+            this.keys = new BytesRefHash(1, bigArrays);
+            this.docCounts = bigArrays.newLongArray(1, true);
+        }
+
+        /**
+         * Adds {@code docCount} documents to the provided key.
+         */
+        void add(CompositeKey key, long docCount) throws IOException {
+            scratch.clear();
+            encode(key, types, reverseMuls, scratch);
+            long ord = keys.add(scratch.get());
+            if (ord < 0) {
+                ord = -1 - ord;
+            } else {
+                docCounts = bigArrays.grow(docCounts, ord + 1);
+                bufferedBytes += scratch.length() + Long.BYTES;
+            }
+            docCounts.increment(ord, docCount);
+            if (bufferedBytes >= MAX_BUFFERED_BYTES) {
+                spill();
+            }
+        }
+
+        private void spill() throws IOException {
+            if (writer == null) {
+                output = directory.createTempOutput(FILE_PREFIX, "unsorted", IOContext.DEFAULT);
+                writer = new RecordWriter(output);
+            }
+            BytesRef key = new BytesRef();
+            for (long ord = 0; ord < keys.size(); ord++) {
+                keys.get(ord, key);
+                scratch.copyBytes(key);
+                writeLong(scratch, docCounts.get(ord));
+                writer.write(scratch.get());
+            }
+            Releasables.close(keys, docCounts);
+            keys = null;
+            docCounts = null;
+            keys = new BytesRefHash(1, bigArrays);
+            docCounts = bigArrays.newLongArray(1, true);
+            bufferedBytes = 0;
+        }
+
+        /**
+         * Sorts all the keys that were added to this builder and returns a cursor on them.
+         *
+         * @param identity identifies the sources and the query that produced the keys
+         * @param startAfter the encoded after key of the request, all added keys must follow it
+         */
+        CompositeKeyCursor build(Object identity, @Nullable byte[] startAfter) throws IOException {
+            spill();
+            // the offline sorter verifies the checksum of its input
+            CodecUtil.writeFooter(output);
+            writer.close();
+            writer = null;
+            String unsorted = output.getName();
+            output = null;
+            String sorted;
+            try {
+                sorted = new Sorter(directory).sort(unsorted);
+            } finally {
+                IOUtils.deleteFilesIgnoringExceptions(directory, unsorted);
+            }
+            // the cursor now owns the directory and closes it once its file is deleted
+            CompositeKeyCursor cursor = new CompositeKeyCursor(directory, sorted, identity, startAfter, types, reverseMuls);
+            directory = null;
+            return cursor;
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (writer != null) {
+                    String name = output.getName();
+                    IOUtils.closeWhileHandlingException(writer);
+                    IOUtils.deleteFilesIgnoringExceptions(directory, name);
+                }
+                IOUtils.closeWhileHandlingException(directory);
+            } finally {
+                Releasables.close(keys, docCounts);
+            }
+        }
+    }
+}
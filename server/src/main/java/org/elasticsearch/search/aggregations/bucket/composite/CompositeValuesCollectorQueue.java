@@ -216,6 +216,37 @@ final class CompositeValuesCollectorQueue extends PriorityQueue<Integer> impleme
         return new CompositeKey(values);
     }
 
+    /**
+     * Returns true if the current candidate follows the after key or if there is no after key.
+     */
+    boolean currentFollowsAfterKey() {
+        return afterKeyIsSet == false || compareCurrentWithAfter() > 0;
+    }
+
+    /**
+     * Builds the {@link CompositeKey} of the current candidate. This uses the first slot so
+     * it can't be called on a queue that collects the top buckets.
+     */
+    CompositeKey currentToCompositeKey() throws IOException {
+        assert size() == 0;
+        copyCurrent(0, 0L);
+        return toCompositeKey(0);
+    }
+
+    /**
+     * Returns the after key with the values that were parsed by the sources, or null if there is no after key.
+     */
+    CompositeKey parsedAfterKey() {
+        if (afterKeyIsSet == false) {
+            return null;
+        }
+        Comparable[] values = new Comparable[arrays.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = arrays[i].getAfter();
+        }
+        return new CompositeKey(values);
+    }
+
     /**
      * Creates the collector that will visit the composite buckets of the matching documents.
      * The provided collector <code>in</code> is called on each composite bucket.
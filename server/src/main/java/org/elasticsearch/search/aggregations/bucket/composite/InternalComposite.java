@@ -20,6 +20,7 @@ import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.InternalAggregations;
 import org.elasticsearch.search.aggregations.InternalMultiBucketAggregation;
 import org.elasticsearch.search.aggregations.KeyComparable;
+import org.elasticsearch.search.aggregations.support.SamplingContext;
 
 import java.io.IOException;
 import java.util.AbstractMap;
@@ -204,6 +205,16 @@ public class InternalComposite
             earlyTerminated, metadata);
     }
 
+    @Override
+    public InternalAggregation finalizeSampling(SamplingContext samplingContext) {
+        List<InternalBucket> scaledBuckets = new ArrayList<>(buckets.size());
+        for (InternalBucket bucket : buckets) {
+            scaledBuckets.add(new InternalBucket(bucket.sourceNames, bucket.formats, bucket.key, bucket.reverseMuls,
+                samplingContext.scaleUp(bucket.docCount), bucket.aggregations.finalizeSampling(samplingContext)));
+        }
+        return create(scaledBuckets);
+    }
+
     @Override
     protected InternalBucket reduceBucket(List<InternalBucket> buckets, ReduceContext context) {
         assert buckets.size() > 0;
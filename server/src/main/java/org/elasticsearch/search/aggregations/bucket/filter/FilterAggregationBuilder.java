@@ -119,6 +119,11 @@ public class FilterAggregationBuilder extends AbstractAggregationBuilder<FilterA
         return Objects.equals(filter, other.filter);
     }
 
+    @Override
+    public boolean supportsSampling() {
+        return true;
+    }
+
     @Override
     public String getType() {
         return NAME;
@@ -339,6 +339,11 @@ public class FiltersAggregationBuilder extends AbstractAggregationBuilder<Filter
             && Objects.equals(otherBucketKey, other.otherBucketKey);
     }
 
+    @Override
+    public boolean supportsSampling() {
+        return true;
+    }
+
     @Override
     public String getType() {
         return NAME;
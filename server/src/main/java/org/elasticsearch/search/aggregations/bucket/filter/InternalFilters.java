@@ -14,6 +14,7 @@ import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.InternalAggregations;
 import org.elasticsearch.search.aggregations.InternalMultiBucketAggregation;
+import org.elasticsearch.search.aggregations.support.SamplingContext;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -202,6 +203,16 @@ public class InternalFilters extends InternalMultiBucketAggregation<InternalFilt
         return reduced;
     }
 
+    @Override
+    public InternalAggregation finalizeSampling(SamplingContext samplingContext) {
+        List<InternalBucket> scaledBuckets = new ArrayList<>(buckets.size());
+        for (InternalBucket bucket : buckets) {
+            scaledBuckets.add(new InternalBucket(bucket.key, samplingContext.scaleUp(bucket.docCount),
+                bucket.aggregations.finalizeSampling(samplingContext), bucket.keyed));
+        }
+        return create(scaledBuckets);
+    }
+
     @Override
     protected InternalBucket reduceBucket(List<InternalBucket> buckets, ReduceContext context) {
         assert buckets.size() > 0;
@@ -14,6 +14,7 @@ import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.BulkScorer;
 import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.DocValuesFieldExistsQuery;
 import org.apache.lucene.search.IndexOrDocValuesQuery;
 import org.apache.lucene.search.IndexSearcher;
@@ -24,9 +25,12 @@ import org.apache.lucene.search.MatchNoDocsQuery;
 import org.apache.lucene.search.PointRangeQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.Weight;
+import org.apache.lucene.util.BitSetIterator;
 import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -81,6 +85,10 @@ public class QueryToFilterAdapter<Q extends Query> {
      * {@link #weight()} to build it when needed.
      */
     private Weight weight;
+    /**
+     * The number of segments counted from a bitset in the query cache.
+     */
+    private int resultsFromCachedBitSet;
 
     QueryToFilterAdapter(IndexSearcher searcher, String key, Q query) {
         this.searcher = searcher;
@@ -218,6 +226,30 @@ public class QueryToFilterAdapter<Q extends Query> {
      * Count the number of documents that match this filter in a leaf.
      */
     long count(LeafReaderContext ctx, FiltersAggregator.Counter counter, Bits live) throws IOException {
+        if (countCanUseMetadata(counter, live)) {
+            /*
+             * Every matching document counts as one so we don't need a
+             * callback per document. If the query cache has a bitset for
+             * this filter we count its bits a word at a time. Otherwise
+             * we count the matches of the iterator.
+             */
+            Scorer scorer = weight().scorer(ctx);
+            if (scorer == null) {
+                // No hits in this segment.
+                return 0;
+            }
+            DocIdSetIterator iterator = scorer.iterator();
+            FixedBitSet cached = BitSetIterator.getFixedBitSetOrNull(iterator);
+            if (cached != null) {
+                resultsFromCachedBitSet++;
+                return cached.cardinality();
+            }
+            long count = 0;
+            while (iterator.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+                count++;
+            }
+            return count;
+        }
         BulkScorer scorer = weight().bulkScorer(ctx);
         if (scorer == null) {
             // No hits in this segment.
@@ -252,6 +284,7 @@ public class QueryToFilterAdapter<Q extends Query> {
      */
     void collectDebugInfo(BiConsumer<String, Object> add) {
         add.accept("query", query.toString());
+        add.accept("results_from_cached_bitset", resultsFromCachedBitSet);
     }
 
     private Weight weight() throws IOException {
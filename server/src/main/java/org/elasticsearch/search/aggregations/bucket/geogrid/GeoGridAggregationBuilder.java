@@ -160,6 +160,11 @@ public abstract class GeoGridAggregationBuilder extends ValuesSourceAggregationB
         return geoBoundingBox;
     }
 
+    @Override
+    public boolean supportsSampling() {
+        return true;
+    }
+
     @Override
     public final BucketCardinality bucketCardinality() {
         return BucketCardinality.MANY;
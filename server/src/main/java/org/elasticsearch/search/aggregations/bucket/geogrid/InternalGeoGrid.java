@@ -15,6 +15,7 @@ import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.InternalAggregations;
 import org.elasticsearch.search.aggregations.InternalMultiBucketAggregation;
+import org.elasticsearch.search.aggregations.support.SamplingContext;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -115,6 +116,16 @@ public abstract class InternalGeoGrid<B extends InternalGeoGridBucket>
 
     abstract B createBucket(long hashAsLong, long docCount, InternalAggregations aggregations);
 
+    @Override
+    public InternalAggregation finalizeSampling(SamplingContext samplingContext) {
+        List<InternalGeoGridBucket> scaledBuckets = new ArrayList<>(buckets.size());
+        for (InternalGeoGridBucket bucket : buckets) {
+            scaledBuckets.add(createBucket(bucket.hashAsLong, samplingContext.scaleUp(bucket.docCount),
+                bucket.aggregations.finalizeSampling(samplingContext)));
+        }
+        return create(getName(), requiredSize, scaledBuckets, getMetadata());
+    }
+
     @Override
     public XContentBuilder doXContentBody(XContentBuilder builder, Params params) throws IOException {
         builder.startArray(CommonFields.BUCKETS.getPreferredName());
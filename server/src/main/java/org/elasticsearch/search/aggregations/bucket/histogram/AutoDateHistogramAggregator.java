@@ -135,7 +135,7 @@ abstract class AutoDateHistogramAggregator extends DeferableBucketAggregator {
 
     @Override
     public final DeferringBucketCollector buildDeferringCollector() {
-        deferringCollector = new BestBucketsDeferringCollector(topLevelQuery(), searcher(), descendsFromGlobalAggregator(parent()));
+        deferringCollector = bestBucketsDeferringCollector();
         return deferringCollector;
     }
 
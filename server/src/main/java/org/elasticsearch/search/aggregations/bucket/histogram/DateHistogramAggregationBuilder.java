@@ -9,6 +9,7 @@
 package org.elasticsearch.search.aggregations.bucket.histogram;
 
 import org.elasticsearch.Version;
+import org.elasticsearch.cluster.metadata.IndexMetadata;
 import org.elasticsearch.common.Rounding;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -16,6 +17,7 @@ import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.common.xcontent.ObjectParser;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.search.aggregations.AggregationBuilder;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.AggregatorFactory;
@@ -409,6 +411,11 @@ public class DateHistogramAggregationBuilder extends ValuesSourceAggregationBuil
         return builder;
     }
 
+    @Override
+    public boolean supportsSampling() {
+        return true;
+    }
+
     @Override
     public String getType() {
         return NAME;
@@ -428,6 +435,7 @@ public class DateHistogramAggregationBuilder extends ValuesSourceAggregationBuil
             context.getValuesSourceRegistry().getAggregator(REGISTRY_KEY, config);
 
         final ZoneId tz = timeZone();
+        validateRollupInterval(context, config);
         final Rounding rounding = dateHistogramInterval.createRounding(tz, offset);
 
         LongBounds roundedBounds = null;
@@ -473,6 +481,37 @@ public class DateHistogramAggregationBuilder extends ValuesSourceAggregationBuil
             aggregatorSupplier);
     }
 
+    /**
+     * Documents of a rollup index summarize a whole bucket of the date histogram the rollup was built
+     * with, so the buckets we build on its date field must be made of whole rollup buckets.
+     */
+    private void validateRollupInterval(AggregationContext context, ValuesSourceConfig config) {
+        MappedFieldType fieldType = config.fieldType();
+        if (fieldType == null
+            || context.getIndexSettings() == null
+            || IndexMetadata.INDEX_ROLLUP_SOURCE_UUID.exists(context.getIndexSettings().getSettings()) == false) {
+            return;
+        }
+        RollupInterval rollupInterval = RollupInterval.fromMeta(fieldType.meta());
+        if (rollupInterval == null) {
+            return;
+        }
+        String incompatibility = rollupIncompatibility(rollupInterval);
+        if (incompatibility != null) {
+            throw new IllegalArgumentException("[" + name + "] can't be computed on the rollup index ["
+                + context.getIndexSettings().getIndex().getName() + "]: " + incompatibility);
+        }
+    }
+
+    /**
+     * Checks whether this histogram can be computed from a rollup built with the provided interval.
+     *
+     * @return {@code null} if it can, otherwise the reason why not
+     */
+    public String rollupIncompatibility(RollupInterval rollupInterval) {
+        return rollupInterval.incompatibility(dateHistogramInterval, timeZone(), offset);
+    }
+
     @Override
     public int hashCode() {
         return Objects.hash(super.hashCode(), order, keyed, minDocCount, dateHistogramInterval, minDocCount, extendedBounds, hardBounds);
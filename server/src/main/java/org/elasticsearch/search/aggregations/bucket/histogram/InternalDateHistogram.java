@@ -23,6 +23,7 @@ import org.elasticsearch.search.aggregations.InternalOrder;
 import org.elasticsearch.search.aggregations.KeyComparable;
 import org.elasticsearch.search.aggregations.bucket.IteratorAndCurrent;
 import org.elasticsearch.search.aggregations.bucket.MultiBucketsAggregation;
+import org.elasticsearch.search.aggregations.support.SamplingContext;
 
 import java.io.IOException;
 import java.time.Instant;
@@ -279,6 +280,16 @@ public final class InternalDateHistogram extends InternalMultiBucketAggregation<
         return new Bucket(prototype.key, prototype.docCount, prototype.keyed, prototype.format, aggregations);
     }
 
+    @Override
+    public InternalAggregation finalizeSampling(SamplingContext samplingContext) {
+        List<Bucket> scaledBuckets = new ArrayList<>(buckets.size());
+        for (Bucket bucket : buckets) {
+            scaledBuckets.add(new Bucket(bucket.key, samplingContext.scaleUp(bucket.docCount), bucket.keyed, bucket.format,
+                bucket.aggregations.finalizeSampling(samplingContext)));
+        }
+        return create(scaledBuckets);
+    }
+
     private List<Bucket> reduceBuckets(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
 
         final PriorityQueue<IteratorAndCurrent<Bucket>> pq = new PriorityQueue<>(aggregations.size()) {
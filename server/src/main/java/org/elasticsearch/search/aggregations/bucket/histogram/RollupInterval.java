@@ -0,0 +1,173 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.histogram;
+
+import org.elasticsearch.common.Rounding.DateTimeUnit;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.core.Nullable;
+import org.elasticsearch.core.TimeValue;
+
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The date histogram interval that a rollup index was built with. Rollup indices record it in the
+ * {@code meta} of their date field and every document of the rollup index summarizes one of its buckets,
+ * so a {@code date_histogram} can be computed from the rollup index as long as each of its buckets is
+ * made of whole rollup buckets.
+ */
+public final class RollupInterval {
+    public static final String CALENDAR_INTERVAL = "calendar_interval";
+    public static final String FIXED_INTERVAL = "fixed_interval";
+    public static final String TIME_ZONE = "time_zone";
+
+    private static final long DAY_MILLIS = unitMillis(DateTimeUnit.DAY_OF_MONTH);
+
+    private final DateIntervalWrapper interval;
+    private final ZoneId timeZone;
+
+    public RollupInterval(DateIntervalWrapper interval, ZoneId timeZone) {
+        this.interval = interval;
+        this.timeZone = timeZone;
+    }
+
+    /**
+     * Reads the rollup interval from the {@code meta} of a date field.
+     *
+     * @return the interval or {@code null} if the field doesn't carry one
+     */
+    @Nullable
+    public static RollupInterval fromMeta(Map<String, ?> meta) {
+        Object calendarInterval = meta.get(CALENDAR_INTERVAL);
+        Object fixedInterval = meta.get(FIXED_INTERVAL);
+        if (calendarInterval == null && fixedInterval == null) {
+            return null;
+        }
+        DateIntervalWrapper interval = new DateIntervalWrapper();
+        if (calendarInterval != null) {
+            interval.calendarInterval(new DateHistogramInterval(calendarInterval.toString()));
+        } else {
+            interval.fixedInterval(new DateHistogramInterval(fixedInterval.toString()));
+        }
+        Object timeZone = meta.get(TIME_ZONE);
+        return new RollupInterval(interval, timeZone == null ? ZoneOffset.UTC : ZoneId.of(timeZone.toString()));
+    }
+
+    public DateIntervalWrapper getInterval() {
+        return interval;
+    }
+
+    public ZoneId getTimeZone() {
+        return timeZone;
+    }
+
+    /**
+     * The rough length of a rollup bucket in milliseconds, used to pick the coarsest of several rollups.
+     */
+    public long estimateMillis() {
+        DateTimeUnit unit = interval.tryIntervalAsCalendarUnit();
+        return unit != null ? unitMillis(unit) : interval.tryIntervalAsFixedUnit().millis();
+    }
+
+    /**
+     * Checks whether a {@code date_histogram} can be computed from this rollup.
+     *
+     * @return {@code null} if every bucket of the histogram is made of whole rollup buckets, otherwise the reason why not
+     */
+    @Nullable
+    public String incompatibility(DateIntervalWrapper requested, @Nullable ZoneId requestedTimeZone, long offset) {
+        ZoneId zone = requestedTimeZone == null ? ZoneOffset.UTC : requestedTimeZone;
+        if (zone.normalized().equals(timeZone.normalized()) == false) {
+            return "time_zone [" + zone + "] doesn't match the time_zone [" + timeZone + "] of the rollup";
+        }
+        DateTimeUnit requestedUnit = requested.tryIntervalAsCalendarUnit();
+        TimeValue requestedFixed = requestedUnit == null ? requested.tryIntervalAsFixedUnit() : null;
+        if (requestedUnit == null && requestedFixed == null) {
+            return "interval " + Strings.toString(requested) + " can't be parsed";
+        }
+        String mismatch = "interval [" + intervalOf(requested) + "] isn't a multiple of the rollup interval ["
+            + intervalOf(interval) + "]";
+
+        long rollupMillis = fixedLengthMillis();
+        if (rollupMillis > 0) {
+            if (offset % rollupMillis != 0) {
+                return "offset [" + offset + "ms] isn't a multiple of the rollup interval [" + intervalOf(interval) + "]";
+            }
+            if (requestedFixed != null) {
+                return requestedFixed.millis() % rollupMillis == 0 ? null : mismatch;
+            }
+            // calendar buckets start on a whole second, minute or hour, or at midnight for coarser units
+            long unitMillis = Math.min(unitMillis(requestedUnit), DAY_MILLIS);
+            return unitMillis % rollupMillis == 0 ? null : mismatch;
+        }
+
+        // the rollup buckets are days in a zone with daylight savings time, weeks, months, quarters or years
+        if (offset != 0) {
+            return "offset [" + offset + "ms] isn't supported with the rollup interval [" + intervalOf(interval) + "]";
+        }
+        if (requestedUnit == null) {
+            return mismatch;
+        }
+        return coarserUnits(interval.tryIntervalAsCalendarUnit()).contains(requestedUnit) ? null : mismatch;
+    }
+
+    /**
+     * The length of a rollup bucket in milliseconds, or {@code -1} if buckets don't all have the same length.
+     */
+    private long fixedLengthMillis() {
+        DateTimeUnit unit = interval.tryIntervalAsCalendarUnit();
+        if (unit == null) {
+            return interval.tryIntervalAsFixedUnit().millis();
+        }
+        switch (unit) {
+            case SECOND_OF_MINUTE:
+            case MINUTES_OF_HOUR:
+            case HOUR_OF_DAY:
+                return unitMillis(unit);
+            case DAY_OF_MONTH:
+                return timeZone.getRules().isFixedOffset() ? DAY_MILLIS : -1;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * The interval as it was configured. {@link DateIntervalWrapper#dateHistogramInterval()} only returns
+     * legacy intervals and warns that they are deprecated.
+     */
+    private static DateHistogramInterval intervalOf(DateIntervalWrapper wrapper) {
+        return wrapper.tryIntervalAsCalendarUnit() != null ? wrapper.getAsCalendarInterval() : wrapper.getAsFixedInterval();
+    }
+
+    private static long unitMillis(DateTimeUnit unit) {
+        return unit.getField().getBaseUnit().getDuration().toMillis();
+    }
+
+    private static Set<DateTimeUnit> coarserUnits(DateTimeUnit unit) {
+        switch (unit) {
+            case DAY_OF_MONTH:
+                return EnumSet.of(DateTimeUnit.DAY_OF_MONTH, DateTimeUnit.WEEK_OF_WEEKYEAR, DateTimeUnit.MONTH_OF_YEAR,
+                    DateTimeUnit.QUARTER_OF_YEAR, DateTimeUnit.YEAR_OF_CENTURY);
+            case WEEK_OF_WEEKYEAR:
+                // weeks don't line up with months or years
+                return EnumSet.of(DateTimeUnit.WEEK_OF_WEEKYEAR);
+            case MONTH_OF_YEAR:
+                return EnumSet.of(DateTimeUnit.MONTH_OF_YEAR, DateTimeUnit.QUARTER_OF_YEAR, DateTimeUnit.YEAR_OF_CENTURY);
+            case QUARTER_OF_YEAR:
+                return EnumSet.of(DateTimeUnit.QUARTER_OF_YEAR, DateTimeUnit.YEAR_OF_CENTURY);
+            case YEAR_OF_CENTURY:
+                return EnumSet.of(DateTimeUnit.YEAR_OF_CENTURY);
+            default:
+                throw new IllegalArgumentException("unexpected rollup unit [" + unit + "]");
+        }
+    }
+}
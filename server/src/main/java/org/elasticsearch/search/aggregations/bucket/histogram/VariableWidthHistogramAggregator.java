@@ -497,7 +497,7 @@ public class VariableWidthHistogramAggregator extends DeferableBucketAggregator
 
     @Override
     public DeferringBucketCollector buildDeferringCollector() {
-        deferringCollector = new BestBucketsDeferringCollector(topLevelQuery(), searcher(), descendsFromGlobalAggregator(parent()));
+        deferringCollector = bestBucketsDeferringCollector();
         return deferringCollector;
     }
 
@@ -153,6 +153,11 @@ public class NestedAggregationBuilder extends AbstractAggregationBuilder<NestedA
         return Objects.equals(path, other.path);
     }
 
+    @Override
+    public boolean supportsSampling() {
+        return true;
+    }
+
     @Override
     public String getType() {
         return NAME;
@@ -174,6 +174,11 @@ public class ReverseNestedAggregationBuilder extends AbstractAggregationBuilder<
         return Objects.equals(path, other.path);
     }
 
+    @Override
+    public boolean supportsSampling() {
+        return true;
+    }
+
     @Override
     public String getType() {
         return NAME;
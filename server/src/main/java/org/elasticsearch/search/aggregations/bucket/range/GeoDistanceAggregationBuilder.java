@@ -374,6 +374,11 @@ public class GeoDistanceAggregationBuilder extends ValuesSourceAggregationBuilde
         return ranges;
     }
 
+    @Override
+    public boolean supportsSampling() {
+        return true;
+    }
+
     @Override
     public String getType() {
         return NAME;
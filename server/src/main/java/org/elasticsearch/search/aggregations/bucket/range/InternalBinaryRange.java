@@ -17,6 +17,7 @@ import org.elasticsearch.search.aggregations.Aggregations;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.InternalAggregations;
 import org.elasticsearch.search.aggregations.InternalMultiBucketAggregation;
+import org.elasticsearch.search.aggregations.support.SamplingContext;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -244,6 +245,16 @@ public final class InternalBinaryRange
         return new InternalBinaryRange(name, format, keyed, buckets, metadata);
     }
 
+    @Override
+    public InternalAggregation finalizeSampling(SamplingContext samplingContext) {
+        List<Bucket> scaledBuckets = new ArrayList<>(buckets.size());
+        for (Bucket bucket : buckets) {
+            scaledBuckets.add(new Bucket(format, keyed, bucket.key, bucket.from, bucket.to, samplingContext.scaleUp(bucket.docCount),
+                bucket.aggregations.finalizeSampling(samplingContext)));
+        }
+        return create(scaledBuckets);
+    }
+
     @Override
     protected Bucket reduceBucket(List<Bucket> buckets, ReduceContext context) {
         assert buckets.size() > 0;
@@ -225,6 +225,11 @@ public final class IpRangeAggregationBuilder extends ValuesSourceAggregationBuil
         return new IpRangeAggregationBuilder(this, factoriesBuilder, metadata);
     }
 
+    @Override
+    public boolean supportsSampling() {
+        return true;
+    }
+
     @Override
     public String getType() {
         return NAME;
@@ -0,0 +1,100 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.sampler.random;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.bucket.InternalSingleBucketAggregation;
+import org.elasticsearch.search.aggregations.bucket.sampler.Sampler;
+import org.elasticsearch.search.aggregations.support.SamplingContext;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The result of a {@code random_sampler} aggregation. Shard results contain the counts of the
+ * sample, the final reduction scales them and the results of the sub-aggregations by the inverse
+ * of the sampling probability.
+ */
+public class InternalRandomSampler extends InternalSingleBucketAggregation implements Sampler {
+    public static final String NAME = RandomSamplerAggregationBuilder.NAME;
+
+    private final double probability;
+    private final int seed;
+
+    InternalRandomSampler(String name, long docCount, double probability, int seed, InternalAggregations subAggregations,
+                          Map<String, Object> metadata) {
+        super(name, docCount, subAggregations, metadata);
+        this.probability = probability;
+        this.seed = seed;
+    }
+
+    /**
+     * Read from a stream.
+     */
+    public InternalRandomSampler(StreamInput in) throws IOException {
+        super(in);
+        this.probability = in.readDouble();
+        this.seed = in.readInt();
+    }
+
+    @Override
+    protected void doWriteTo(StreamOutput out) throws IOException {
+        super.doWriteTo(out);
+        out.writeDouble(probability);
+        out.writeInt(seed);
+    }
+
+    @Override
+    public String getWriteableName() {
+        return NAME;
+    }
+
+    public double getProbability() {
+        return probability;
+    }
+
+    public int getSeed() {
+        return seed;
+    }
+
+    @Override
+    protected InternalSingleBucketAggregation newAggregation(String name, long docCount, InternalAggregations subAggregations) {
+        return new InternalRandomSampler(name, docCount, probability, seed, subAggregations, metadata);
+    }
+
+    @Override
+    public InternalAggregation reduce(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
+        InternalSingleBucketAggregation reduced = (InternalSingleBucketAggregation) super.reduce(aggregations, reduceContext);
+        if (reduceContext.isFinalReduce() == false) {
+            return reduced;
+        }
+        SamplingContext samplingContext = new SamplingContext(probability);
+        return newAggregation(name, samplingContext.scaleUp(reduced.getDocCount()),
+            reduced.getAggregations().finalizeSampling(samplingContext));
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        if (super.equals(obj) == false) return false;
+        InternalRandomSampler other = (InternalRandomSampler) obj;
+        return probability == other.probability && seed == other.seed;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), probability, seed);
+    }
+}
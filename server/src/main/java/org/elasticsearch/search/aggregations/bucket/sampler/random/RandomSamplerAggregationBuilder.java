@@ -0,0 +1,202 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.sampler.random;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.ObjectParser;
+import org.elasticsearch.common.xcontent.ParseField;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.search.aggregations.AbstractAggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregatorFactories.Builder;
+import org.elasticsearch.search.aggregations.AggregatorFactory;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Builds a {@code random_sampler} aggregation which collects its sub-aggregations on a uniform
+ * random sample of the matching documents, and scales their results back up.
+ */
+public class RandomSamplerAggregationBuilder extends AbstractAggregationBuilder<RandomSamplerAggregationBuilder> {
+    public static final String NAME = "random_sampler";
+
+    static final ParseField PROBABILITY = new ParseField("probability");
+    static final ParseField SEED = new ParseField("seed");
+
+    public static final ObjectParser<RandomSamplerAggregationBuilder, String> PARSER =
+        ObjectParser.fromBuilder(NAME, RandomSamplerAggregationBuilder::new);
+    static {
+        PARSER.declareDouble(RandomSamplerAggregationBuilder::probability, PROBABILITY);
+        PARSER.declareInt(RandomSamplerAggregationBuilder::seed, SEED);
+    }
+
+    public static RandomSamplerAggregationBuilder parse(String aggregationName, XContentParser parser) throws IOException {
+        RandomSamplerAggregationBuilder builder = PARSER.parse(parser, aggregationName);
+        if (builder.probability == null) {
+            throw new IllegalArgumentException("[" + PROBABILITY.getPreferredName() + "] is required for aggregation ["
+                + aggregationName + "] of type [" + NAME + "]");
+        }
+        return builder;
+    }
+
+    private Double probability;
+    private int seed = 0;
+
+    public RandomSamplerAggregationBuilder(String name) {
+        super(name);
+    }
+
+    protected RandomSamplerAggregationBuilder(RandomSamplerAggregationBuilder clone, Builder factoriesBuilder,
+                                              Map<String, Object> metadata) {
+        super(clone, factoriesBuilder, metadata);
+        this.probability = clone.probability;
+        this.seed = clone.seed;
+    }
+
+    /**
+     * Read from a stream.
+     */
+    public RandomSamplerAggregationBuilder(StreamInput in) throws IOException {
+        super(in);
+        probability = in.readDouble();
+        seed = in.readInt();
+    }
+
+    @Override
+    protected void doWriteTo(StreamOutput out) throws IOException {
+        out.writeDouble(probability);
+        out.writeInt(seed);
+    }
+
+    /**
+     * Add a sub aggregation, which must {@link AggregationBuilder#supportsSampling() support sampling} as well as its own
+     * sub aggregations.
+     */
+    @Override
+    public RandomSamplerAggregationBuilder subAggregation(AggregationBuilder aggregation) {
+        if (aggregation != null) {
+            validateSubAggregations(Collections.singletonList(aggregation));
+        }
+        return super.subAggregation(aggregation);
+    }
+
+    @Override
+    public RandomSamplerAggregationBuilder subAggregations(Builder subFactories) {
+        if (subFactories != null) {
+            validateSubAggregations(subFactories.getAggregatorFactories());
+        }
+        return super.subAggregations(subFactories);
+    }
+
+    /**
+     * Rejects the sub aggregations, at any depth, whose results can't be scaled up to estimate the results on all matching
+     * documents.
+     */
+    private void validateSubAggregations(Collection<AggregationBuilder> subAggregations) {
+        for (AggregationBuilder subAggregation : subAggregations) {
+            if (subAggregation.supportsSampling() == false) {
+                throw new IllegalArgumentException("[" + NAME + "] aggregation [" + name + "] does not support sub-aggregation ["
+                    + subAggregation.getName() + "] of type [" + subAggregation.getType() + "]");
+            }
+            validateSubAggregations(subAggregation.getSubAggregations());
+        }
+    }
+
+    @Override
+    protected AggregationBuilder shallowCopy(Builder factoriesBuilder, Map<String, Object> metadata) {
+        return new RandomSamplerAggregationBuilder(this, factoriesBuilder, metadata);
+    }
+
+    /**
+     * Set the probability with which each matching document is collected, between 0 (excluded) and 1.
+     * A probability of 1 collects all matching documents.
+     */
+    public RandomSamplerAggregationBuilder probability(double probability) {
+        if (probability <= 0 || probability > 1) {
+            throw new IllegalArgumentException("[" + PROBABILITY.getPreferredName() + "] must be greater than 0 and less than or equal "
+                + "to 1 but was [" + probability + "] for aggregation [" + name + "]");
+        }
+        this.probability = probability;
+        return this;
+    }
+
+    /**
+     * Get the probability with which each matching document is collected.
+     */
+    public double probability() {
+        return probability;
+    }
+
+    /**
+     * Set the seed of the sampling. The same seed samples the same documents as long as the shards do not change.
+     */
+    public RandomSamplerAggregationBuilder seed(int seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Get the seed of the sampling.
+     */
+    public int seed() {
+        return seed;
+    }
+
+    @Override
+    public BucketCardinality bucketCardinality() {
+        return BucketCardinality.ONE;
+    }
+
+    @Override
+    protected AggregatorFactory doBuild(AggregationContext context, AggregatorFactory parent, Builder subFactoriesBuilder)
+            throws IOException {
+        if (parent != null) {
+            throw new IllegalArgumentException("Aggregation [" + parent.name() + "] cannot have a " + NAME + " sub-aggregation ["
+                + name + "]. Random sampler aggregations can only be defined as top level aggregations");
+        }
+        // sub aggregations that were added to the sampled ones after they were added to this builder weren't validated yet
+        validateSubAggregations(subFactoriesBuilder.getAggregatorFactories());
+        return new RandomSamplerAggregatorFactory(name, probability, seed, context, parent, subFactoriesBuilder, metadata);
+    }
+
+    @Override
+    protected XContentBuilder internalXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject();
+        builder.field(PROBABILITY.getPreferredName(), probability);
+        builder.field(SEED.getPreferredName(), seed);
+        builder.endObject();
+        return builder;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), probability, seed);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        if (super.equals(obj) == false) return false;
+        RandomSamplerAggregationBuilder other = (RandomSamplerAggregationBuilder) obj;
+        return Objects.equals(probability, other.probability) && seed == other.seed;
+    }
+
+    @Override
+    public String getType() {
+        return NAME;
+    }
+}
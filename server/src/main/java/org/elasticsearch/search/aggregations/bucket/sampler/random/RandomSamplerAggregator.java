@@ -0,0 +1,117 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.sampler.random;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BulkScorer;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorable;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SimpleCollector;
+import org.apache.lucene.search.Weight;
+import org.elasticsearch.common.lucene.MinimumScoreCollector;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.CardinalityUpperBound;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
+import org.elasticsearch.search.aggregations.bucket.SingleBucketAggregator;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Collects its sub-aggregations on a random sample of the documents that match the top level
+ * query. Instead of filtering the documents that are collected by the top level query, it runs
+ * the conjunction of the top level query with a {@link RandomSamplingQuery} so that documents
+ * that are not part of the sample are skipped rather than visited. The sample is collected
+ * through the {@link ContextIndexSearcher} so that it can be cancelled or timed out like the
+ * top level collection, and only contains documents that reach the {@code min_score}.
+ */
+public class RandomSamplerAggregator extends BucketsAggregator implements SingleBucketAggregator {
+    private final double probability;
+    private final int seed;
+    private final Float minimumScore;
+    private final IndexSearcher searcher;
+    private final Weight weight;
+
+    RandomSamplerAggregator(String name, double probability, int seed, AggregatorFactories factories, AggregationContext context,
+                            Map<String, Object> metadata) throws IOException {
+        super(name, factories, context, null, CardinalityUpperBound.ONE, metadata);
+        this.probability = probability;
+        this.seed = seed;
+        this.minimumScore = context.minimumScore();
+        this.searcher = context.searcher();
+        Query query = context.query();
+        if (probability < 1) {
+            query = new BooleanQuery.Builder()
+                .add(query, BooleanClause.Occur.MUST)
+                .add(new RandomSamplingQuery(probability, seed ^ context.shardRandomSeed()), BooleanClause.Occur.FILTER)
+                .build();
+        }
+        // the sampling query doesn't score so the scores are the ones of the top level query
+        final ScoreMode scoreMode = minimumScore == null ? scoreMode() : ScoreMode.COMPLETE;
+        this.weight = searcher.createWeight(searcher.rewrite(query), scoreMode, 1.0f);
+    }
+
+    @Override
+    public LeafBucketCollector getLeafCollector(LeafReaderContext ctx, LeafBucketCollector sub) throws IOException {
+        // Collect the sample now and let the top level collection skip this aggregation
+        Collector collector = new SimpleCollector() {
+            @Override
+            public void collect(int doc) throws IOException {
+                collectBucket(sub, doc, 0);
+            }
+
+            @Override
+            public void setScorer(Scorable scorer) throws IOException {
+                sub.setScorer(scorer);
+            }
+
+            @Override
+            public ScoreMode scoreMode() {
+                return RandomSamplerAggregator.this.scoreMode();
+            }
+        };
+        if (minimumScore != null) {
+            collector = new MinimumScoreCollector(collector, minimumScore);
+        }
+        if (searcher instanceof ContextIndexSearcher) {
+            ((ContextIndexSearcher) searcher).search(Collections.singletonList(ctx), weight, collector);
+        } else {
+            // only unit tests run aggregations without a ContextIndexSearcher, they can't be cancelled
+            BulkScorer scorer = weight.bulkScorer(ctx);
+            if (scorer != null) {
+                scorer.score(collector.getLeafCollector(ctx), ctx.reader().getLiveDocs());
+            }
+        }
+        return LeafBucketCollector.NO_OP_COLLECTOR;
+    }
+
+    @Override
+    public InternalAggregation[] buildAggregations(long[] owningBucketOrds) throws IOException {
+        assert owningBucketOrds.length == 1 && owningBucketOrds[0] == 0: "random sampler aggregator can only be a top level aggregator";
+        return buildAggregationsForSingleBucket(owningBucketOrds, (owningBucketOrd, subAggregationResults) ->
+            new InternalRandomSampler(name, bucketDocCount(owningBucketOrd), probability, seed, subAggregationResults, metadata())
+        );
+    }
+
+    @Override
+    public InternalAggregation buildEmptyAggregation() {
+        return new InternalRandomSampler(name, 0, probability, seed, InternalAggregations.EMPTY, metadata());
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.sampler.random;
+
+import com.carrotsearch.hppc.BitMixer;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.ConstantScoreScorer;
+import org.apache.lucene.search.ConstantScoreWeight;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+
+import java.util.Objects;
+import java.util.SplittableRandom;
+
+/**
+ * A query that matches each document of the index independently with the provided probability.
+ * <p>
+ * Rather than drawing a random number per document, the iterator draws the gap to the next
+ * matching document from a geometric distribution, so the cost of iterating is proportional
+ * to the number of sampled documents rather than to the number of documents in the segment.
+ * Because the geometric distribution is memoryless, advancing past the next sampled document
+ * just draws a new gap from the target, which keeps every document's inclusion independent.
+ */
+public final class RandomSamplingQuery extends Query {
+
+    private final double probability;
+    private final int seed;
+
+    /**
+     * @param probability the probability with which a document matches, between 0 (excluded) and 1 (excluded)
+     * @param seed the seed of the random draws, the same seed on the same segments matches the same documents
+     */
+    public RandomSamplingQuery(double probability, int seed) {
+        if (probability <= 0 || probability >= 1) {
+            throw new IllegalArgumentException("[probability] must be between 0 and 1 (excluded) but was [" + probability + "]");
+        }
+        this.probability = probability;
+        this.seed = seed;
+    }
+
+    public double probability() {
+        return probability;
+    }
+
+    public int seed() {
+        return seed;
+    }
+
+    @Override
+    public Weight createWeight(IndexSearcher searcher, ScoreMode scoreMode, float boost) {
+        return new ConstantScoreWeight(this, boost) {
+            @Override
+            public Scorer scorer(LeafReaderContext context) {
+                final SplittableRandom random = new SplittableRandom(BitMixer.mix64(((long) seed << 32) | context.docBase));
+                final DocIdSetIterator iterator = new RandomSamplingIterator(context.reader().maxDoc(), probability, random);
+                return new ConstantScoreScorer(this, score(), scoreMode, iterator);
+            }
+
+            @Override
+            public boolean isCacheable(LeafReaderContext ctx) {
+                // caching a sample defeats its purpose of not visiting all matching documents
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public void visit(QueryVisitor visitor) {
+        visitor.visitLeaf(this);
+    }
+
+    @Override
+    public String toString(String field) {
+        return "RandomSamplingQuery{probability=" + probability + ", seed=" + seed + "}";
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (sameClassAs(obj) == false) {
+            return false;
+        }
+        RandomSamplingQuery other = (RandomSamplingQuery) obj;
+        return probability == other.probability && seed == other.seed;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(classHash(), probability, seed);
+    }
+
+    /**
+     * Iterates over the documents of a segment, skipping a geometrically distributed number of
+     * documents between two matches.
+     */
+    static final class RandomSamplingIterator extends DocIdSetIterator {
+        private final int maxDoc;
+        private final double probability;
+        private final double log1mp;
+        private final SplittableRandom random;
+        private int doc = -1;
+
+        RandomSamplingIterator(int maxDoc, double probability, SplittableRandom random) {
+            this.maxDoc = maxDoc;
+            this.probability = probability;
+            this.log1mp = Math.log1p(-probability);
+            this.random = random;
+        }
+
+        @Override
+        public int docID() {
+            return doc;
+        }
+
+        @Override
+        public int nextDoc() {
+            return advance(doc + 1);
+        }
+
+        @Override
+        public int advance(int target) {
+            // number of documents that are skipped before the next match, u is in (0, 1]
+            final double u = 1d - random.nextDouble();
+            final double skip = Math.floor(Math.log(u) / log1mp);
+            if (skip >= maxDoc - target) {
+                return doc = NO_MORE_DOCS;
+            }
+            return doc = target + (int) skip;
+        }
+
+        @Override
+        public long cost() {
+            return Math.max(1L, (long) (maxDoc * probability));
+        }
+    }
+}
@@ -12,9 +12,12 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.bucket.terms.heuristic.SignificanceHeuristic;
+import org.elasticsearch.search.aggregations.support.SamplingContext;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -81,6 +84,18 @@ public abstract class InternalMappedSignificantTerms<
         return bucketMap.get(term);
     }
 
+    @Override
+    public InternalAggregation finalizeSampling(SamplingContext samplingContext) {
+        // the superset statistics come from the whole index, only the statistics of the subset were sampled
+        final long scaledSubsetSize = samplingContext.scaleUp(subsetSize);
+        List<B> scaledBuckets = new ArrayList<>(buckets.size());
+        for (B bucket : buckets) {
+            scaledBuckets.add(createBucket(samplingContext.scaleUp(bucket.subsetDf), scaledSubsetSize, bucket.supersetDf, supersetSize,
+                bucket.aggregations.finalizeSampling(samplingContext), bucket));
+        }
+        return create(scaledSubsetSize, supersetSize, scaledBuckets);
+    }
+
     @Override
     protected long getSubsetSize() {
         return subsetSize;
@@ -13,8 +13,11 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.BucketOrder;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.support.SamplingContext;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -102,6 +105,17 @@ public abstract class InternalMappedTerms<A extends InternalTerms<A, B>, B exten
         return bucketMap.get(term);
     }
 
+    @Override
+    public InternalAggregation finalizeSampling(SamplingContext samplingContext) {
+        List<B> scaledBuckets = new ArrayList<>(buckets.size());
+        for (B bucket : buckets) {
+            scaledBuckets.add(createBucket(samplingContext.scaleUp(bucket.docCount), bucket.aggregations.finalizeSampling(samplingContext),
+                samplingContext.scaleUp(bucket.docCountError), bucket));
+        }
+        return create(name, scaledBuckets, getReduceOrder(), samplingContext.scaleUp(docCountError),
+            samplingContext.scaleUp(otherDocCount));
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
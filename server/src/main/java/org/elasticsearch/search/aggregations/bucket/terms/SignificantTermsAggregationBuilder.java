@@ -326,6 +326,11 @@ public class SignificantTermsAggregationBuilder extends ValuesSourceAggregationB
                 && Objects.equals(significanceHeuristic, other.significanceHeuristic);
     }
 
+    @Override
+    public boolean supportsSampling() {
+        return true;
+    }
+
     @Override
     public String getType() {
         return NAME;
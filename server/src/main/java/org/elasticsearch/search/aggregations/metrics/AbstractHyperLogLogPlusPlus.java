@@ -8,6 +8,7 @@
 
 package org.elasticsearch.search.aggregations.metrics;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.core.Releasable;
@@ -30,6 +31,9 @@ public abstract class AbstractHyperLogLogPlusPlus extends AbstractCardinalityAlg
     public static final boolean LINEAR_COUNTING = false;
     public static final boolean HYPERLOGLOG = true;
 
+    private static final byte SPARSE_RUN_LENS = 0;
+    private static final byte PACKED_RUN_LENS = 1;
+
     public AbstractHyperLogLogPlusPlus(int precision) {
         super(precision);
     }
@@ -105,12 +109,85 @@ public abstract class AbstractHyperLogLogPlusPlus extends AbstractCardinalityAlg
         } else {
             out.writeBoolean(HYPERLOGLOG);
             AbstractHyperLogLog.RunLenIterator iterator = getHyperLogLog(bucket);
-            while (iterator.next()){
-                out.writeByte(iterator.value());
+            if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+                final byte[] runLens = new byte[1 << precision()];
+                for (int i = 0; i < runLens.length; i++) {
+                    iterator.next();
+                    runLens[i] = iterator.value();
+                }
+                writeRunLens(runLens, out);
+            } else {
+                while (iterator.next()) {
+                    out.writeByte(iterator.value());
+                }
             }
         }
     }
 
+    /**
+     * Writes registers either as a list of (index delta, run length) pairs for the non-empty registers if there are few
+     * of them, like right after the upgrade from linear counting, or packed on 6 bits otherwise since run lengths are
+     * at most {@code 64 - precision + 1}.
+     */
+    private static void writeRunLens(byte[] runLens, StreamOutput out) throws IOException {
+        int nonEmpty = 0;
+        for (byte runLen : runLens) {
+            if (runLen != 0) {
+                nonEmpty++;
+            }
+        }
+        final int packedLength = runLens.length / 4 * 3;
+        // sparse registers take at most 4 bytes each, usually 2
+        if (nonEmpty * 3 < packedLength) {
+            out.writeByte(SPARSE_RUN_LENS);
+            out.writeVInt(nonEmpty);
+            int previous = 0;
+            for (int i = 0; i < runLens.length; i++) {
+                if (runLens[i] != 0) {
+                    out.writeVInt(i - previous);
+                    out.writeByte(runLens[i]);
+                    previous = i;
+                }
+            }
+        } else {
+            out.writeByte(PACKED_RUN_LENS);
+            final byte[] packed = new byte[packedLength];
+            for (int i = 0, j = 0; i < runLens.length; i += 4, j += 3) {
+                final int bits = runLens[i] | (runLens[i + 1] << 6) | (runLens[i + 2] << 12) | (runLens[i + 3] << 18);
+                packed[j] = (byte) bits;
+                packed[j + 1] = (byte) (bits >>> 8);
+                packed[j + 2] = (byte) (bits >>> 16);
+            }
+            out.writeBytes(packed);
+        }
+    }
+
+    private static byte[] readRunLens(int precision, StreamInput in) throws IOException {
+        final byte[] runLens = new byte[1 << precision];
+        final byte encoding = in.readByte();
+        if (encoding == SPARSE_RUN_LENS) {
+            final int nonEmpty = in.readVInt();
+            int index = 0;
+            for (int i = 0; i < nonEmpty; i++) {
+                index += in.readVInt();
+                runLens[index] = in.readByte();
+            }
+        } else if (encoding == PACKED_RUN_LENS) {
+            final byte[] packed = new byte[runLens.length / 4 * 3];
+            in.readBytes(packed, 0, packed.length);
+            for (int i = 0, j = 0; i < runLens.length; i += 4, j += 3) {
+                final int bits = (packed[j] & 0xFF) | ((packed[j + 1] & 0xFF) << 8) | ((packed[j + 2] & 0xFF) << 16);
+                runLens[i] = (byte) (bits & 0x3F);
+                runLens[i + 1] = (byte) ((bits >>> 6) & 0x3F);
+                runLens[i + 2] = (byte) ((bits >>> 12) & 0x3F);
+                runLens[i + 3] = (byte) (bits >>> 18);
+            }
+        } else {
+            throw new IllegalStateException("unknown run lengths encoding [" + encoding + "]");
+        }
+        return runLens;
+    }
+
     public static AbstractHyperLogLogPlusPlus readFrom(StreamInput in, BigArrays bigArrays) throws IOException {
         final int precision = in.readVInt();
         final boolean algorithm = in.readBoolean();
@@ -125,9 +202,13 @@ public abstract class AbstractHyperLogLogPlusPlus extends AbstractCardinalityAlg
             return counts;
         } else {
             HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(precision, bigArrays, 1);
-            final int registers = 1 << precision;
-            for (int i = 0; i < registers; ++i) {
-                counts.addRunLen(0, i, in.readByte());
+            if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+                counts.setRunLens(0, readRunLens(precision, in));
+            } else {
+                final int registers = 1 << precision;
+                for (int i = 0; i < registers; ++i) {
+                    counts.addRunLen(0, i, in.readByte());
+                }
             }
             return counts;
         }
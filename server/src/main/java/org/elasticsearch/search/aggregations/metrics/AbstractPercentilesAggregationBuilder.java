@@ -29,7 +29,7 @@ import java.util.function.Supplier;
 
 /**
  * This provides a base class for aggregations that are building percentiles or percentiles-like functionality (e.g. percentile ranks).
- * It provides a set of common fields/functionality for setting the available algorithms (TDigest and HDRHistogram),
+ * It provides a set of common fields/functionality for setting the available algorithms (TDigest, HDRHistogram and DDSketch),
  * as well as algorithm-specific settings via a {@link PercentilesConfig} object
  */
 public abstract class AbstractPercentilesAggregationBuilder<T extends AbstractPercentilesAggregationBuilder<T>>
@@ -62,6 +62,7 @@ public abstract class AbstractPercentilesAggregationBuilder<T extends AbstractPe
          *  - args[0]: values
          *  - args[1]: tdigest config options
          *  - args[2]: hdr config options
+         *  - args[3]: ddsketch config options
          *
          *  If `args` is null or empty, it means all were omitted.  This is usually an anti-pattern for
          *  ConstructingObjectParser, but we're allowing it because of the above-mentioned reasons
@@ -76,18 +77,20 @@ public abstract class AbstractPercentilesAggregationBuilder<T extends AbstractPe
 
             PercentilesConfig tDigestConfig = (PercentilesConfig) args[1];
             PercentilesConfig hdrConfig = (PercentilesConfig) args[2];
+            PercentilesConfig ddSketchConfig = (PercentilesConfig) args[3];
 
             double[] values = args[0] != null ? ((List<Double>) args[0]).stream().mapToDouble(Double::doubleValue).toArray() : null;
-            PercentilesConfig percentilesConfig;
-
-            if (tDigestConfig != null && hdrConfig != null) {
-                throw new IllegalArgumentException("Only one percentiles method should be declared.");
-            } else if (tDigestConfig == null && hdrConfig == null) {
+            PercentilesConfig percentilesConfig = null;
+            for (PercentilesConfig config : new PercentilesConfig[] { tDigestConfig, hdrConfig, ddSketchConfig }) {
+                if (config != null) {
+                    if (percentilesConfig != null) {
+                        throw new IllegalArgumentException("Only one percentiles method should be declared.");
+                    }
+                    percentilesConfig = config;
+                }
+            }
+            if (percentilesConfig == null) {
                 percentilesConfig = defaultConfig.get();
-            } else if (tDigestConfig != null) {
-                percentilesConfig = tDigestConfig;
-            } else {
-                percentilesConfig = hdrConfig;
             }
 
             return ctor.apply(name, values, percentilesConfig);
@@ -100,6 +103,8 @@ public abstract class AbstractPercentilesAggregationBuilder<T extends AbstractPe
             PercentilesMethod.TDIGEST.getParseField());
         parser.declareObject(ConstructingObjectParser.optionalConstructorArg(), PercentilesMethod.HDR_PARSER,
             PercentilesMethod.HDR.getParseField());
+        parser.declareObject(ConstructingObjectParser.optionalConstructorArg(), PercentilesMethod.DDSKETCH_PARSER,
+            PercentilesMethod.DDSKETCH.getParseField());
 
         return parser;
     }
@@ -152,6 +157,10 @@ public abstract class AbstractPercentilesAggregationBuilder<T extends AbstractPe
         if (out.getVersion().onOrAfter(Version.V_7_8_0)) {
             out.writeOptionalWriteable(percentilesConfig);
         } else {
+            if (percentilesConfig.getMethod().equals(PercentilesMethod.DDSKETCH)) {
+                throw new IllegalArgumentException("The [" + PercentilesMethod.DDSKETCH + "] percentiles method requires all nodes to be "
+                    + "on version [" + Version.V_8_0_0 + "] or later");
+            }
             // Legacy method serialized both SigFigs and compression, even though we only need one.  So we need
             // to serialize the default for the unused method
             int numberOfSignificantValueDigits = percentilesConfig.getMethod().equals(PercentilesMethod.HDR)
@@ -260,24 +269,29 @@ public abstract class AbstractPercentilesAggregationBuilder<T extends AbstractPe
             throw new IllegalArgumentException("[method] must not be null: [" + name + "]");
         }
         if (percentilesConfig == null) {
-            if (method.equals(PercentilesMethod.TDIGEST) ) {
-                this.percentilesConfig = new PercentilesConfig.TDigest();
-            } else {
-                this.percentilesConfig = new PercentilesConfig.Hdr();
-            }
+            this.percentilesConfig = defaultConfig(method);
         } else if (percentilesConfig.getMethod().equals(method) == false) {
             // we already have an algo configured, but it's different from the requested method
             // reset to default for the requested method
-            if (method.equals(PercentilesMethod.TDIGEST) ) {
-                this.percentilesConfig = new PercentilesConfig.TDigest();
-            } else {
-                this.percentilesConfig = new PercentilesConfig.Hdr();
-            }
+            this.percentilesConfig = defaultConfig(method);
         } // if method and config were same, this is a no-op so we don't overwrite settings
 
         return (T) this;
     }
 
+    private static PercentilesConfig defaultConfig(PercentilesMethod method) {
+        switch (method) {
+            case TDIGEST:
+                return new PercentilesConfig.TDigest();
+            case HDR:
+                return new PercentilesConfig.Hdr();
+            case DDSKETCH:
+                return new PercentilesConfig.DDSketch();
+            default:
+                throw new IllegalArgumentException("Unsupported percentiles algorithm [" + method + "]");
+        }
+    }
+
     /**
      * Deprecated: get method by inspecting the {@link PercentilesConfig} returned from
      * {@link PercentilesAggregationBuilder#percentilesConfig()} instead
@@ -345,6 +359,11 @@ public abstract class AbstractPercentilesAggregationBuilder<T extends AbstractPe
             && Objects.equals(configOrDefault(), other.configOrDefault());
     }
 
+    @Override
+    public boolean supportsSampling() {
+        return true;
+    }
+
     @Override
     public int hashCode() {
         return Objects.hash(super.hashCode(), Arrays.hashCode(values), keyed, configOrDefault());
@@ -86,6 +86,11 @@ public class AvgAggregationBuilder extends ValuesSourceAggregationBuilder.LeafOn
         return builder;
     }
 
+    @Override
+    public boolean supportsSampling() {
+        return true;
+    }
+
     @Override
     public String getType() {
         return NAME;
@@ -16,9 +16,9 @@ import org.elasticsearch.common.util.LongArray;
 import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.BlockLeafBucketCollector;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
-import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
 import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
@@ -61,17 +61,19 @@ class AvgAggregator extends NumericMetricsAggregator.SingleValue {
             return LeafBucketCollector.NO_OP_COLLECTOR;
         }
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
+        final BlockDoubleValues blockValues = new BlockDoubleValues(values);
         final CompensatedSum kahanSummation = new CompensatedSum(0, 0);
 
-        return new LeafBucketCollectorBase(sub, values) {
+        return collectInBlocks(new BlockLeafBucketCollector(sub, values, valuesSource.needsScores() == false) {
             @Override
-            public void collect(int doc, long bucket) throws IOException {
+            public void collect(int[] docs, int count, long bucket) throws IOException {
                 counts = bigArrays().grow(counts, bucket + 1);
                 sums = bigArrays().grow(sums, bucket + 1);
                 compensations = bigArrays().grow(compensations, bucket + 1);
 
-                if (values.advanceExact(doc)) {
-                    final int valueCount = values.docValueCount();
+                final int valueCount = blockValues.load(docs, count);
+                if (valueCount > 0) {
+                    final double[] blockOfValues = blockValues.values();
                     counts.increment(bucket, valueCount);
                     // Compute the sum of double values with Kahan summation algorithm which is more
                     // accurate than naive summation.
@@ -81,15 +83,14 @@ class AvgAggregator extends NumericMetricsAggregator.SingleValue {
                     kahanSummation.reset(sum, compensation);
 
                     for (int i = 0; i < valueCount; i++) {
-                        double value = values.nextValue();
-                        kahanSummation.add(value);
+                        kahanSummation.add(blockOfValues[i]);
                     }
 
                     sums.set(bucket, kahanSummation.value());
                     compensations.set(bucket, kahanSummation.delta());
                 }
             }
-        };
+        });
     }
 
     @Override
@@ -0,0 +1,67 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations.metrics;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.elasticsearch.index.fielddata.FieldData;
+import org.elasticsearch.index.fielddata.NumericDoubleValues;
+import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
+import org.elasticsearch.search.aggregations.BlockLeafBucketCollector;
+
+import java.io.IOException;
+
+/**
+ * Loads the values of blocks of documents into a reusable array so that numeric
+ * metric aggregators can aggregate them in tight loops over primitives rather
+ * than doing a virtual call per value.
+ */
+public final class BlockDoubleValues {
+    private final SortedNumericDoubleValues values;
+    // non-null if the field has a single value per document
+    private final NumericDoubleValues singleValues;
+    private double[] buffer = new double[BlockLeafBucketCollector.BLOCK_SIZE];
+
+    public BlockDoubleValues(SortedNumericDoubleValues values) {
+        this.values = values;
+        this.singleValues = FieldData.unwrapSingleton(values);
+    }
+
+    /**
+     * Loads all the values of the first {@code count} documents of {@code docs}
+     * and returns how many values were loaded into {@link #values()}.
+     */
+    public int load(int[] docs, int count) throws IOException {
+        int size = 0;
+        if (singleValues != null) {
+            for (int i = 0; i < count; i++) {
+                if (singleValues.advanceExact(docs[i])) {
+                    buffer[size++] = singleValues.doubleValue();
+                }
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                if (values.advanceExact(docs[i])) {
+                    final int valueCount = values.docValueCount();
+                    buffer = ArrayUtil.grow(buffer, size + valueCount);
+                    for (int j = 0; j < valueCount; j++) {
+                        buffer[size++] = values.nextValue();
+                    }
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * The values that were loaded by the last call to {@link #load}.
+     */
+    public double[] values() {
+        return buffer;
+    }
+}
@@ -0,0 +1,406 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations.metrics;
+
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+
+/**
+ * A quantile sketch in the style of DDSketch that guarantees a bounded
+ * <strong>relative</strong> error on every quantile it returns. Values are
+ * counted in buckets whose boundaries grow geometrically by
+ * {@code gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy)} so that
+ * any value in a bucket is within {@code relativeAccuracy} of the bucket's
+ * representative value. Positive and negative values are counted in separate
+ * stores and values too close to zero to be indexed are counted on their own.
+ * <p>
+ * Unlike a t-digest, two sketches with the same accuracy merge by adding
+ * their bucket counts so the result doesn't depend on the order in which
+ * shard results are reduced. Each store keeps at most
+ * {@link #MAX_NUM_BUCKETS} buckets; once a store would need more the lowest
+ * buckets are collapsed, which only affects the accuracy of the values
+ * closest to zero.
+ */
+public class DDSketchState implements Accountable {
+
+    /**
+     * The maximum number of buckets kept per store. At the default accuracy
+     * of 1% this covers values spanning about seventeen orders of magnitude.
+     */
+    static final int MAX_NUM_BUCKETS = 2048;
+
+    /**
+     * The smallest supported relative accuracy, below which the indices of
+     * the buckets for the largest and smallest doubles no longer fit in an int.
+     */
+    public static final double MIN_RELATIVE_ACCURACY = 1e-6;
+
+    /**
+     * Values whose absolute value is smaller than this are counted as zeros.
+     */
+    private static final double MIN_INDEXABLE_VALUE = Double.MIN_NORMAL;
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(DDSketchState.class)
+        + 2 * RamUsageEstimator.shallowSizeOfInstance(Store.class);
+
+    private final double relativeAccuracy;
+    private final double gamma;
+    private final double logGamma;
+    private final Store positive = new Store();
+    private final Store negative = new Store();
+    private long zeroCount;
+    private long count;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public DDSketchState(double relativeAccuracy) {
+        if (relativeAccuracy < MIN_RELATIVE_ACCURACY || relativeAccuracy >= 1) {
+            throw new IllegalArgumentException("[relative_accuracy] must be greater than or equal to " + MIN_RELATIVE_ACCURACY
+                + " and less than 1. Found [" + relativeAccuracy + "]");
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+    }
+
+    public double relativeAccuracy() {
+        return relativeAccuracy;
+    }
+
+    /**
+     * The number of values added to this sketch.
+     */
+    public long size() {
+        return count;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    public void add(double value, long valueCount) {
+        if (Double.isNaN(value)) {
+            throw new IllegalArgumentException("Cannot add NaN to DDSketch");
+        }
+        if (Double.isInfinite(value)) {
+            throw new IllegalArgumentException("Cannot add infinite values to DDSketch");
+        }
+        if (valueCount <= 0) {
+            return;
+        }
+        if (value >= MIN_INDEXABLE_VALUE) {
+            positive.add(index(value), valueCount);
+        } else if (value <= -MIN_INDEXABLE_VALUE) {
+            negative.add(index(-value), valueCount);
+        } else {
+            zeroCount += valueCount;
+        }
+        count += valueCount;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Merge another sketch into this one. Both sketches must have been
+     * built with the same relative accuracy so their buckets line up.
+     */
+    public void add(DDSketchState other) {
+        if (relativeAccuracy != other.relativeAccuracy) {
+            throw new IllegalArgumentException("Cannot merge DDSketch with relative accuracy [" + other.relativeAccuracy
+                + "] into DDSketch with relative accuracy [" + relativeAccuracy + "]");
+        }
+        if (other.count == 0) {
+            return;
+        }
+        positive.add(other.positive);
+        negative.add(other.negative);
+        zeroCount += other.zeroCount;
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Returns an estimate of the quantile {@code q} with {@code 0 <= q <= 1}
+     * or {@link Double#NaN} if the sketch is empty.
+     */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) {
+            throw new IllegalArgumentException("q should be in [0,1], got " + q);
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (q == 0) {
+            return min;
+        }
+        if (q == 1) {
+            return max;
+        }
+        final long rank = (long) (q * (count - 1));
+        long seen = 0;
+        for (int index = negative.maxIndex; index >= negative.minIndex; index--) {
+            seen += negative.get(index);
+            if (seen > rank) {
+                return clamp(-value(index));
+            }
+        }
+        seen += zeroCount;
+        if (seen > rank) {
+            return clamp(0);
+        }
+        for (int index = positive.minIndex; index <= positive.maxIndex; index++) {
+            seen += positive.get(index);
+            if (seen > rank) {
+                return clamp(value(index));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns an estimate of the fraction of values that are less than or
+     * equal to {@code x} or {@link Double#NaN} if the sketch is empty.
+     */
+    public double cdf(double x) {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (x < min) {
+            return 0;
+        }
+        if (x >= max) {
+            return 1;
+        }
+        long seen = 0;
+        for (int index = negative.maxIndex; index >= negative.minIndex && -value(index) <= x; index--) {
+            seen += negative.get(index);
+        }
+        if (x >= 0) {
+            seen += zeroCount;
+            for (int index = positive.minIndex; index <= positive.maxIndex && value(index) <= x; index++) {
+                seen += positive.get(index);
+            }
+        }
+        return (double) seen / count;
+    }
+
+    private int index(double value) {
+        return (int) Math.ceil(Math.log(value) / logGamma);
+    }
+
+    /**
+     * The value minimizing the relative error for all values in the bucket
+     * {@code (gamma^(index-1), gamma^index]}.
+     */
+    private double value(int index) {
+        return 2 * Math.exp(index * logGamma) / (gamma + 1);
+    }
+
+    private double clamp(double value) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(positive.counts) + RamUsageEstimator.sizeOf(negative.counts);
+    }
+
+    public static void write(DDSketchState state, StreamOutput out) throws IOException {
+        out.writeDouble(state.relativeAccuracy);
+        out.writeVLong(state.zeroCount);
+        out.writeDouble(state.min);
+        out.writeDouble(state.max);
+        state.positive.writeTo(out);
+        state.negative.writeTo(out);
+    }
+
+    public static DDSketchState read(StreamInput in) throws IOException {
+        DDSketchState state = new DDSketchState(in.readDouble());
+        state.zeroCount = in.readVLong();
+        state.min = in.readDouble();
+        state.max = in.readDouble();
+        state.positive.readFrom(in);
+        state.negative.readFrom(in);
+        state.count = state.zeroCount + state.positive.total() + state.negative.total();
+        return state;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null || obj instanceof DDSketchState == false) {
+            return false;
+        }
+        DDSketchState that = (DDSketchState) obj;
+        return relativeAccuracy == that.relativeAccuracy
+            && zeroCount == that.zeroCount
+            && count == that.count
+            && Double.compare(min, that.min) == 0
+            && Double.compare(max, that.max) == 0
+            && positive.equals(that.positive)
+            && negative.equals(that.negative);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = getClass().hashCode();
+        h = 31 * h + Double.hashCode(relativeAccuracy);
+        h = 31 * h + Long.hashCode(zeroCount);
+        h = 31 * h + Double.hashCode(min);
+        h = 31 * h + Double.hashCode(max);
+        h = 31 * h + positive.hashCode();
+        h = 31 * h + negative.hashCode();
+        return h;
+    }
+
+    /**
+     * Dense bucket counts for a contiguous range of bucket indices.
+     */
+    static final class Store {
+        private static final long[] EMPTY = new long[0];
+
+        private long[] counts = EMPTY;
+        /**
+         * The bucket index of {@code counts[0]}.
+         */
+        private int offset;
+        private int minIndex = Integer.MAX_VALUE;
+        private int maxIndex = Integer.MIN_VALUE;
+
+        boolean isEmpty() {
+            return maxIndex < minIndex;
+        }
+
+        long get(int index) {
+            return counts[index - offset];
+        }
+
+        long total() {
+            long total = 0;
+            for (int index = minIndex; index <= maxIndex; index++) {
+                total += get(index);
+            }
+            return total;
+        }
+
+        void add(int index, long count) {
+            if (index < minIndex || index > maxIndex) {
+                extendRange(Math.min(index, minIndex), Math.max(index, maxIndex));
+            }
+            // indices below minIndex have been collapsed into it
+            counts[Math.max(index, minIndex) - offset] += count;
+        }
+
+        void add(Store other) {
+            if (other.isEmpty()) {
+                return;
+            }
+            if (other.minIndex < minIndex || other.maxIndex > maxIndex) {
+                extendRange(Math.min(other.minIndex, minIndex), Math.max(other.maxIndex, maxIndex));
+            }
+            for (int index = other.minIndex; index <= other.maxIndex; index++) {
+                counts[Math.max(index, minIndex) - offset] += other.get(index);
+            }
+        }
+
+        /**
+         * Make room for the buckets in {@code [newMinIndex, newMaxIndex]},
+         * collapsing the lowest buckets if that would take more than
+         * {@link #MAX_NUM_BUCKETS} buckets.
+         */
+        private void extendRange(int newMinIndex, int newMaxIndex) {
+            if (newMaxIndex - newMinIndex >= MAX_NUM_BUCKETS) {
+                newMinIndex = newMaxIndex - MAX_NUM_BUCKETS + 1;
+            }
+            boolean collapse = isEmpty() == false && newMinIndex > minIndex;
+            if (collapse || newMinIndex < offset || newMaxIndex >= offset + counts.length) {
+                int length = newMaxIndex - newMinIndex + 1;
+                int capacity = Math.min(MAX_NUM_BUCKETS, Math.max(length, Math.max(16, counts.length * 2)));
+                // center the used range so the store can grow in both directions
+                int newOffset = newMinIndex - (capacity - length) / 2;
+                long[] newCounts = new long[capacity];
+                for (int index = minIndex; index <= maxIndex; index++) {
+                    newCounts[Math.max(index, newMinIndex) - newOffset] += get(index);
+                }
+                counts = newCounts;
+                offset = newOffset;
+            }
+            minIndex = newMinIndex;
+            maxIndex = newMaxIndex;
+        }
+
+        void writeTo(StreamOutput out) throws IOException {
+            if (isEmpty()) {
+                out.writeVInt(0);
+                return;
+            }
+            out.writeVInt(maxIndex - minIndex + 1);
+            out.writeZLong(minIndex);
+            for (int index = minIndex; index <= maxIndex; index++) {
+                out.writeVLong(get(index));
+            }
+        }
+
+        void readFrom(StreamInput in) throws IOException {
+            int length = in.readVInt();
+            if (length == 0) {
+                return;
+            }
+            if (length > MAX_NUM_BUCKETS) {
+                throw new IllegalArgumentException("DDSketch store can't have more than [" + MAX_NUM_BUCKETS + "] buckets but got ["
+                    + length + "]");
+            }
+            offset = Math.toIntExact(in.readZLong());
+            counts = new long[length];
+            for (int i = 0; i < length; i++) {
+                counts[i] = in.readVLong();
+            }
+            minIndex = offset;
+            maxIndex = offset + length - 1;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == null || obj instanceof Store == false) {
+                return false;
+            }
+            Store that = (Store) obj;
+            if (minIndex != that.minIndex || maxIndex != that.maxIndex) {
+                return false;
+            }
+            for (int index = minIndex; index <= maxIndex; index++) {
+                if (get(index) != that.get(index)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int h = 31 * minIndex + maxIndex;
+            for (int index = minIndex; index <= maxIndex; index++) {
+                h = 31 * h + Long.hashCode(get(index));
+            }
+            return h;
+        }
+    }
+}
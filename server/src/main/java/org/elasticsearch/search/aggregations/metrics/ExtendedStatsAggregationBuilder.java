@@ -120,6 +120,11 @@ public class ExtendedStatsAggregationBuilder
         return Objects.equals(sigma, other.sigma);
     }
 
+    @Override
+    public boolean supportsSampling() {
+        return true;
+    }
+
     @Override
     public String getType() {
         return NAME;
@@ -128,6 +128,11 @@ public class GeoBoundsAggregationBuilder extends ValuesSourceAggregationBuilder<
         return Objects.equals(wrapLongitude, other.wrapLongitude);
     }
 
+    @Override
+    public boolean supportsSampling() {
+        return true;
+    }
+
     @Override
     public String getType() {
         return NAME;
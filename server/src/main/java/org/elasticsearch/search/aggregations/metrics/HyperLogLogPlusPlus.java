@@ -40,6 +40,7 @@ import java.nio.ByteOrder;
 public final class HyperLogLogPlusPlus extends AbstractHyperLogLogPlusPlus {
 
     private static final float MAX_LOAD_FACTOR = 0.75f;
+    private static final long HIGH_BITS = 0x8080808080808080L;
 
     public static final int DEFAULT_PRECISION = 14;
 
@@ -170,11 +171,26 @@ public final class HyperLogLogPlusPlus extends AbstractHyperLogLogPlusPlus {
         hll.ensureCapacity(thisBucket + 1);
         if (other.getAlgorithm(otherBucket) == LINEAR_COUNTING) {
             merge(thisBucket, other.getLinearCounting(otherBucket));
+        } else if (other instanceof HyperLogLogPlusPlus) {
+            if (algorithm.get(thisBucket) != HYPERLOGLOG) {
+                upgradeToHll(thisBucket);
+            }
+            hll.merge(thisBucket, ((HyperLogLogPlusPlus) other).hll, otherBucket);
         } else {
             merge(thisBucket, other.getHyperLogLog(otherBucket));
         }
     }
 
+    /**
+     * Sets the registers of the given bucket, which must not have collected any value yet.
+     */
+    void setRunLens(long bucketOrd, byte[] runLens) {
+        assert runLens.length == hll.m;
+        hll.ensureCapacity(bucketOrd + 1);
+        algorithm.set(bucketOrd);
+        hll.runLens.set(bucketOrd << precision(), runLens, 0, runLens.length);
+    }
+
     private void merge(long thisBucket, AbstractLinearCounting.HashesIterator values) {
         while (values.next()) {
             final int encoded = values.value();
@@ -199,13 +215,28 @@ public final class HyperLogLogPlusPlus extends AbstractHyperLogLogPlusPlus {
         }
     }
 
+    /**
+     * Returns the byte-wise maximum of eight run lengths. Run lengths are less than 128 so the high bit of each byte
+     * of the difference tells which value is greater without borrowing from the next byte.
+     */
+    static long maxRunLens(long a, long b) {
+        final long greaterOrEqual = ((a | HIGH_BITS) - b) & HIGH_BITS;
+        final long mask = (greaterOrEqual >>> 7) * 0xFF;
+        return (a & mask) | (b & ~mask);
+    }
+
     private static class HyperLogLog extends AbstractHyperLogLog implements Releasable {
+        // registers are merged in chunks that are within a single page of the big array
+        private static final int MERGE_CHUNK_SIZE = 4096;
+
         private final BigArrays bigArrays;
         private final HyperLogLogIterator iterator;
+        private final BytesRef mergeSpare = new BytesRef();
+        private final BytesRef otherMergeSpare = new BytesRef();
+        private byte[] mergeBuffer;
         // array for holding the runlens.
         private ByteArray runLens;
 
-
         HyperLogLog(BigArrays bigArrays, long initialBucketCount, int precision) {
             super(precision);
             this.runLens =  bigArrays.newByteArray(initialBucketCount << precision);
@@ -223,6 +254,30 @@ public final class HyperLogLogPlusPlus extends AbstractHyperLogLogPlusPlus {
             runLens.set(bucketIndex, (byte) Math.max(encoded, runLens.get(bucketIndex)));
         }
 
+        /**
+         * Merges the registers of a bucket of another instance into the registers of the given bucket. Registers are
+         * read in chunks that don't cross pages so that they don't need to be copied, and merged eight at a time.
+         */
+        void merge(long bucketOrd, HyperLogLog other, long otherBucketOrd) {
+            assert p == other.p;
+            final int chunkSize = Math.min(m, MERGE_CHUNK_SIZE);
+            if (mergeBuffer == null) {
+                mergeBuffer = new byte[chunkSize];
+            }
+            final long start = bucketOrd << p;
+            final long otherStart = otherBucketOrd << p;
+            for (int offset = 0; offset < m; offset += chunkSize) {
+                runLens.get(start + offset, chunkSize, mergeSpare);
+                other.runLens.get(otherStart + offset, chunkSize, otherMergeSpare);
+                for (int i = 0; i < chunkSize; i += Long.BYTES) {
+                    final long registers = ByteUtils.readLongLE(mergeSpare.bytes, mergeSpare.offset + i);
+                    final long otherRegisters = ByteUtils.readLongLE(otherMergeSpare.bytes, otherMergeSpare.offset + i);
+                    ByteUtils.writeLongLE(maxRunLens(registers, otherRegisters), mergeBuffer, i);
+                }
+                runLens.set(start + offset, mergeBuffer, 0, chunkSize);
+            }
+        }
+
         @Override
         protected RunLenIterator getRunLens(long bucketOrd) {
             iterator.reset(bucketOrd);
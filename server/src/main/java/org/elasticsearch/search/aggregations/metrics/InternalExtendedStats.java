@@ -12,6 +12,7 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.support.SamplingContext;
 
 import java.io.IOException;
 import java.util.Collections;
@@ -255,6 +256,13 @@ public class InternalExtendedStats extends InternalStats implements ExtendedStat
             format, getMetadata());
     }
 
+    @Override
+    public InternalAggregation finalizeSampling(SamplingContext samplingContext) {
+        // scaling the count, the sum and the sum of squares alike keeps the average and the variance of the sample
+        return new InternalExtendedStats(name, samplingContext.scaleUp(count), samplingContext.scaleUp(sum), min, max,
+            samplingContext.scaleUp(sumOfSqrs), sigma, format, getMetadata());
+    }
+
     static class Fields {
         public static final String SUM_OF_SQRS = "sum_of_squares";
         public static final String SUM_OF_SQRS_AS_STRING = "sum_of_squares_as_string";
@@ -16,6 +16,7 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.support.SamplingContext;
 
 import java.io.IOException;
 import java.util.List;
@@ -122,6 +123,11 @@ public class InternalGeoCentroid extends InternalAggregation implements GeoCentr
         return new InternalGeoCentroid(name, result, totalCount, getMetadata());
     }
 
+    @Override
+    public InternalAggregation finalizeSampling(SamplingContext samplingContext) {
+        return new InternalGeoCentroid(name, centroid, samplingContext.scaleUp(count), getMetadata());
+    }
+
     @Override
     protected boolean mustReduceOnSingleInternalAgg() {
         return false;
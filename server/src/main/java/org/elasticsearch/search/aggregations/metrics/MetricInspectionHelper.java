@@ -25,6 +25,14 @@ public class MetricInspectionHelper {
         return agg.getCounts() != null;
     }
 
+    public static boolean hasValue(InternalDDSketchPercentileRanks agg) {
+        return agg.getState().size() > 0;
+    }
+
+    public static boolean hasValue(InternalDDSketchPercentiles agg) {
+        return agg.getState().size() > 0;
+    }
+
     public static boolean hasValue(InternalHDRPercentileRanks agg) {
         return agg.getState().getTotalCount() > 0;
     }
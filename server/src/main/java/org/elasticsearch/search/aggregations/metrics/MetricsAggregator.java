@@ -11,14 +11,19 @@ package org.elasticsearch.search.aggregations.metrics;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorBase;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.BlockLeafBucketCollector;
 import org.elasticsearch.search.aggregations.CardinalityUpperBound;
 import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
 
 import java.io.IOException;
 import java.util.Map;
 
 public abstract class MetricsAggregator extends AggregatorBase {
+    // the collector of the segment that is being collected, which may still buffer documents
+    private BlockLeafBucketCollector blockCollector;
+
     protected MetricsAggregator(String name, AggregationContext context, Aggregator parent, Map<String, Object> metadata)
         throws IOException {
         super(name, AggregatorFactories.EMPTY, context, parent, CardinalityUpperBound.NONE, metadata);
@@ -28,6 +33,31 @@ public abstract class MetricsAggregator extends AggregatorBase {
          */
     }
 
+    /**
+     * Registers the collector of a new segment that collects documents in blocks.
+     * The documents that are still buffered by the collector of the previous
+     * segment are collected first, and the last collector is flushed in
+     * {@link #postCollection()}.
+     */
+    protected final LeafBucketCollector collectInBlocks(BlockLeafBucketCollector collector) throws IOException {
+        flushBlocks();
+        blockCollector = collector;
+        return collector;
+    }
+
+    private void flushBlocks() throws IOException {
+        if (blockCollector != null) {
+            blockCollector.flush();
+            blockCollector = null;
+        }
+    }
+
+    @Override
+    public void postCollection() throws IOException {
+        flushBlocks();
+        super.postCollection();
+    }
+
     /**
      * Build an aggregation for data that has been collected into
      * {@code owningBucketOrd}.
@@ -91,6 +91,11 @@ public class MinAggregationBuilder extends ValuesSourceAggregationBuilder.LeafOn
         return builder;
     }
 
+    @Override
+    public boolean supportsSampling() {
+        return true;
+    }
+
     @Override
     public String getType() {
         return NAME;
@@ -15,14 +15,12 @@ import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.util.Bits;
 import org.elasticsearch.core.Releasables;
 import org.elasticsearch.common.util.DoubleArray;
-import org.elasticsearch.index.fielddata.NumericDoubleValues;
 import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
 import org.elasticsearch.search.DocValueFormat;
-import org.elasticsearch.search.MultiValueMode;
 import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.BlockLeafBucketCollector;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
-import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
 import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
@@ -89,24 +87,27 @@ public class MinAggregator extends NumericMetricsAggregator.SingleValue {
             }
         }
         final SortedNumericDoubleValues allValues = valuesSource.doubleValues(ctx);
-        final NumericDoubleValues values = MultiValueMode.MIN.select(allValues);
-        return new LeafBucketCollectorBase(sub, allValues) {
+        final BlockDoubleValues blockValues = new BlockDoubleValues(allValues);
+        return collectInBlocks(new BlockLeafBucketCollector(sub, allValues, valuesSource.needsScores() == false) {
             @Override
-            public void collect(int doc, long bucket) throws IOException {
+            public void collect(int[] docs, int count, long bucket) throws IOException {
                 if (bucket >= mins.size()) {
                     long from = mins.size();
                     mins = bigArrays().grow(mins, bucket + 1);
                     mins.fill(from, mins.size(), Double.POSITIVE_INFINITY);
                 }
-                if (values.advanceExact(doc)) {
-                    final double value = values.doubleValue();
+                final int valuesCount = blockValues.load(docs, count);
+                if (valuesCount > 0) {
+                    final double[] blockOfValues = blockValues.values();
                     double min = mins.get(bucket);
-                    min = Math.min(min, value);
+                    for (int i = 0; i < valuesCount; i++) {
+                        min = Math.min(min, blockOfValues[i]);
+                    }
                     mins.set(bucket, min);
                 }
             }
 
-        };
+        });
     }
 
     @Override
@@ -8,6 +8,7 @@
 
 package org.elasticsearch.search.aggregations.metrics;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
@@ -24,7 +25,7 @@ import java.util.Objects;
 
 /**
  * A small config object that carries algo-specific settings.  This allows the factory to have
- * a single unified constructor for both algos, but internally switch execution
+ * a single unified constructor for all algos, but internally switch execution
  * depending on which algo is selected
  */
 public abstract class PercentilesConfig implements ToXContent, Writeable {
@@ -244,4 +245,83 @@ public abstract class PercentilesConfig implements ToXContent, Writeable {
             return Objects.hash(super.hashCode(), numberOfSignificantValueDigits);
         }
     }
+
+    public static class DDSketch extends PercentilesConfig {
+        static final double DEFAULT_RELATIVE_ACCURACY = 0.01;
+        private double relativeAccuracy;
+
+        public DDSketch() {
+            this(DEFAULT_RELATIVE_ACCURACY);
+        }
+
+        public DDSketch(double relativeAccuracy) {
+            super(PercentilesMethod.DDSKETCH);
+            setRelativeAccuracy(relativeAccuracy);
+        }
+
+        DDSketch(StreamInput in) throws IOException {
+            this(in.readDouble());
+        }
+
+        public void setRelativeAccuracy(double relativeAccuracy) {
+            if (relativeAccuracy < DDSketchState.MIN_RELATIVE_ACCURACY || relativeAccuracy >= 1) {
+                throw new IllegalArgumentException("[relative_accuracy] must be greater than or equal to "
+                    + DDSketchState.MIN_RELATIVE_ACCURACY + " and less than 1. Found [" + relativeAccuracy + "]");
+            }
+            this.relativeAccuracy = relativeAccuracy;
+        }
+
+        public double getRelativeAccuracy() {
+            return relativeAccuracy;
+        }
+
+        @Override
+        public Aggregator createPercentilesAggregator(String name, ValuesSource valuesSource, AggregationContext context, Aggregator parent,
+                                                      double[] values, boolean keyed, DocValueFormat formatter,
+                                                      Map<String, Object> metadata) throws IOException {
+            return new DDSketchPercentilesAggregator(name, valuesSource, context, parent, values, relativeAccuracy, keyed,
+                formatter, metadata);
+        }
+
+        @Override
+        Aggregator createPercentileRanksAggregator(String name, ValuesSource valuesSource, AggregationContext context, Aggregator parent,
+                                                   double[] values, boolean keyed, DocValueFormat formatter,
+                                                   Map<String, Object> metadata) throws IOException {
+            return new DDSketchPercentileRanksAggregator(name, valuesSource, context, parent, values, relativeAccuracy, keyed,
+                formatter, metadata);
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            if (out.getVersion().before(Version.V_8_0_0)) {
+                throw new IllegalArgumentException("The [" + getMethod() + "] percentiles method requires all nodes to be on version ["
+                    + Version.V_8_0_0 + "] or later");
+            }
+            super.writeTo(out);
+            out.writeDouble(relativeAccuracy);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject(getMethod().toString());
+            builder.field(PercentilesMethod.RELATIVE_ACCURACY_FIELD.getPreferredName(), relativeAccuracy);
+            builder.endObject();
+            return builder;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (obj == null || getClass() != obj.getClass()) return false;
+            if (super.equals(obj) == false) return false;
+
+            DDSketch other = (DDSketch) obj;
+            return relativeAccuracy == other.getRelativeAccuracy();
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(super.hashCode(), relativeAccuracy);
+        }
+    }
 }
@@ -37,10 +37,20 @@ public enum PercentilesMethod implements Writeable {
         PercentilesConfig configFromStream(StreamInput in) throws IOException {
             return new PercentilesConfig.Hdr(in);
         }
+    },
+    /**
+     * The DDSketch method of calculating percentiles with a bounded relative error
+     */
+    DDSKETCH("ddsketch") {
+        @Override
+        PercentilesConfig configFromStream(StreamInput in) throws IOException {
+            return new PercentilesConfig.DDSketch(in);
+        }
     };
 
     public static final ParseField COMPRESSION_FIELD = new ParseField("compression");
     public static final ParseField NUMBER_SIGNIFICANT_DIGITS_FIELD = new ParseField("number_of_significant_value_digits");
+    public static final ParseField RELATIVE_ACCURACY_FIELD = new ParseField("relative_accuracy");
 
     public static final ObjectParser<PercentilesConfig.TDigest, String> TDIGEST_PARSER;
     static {
@@ -54,6 +64,13 @@ public enum PercentilesMethod implements Writeable {
         HDR_PARSER.declareInt(PercentilesConfig.Hdr::setNumberOfSignificantValueDigits, NUMBER_SIGNIFICANT_DIGITS_FIELD);
     }
 
+    public static final ObjectParser<PercentilesConfig.DDSketch, String> DDSKETCH_PARSER;
+    static {
+        DDSKETCH_PARSER = new ObjectParser<>(PercentilesMethod.DDSKETCH.getParseField().getPreferredName(),
+            PercentilesConfig.DDSketch::new);
+        DDSKETCH_PARSER.declareDouble(PercentilesConfig.DDSketch::setRelativeAccuracy, RELATIVE_ACCURACY_FIELD);
+    }
+
     private final ParseField parseField;
 
     PercentilesMethod(String name, String... deprecatedNames) {
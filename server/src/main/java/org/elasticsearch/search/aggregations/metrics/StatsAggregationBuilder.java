@@ -90,6 +90,11 @@ public class StatsAggregationBuilder extends ValuesSourceAggregationBuilder.Leaf
         return builder;
     }
 
+    @Override
+    public boolean supportsSampling() {
+        return true;
+    }
+
     @Override
     public String getType() {
         return NAME;
@@ -16,9 +16,9 @@ import org.elasticsearch.common.util.LongArray;
 import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.BlockLeafBucketCollector;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
-import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
 import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
@@ -71,11 +71,12 @@ class StatsAggregator extends NumericMetricsAggregator.MultiValue {
             return LeafBucketCollector.NO_OP_COLLECTOR;
         }
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
+        final BlockDoubleValues blockValues = new BlockDoubleValues(values);
         final CompensatedSum kahanSummation = new CompensatedSum(0, 0);
 
-        return new LeafBucketCollectorBase(sub, values) {
+        return collectInBlocks(new BlockLeafBucketCollector(sub, values, valuesSource.needsScores() == false) {
             @Override
-            public void collect(int doc, long bucket) throws IOException {
+            public void collect(int[] docs, int count, long bucket) throws IOException {
                 if (bucket >= counts.size()) {
                     final long from = counts.size();
                     final long overSize = BigArrays.overSize(bucket + 1);
@@ -88,8 +89,9 @@ class StatsAggregator extends NumericMetricsAggregator.MultiValue {
                     maxes.fill(from, overSize, Double.NEGATIVE_INFINITY);
                 }
 
-                if (values.advanceExact(doc)) {
-                    final int valuesCount = values.docValueCount();
+                final int valuesCount = blockValues.load(docs, count);
+                if (valuesCount > 0) {
+                    final double[] blockOfValues = blockValues.values();
                     counts.increment(bucket, valuesCount);
                     double min = mins.get(bucket);
                     double max = maxes.get(bucket);
@@ -100,10 +102,14 @@ class StatsAggregator extends NumericMetricsAggregator.MultiValue {
                     kahanSummation.reset(sum, compensation);
 
                     for (int i = 0; i < valuesCount; i++) {
-                        double value = values.nextValue();
-                        kahanSummation.add(value);
-                        min = Math.min(min, value);
-                        max = Math.max(max, value);
+                        kahanSummation.add(blockOfValues[i]);
+                    }
+                    // separate loops so that the JIT can vectorize the ones without dependencies between iterations
+                    for (int i = 0; i < valuesCount; i++) {
+                        min = Math.min(min, blockOfValues[i]);
+                    }
+                    for (int i = 0; i < valuesCount; i++) {
+                        max = Math.max(max, blockOfValues[i]);
                     }
                     sums.set(bucket, kahanSummation.value());
                     compensations.set(bucket, kahanSummation.delta());
@@ -111,7 +117,7 @@ class StatsAggregator extends NumericMetricsAggregator.MultiValue {
                     maxes.set(bucket, max);
                 }
             }
-        };
+        });
     }
 
     @Override
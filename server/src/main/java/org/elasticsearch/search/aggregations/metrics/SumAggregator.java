@@ -14,9 +14,9 @@ import org.elasticsearch.common.util.DoubleArray;
 import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.BlockLeafBucketCollector;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
-import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
 import org.elasticsearch.search.aggregations.support.ValuesSourceConfig;
@@ -61,15 +61,17 @@ public class SumAggregator extends NumericMetricsAggregator.SingleValue {
             return LeafBucketCollector.NO_OP_COLLECTOR;
         }
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
+        final BlockDoubleValues blockValues = new BlockDoubleValues(values);
         final CompensatedSum kahanSummation = new CompensatedSum(0, 0);
-        return new LeafBucketCollectorBase(sub, values) {
+        return collectInBlocks(new BlockLeafBucketCollector(sub, values, valuesSource.needsScores() == false) {
             @Override
-            public void collect(int doc, long bucket) throws IOException {
+            public void collect(int[] docs, int count, long bucket) throws IOException {
                 sums = bigArrays().grow(sums, bucket + 1);
                 compensations = bigArrays().grow(compensations, bucket + 1);
 
-                if (values.advanceExact(doc)) {
-                    final int valuesCount = values.docValueCount();
+                final int valuesCount = blockValues.load(docs, count);
+                if (valuesCount > 0) {
+                    final double[] blockOfValues = blockValues.values();
                     // Compute the sum of double values with Kahan summation algorithm which is more
                     // accurate than naive summation.
                     double sum = sums.get(bucket);
@@ -77,15 +79,14 @@ public class SumAggregator extends NumericMetricsAggregator.SingleValue {
                     kahanSummation.reset(sum, compensation);
 
                     for (int i = 0; i < valuesCount; i++) {
-                        double value = values.nextValue();
-                        kahanSummation.add(value);
+                        kahanSummation.add(blockOfValues[i]);
                     }
 
                     compensations.set(bucket, kahanSummation.delta());
                     sums.set(bucket, kahanSummation.value());
                 }
             }
-        };
+        });
     }
 
     @Override
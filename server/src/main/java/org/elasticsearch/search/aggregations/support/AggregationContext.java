@@ -12,6 +12,8 @@ import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.elasticsearch.core.Nullable;
+import org.elasticsearch.core.PathUtils;
+import org.elasticsearch.core.RefCounted;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.breaker.PreallocatedCircuitBreakerService;
 import org.elasticsearch.core.Releasable;
@@ -32,6 +34,7 @@ import org.elasticsearch.script.ScriptContext;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.MultiBucketConsumerService.MultiBucketConsumer;
 import org.elasticsearch.search.aggregations.bucket.filter.FilterByFilterAggregator;
+import org.elasticsearch.search.internal.ReaderContext;
 import org.elasticsearch.search.internal.SubSearchContext;
 import org.elasticsearch.search.lookup.SearchLookup;
 import org.elasticsearch.search.profile.aggregation.AggregationProfiler;
@@ -41,10 +44,14 @@ import org.elasticsearch.search.sort.SortAndFormats;
 import org.elasticsearch.search.sort.SortBuilder;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.function.LongSupplier;
 import java.util.function.Supplier;
@@ -229,6 +236,12 @@ public abstract class AggregationContext implements Releasable {
      */
     public abstract boolean isCancelled();
 
+    /**
+     * The minimum score of the documents that match the top level query, {@code null} if the request doesn't set {@code min_score}.
+     */
+    @Nullable
+    public abstract Float minimumScore();
+
     /**
      * The circuit breaker used to account for aggs.
      */
@@ -256,6 +269,73 @@ public abstract class AggregationContext implements Releasable {
      */
     public abstract boolean enableRewriteToFilterByFilter();
 
+    /**
+     * Returns {@code true} if the search runs against a point in time, whose
+     * reader is kept between requests with the state that they
+     * {@link #putReaderState store}.
+     */
+    public boolean pointInTime() {
+        return false;
+    }
+
+    /**
+     * The runtime fields that the search request defines, as they were parsed from its {@code runtime_mappings}.
+     */
+    public Map<String, Object> runtimeMappings() {
+        return Collections.emptyMap();
+    }
+
+    /**
+     * The directory in which aggregations can write temporary files: the node's
+     * temporary directory, which elasticsearch points {@code java.io.tmpdir} to,
+     * rather than the directory of the shard's store.
+     */
+    public Path tempDirectory() {
+        return PathUtils.get(System.getProperty("java.io.tmpdir"));
+    }
+
+    /**
+     * Returns the state that a previous request stored under {@code key} when
+     * running against the same point in time or scroll, or {@code null} if
+     * there is no such state. A reference is acquired on the returned state
+     * that the caller must release.
+     */
+    @Nullable
+    public RefCounted acquireReaderState(String key) {
+        return null;
+    }
+
+    /**
+     * Stores state that the next requests running against the same point in
+     * time or scroll can {@link #acquireReaderState acquire}, replacing any
+     * state stored under the same {@code key}. The reader holds a reference
+     * on the state until it is closed or the state is replaced.
+     *
+     * @return {@code false} if the reader isn't kept between requests, in
+     *         which case the state isn't stored
+     */
+    public boolean putReaderState(String key, RefCounted state) {
+        return false;
+    }
+
+    /**
+     * The executor on which deferred sub-aggregations may select the
+     * documents to replay in several segments at once, or {@code null} if
+     * they should only replay on the calling thread.
+     */
+    @Nullable
+    public Executor deferredReplayExecutor() {
+        return null;
+    }
+
+    /**
+     * The maximum number of tasks that a deferred sub-aggregation may run on
+     * the {@link #deferredReplayExecutor()} while it replays.
+     */
+    public int deferredReplayHelpers() {
+        return 0;
+    }
+
     /**
      * Implementation of {@linkplain AggregationContext} for production usage
      * that wraps our ubiquitous {@link SearchExecutionContext} and anything else
@@ -275,8 +355,13 @@ public abstract class AggregationContext implements Releasable {
         private final int randomSeed;
         private final LongSupplier relativeTimeInMillis;
         private final Supplier<Boolean> isCancelled;
+        private final Float minimumScore;
         private final Function<Query, Query> filterQuery;
         private final boolean enableRewriteToFilterByFilter;
+        private final ReaderContext readerContext;
+        private final Map<String, Object> runtimeMappings;
+        private final Executor deferredReplayExecutor;
+        private final int deferredReplayHelpers;
 
         private final List<Aggregator> releaseMe = new ArrayList<>();
 
@@ -292,8 +377,13 @@ public abstract class AggregationContext implements Releasable {
             int randomSeed,
             LongSupplier relativeTimeInMillis,
             Supplier<Boolean> isCancelled,
+            @Nullable Float minimumScore,
             Function<Query, Query> filterQuery,
-            boolean enableRewriteToFilterByFilter
+            boolean enableRewriteToFilterByFilter,
+            @Nullable ReaderContext readerContext,
+            Map<String, Object> runtimeMappings,
+            @Nullable Executor deferredReplayExecutor,
+            int deferredReplayHelpers
         ) {
             this.context = context;
             if (bytesToPreallocate == 0) {
@@ -323,8 +413,13 @@ public abstract class AggregationContext implements Releasable {
             this.randomSeed = randomSeed;
             this.relativeTimeInMillis = relativeTimeInMillis;
             this.isCancelled = isCancelled;
+            this.minimumScore = minimumScore;
             this.filterQuery = filterQuery;
             this.enableRewriteToFilterByFilter = enableRewriteToFilterByFilter;
+            this.readerContext = readerContext;
+            this.runtimeMappings = runtimeMappings;
+            this.deferredReplayExecutor = deferredReplayExecutor;
+            this.deferredReplayHelpers = deferredReplayHelpers;
         }
 
         @Override
@@ -465,6 +560,11 @@ public abstract class AggregationContext implements Releasable {
             return isCancelled.get();
         }
 
+        @Override
+        public Float minimumScore() {
+            return minimumScore;
+        }
+
         @Override
         public CircuitBreaker breaker() {
             // preallocatedBreakerService may be null if we haven't preallocated so use the one in bigArrays.
@@ -486,6 +586,56 @@ public abstract class AggregationContext implements Releasable {
             return enableRewriteToFilterByFilter;
         }
 
+        @Override
+        public boolean pointInTime() {
+            return readerContext != null && readerContext.singleSession() == false && readerContext.scrollContext() == null;
+        }
+
+        @Override
+        public Map<String, Object> runtimeMappings() {
+            return runtimeMappings;
+        }
+
+        @Override
+        public RefCounted acquireReaderState(String key) {
+            if (readerContext == null) {
+                return null;
+            }
+            synchronized (readerContext) {
+                ReaderState state = readerContext.getFromContext(key);
+                return state != null && state.state.tryIncRef() ? state.state : null;
+            }
+        }
+
+        @Override
+        public boolean putReaderState(String key, RefCounted state) {
+            if (readerContext == null || readerContext.singleSession()) {
+                return false;
+            }
+            state.incRef();
+            ReaderState newState = new ReaderState(state);
+            ReaderState previous;
+            synchronized (readerContext) {
+                previous = readerContext.getFromContext(key);
+                readerContext.putInContext(key, newState);
+            }
+            readerContext.addOnClose(newState.release);
+            if (previous != null) {
+                previous.release.close();
+            }
+            return true;
+        }
+
+        @Override
+        public Executor deferredReplayExecutor() {
+            return deferredReplayExecutor;
+        }
+
+        @Override
+        public int deferredReplayHelpers() {
+            return deferredReplayHelpers;
+        }
+
         @Override
         public void close() {
             /*
@@ -496,5 +646,19 @@ public abstract class AggregationContext implements Releasable {
             releaseMe.add(preallocatedBreakerService);
             Releasables.close(releaseMe);
         }
+
+        /**
+         * Holds the reference that the reader keeps on a state so that it is
+         * released exactly once, when the reader is closed or the state is replaced.
+         */
+        private static class ReaderState {
+            private final RefCounted state;
+            private final Releasable release;
+
+            ReaderState(RefCounted state) {
+                this.state = state;
+                this.release = Releasables.releaseOnce(state::decRef);
+            }
+        }
     }
 }
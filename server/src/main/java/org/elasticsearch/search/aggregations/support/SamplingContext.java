@@ -0,0 +1,57 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations.support;
+
+/**
+ * Describes how the documents that were collected by an aggregation were sampled so that
+ * the results computed on the sample can be scaled up to estimate the results on all
+ * matching documents.
+ */
+public final class SamplingContext {
+
+    private final double probability;
+
+    /**
+     * @param probability the probability with which each matching document was collected
+     */
+    public SamplingContext(double probability) {
+        if (probability <= 0 || probability > 1) {
+            throw new IllegalArgumentException("[probability] must be between 0 and 1 but was [" + probability + "]");
+        }
+        this.probability = probability;
+    }
+
+    public double probability() {
+        return probability;
+    }
+
+    /**
+     * Whether the documents were actually sampled, if not there is nothing to scale.
+     */
+    public boolean isSampled() {
+        return probability < 1;
+    }
+
+    /**
+     * Scales a count that was computed on the sample.
+     */
+    public long scaleUp(long value) {
+        if (value <= 0 || isSampled() == false) {
+            return value;
+        }
+        return Math.round(value / probability);
+    }
+
+    /**
+     * Scales a sum that was computed on the sample.
+     */
+    public double scaleUp(double value) {
+        return isSampled() ? value / probability : value;
+    }
+}
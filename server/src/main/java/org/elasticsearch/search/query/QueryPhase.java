@@ -202,6 +202,14 @@ public class QueryPhase {
                 }
             }
 
+            if (searchContext.sort() != null && SYS_PROP_REWRITE_SORT) {
+                // restrict search_after and subsequent scroll pages on a numeric or date sort to the documents after the cursor
+                Query rewrittenQuery = tryRewriteSearchAfterLongSort(searchContext, reader, query);
+                if (rewrittenQuery != null) {
+                    query = rewrittenQuery;
+                }
+            }
+
             final LinkedList<QueryCollectorContext> collectors = new LinkedList<>();
             // whether the chain contains a collector that filters documents
             boolean hasFilterCollector = false;
@@ -515,6 +523,85 @@ public class QueryPhase {
         return rewrittenQuery;
     }
 
+    /**
+     * Rewrites the query of a search_after request or of a subsequent scroll page sorted on a long or date field
+     * to only match documents whose sort value is at or after the value of the cursor. The range is evaluated on the
+     * points of the field so that each leaf skips non-competitive blocks of documents with the BKD tree instead of
+     * collecting all documents that sort before the cursor.
+     * Returns <code>null</code> if the rewrite is not applicable.
+     */
+    private static Query tryRewriteSearchAfterLongSort(SearchContext searchContext, IndexReader reader, Query query) throws IOException {
+        final FieldDoc after;
+        final ScrollContext scrollContext = searchContext.scrollContext();
+        if (scrollContext != null) {
+            // the first round of a scroll needs to collect all documents in order to get the total number of hits
+            if (scrollContext.totalHits == null) return null;
+            if (scrollContext.lastEmittedDoc instanceof FieldDoc == false) return null;
+            after = (FieldDoc) scrollContext.lastEmittedDoc;
+        } else {
+            after = searchContext.searchAfter();
+            if (after == null) return null;
+            // the filter would change the number of hits that are reported
+            if (searchContext.trackTotalHitsUpTo() != SearchContext.TRACK_TOTAL_HITS_DISABLED) return null;
+        }
+        if (searchContext.size() <= 0) return null;
+        if (searchContext.collapse() != null) return null;
+        if (searchContext.aggregations() != null) return null;
+        if (searchContext.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER) return null;
+        if (canEarlyTerminate(reader, searchContext.sort())) {
+            // disable this optimization if index sorting matches the query sort since it's already optimized by index searcher
+            return null;
+        }
+
+        SortField sortField = searchContext.sort().sort.getSort()[0];
+        if (SortField.Type.LONG.equals(IndexSortConfig.getSortFieldType(sortField)) == false) return null;
+        if (after.fields == null || after.fields.length == 0 || after.fields[0] instanceof Long == false) return null;
+
+        // check if this is a field of type Long or Date, that is indexed and has doc values
+        String fieldName = sortField.getField();
+        if (fieldName == null) return null;
+        final MappedFieldType fieldType = searchContext.getSearchExecutionContext().getFieldType(fieldName);
+        if (fieldType == null) return null;
+        if ((fieldType.typeName().equals("long") == false) && (fieldType instanceof DateFieldType == false)) return null;
+        if (fieldType.isSearchable() == false) return null;
+        if (fieldType.hasDocValues() == false) return null;
+
+        // documents without a value are not matched by the range filter, so they must sort before the cursor
+        final long afterValue = (Long) after.fields[0];
+        final long missingValue = sortField.getMissingValue() == null ? 0L : (Long) sortField.getMissingValue();
+        boolean missingValuesBeforeCursor = sortField.getReverse() ? missingValue > afterValue : missingValue < afterValue;
+        if (missingValuesBeforeCursor == false && allDocsHaveValue(reader, fieldName) == false) return null;
+
+        return new BooleanQuery.Builder()
+            .add(query, BooleanClause.Occur.MUST)
+            .add(createSearchAfterRangeQuery(fieldName, sortField.getReverse(), afterValue), BooleanClause.Occur.FILTER)
+            .build();
+    }
+
+    /**
+     * Creates a query on the points of the provided <code>field</code> that matches all documents that have at least
+     * one value that sorts at or after <code>after</code>. This is a superset of the documents that can be competitive
+     * for a search that pages after <code>after</code>, whatever the multi-value mode used by the sort.
+     * Documents that share the value of the cursor are kept since the tie is broken by the other sort fields.
+     */
+    public static Query createSearchAfterRangeQuery(String field, boolean reverse, long after) {
+        return reverse ? LongPoint.newRangeQuery(field, Long.MIN_VALUE, after) : LongPoint.newRangeQuery(field, after, Long.MAX_VALUE);
+    }
+
+    /**
+     * Returns true if all documents of the provided <code>reader</code> have a point value for the provided <code>field</code>.
+     */
+    private static boolean allDocsHaveValue(IndexReader reader, String field) throws IOException {
+        for (LeafReaderContext ctx : reader.leaves()) {
+            PointValues values = ctx.reader().getPointValues(field);
+            int docCount = values == null ? 0 : values.getDocCount();
+            if (docCount != ctx.reader().maxDoc()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Creates a sorter of {@link LeafReaderContext} that orders leaves depending on the minimum
      * value and the sort order of the provided <code>sortField</code>.
@@ -56,6 +56,7 @@ public final class QuerySearchResult extends SearchPhaseResult {
     private boolean hasProfileResults;
     private long serviceTimeEWMA = -1;
     private int nodeQueueSize = -1;
+    private boolean cacheable;
 
     private final boolean isNull;
 
@@ -305,6 +306,23 @@ public final class QuerySearchResult extends SearchPhaseResult {
         return this;
     }
 
+    /**
+     * Sets whether the result only depends on the request and the content of the shard,
+     * see {@link org.elasticsearch.index.query.SearchExecutionContext#isCacheable()}.
+     */
+    public QuerySearchResult cacheable(boolean cacheable) {
+        this.cacheable = cacheable;
+        return this;
+    }
+
+    /**
+     * Returns <code>true</code> if the result only depends on the request and the content of the shard, which
+     * means that it could be cached until the shard changes.
+     */
+    public boolean isCacheable() {
+        return cacheable;
+    }
+
     /**
      * Returns <code>true</code> if this result has any suggest score docs
      */
@@ -346,6 +364,9 @@ public final class QuerySearchResult extends SearchPhaseResult {
             setShardSearchRequest(in.readOptionalWriteable(ShardSearchRequest::new));
             setRescoreDocIds(new RescoreDocIds(in));
         }
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            cacheable = in.readBoolean();
+        }
     }
 
     @Override
@@ -387,6 +408,9 @@ public final class QuerySearchResult extends SearchPhaseResult {
             out.writeOptionalWriteable(getShardSearchRequest());
             getRescoreDocIds().writeTo(out);
         }
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeBoolean(cacheable);
+        }
     }
 
     public TotalHits getTotalHits() {
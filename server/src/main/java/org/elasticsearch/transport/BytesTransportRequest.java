@@ -21,7 +21,7 @@ import java.io.IOException;
  * A specialized, bytes only request, that can potentially be optimized on the network
  * layer, specifically for the same large buffer send to several nodes.
  */
-public class BytesTransportRequest extends TransportRequest implements RefCounted {
+public class BytesTransportRequest extends TransportRequest implements RefCounted, TrailingBytesWriteable {
 
     final ReleasableBytesReference bytes;
     private final Version version;
@@ -54,6 +54,12 @@ public class BytesTransportRequest extends TransportRequest implements RefCounte
         out.writeVInt(bytes.length());
     }
 
+    @Override
+    public BytesReference writeWithoutTrailingBytes(StreamOutput out) throws IOException {
+        writeThin(out);
+        return bytes;
+    }
+
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         super.writeTo(out);
@@ -13,19 +13,33 @@ import net.jpountz.lz4.LZ4Factory;
 import org.elasticsearch.Version;
 import org.elasticsearch.common.bytes.BytesReference;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 
 public class Compression {
 
     public enum Scheme {
         LZ4,
-        DEFLATE;
-        
+        DEFLATE,
+        /**
+         * DEFLATE primed with a dictionary of the strings that show up in most messages, like action names, headers and the field
+         * names of common documents. This compresses small and repetitive messages such as bulk shard requests much better than
+         * plain DEFLATE does. Nodes that don't know the dictionary get plain DEFLATE instead.
+         */
+        DEFLATE_DICTIONARY;
+
         static final Version LZ4_VERSION = Version.V_7_14_0;
+        static final Version DEFLATE_DICTIONARY_VERSION = Version.V_8_0_0;
         static final int HEADER_LENGTH = 4;
         private static final byte[] DEFLATE_HEADER = new byte[]{'D', 'F', 'L', '\0'};
+        private static final byte[] DEFLATE_DICTIONARY_HEADER = new byte[]{'D', 'F', 'D', '\0'};
         private static final byte[] LZ4_HEADER = new byte[]{'L', 'Z', '4', '\0'};
+        private static final int DEFLATE_LEVEL = 3;
+        private static final int DEFLATE_BUFFER_SIZE = 4096;
+        private static final ThreadLocal<Deflater> DICTIONARY_DEFLATER = ThreadLocal.withInitial(() -> new Deflater(DEFLATE_LEVEL, true));
         private static final int LZ4_BLOCK_SIZE;
 
         static {
@@ -50,6 +64,15 @@ public class Compression {
             }
         }
 
+        public static boolean isDeflateDictionary(BytesReference bytes) {
+            byte firstByte = bytes.get(0);
+            if (firstByte != Scheme.DEFLATE_DICTIONARY_HEADER[0]) {
+                return false;
+            } else {
+                return validateHeader(bytes, DEFLATE_DICTIONARY_HEADER);
+            }
+        }
+
         public static boolean isLZ4(BytesReference bytes) {
             byte firstByte = bytes.get(0);
             if (firstByte != Scheme.LZ4_HEADER[0]) {
@@ -72,6 +95,24 @@ public class Compression {
             outputStream.write(LZ4_HEADER);
             return new ReuseBuffersLZ4BlockOutputStream(outputStream, LZ4_BLOCK_SIZE, LZ4Factory.safeInstance().fastCompressor());
         }
+
+        public static OutputStream deflateDictionaryOutputStream(OutputStream outputStream) throws IOException {
+            outputStream.write(DEFLATE_DICTIONARY_HEADER);
+            final Deflater deflater = DICTIONARY_DEFLATER.get();
+            deflater.setDictionary(TransportCompressionDictionary.DICTIONARY);
+            final DeflaterOutputStream deflaterOutputStream = new DeflaterOutputStream(outputStream, deflater, DEFLATE_BUFFER_SIZE, true) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        // the buffered stream below only closes this stream once
+                        deflater.reset();
+                    }
+                }
+            };
+            return new BufferedOutputStream(deflaterOutputStream, DEFLATE_BUFFER_SIZE);
+        }
     }
 
     public enum Enabled {
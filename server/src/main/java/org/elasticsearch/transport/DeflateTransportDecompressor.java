@@ -15,6 +15,7 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.bytes.ReleasableBytesReference;
 import org.elasticsearch.common.recycler.Recycler;
 import org.elasticsearch.common.util.PageCacheRecycler;
+import org.elasticsearch.core.Nullable;
 
 import java.io.IOException;
 import java.util.ArrayDeque;
@@ -30,8 +31,18 @@ public class DeflateTransportDecompressor implements TransportDecompressor {
     private boolean hasSkippedHeader = false;
 
     public DeflateTransportDecompressor(PageCacheRecycler recycler) {
+        this(recycler, null);
+    }
+
+    /**
+     * @param dictionary the dictionary that the compressor was primed with or {@code null} if it didn't use one
+     */
+    DeflateTransportDecompressor(PageCacheRecycler recycler, @Nullable byte[] dictionary) {
         this.recycler = recycler;
         inflater = new Inflater(true);
+        if (dictionary != null) {
+            inflater.setDictionary(dictionary);
+        }
         pages = new ArrayDeque<>(4);
     }
 
@@ -68,6 +68,10 @@ public class Header {
         return TransportStatus.isHandshake(status);
     }
 
+    OutboundFrameQueue.Priority getPriority() {
+        return TransportStatus.getPriority(status);
+    }
+
     boolean isCompressed() {
         return TransportStatus.isCompress(status);
     }
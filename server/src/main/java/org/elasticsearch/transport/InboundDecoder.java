@@ -12,11 +12,13 @@ import org.elasticsearch.Version;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.bytes.ReleasableBytesReference;
 import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.core.Releasable;
 import org.elasticsearch.core.Releasables;
 import org.elasticsearch.common.util.PageCacheRecycler;
 
 import java.io.IOException;
+import java.io.StreamCorruptedException;
 import java.util.function.Consumer;
 
 public class InboundDecoder implements Releasable {
@@ -31,6 +33,11 @@ public class InboundDecoder implements Releasable {
     private int bytesConsumed = 0;
     private boolean isCompressed = false;
     private boolean isClosed = false;
+    /**
+     * Whether the remote node may send frames, which it only does once it sent a message with a version that supports
+     * frames. The version of the messages sent on a channel is the one that the handshake negotiated.
+     */
+    private boolean framesNegotiated = false;
 
     public InboundDecoder(Version version, PageCacheRecycler recycler) {
         this.version = version;
@@ -49,12 +56,14 @@ public class InboundDecoder implements Releasable {
 
     public int internalDecode(ReleasableBytesReference reference, Consumer<Object> fragmentConsumer) throws IOException {
         if (isOnHeader()) {
-            int messageLength = TcpTransport.readMessageLength(reference);
+            int messageLength = TcpTransport.readMessageLength(reference, framesNegotiated);
             if (messageLength == -1) {
                 return 0;
             } else if (messageLength == 0) {
                 fragmentConsumer.accept(PING);
                 return 6;
+            } else if (messageLength == TcpHeader.FRAME_MARKER) {
+                return decodeFrame(reference, fragmentConsumer);
             } else {
                 int headerBytesToRead = headerBytesToRead(reference);
                 if (headerBytesToRead == 0) {
@@ -63,6 +72,9 @@ public class InboundDecoder implements Releasable {
                     totalNetworkSize = messageLength + TcpHeader.BYTES_REQUIRED_FOR_MESSAGE_SIZE;
 
                     Header header = readHeader(version, messageLength, reference);
+                    if (header.isHandshake() == false && header.getVersion().onOrAfter(TcpHeader.VERSION_WITH_FRAMES)) {
+                        framesNegotiated = true;
+                    }
                     bytesConsumed += headerBytesToRead;
                     if (header.isCompressed()) {
                         isCompressed = true;
@@ -115,6 +127,31 @@ public class InboundDecoder implements Releasable {
         }
     }
 
+    private static int decodeFrame(ReleasableBytesReference reference, Consumer<Object> fragmentConsumer) throws IOException {
+        if (reference.length() < TcpHeader.FRAME_HEADER_SIZE) {
+            return 0;
+        }
+        int streamIdPosition = TcpHeader.BYTES_REQUIRED_FOR_MESSAGE_SIZE;
+        int flagsPosition = streamIdPosition + TcpHeader.STREAM_ID_SIZE;
+        int contentSize = reference.getInt(flagsPosition + TcpHeader.FRAME_FLAGS_SIZE);
+        if (contentSize <= 0) {
+            throw new StreamCorruptedException("invalid frame length: " + contentSize);
+        }
+        if (contentSize > TcpTransport.THIRTY_PER_HEAP_SIZE) {
+            throw new IllegalArgumentException("illegal transport frame of size [" + new ByteSizeValue(contentSize) +
+                "] which exceeds 30% of this node's heap size [" + new ByteSizeValue(TcpTransport.THIRTY_PER_HEAP_SIZE) +
+                "], closing connection");
+        }
+        int frameSize = TcpHeader.FRAME_HEADER_SIZE + contentSize;
+        if (reference.length() < frameSize) {
+            return 0;
+        }
+        boolean last = (reference.get(flagsPosition) & TcpHeader.FRAME_LAST) != 0;
+        ReleasableBytesReference content = reference.retainedSlice(TcpHeader.FRAME_HEADER_SIZE, contentSize);
+        fragmentConsumer.accept(new InboundFrame(reference.getInt(streamIdPosition), last, content));
+        return frameSize;
+    }
+
     @Override
     public void close() {
         isClosed = true;
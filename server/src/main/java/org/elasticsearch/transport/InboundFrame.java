@@ -0,0 +1,55 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.transport;
+
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.core.Releasable;
+
+/**
+ * A frame of a message that the sender split into several frames so that it could interleave them with
+ * other messages. The frames of a message share a stream id and the content of all frames of a stream
+ * makes up the whole message, including its header.
+ */
+final class InboundFrame implements Releasable {
+
+    private final int streamId;
+    private final boolean last;
+    private final ReleasableBytesReference content;
+
+    InboundFrame(int streamId, boolean last, ReleasableBytesReference content) {
+        this.streamId = streamId;
+        this.last = last;
+        this.content = content;
+    }
+
+    int getStreamId() {
+        return streamId;
+    }
+
+    /**
+     * Is this the last frame of its stream?
+     */
+    boolean isLast() {
+        return last;
+    }
+
+    ReleasableBytesReference getContent() {
+        return content;
+    }
+
+    @Override
+    public void close() {
+        content.close();
+    }
+
+    @Override
+    public String toString() {
+        return "InboundFrame{streamId=" + streamId + ", last=" + last + ", length=" + content.length() + "}";
+    }
+}
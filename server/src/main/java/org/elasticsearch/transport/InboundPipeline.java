@@ -10,15 +10,22 @@ package org.elasticsearch.transport;
 
 import org.elasticsearch.Version;
 import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.bytes.CompositeBytesReference;
 import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.network.CloseableChannel;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.core.Releasable;
 import org.elasticsearch.core.Releasables;
 import org.elasticsearch.common.util.PageCacheRecycler;
 
 import java.io.IOException;
+import java.io.StreamCorruptedException;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.function.LongSupplier;
@@ -33,9 +40,16 @@ public class InboundPipeline implements Releasable {
     private final StatsTracker statsTracker;
     private final InboundDecoder decoder;
     private final InboundAggregator aggregator;
+    private final Supplier<CircuitBreaker> circuitBreaker;
     private final BiConsumer<TcpChannel, InboundMessage> messageHandler;
     private Exception uncaughtException;
     private final ArrayDeque<ReleasableBytesReference> pending = new ArrayDeque<>(2);
+    /**
+     * The frames received so far for each stream of frames that hasn't received its last frame yet.
+     */
+    private final Map<Integer, FramedMessage> framedMessages = new HashMap<>();
+    // the bytes of all the frames in framedMessages
+    private long framedBytes = 0;
     private boolean isClosed = false;
 
     public InboundPipeline(Version version, StatsTracker statsTracker, PageCacheRecycler recycler, LongSupplier relativeTimeInMillis,
@@ -43,22 +57,25 @@ public class InboundPipeline implements Releasable {
                            Function<String, RequestHandlerRegistry<TransportRequest>> registryFunction,
                            BiConsumer<TcpChannel, InboundMessage> messageHandler) {
         this(statsTracker, relativeTimeInMillis, new InboundDecoder(version, recycler),
-            new InboundAggregator(circuitBreaker, registryFunction), messageHandler);
+            new InboundAggregator(circuitBreaker, registryFunction), circuitBreaker, messageHandler);
     }
 
     public InboundPipeline(StatsTracker statsTracker, LongSupplier relativeTimeInMillis, InboundDecoder decoder,
-                           InboundAggregator aggregator, BiConsumer<TcpChannel, InboundMessage> messageHandler) {
+                           InboundAggregator aggregator, Supplier<CircuitBreaker> circuitBreaker,
+                           BiConsumer<TcpChannel, InboundMessage> messageHandler) {
         this.relativeTimeInMillis = relativeTimeInMillis;
         this.statsTracker = statsTracker;
         this.decoder = decoder;
         this.aggregator = aggregator;
+        this.circuitBreaker = circuitBreaker;
         this.messageHandler = messageHandler;
     }
 
     @Override
     public void close() {
         isClosed = true;
-        Releasables.closeExpectNoException(decoder, aggregator, () -> Releasables.close(pending), pending::clear);
+        Releasables.closeExpectNoException(decoder, aggregator, () -> Releasables.close(pending), pending::clear,
+            () -> framedMessages.values().forEach(this::releaseFramedMessage), framedMessages::clear);
     }
 
     public void handleBytes(TcpChannel channel, ReleasableBytesReference reference) throws IOException {
@@ -103,22 +120,29 @@ public class InboundPipeline implements Releasable {
                 try {
                     forwardFragments(channel, fragments);
                 } finally {
-                    for (Object fragment : fragments) {
-                        if (fragment instanceof ReleasableBytesReference) {
-                            ((ReleasableBytesReference) fragment).close();
-                        }
-                    }
-                    fragments.clear();
+                    releaseFragments(fragments);
                 }
             }
         }
     }
 
+    private static void releaseFragments(ArrayList<Object> fragments) {
+        for (Object fragment : fragments) {
+            if (fragment instanceof Releasable) {
+                ((Releasable) fragment).close();
+            }
+        }
+        fragments.clear();
+    }
+
     private void forwardFragments(TcpChannel channel, ArrayList<Object> fragments) throws IOException {
         for (Object fragment : fragments) {
             if (fragment instanceof Header) {
                 assert aggregator.isAggregating() == false;
                 aggregator.headerReceived((Header) fragment);
+            } else if (fragment instanceof InboundFrame) {
+                assert aggregator.isAggregating() == false;
+                frameReceived(channel, (InboundFrame) fragment);
             } else if (fragment == InboundDecoder.PING) {
                 assert aggregator.isAggregating() == false;
                 messageHandler.accept(channel, PING_MESSAGE);
@@ -136,8 +160,98 @@ public class InboundPipeline implements Releasable {
         }
     }
 
+    private void frameReceived(TcpChannel channel, InboundFrame frame) throws IOException {
+        final int streamId = frame.getStreamId();
+        FramedMessage framedMessage = framedMessages.get(streamId);
+        if (framedMessage == null) {
+            framedMessage = new FramedMessage();
+            framedMessages.put(streamId, framedMessage);
+        }
+        final ReleasableBytesReference content = frame.getContent();
+        try {
+            // the frames are held until the last one arrives, the aggregator accounts for the whole message after that
+            circuitBreaker.get().addEstimateBytesAndMaybeBreak(content.length(), "<transport_frames>");
+        } catch (CircuitBreakingException e) {
+            // the message can't be reassembled without this frame and the channel can't skip it
+            CloseableChannel.closeChannel(channel);
+            throw e;
+        }
+        framedMessage.frames.add(content.retain());
+        framedMessage.bytes += content.length();
+        framedBytes += content.length();
+        if (framedBytes > TcpTransport.THIRTY_PER_HEAP_SIZE) {
+            throw new IllegalArgumentException("illegal framed transport messages of size [" + new ByteSizeValue(framedBytes) +
+                "] which exceeds 30% of this node's heap size [" + new ByteSizeValue(TcpTransport.THIRTY_PER_HEAP_SIZE) +
+                "], closing connection");
+        }
+        if (framedMessage.networkSize == -1) {
+            // the first frames hold the header of the message, which checks the size of the message like any other message
+            // frames don't nest so they are rejected as corrupted
+            final int messageLength = TcpTransport.readMessageLength(framedMessage.content());
+            if (messageLength == 0) {
+                throw new StreamCorruptedException("frames of stream [" + streamId + "] don't hold a message");
+            } else if (messageLength > 0) {
+                framedMessage.networkSize = (long) messageLength + TcpHeader.BYTES_REQUIRED_FOR_MESSAGE_SIZE;
+            }
+        }
+        if (framedMessage.networkSize != -1 && framedMessage.bytes > framedMessage.networkSize) {
+            throw new StreamCorruptedException("frames of stream [" + streamId + "] hold [" + framedMessage.bytes
+                + "] bytes but the message is [" + framedMessage.networkSize + "] bytes long");
+        }
+        if (frame.isLast()) {
+            framedMessages.remove(streamId);
+            final ReleasableBytesReference[] references = framedMessage.frames.toArray(new ReleasableBytesReference[0]);
+            final Releasable releasable = () -> Releasables.closeExpectNoException(references);
+            releaseFramedBytes(framedMessage);
+            try (ReleasableBytesReference message = new ReleasableBytesReference(CompositeBytesReference.of(references), releasable)) {
+                decodeFramedMessage(channel, message);
+            }
+        }
+    }
+
+    private void releaseFramedMessage(FramedMessage framedMessage) {
+        try {
+            Releasables.close(framedMessage.frames);
+        } finally {
+            releaseFramedBytes(framedMessage);
+        }
+    }
+
+    private void releaseFramedBytes(FramedMessage framedMessage) {
+        framedBytes -= framedMessage.bytes;
+        circuitBreaker.get().addWithoutBreaking(-framedMessage.bytes);
+    }
+
+    /**
+     * Decodes a message that was sent in frames. The frames of a message are only ever sent between whole
+     * messages so the decoder is always waiting for a header when the last frame of a message arrives.
+     */
+    private void decodeFramedMessage(TcpChannel channel, ReleasableBytesReference message) throws IOException {
+        final ArrayList<Object> fragments = new ArrayList<>();
+        try {
+            int offset = 0;
+            while (offset < message.length()) {
+                try (ReleasableBytesReference toDecode = message.retainedSlice(offset, message.length() - offset)) {
+                    final int bytesDecoded = decoder.decode(toDecode, fragments::add);
+                    if (bytesDecoded == 0) {
+                        throw new StreamCorruptedException("framed message of length [" + message.length() + "] is incomplete");
+                    }
+                    offset += bytesDecoded;
+                }
+            }
+            if (fragments.isEmpty() || fragments.get(fragments.size() - 1) != InboundDecoder.END_CONTENT
+                || fragments.stream().anyMatch(fragment -> fragment instanceof InboundFrame || fragment == InboundDecoder.PING)) {
+                throw new StreamCorruptedException("framed message of length [" + message.length() + "] isn't a single message");
+            }
+            forwardFragments(channel, fragments);
+        } finally {
+            releaseFragments(fragments);
+        }
+    }
+
     private boolean endOfMessage(Object fragment) {
-        return fragment == InboundDecoder.PING || fragment == InboundDecoder.END_CONTENT || fragment instanceof Exception;
+        return fragment == InboundDecoder.PING || fragment == InboundDecoder.END_CONTENT || fragment instanceof InboundFrame
+            || fragment instanceof Exception;
     }
 
     private ReleasableBytesReference getPendingBytes() {
@@ -169,4 +283,18 @@ public class InboundPipeline implements Releasable {
             }
         }
     }
+
+    /**
+     * The frames of a message that are received so far.
+     */
+    private static final class FramedMessage {
+        private final ArrayList<ReleasableBytesReference> frames = new ArrayList<>();
+        private long bytes = 0;
+        // the size of the message read from its header, -1 until the frames hold the size
+        private long networkSize = -1;
+
+        BytesReference content() {
+            return CompositeBytesReference.of(frames.toArray(new BytesReference[0]));
+        }
+    }
 }
@@ -0,0 +1,199 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.transport;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.CompositeBytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.network.CloseableChannel;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * Writes the messages sent on a {@link TcpChannel} in priority order and splits the messages that are larger than
+ * the frame size into frames that it interleaves with the other messages. A message is never stuck behind more
+ * than one frame of a large message, so pings and small requests and responses don't wait for a large recovery
+ * chunk or search response to be written.
+ * <p>
+ * Only one frame is written at a time. Messages that fit into a frame are written as they are.
+ * <p>
+ * The receiving node only accepts frames on a channel once it received a message with a version that supports frames
+ * on it, see {@link InboundDecoder}. All messages written by the queue have such a version, so the first message that
+ * the queue writes on a channel is always written as it is, even if it is larger than the frame size.
+ */
+final class OutboundFrameQueue {
+
+    /**
+     * The priority of an outbound message. Messages with a higher priority are written first.
+     */
+    enum Priority {
+        HIGH,
+        NORMAL,
+        LOW;
+
+        static Priority of(TransportRequestOptions.Type type) {
+            switch (type) {
+                case PING:
+                case STATE:
+                    return HIGH;
+                case REG:
+                    return NORMAL;
+                case BULK:
+                case RECOVERY:
+                    return LOW;
+                default:
+                    throw new IllegalArgumentException("unknown request type [" + type + "]");
+            }
+        }
+    }
+
+    private static final Comparator<PendingMessage> ORDER = Comparator.<PendingMessage, Priority>comparing(m -> m.priority)
+        .thenComparingLong(m -> m.sequence);
+
+    private final TcpChannel channel;
+    private final int frameSize;
+
+    // guarded by this
+    private final PriorityQueue<PendingMessage> queue = new PriorityQueue<>(ORDER);
+    // guarded by this
+    private boolean draining;
+    // guarded by this
+    private boolean writingFrame;
+    // guarded by this
+    private long nextSequence;
+    // guarded by this
+    private int nextStreamId;
+    // guarded by this, whether a whole message was written so that the receiving node accepts frames
+    private boolean framesNegotiated;
+
+    OutboundFrameQueue(TcpChannel channel, int frameSize) {
+        assert frameSize > 0 : "frame size must be positive but was [" + frameSize + "]";
+        this.channel = channel;
+        this.frameSize = frameSize;
+    }
+
+    /**
+     * Queues a message to be written to the channel. The listener is notified once the whole message is written
+     * or as soon as writing any of its frames fails.
+     */
+    void send(BytesReference message, Priority priority, ActionListener<Void> listener) {
+        synchronized (this) {
+            queue.add(new PendingMessage(message, priority, nextSequence++, listener));
+        }
+        drain();
+    }
+
+    /**
+     * Writes queued messages until the queue is empty or a frame is being written. Only one thread drains at a
+     * time so that messages of the same priority are written in the order they were sent.
+     */
+    private void drain() {
+        while (true) {
+            final PendingMessage next;
+            synchronized (this) {
+                if (draining || writingFrame || queue.isEmpty()) {
+                    return;
+                }
+                next = queue.poll();
+                if (next.isFramed() == false && framesNegotiated && next.message.length() > frameSize) {
+                    next.streamId = nextStreamId;
+                    nextStreamId = (nextStreamId + 1) & Integer.MAX_VALUE;
+                }
+                framesNegotiated = true;
+                if (next.isFramed()) {
+                    writingFrame = true;
+                }
+                draining = true;
+            }
+            try {
+                if (next.isFramed()) {
+                    writeFrame(next);
+                } else {
+                    channel.sendMessage(next.message, next.listener);
+                }
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    writingFrame = false;
+                }
+                next.listener.onFailure(e);
+                CloseableChannel.closeChannel(channel);
+            } finally {
+                synchronized (this) {
+                    draining = false;
+                }
+            }
+        }
+    }
+
+    private void writeFrame(PendingMessage pending) {
+        final int length = Math.min(frameSize, pending.message.length() - pending.offset);
+        final boolean last = pending.offset + length == pending.message.length();
+        final BytesReference frame;
+        try (BytesStreamOutput header = new BytesStreamOutput(TcpHeader.FRAME_HEADER_SIZE)) {
+            TcpHeader.writeFrameHeader(header, pending.streamId, last, length);
+            frame = CompositeBytesReference.of(header.copyBytes(), pending.message.slice(pending.offset, length));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        pending.offset += length;
+        channel.sendMessage(frame, new ActionListener<>() {
+            @Override
+            public void onResponse(Void v) {
+                synchronized (OutboundFrameQueue.this) {
+                    writingFrame = false;
+                    if (last == false) {
+                        // go to the back of the line of messages with the same priority
+                        pending.sequence = nextSequence++;
+                        queue.add(pending);
+                    }
+                }
+                if (last) {
+                    pending.listener.onResponse(null);
+                }
+                drain();
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                synchronized (OutboundFrameQueue.this) {
+                    writingFrame = false;
+                }
+                pending.listener.onFailure(e);
+                // the receiver can't reassemble the message without this frame
+                CloseableChannel.closeChannel(channel);
+                drain();
+            }
+        });
+    }
+
+    private static final class PendingMessage {
+        private final BytesReference message;
+        private final Priority priority;
+        private final ActionListener<Void> listener;
+        private long sequence;
+        private int offset;
+        // the id of the stream of frames that the message is split into, -1 until it is first written or if it isn't framed
+        private int streamId = -1;
+
+        PendingMessage(BytesReference message, Priority priority, long sequence, ActionListener<Void> listener) {
+            this.message = message;
+            this.priority = priority;
+            this.sequence = sequence;
+            this.listener = listener;
+        }
+
+        boolean isFramed() {
+            return streamId >= 0;
+        }
+    }
+}
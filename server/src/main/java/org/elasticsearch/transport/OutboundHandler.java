@@ -22,12 +22,15 @@ import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
 import org.elasticsearch.common.network.CloseableChannel;
 import org.elasticsearch.common.transport.NetworkExceptionHelper;
 import org.elasticsearch.common.transport.TransportAddress;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
+import java.util.Map;
 
 final class OutboundHandler {
 
@@ -42,6 +45,9 @@ final class OutboundHandler {
 
     private volatile long slowLogThresholdMs = Long.MAX_VALUE;
 
+    private volatile int frameSize = 0;
+    private final Map<TcpChannel, OutboundFrameQueue> frameQueues = ConcurrentCollections.newConcurrentMap();
+
     private volatile TransportMessageListener messageListener = TransportMessageListener.NOOP_LISTENER;
 
     OutboundHandler(String nodeName, Version version, StatsTracker statsTracker, ThreadPool threadPool, BigArrays bigArrays,
@@ -58,8 +64,16 @@ final class OutboundHandler {
         this.slowLogThresholdMs = slowLogThreshold.getMillis();
     }
 
+    /**
+     * Messages larger than the frame size are split into frames that are interleaved with the other messages
+     * sent on the same channel. A frame size of {@code 0} disables framing.
+     */
+    void setFrameSize(ByteSizeValue frameSize) {
+        this.frameSize = Math.toIntExact(frameSize.getBytes());
+    }
+
     void sendBytes(TcpChannel channel, BytesReference bytes, ActionListener<Void> listener) {
-        internalSend(channel, bytes, null, listener);
+        internalSend(channel, bytes, null, null, null, listener);
     }
 
     /**
@@ -76,8 +90,10 @@ final class OutboundHandler {
         } else {
             compressionScheme = null;
         }
-        OutboundMessage.Request message =
-            new OutboundMessage.Request(threadPool.getThreadContext(), request, version, action, requestId, isHandshake, compressionScheme);
+        final OutboundFrameQueue.Priority priority = isHandshake ? OutboundFrameQueue.Priority.HIGH
+            : OutboundFrameQueue.Priority.of(options.type());
+        OutboundMessage.Request message = new OutboundMessage.Request(threadPool.getThreadContext(), request, version, action,
+            requestId, isHandshake, compressionScheme, priority);
         if (request.tryIncRef() == false) {
             assert false : "request [" + request + "] has been released already";
             throw new AlreadyClosedException("request [" + request + "] has been released already");
@@ -89,17 +105,18 @@ final class OutboundHandler {
                 request.decRef();
             }
         });
-        sendMessage(channel, message, listener);
+        sendMessage(channel, action, message, frameQueue(channel, version, isHandshake), priority, listener);
     }
 
     /**
      * Sends the response to the given channel. This method should be used to send {@link TransportResponse}
-     * objects back to the caller.
+     * objects back to the caller. The response is written with the priority of the request.
      *
      * @see #sendErrorResponse(Version, TcpChannel, long, String, Exception) for sending error responses
      */
     void sendResponse(final Version nodeVersion, final TcpChannel channel, final long requestId, final String action,
-                      final TransportResponse response, final boolean compressResponse, final boolean isHandshake) throws IOException {
+                      final TransportResponse response, final boolean compressResponse, final boolean isHandshake,
+                      final OutboundFrameQueue.Priority priority) throws IOException {
         Version version = Version.min(this.version, nodeVersion);
         final Compression.Scheme compressionScheme;
         if (compressResponse) {
@@ -110,7 +127,7 @@ final class OutboundHandler {
         OutboundMessage.Response message = new OutboundMessage.Response(threadPool.getThreadContext(), response, version,
             requestId, isHandshake, compressionScheme);
         ActionListener<Void> listener = ActionListener.wrap(() -> messageListener.onResponseSent(requestId, action, response));
-        sendMessage(channel, message, listener);
+        sendMessage(channel, action, message, frameQueue(channel, version, isHandshake), priority, listener);
     }
 
     /**
@@ -124,10 +141,33 @@ final class OutboundHandler {
         OutboundMessage.Response message = new OutboundMessage.Response(threadPool.getThreadContext(), tx, version, requestId,
             false, null);
         ActionListener<Void> listener = ActionListener.wrap(() -> messageListener.onResponseSent(requestId, action, error));
-        sendMessage(channel, message, listener);
+        sendMessage(channel, action, message, frameQueue(channel, version, false), OutboundFrameQueue.Priority.HIGH, listener);
     }
 
-    private void sendMessage(TcpChannel channel, OutboundMessage networkMessage, ActionListener<Void> listener) throws IOException {
+    /**
+     * The queue that interleaves the frames of large messages sent on the channel, or {@code null} if the messages
+     * are written to the channel as they are because framing is disabled or the remote node can't read frames.
+     */
+    @Nullable
+    private OutboundFrameQueue frameQueue(TcpChannel channel, Version version, boolean isHandshake) {
+        final int frameSize = this.frameSize;
+        if (frameSize <= 0 || isHandshake || version.before(TcpHeader.VERSION_WITH_FRAMES)) {
+            return null;
+        }
+        OutboundFrameQueue frameQueue = frameQueues.get(channel);
+        if (frameQueue == null) {
+            final OutboundFrameQueue newFrameQueue = new OutboundFrameQueue(channel, frameSize);
+            frameQueue = frameQueues.putIfAbsent(channel, newFrameQueue);
+            if (frameQueue == null) {
+                frameQueue = newFrameQueue;
+                channel.addCloseListener(ActionListener.wrap(() -> frameQueues.remove(channel)));
+            }
+        }
+        return frameQueue;
+    }
+
+    private void sendMessage(TcpChannel channel, String action, OutboundMessage networkMessage, @Nullable OutboundFrameQueue frameQueue,
+                             OutboundFrameQueue.Priority priority, ActionListener<Void> listener) throws IOException {
         final BytesStreamOutput bytesStreamOutput = new ReleasableBytesStreamOutput(bigArrays);
         final ActionListener<Void> wrappedListener = ActionListener.runBefore(listener, bytesStreamOutput::close);
         final BytesReference message;
@@ -138,10 +178,15 @@ final class OutboundHandler {
             wrappedListener.onFailure(e);
             throw e;
         }
-        internalSend(channel, message, networkMessage, wrappedListener);
+        if (networkMessage.isCompress()) {
+            statsTracker.markCompressed(action, networkMessage.uncompressedBytes(), networkMessage.compressedBytes(),
+                networkMessage.compressionNanos());
+        }
+        internalSend(channel, message, networkMessage, frameQueue, priority, wrappedListener);
     }
 
     private void internalSend(TcpChannel channel, BytesReference reference, @Nullable OutboundMessage message,
+                              @Nullable OutboundFrameQueue frameQueue, @Nullable OutboundFrameQueue.Priority priority,
                               ActionListener<Void> listener) {
         final long startTime = threadPool.relativeTimeInMillis();
         channel.getChannelStats().markAccessed(startTime);
@@ -149,7 +194,7 @@ final class OutboundHandler {
         TransportLogger.logOutboundMessage(channel, reference);
         // stash thread context so that channel event loop is not polluted by thread context
         try (ThreadContext.StoredContext existing = threadPool.getThreadContext().stashContext()) {
-            channel.sendMessage(reference, new ActionListener<>() {
+            final ActionListener<Void> sendListener = new ActionListener<>() {
                 @Override
                 public void onResponse(Void v) {
                     statsTracker.markBytesWritten(messageSize);
@@ -178,7 +223,12 @@ final class OutboundHandler {
                         }
                     }
                 }
-            });
+            };
+            if (frameQueue == null) {
+                channel.sendMessage(reference, sendListener);
+            } else {
+                frameQueue.send(reference, priority, sendListener);
+            }
         } catch (RuntimeException ex) {
             listener.onFailure(ex);
             CloseableChannel.closeChannel(channel);
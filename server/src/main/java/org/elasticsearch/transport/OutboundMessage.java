@@ -20,11 +20,17 @@ import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
 
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 
 abstract class OutboundMessage extends NetworkMessage {
 
     protected final Writeable message;
+    // the size of the message before and after compression and the time it took to serialize and compress it, -1 if not compressed
+    private long uncompressedBytes = -1;
+    private long compressedBytes = -1;
+    private long compressionNanos = -1;
 
     OutboundMessage(ThreadContext threadContext, Version version, byte status, long requestId, Compression.Scheme compressionScheme,
                     Writeable message) {
@@ -47,17 +53,18 @@ abstract class OutboundMessage extends NetworkMessage {
         }
 
         final boolean compress = TransportStatus.isCompress(status);
-        final StreamOutput stream = compress ? wrapCompressed(bytesStream) : bytesStream;
+        final long compressionStartNanos = compress ? System.nanoTime() : 0;
+        final long compressedStartPosition = bytesStream.position();
+        final CountingOutputStream uncompressedCounter = compress ? new CountingOutputStream(compressedOutputStream(bytesStream)) : null;
+        final StreamOutput stream = compress ? new OutputStreamStreamOutput(uncompressedCounter) : bytesStream;
         final BytesReference zeroCopyBuffer;
         try {
             stream.setVersion(version);
             if (variableHeaderLength == -1) {
                 writeVariableHeader(stream);
             }
-            if (message instanceof BytesTransportRequest) {
-                BytesTransportRequest bRequest = (BytesTransportRequest) message;
-                bRequest.writeThin(stream);
-                zeroCopyBuffer = bRequest.bytes;
+            if (message instanceof TrailingBytesWriteable && compress == false) {
+                zeroCopyBuffer = ((TrailingBytesWriteable) message).writeWithoutTrailingBytes(stream);
             } else if (message instanceof RemoteTransportException) {
                 stream.writeException((RemoteTransportException) message);
                 zeroCopyBuffer = BytesArray.EMPTY;
@@ -72,6 +79,11 @@ abstract class OutboundMessage extends NetworkMessage {
                 stream.close();
             }
         }
+        if (compress) {
+            compressionNanos = System.nanoTime() - compressionStartNanos;
+            uncompressedBytes = uncompressedCounter.count;
+            compressedBytes = bytesStream.position() - compressedStartPosition;
+        }
         final BytesReference message = bytesStream.bytes();
         if (zeroCopyBuffer.length() == 0) {
             reference = message;
@@ -87,27 +99,76 @@ abstract class OutboundMessage extends NetworkMessage {
 
     // compressed stream wrapped bytes must be no-close wrapped since we need to close the compressed wrapper below to release
     // resources and write EOS marker bytes but must not yet release the bytes themselves
-    private StreamOutput wrapCompressed(BytesStreamOutput bytesStream) throws IOException {
+    private OutputStream compressedOutputStream(BytesStreamOutput bytesStream) throws IOException {
         if (compressionScheme == Compression.Scheme.DEFLATE) {
-            return new OutputStreamStreamOutput(CompressorFactory.COMPRESSOR.threadLocalOutputStream(Streams.noCloseStream(bytesStream)));
+            return CompressorFactory.COMPRESSOR.threadLocalOutputStream(Streams.noCloseStream(bytesStream));
         } else if (compressionScheme == Compression.Scheme.LZ4) {
-            return new OutputStreamStreamOutput(Compression.Scheme.lz4OutputStream(Streams.noCloseStream(bytesStream)));
+            return Compression.Scheme.lz4OutputStream(Streams.noCloseStream(bytesStream));
+        } else if (compressionScheme == Compression.Scheme.DEFLATE_DICTIONARY) {
+            return Compression.Scheme.deflateDictionaryOutputStream(Streams.noCloseStream(bytesStream));
         } else {
             throw new IllegalArgumentException("Invalid compression scheme: " + compressionScheme);
         }
     }
 
+    /**
+     * The number of bytes the message took before compression, or {@code -1} if it wasn't compressed.
+     */
+    long uncompressedBytes() {
+        return uncompressedBytes;
+    }
+
+    /**
+     * The number of bytes the message took after compression, or {@code -1} if it wasn't compressed.
+     */
+    long compressedBytes() {
+        return compressedBytes;
+    }
+
+    /**
+     * The time it took to serialize and compress the message in nanoseconds, or {@code -1} if it wasn't compressed.
+     */
+    long compressionNanos() {
+        return compressionNanos;
+    }
+
     protected void writeVariableHeader(StreamOutput stream) throws IOException {
         threadContext.writeTo(stream);
     }
 
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
     static class Request extends OutboundMessage {
 
         private final String action;
 
         Request(ThreadContext threadContext, Writeable message, Version version, String action, long requestId,
                 boolean isHandshake, Compression.Scheme compressionScheme) {
-            super(threadContext, version, setStatus(isHandshake), requestId, adjustCompressionScheme(compressionScheme, message), message);
+            this(threadContext, message, version, action, requestId, isHandshake, compressionScheme, OutboundFrameQueue.Priority.NORMAL);
+        }
+
+        Request(ThreadContext threadContext, Writeable message, Version version, String action, long requestId,
+                boolean isHandshake, Compression.Scheme compressionScheme, OutboundFrameQueue.Priority priority) {
+            super(threadContext, version, setStatus(isHandshake, priority, version), requestId,
+                adjustCompressionScheme(compressionScheme, message), message);
             this.action = action;
         }
 
@@ -130,11 +191,14 @@ abstract class OutboundMessage extends NetworkMessage {
             }
         }
 
-        private static byte setStatus(boolean isHandshake) {
+        private static byte setStatus(boolean isHandshake, OutboundFrameQueue.Priority priority, Version version) {
             byte status = 0;
             status = TransportStatus.setRequest(status);
             if (isHandshake) {
                 status = TransportStatus.setHandshake(status);
+            } else if (version.onOrAfter(TcpHeader.VERSION_WITH_FRAMES)) {
+                // the response is written with the same priority
+                status = TransportStatus.setPriority(status, priority);
             }
 
             return status;
@@ -10,6 +10,8 @@ package org.elasticsearch.transport;
 
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.metrics.RequestHandlerStats;
+import org.elasticsearch.core.Nullable;
 import org.elasticsearch.core.Releasable;
 import org.elasticsearch.core.Releasables;
 import org.elasticsearch.tasks.CancellableTask;
@@ -27,10 +29,18 @@ public class RequestHandlerRegistry<Request extends TransportRequest> {
     private final String executor;
     private final TaskManager taskManager;
     private final Writeable.Reader<Request> requestReader;
+    private final RequestHandlerStats.Tracker statsTracker;
 
     public RequestHandlerRegistry(String action, Writeable.Reader<Request> requestReader, TaskManager taskManager,
                                   TransportRequestHandler<Request> handler, String executor, boolean forceExecution,
                                   boolean canTripCircuitBreaker) {
+        this(action, requestReader, taskManager, handler, executor, forceExecution, canTripCircuitBreaker,
+            new RequestHandlerStats.Tracker());
+    }
+
+    private RequestHandlerRegistry(String action, Writeable.Reader<Request> requestReader, TaskManager taskManager,
+                                   TransportRequestHandler<Request> handler, String executor, boolean forceExecution,
+                                   boolean canTripCircuitBreaker, RequestHandlerStats.Tracker statsTracker) {
         this.action = action;
         this.requestReader = requestReader;
         this.handler = handler;
@@ -38,6 +48,7 @@ public class RequestHandlerRegistry<Request extends TransportRequest> {
         this.canTripCircuitBreaker = canTripCircuitBreaker;
         this.executor = executor;
         this.taskManager = taskManager;
+        this.statsTracker = statsTracker;
     }
 
     public String getAction() {
@@ -49,8 +60,12 @@ public class RequestHandlerRegistry<Request extends TransportRequest> {
     }
 
     public void processMessageReceived(Request request, TransportChannel channel) throws Exception {
+        final long startNanos = System.nanoTime();
         final Task task = taskManager.register(channel.getChannelType(), action, request);
-        Releasable unregisterTask = () -> taskManager.unregister(task);
+        Releasable unregisterTask = () -> {
+            taskManager.unregister(task);
+            statsTracker.recordLatency(System.nanoTime() - startNanos);
+        };
         try {
             if (channel instanceof TcpTransportChannel && task instanceof CancellableTask) {
                 final TcpChannel tcpChannel = ((TcpTransportChannel) channel).getChannel();
@@ -81,6 +96,18 @@ public class RequestHandlerRegistry<Request extends TransportRequest> {
         return handler;
     }
 
+    void recordRequestSize(long bytes) {
+        statsTracker.recordRequestSize(bytes);
+    }
+
+    /**
+     * The latency and request size of the requests that this handler handled, {@code null} if it hasn't handled any.
+     */
+    @Nullable
+    public RequestHandlerStats getStats() {
+        return statsTracker.isEmpty() ? null : statsTracker.stats();
+    }
+
     @Override
     public String toString() {
         return handler.toString();
@@ -89,6 +116,6 @@ public class RequestHandlerRegistry<Request extends TransportRequest> {
     public static <R extends TransportRequest> RequestHandlerRegistry<R> replaceHandler(RequestHandlerRegistry<R> registry,
                                                                                         TransportRequestHandler<R> handler) {
         return new RequestHandlerRegistry<>(registry.action, registry.requestReader, registry.taskManager, handler,
-            registry.executor, registry.forceExecution, registry.canTripCircuitBreaker);
+            registry.executor, registry.forceExecution, registry.canTripCircuitBreaker, registry.statsTracker);
     }
 }
@@ -10,6 +10,9 @@ package org.elasticsearch.transport;
 
 import org.elasticsearch.common.metrics.MeanMetric;
 
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.LongAdder;
 
 public class StatsTracker {
@@ -17,6 +20,9 @@ public class StatsTracker {
     private final LongAdder bytesRead = new LongAdder();
     private final LongAdder messagesReceived = new LongAdder();
     private final MeanMetric writeBytesMetric = new MeanMetric();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushedMessages = new LongAdder();
+    private final Map<String, CompressionTracker> compressionByAction = new ConcurrentHashMap<>();
 
     public void markBytesRead(long bytesReceived) {
         bytesRead.add(bytesReceived);
@@ -30,6 +36,22 @@ public class StatsTracker {
         writeBytesMetric.inc(bytesWritten);
     }
 
+    /**
+     * Marks that a channel flushed the given number of messages that were written to it since its previous flush.
+     */
+    public void markFlush(int messages) {
+        flushes.increment();
+        flushedMessages.add(messages);
+    }
+
+    public void markCompressed(String action, long uncompressedBytes, long compressedBytes, long tookNanos) {
+        final CompressionTracker tracker = compressionByAction.computeIfAbsent(action, a -> new CompressionTracker());
+        tracker.messages.increment();
+        tracker.uncompressedBytes.add(uncompressedBytes);
+        tracker.compressedBytes.add(compressedBytes);
+        tracker.nanos.add(tookNanos);
+    }
+
     public long getBytesRead() {
         return bytesRead.sum();
     }
@@ -50,4 +72,29 @@ public class StatsTracker {
     public long getMessagesSent() {
         return writeBytesMetric.count();
     }
+
+    public long getFlushes() {
+        return flushes.sum();
+    }
+
+    public long getFlushedMessages() {
+        return flushedMessages.sum();
+    }
+
+    /**
+     * The compression stats of the messages sent for each action, both requests and responses.
+     */
+    public Map<String, TransportStats.CompressionStats> getCompressionStats() {
+        final Map<String, TransportStats.CompressionStats> stats = new TreeMap<>();
+        compressionByAction.forEach((action, tracker) -> stats.put(action, new TransportStats.CompressionStats(
+            tracker.messages.sum(), tracker.uncompressedBytes.sum(), tracker.compressedBytes.sum(), tracker.nanos.sum())));
+        return stats;
+    }
+
+    private static final class CompressionTracker {
+        private final LongAdder messages = new LongAdder();
+        private final LongAdder uncompressedBytes = new LongAdder();
+        private final LongAdder compressedBytes = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+    }
 }
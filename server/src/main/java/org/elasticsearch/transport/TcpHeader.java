@@ -17,6 +17,8 @@ public class TcpHeader {
 
     public static final Version VERSION_WITH_HEADER_SIZE = Version.V_7_6_0;
 
+    public static final Version VERSION_WITH_FRAMES = Version.V_8_0_0;
+
     public static final int MARKER_BYTES_SIZE = 2;
 
     public static final int MESSAGE_LENGTH_SIZE = 4;
@@ -41,6 +43,19 @@ public class TcpHeader {
 
     private static final int HEADER_SIZE = PRE_76_HEADER_SIZE + VARIABLE_HEADER_SIZE;
 
+    /**
+     * Written in place of the message length to mark a frame of a message that was split into several frames.
+     */
+    public static final int FRAME_MARKER = -2;
+
+    public static final int STREAM_ID_SIZE = 4;
+
+    public static final int FRAME_FLAGS_SIZE = 1;
+
+    public static final int FRAME_HEADER_SIZE = BYTES_REQUIRED_FOR_MESSAGE_SIZE + STREAM_ID_SIZE + FRAME_FLAGS_SIZE + MESSAGE_LENGTH_SIZE;
+
+    public static final byte FRAME_LAST = 1;
+
     public static int headerSize(Version version) {
         if (version.onOrAfter(VERSION_WITH_HEADER_SIZE)) {
             return HEADER_SIZE;
@@ -68,4 +83,15 @@ public class TcpHeader {
             output.writeInt(variableHeaderSize);
         }
     }
+
+    /**
+     * Writes the header of a frame that carries {@code contentSize} bytes of the message with the given stream id.
+     */
+    public static void writeFrameHeader(StreamOutput output, int streamId, boolean last, int contentSize) throws IOException {
+        output.writeBytes(PREFIX);
+        output.writeInt(FRAME_MARKER);
+        output.writeInt(streamId);
+        output.writeByte(last ? FRAME_LAST : 0);
+        output.writeInt(contentSize);
+    }
 }
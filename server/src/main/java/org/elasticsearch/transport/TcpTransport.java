@@ -90,7 +90,8 @@ public abstract class TcpTransport extends AbstractLifecycleComponent implements
 
     // This is the number of bytes necessary to read the message size
     private static final int BYTES_NEEDED_FOR_MESSAGE_SIZE = TcpHeader.MARKER_BYTES_SIZE + TcpHeader.MESSAGE_LENGTH_SIZE;
-    private static final long THIRTY_PER_HEAP_SIZE = (long) (JvmInfo.jvmInfo().getMem().getHeapMax().getBytes() * 0.3);
+    // the largest message that is read, also the most bytes that are buffered to reassemble framed messages
+    static final long THIRTY_PER_HEAP_SIZE = (long) (JvmInfo.jvmInfo().getMem().getHeapMax().getBytes() * 0.3);
 
     final StatsTracker statsTracker = new StatsTracker();
 
@@ -138,6 +139,7 @@ public abstract class TcpTransport extends AbstractLifecycleComponent implements
         BigArrays bigArrays = new BigArrays(pageCacheRecycler, circuitBreakerService, CircuitBreaker.IN_FLIGHT_REQUESTS);
 
         this.outboundHandler = new OutboundHandler(nodeName, version, statsTracker, threadPool, bigArrays, compressionScheme);
+        this.outboundHandler.setFrameSize(TransportSettings.FRAME_SIZE.get(settings));
         this.handshaker = new TransportHandshaker(version, threadPool,
             (node, channel, requestId, v) -> outboundHandler.sendRequest(node, channel, requestId,
                 TransportHandshaker.HANDSHAKE_ACTION_NAME, new TransportHandshaker.HandshakeRequest(version),
@@ -700,7 +702,7 @@ public abstract class TcpTransport extends AbstractLifecycleComponent implements
 
     /**
      * Validates the first 6 bytes of the message header and returns the length of the message. If 6 bytes
-     * are not available, it returns -1.
+     * are not available, it returns -1. It returns 0 for pings. Frames are rejected as corrupted.
      *
      * @param networkBytes the will be read
      * @return the length of the message
@@ -710,14 +712,22 @@ public abstract class TcpTransport extends AbstractLifecycleComponent implements
      *                                               This is dependent on the available memory.
      */
     public static int readMessageLength(BytesReference networkBytes) throws IOException {
+        return readMessageLength(networkBytes, false);
+    }
+
+    /**
+     * Same as {@link #readMessageLength(BytesReference)} but returns {@link TcpHeader#FRAME_MARKER} for frames if
+     * {@code framesNegotiated} is true, that is if the remote node can send frames on the channel.
+     */
+    public static int readMessageLength(BytesReference networkBytes, boolean framesNegotiated) throws IOException {
         if (networkBytes.length() < BYTES_NEEDED_FOR_MESSAGE_SIZE) {
             return -1;
         } else {
-            return readHeaderBuffer(networkBytes);
+            return readHeaderBuffer(networkBytes, framesNegotiated);
         }
     }
 
-    private static int readHeaderBuffer(BytesReference headerBuffer) throws IOException {
+    private static int readHeaderBuffer(BytesReference headerBuffer, boolean framesNegotiated) throws IOException {
         if (headerBuffer.get(0) != 'E' || headerBuffer.get(1) != 'S') {
             if (appearsToBeHTTPRequest(headerBuffer)) {
                 throw new HttpRequestOnTransportException("This is not an HTTP port");
@@ -747,6 +757,10 @@ public abstract class TcpTransport extends AbstractLifecycleComponent implements
             return 0;
         }
 
+        if (messageLength == TcpHeader.FRAME_MARKER && framesNegotiated) {
+            return messageLength;
+        }
+
         if (messageLength <= 0) {
             throw new StreamCorruptedException("invalid data length: " + messageLength);
         }
@@ -848,8 +862,9 @@ public abstract class TcpTransport extends AbstractLifecycleComponent implements
         final long messagesSent = statsTracker.getMessagesSent();
         final long messagesReceived = statsTracker.getMessagesReceived();
         final long bytesRead = statsTracker.getBytesRead();
-        return new TransportStats(acceptedChannels.size(), outboundConnectionCount.get(),
-                messagesReceived, bytesRead, messagesSent, bytesWritten);
+        return new TransportStats(acceptedChannels.size(), outboundConnectionCount.get(), messagesReceived, bytesRead, messagesSent,
+            bytesWritten, statsTracker.getFlushes(), statsTracker.getFlushedMessages(), statsTracker.getCompressionStats(),
+            requestHandlers.getStats());
     }
 
     /**
@@ -24,10 +24,11 @@ public final class TcpTransportChannel implements TransportChannel {
     private final Version version;
     private final boolean compressResponse;
     private final boolean isHandshake;
+    private final OutboundFrameQueue.Priority priority;
     private final Releasable breakerRelease;
 
     TcpTransportChannel(OutboundHandler outboundHandler, TcpChannel channel, String action, long requestId, Version version,
-                        boolean compressResponse, boolean isHandshake, Releasable breakerRelease) {
+                        boolean compressResponse, boolean isHandshake, OutboundFrameQueue.Priority priority, Releasable breakerRelease) {
         this.version = version;
         this.channel = channel;
         this.outboundHandler = outboundHandler;
@@ -35,6 +36,7 @@ public final class TcpTransportChannel implements TransportChannel {
         this.requestId = requestId;
         this.compressResponse = compressResponse;
         this.isHandshake = isHandshake;
+        this.priority = priority;
         this.breakerRelease = breakerRelease;
     }
 
@@ -46,7 +48,7 @@ public final class TcpTransportChannel implements TransportChannel {
     @Override
     public void sendResponse(TransportResponse response) throws IOException {
         try {
-            outboundHandler.sendResponse(version, channel, requestId, action, response, compressResponse, isHandshake);
+            outboundHandler.sendResponse(version, channel, requestId, action, response, compressResponse, isHandshake, priority);
         } finally {
             release(false);
         }
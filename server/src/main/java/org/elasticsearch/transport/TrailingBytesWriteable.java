@@ -0,0 +1,31 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.transport;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+
+import java.io.IOException;
+
+/**
+ * A message that ends with a large chunk of bytes, like a chunk of a file. When the message isn't compressed the
+ * network layer appends these bytes to the serialized message as they are instead of copying them into the buffer
+ * that the rest of the message is serialized into.
+ */
+public interface TrailingBytesWriteable extends Writeable {
+
+    /**
+     * Writes this message without its trailing bytes and returns them. The bytes are written right after everything
+     * written to the stream so the stream must end with their length, as {@link StreamOutput#writeBytesReference} would
+     * write it. Implementations that can't put the bytes last, for instance because the remote node reads an older
+     * format, write the whole message and return an empty reference.
+     */
+    BytesReference writeWithoutTrailingBytes(StreamOutput out) throws IOException;
+}
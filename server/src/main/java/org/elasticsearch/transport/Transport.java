@@ -12,6 +12,7 @@ import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.component.LifecycleComponent;
+import org.elasticsearch.common.metrics.RequestHandlerStats;
 import org.elasticsearch.common.transport.BoundTransportAddress;
 import org.elasticsearch.common.transport.TransportAddress;
 import org.elasticsearch.core.TimeValue;
@@ -26,6 +27,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 
@@ -259,5 +261,19 @@ public interface Transport extends LifecycleComponent {
         public <T extends TransportRequest> RequestHandlerRegistry<T> getHandler(String action) {
             return (RequestHandlerRegistry<T>) requestHandlers.get(action);
         }
+
+        /**
+         * The latency and request size stats of each action that has handled requests.
+         */
+        public Map<String, RequestHandlerStats> getStats() {
+            final Map<String, RequestHandlerStats> stats = new TreeMap<>();
+            for (RequestHandlerRegistry<? extends TransportRequest> registry : requestHandlers.values()) {
+                final RequestHandlerStats handlerStats = registry.getStats();
+                if (handlerStats != null) {
+                    stats.put(registry.getAction(), handlerStats);
+                }
+            }
+            return stats;
+        }
     }
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.transport;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The dictionary that {@link Compression.Scheme#DEFLATE_DICTIONARY} primes DEFLATE with. Both sides of a connection must
+ * use exactly the same bytes so <strong>any change to this dictionary needs a new compression scheme</strong> rather than an
+ * edit in place.
+ * <p>
+ * DEFLATE finds matches with the end of the dictionary in fewer bits than with its start, so the strings that show up the
+ * most come last.
+ */
+final class TransportCompressionDictionary {
+
+    private TransportCompressionDictionary() {}
+
+    private static final String[] STRINGS = new String[] {
+        // field names from the Elastic Common Schema, which most logs and metrics follow
+        "\"kubernetes\":{\"namespace\":\"",
+        "\"container\":{\"id\":\"",
+        "\"cloud\":{\"provider\":\"",
+        "\"region\":\"",
+        "\"availability_zone\":\"",
+        "\"geo\":{\"location\":{\"lat\":",
+        ",\"lon\":",
+        "\"user_agent\":{\"original\":\"",
+        "\"url\":{\"original\":\"",
+        "\"path\":\"",
+        "\"domain\":\"",
+        "\"http\":{\"request\":{\"method\":\"",
+        "\"response\":{\"status_code\":",
+        "\"bytes\":",
+        "\"source\":{\"ip\":\"",
+        "\"destination\":{\"ip\":\"",
+        "\"port\":",
+        "\"user\":{\"name\":\"",
+        "\"process\":{\"pid\":",
+        "\"file\":{\"path\":\"",
+        "\"error\":{\"message\":\"",
+        "\"labels\":{",
+        "\"tags\":[\"",
+        "\"service\":{\"name\":\"",
+        "\"type\":\"",
+        "\"agent\":{\"type\":\"",
+        "\"version\":\"",
+        "\"ephemeral_id\":\"",
+        "\"id\":\"",
+        "\"ecs\":{\"version\":\"",
+        "\"host\":{\"name\":\"",
+        "\"hostname\":\"",
+        "\"os\":{\"platform\":\"",
+        "\"architecture\":\"",
+        "\"ip\":[\"",
+        "\"mac\":[\"",
+        "\"event\":{\"dataset\":\"",
+        "\"module\":\"",
+        "\"kind\":\"",
+        "\"category\":\"",
+        "\"duration\":",
+        "\"ingested\":\"",
+        "\"data_stream\":{\"type\":\"logs\",\"dataset\":\"",
+        "\"namespace\":\"default\"}",
+        "\"log\":{\"level\":\"",
+        "\"logger\":\"",
+        "\"offset\":",
+        "\"input\":{\"type\":\"",
+        "\"name\":\"",
+        "\"value\":",
+        "\"count\":",
+        "\"status\":\"",
+        "\"message\":\"",
+        "\"@timestamp\":\"",
+        // strings that the transport layer itself writes into most messages
+        "X-Opaque-Id",
+        "traceparent",
+        "_none",
+        "_doc",
+        "internal:coordination/fault_detection/follower_check",
+        "internal:coordination/fault_detection/leader_check",
+        "internal:cluster/coordination/publish_state",
+        "indices:data/read/search[phase/query]",
+        "indices:data/read/search[phase/fetch/id]",
+        "indices:data/read/search[free_context]",
+        "indices:admin/seq_no/global_checkpoint_sync",
+        "indices:admin/seq_no/retention_lease_background_sync",
+        "indices:data/write/bulk[s][r]",
+        "indices:data/write/bulk[s][p]",
+        "indices:data/write/bulk[s]",
+        "indices:data/write/bulk",
+    };
+
+    static final byte[] DICTIONARY = String.join("", STRINGS).getBytes(StandardCharsets.UTF_8);
+}
@@ -37,6 +37,8 @@ public interface TransportDecompressor extends Releasable {
 
         if (Compression.Scheme.isDeflate(bytes)) {
             return new DeflateTransportDecompressor(recycler);
+        } else if (Compression.Scheme.isDeflateDictionary(bytes)) {
+            return new DeflateTransportDecompressor(recycler, TransportCompressionDictionary.DICTIONARY);
         } else if (Compression.Scheme.isLZ4(bytes)) {
             return new Lz4TransportDecompressor(recycler);
         } else {
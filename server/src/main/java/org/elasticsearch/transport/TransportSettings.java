@@ -55,6 +55,9 @@ public final class TransportSettings {
     public static final Setting<Compression.Scheme> TRANSPORT_COMPRESSION_SCHEME =
         enumSetting(Compression.Scheme.class, "transport.compression_scheme", Compression.Scheme.DEFLATE,
             Setting.Property.NodeScope);
+    // messages larger than this are split into frames that are interleaved with other messages, defaults to disabled (0)
+    public static final Setting<ByteSizeValue> FRAME_SIZE = Setting.byteSizeSetting("transport.frame_size", ByteSizeValue.ZERO,
+        ByteSizeValue.ZERO, new ByteSizeValue(Integer.MAX_VALUE), Setting.Property.NodeScope);
     // the scheduled internal ping interval setting, defaults to disabled (-1)
     public static final Setting<TimeValue> PING_SCHEDULE =
         timeSetting("transport.ping_schedule", TimeValue.timeValueSeconds(-1), Setting.Property.NodeScope);
@@ -8,14 +8,21 @@
 
 package org.elasticsearch.transport;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.metrics.RequestHandlerStats;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.xcontent.ToXContentObject;
 import org.elasticsearch.common.xcontent.ToXContentFragment;
 import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.core.TimeValue;
 
 import java.io.IOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
 
 public class TransportStats implements Writeable, ToXContentFragment {
 
@@ -25,14 +32,28 @@ public class TransportStats implements Writeable, ToXContentFragment {
     private final long rxSize;
     private final long txCount;
     private final long txSize;
+    private final long txFlushes;
+    private final long txFlushedMessages;
+    private final Map<String, CompressionStats> compression;
+    private final Map<String, RequestHandlerStats> actions;
 
     public TransportStats(long serverOpen, long totalOutboundConnections, long rxCount, long rxSize, long txCount, long txSize) {
+        this(serverOpen, totalOutboundConnections, rxCount, rxSize, txCount, txSize, 0, 0, Map.of(), Map.of());
+    }
+
+    public TransportStats(long serverOpen, long totalOutboundConnections, long rxCount, long rxSize, long txCount, long txSize,
+                          long txFlushes, long txFlushedMessages, Map<String, CompressionStats> compression,
+                          Map<String, RequestHandlerStats> actions) {
         this.serverOpen = serverOpen;
         this.totalOutboundConnections = totalOutboundConnections;
         this.rxCount = rxCount;
         this.rxSize = rxSize;
         this.txCount = txCount;
         this.txSize = txSize;
+        this.txFlushes = txFlushes;
+        this.txFlushedMessages = txFlushedMessages;
+        this.compression = compression;
+        this.actions = actions;
     }
 
     public TransportStats(StreamInput in) throws IOException {
@@ -42,6 +63,17 @@ public class TransportStats implements Writeable, ToXContentFragment {
         rxSize = in.readVLong();
         txCount = in.readVLong();
         txSize = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_8_0_0)) {
+            txFlushes = in.readVLong();
+            txFlushedMessages = in.readVLong();
+            compression = in.readMap(StreamInput::readString, CompressionStats::new);
+            actions = in.readMap(StreamInput::readString, RequestHandlerStats::new);
+        } else {
+            txFlushes = 0;
+            txFlushedMessages = 0;
+            compression = Map.of();
+            actions = Map.of();
+        }
     }
 
     @Override
@@ -52,6 +84,12 @@ public class TransportStats implements Writeable, ToXContentFragment {
         out.writeVLong(rxSize);
         out.writeVLong(txCount);
         out.writeVLong(txSize);
+        if (out.getVersion().onOrAfter(Version.V_8_0_0)) {
+            out.writeVLong(txFlushes);
+            out.writeVLong(txFlushedMessages);
+            out.writeMap(compression, StreamOutput::writeString, (o, stats) -> stats.writeTo(o));
+            out.writeMap(actions, StreamOutput::writeString, (o, stats) -> stats.writeTo(o));
+        }
     }
 
     public long serverOpen() {
@@ -94,6 +132,41 @@ public class TransportStats implements Writeable, ToXContentFragment {
         return txSize();
     }
 
+    /**
+     * The number of times that the transport flushed the messages it had written to a channel.
+     */
+    public long getTxFlushes() {
+        return txFlushes;
+    }
+
+    /**
+     * The number of messages that these flushes sent.
+     */
+    public long getTxFlushedMessages() {
+        return txFlushedMessages;
+    }
+
+    /**
+     * The mean number of messages that each flush sent.
+     */
+    public double getTxMessagesPerFlush() {
+        return txFlushes == 0 ? 0 : (double) txFlushedMessages / txFlushes;
+    }
+
+    /**
+     * The compression stats of the messages sent for each action, both requests and responses.
+     */
+    public Map<String, CompressionStats> getCompression() {
+        return compression;
+    }
+
+    /**
+     * The latency and request size stats of each action that this node handled requests for.
+     */
+    public Map<String, RequestHandlerStats> getActions() {
+        return actions;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(Fields.TRANSPORT);
@@ -103,6 +176,22 @@ public class TransportStats implements Writeable, ToXContentFragment {
         builder.humanReadableField(Fields.RX_SIZE_IN_BYTES, Fields.RX_SIZE, new ByteSizeValue(rxSize));
         builder.field(Fields.TX_COUNT, txCount);
         builder.humanReadableField(Fields.TX_SIZE_IN_BYTES, Fields.TX_SIZE, new ByteSizeValue(txSize));
+        builder.field(Fields.TX_FLUSHES, txFlushes);
+        builder.field(Fields.TX_MESSAGES_PER_FLUSH, Math.round(getTxMessagesPerFlush() * 100) / 100.0);
+        if (compression.isEmpty() == false) {
+            builder.startObject(Fields.COMPRESSION);
+            for (Map.Entry<String, CompressionStats> entry : new TreeMap<>(compression).entrySet()) {
+                builder.field(entry.getKey(), entry.getValue());
+            }
+            builder.endObject();
+        }
+        if (actions.isEmpty() == false) {
+            builder.startObject(Fields.ACTIONS);
+            for (Map.Entry<String, RequestHandlerStats> entry : new TreeMap<>(actions).entrySet()) {
+                builder.field(entry.getKey(), entry.getValue());
+            }
+            builder.endObject();
+        }
         builder.endObject();
         return builder;
     }
@@ -117,5 +206,104 @@ public class TransportStats implements Writeable, ToXContentFragment {
         static final String TX_COUNT = "tx_count";
         static final String TX_SIZE = "tx_size";
         static final String TX_SIZE_IN_BYTES = "tx_size_in_bytes";
+        static final String TX_FLUSHES = "tx_flushes";
+        static final String TX_MESSAGES_PER_FLUSH = "tx_messages_per_flush";
+        static final String COMPRESSION = "compression";
+        static final String ACTIONS = "actions";
+        static final String MESSAGES = "messages";
+        static final String UNCOMPRESSED_SIZE = "uncompressed_size";
+        static final String UNCOMPRESSED_SIZE_IN_BYTES = "uncompressed_size_in_bytes";
+        static final String COMPRESSED_SIZE = "compressed_size";
+        static final String COMPRESSED_SIZE_IN_BYTES = "compressed_size_in_bytes";
+        static final String RATIO = "ratio";
+        static final String TIME = "time";
+        static final String TIME_IN_MILLIS = "time_in_millis";
+    }
+
+    /**
+     * How well the messages sent for an action compressed and how long it took to serialize and compress them.
+     */
+    public static class CompressionStats implements Writeable, ToXContentObject {
+
+        private final long messages;
+        private final long uncompressedBytes;
+        private final long compressedBytes;
+        private final long nanos;
+
+        public CompressionStats(long messages, long uncompressedBytes, long compressedBytes, long nanos) {
+            this.messages = messages;
+            this.uncompressedBytes = uncompressedBytes;
+            this.compressedBytes = compressedBytes;
+            this.nanos = nanos;
+        }
+
+        public CompressionStats(StreamInput in) throws IOException {
+            messages = in.readVLong();
+            uncompressedBytes = in.readVLong();
+            compressedBytes = in.readVLong();
+            nanos = in.readVLong();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeVLong(messages);
+            out.writeVLong(uncompressedBytes);
+            out.writeVLong(compressedBytes);
+            out.writeVLong(nanos);
+        }
+
+        public long getMessages() {
+            return messages;
+        }
+
+        public ByteSizeValue getUncompressedSize() {
+            return new ByteSizeValue(uncompressedBytes);
+        }
+
+        public ByteSizeValue getCompressedSize() {
+            return new ByteSizeValue(compressedBytes);
+        }
+
+        /**
+         * The number of bytes before compression for each byte after compression.
+         */
+        public double getRatio() {
+            return compressedBytes == 0 ? 0 : (double) uncompressedBytes / compressedBytes;
+        }
+
+        public TimeValue getTime() {
+            return TimeValue.timeValueNanos(nanos);
+        }
+
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startObject();
+            builder.field(Fields.MESSAGES, messages);
+            builder.humanReadableField(Fields.UNCOMPRESSED_SIZE_IN_BYTES, Fields.UNCOMPRESSED_SIZE, getUncompressedSize());
+            builder.humanReadableField(Fields.COMPRESSED_SIZE_IN_BYTES, Fields.COMPRESSED_SIZE, getCompressedSize());
+            builder.field(Fields.RATIO, Math.round(getRatio() * 100) / 100.0);
+            builder.humanReadableField(Fields.TIME_IN_MILLIS, Fields.TIME, getTime());
+            return builder.endObject();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            CompressionStats that = (CompressionStats) o;
+            return messages == that.messages
+                && uncompressedBytes == that.uncompressedBytes
+                && compressedBytes == that.compressedBytes
+                && nanos == that.nanos;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(messages, uncompressedBytes, compressedBytes, nanos);
+        }
     }
 }
@@ -14,6 +14,8 @@ public final class TransportStatus {
     private static final byte STATUS_ERROR = 1 << 1;
     private static final byte STATUS_COMPRESS = 1 << 2;
     private static final byte STATUS_HANDSHAKE = 1 << 3;
+    private static final byte STATUS_PRIORITY_HIGH = 1 << 4;
+    private static final byte STATUS_PRIORITY_LOW = 1 << 5;
 
     public static boolean isRequest(byte value) {
         return (value & STATUS_REQRES) == 0;
@@ -55,4 +57,31 @@ public final class TransportStatus {
         value |= STATUS_HANDSHAKE;
         return value;
     }
+
+    /**
+     * Returns the priority that a request was sent with, which its response is written with.
+     */
+    static OutboundFrameQueue.Priority getPriority(byte value) { // pkg private since it's only used internally
+        if ((value & STATUS_PRIORITY_HIGH) != 0) {
+            return OutboundFrameQueue.Priority.HIGH;
+        } else if ((value & STATUS_PRIORITY_LOW) != 0) {
+            return OutboundFrameQueue.Priority.LOW;
+        } else {
+            return OutboundFrameQueue.Priority.NORMAL;
+        }
+    }
+
+    static byte setPriority(byte value, OutboundFrameQueue.Priority priority) { // pkg private since it's only used internally
+        switch (priority) {
+            case HIGH:
+                value |= STATUS_PRIORITY_HIGH;
+                break;
+            case LOW:
+                value |= STATUS_PRIORITY_LOW;
+                break;
+            default:
+                break;
+        }
+        return value;
+    }
 }
@@ -13,6 +13,8 @@ import org.elasticsearch.cluster.coordination.PublishClusterStateStats;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.metrics.DistributionStats;
+import org.elasticsearch.common.metrics.RequestHandlerStats;
 import org.elasticsearch.discovery.DiscoveryStats;
 import org.elasticsearch.http.HttpStats;
 import org.elasticsearch.indices.breaker.AllCircuitBreakerStats;
@@ -212,12 +214,22 @@ public class NodeStatsTests extends ESTestCase {
                     assertEquals(nodeStats.getTransport().getServerOpen(), deserializedNodeStats.getTransport().getServerOpen());
                     assertEquals(nodeStats.getTransport().getTxCount(), deserializedNodeStats.getTransport().getTxCount());
                     assertEquals(nodeStats.getTransport().getTxSize(), deserializedNodeStats.getTransport().getTxSize());
+                    assertEquals(nodeStats.getTransport().getTxFlushes(), deserializedNodeStats.getTransport().getTxFlushes());
+                    assertEquals(nodeStats.getTransport().getTxFlushedMessages(),
+                        deserializedNodeStats.getTransport().getTxFlushedMessages());
+                    assertEquals(nodeStats.getTransport().getCompression(), deserializedNodeStats.getTransport().getCompression());
+                    assertEquals(nodeStats.getTransport().getActions(), deserializedNodeStats.getTransport().getActions());
                 }
                 if (nodeStats.getHttp() == null) {
                     assertNull(deserializedNodeStats.getHttp());
                 } else {
                     assertEquals(nodeStats.getHttp().getServerOpen(), deserializedNodeStats.getHttp().getServerOpen());
                     assertEquals(nodeStats.getHttp().getTotalOpen(), deserializedNodeStats.getHttp().getTotalOpen());
+                    assertEquals(nodeStats.getHttp().getPipelinedRequests(), deserializedNodeStats.getHttp().getPipelinedRequests());
+                    assertEquals(nodeStats.getHttp().getHeldResponses(), deserializedNodeStats.getHttp().getHeldResponses());
+                    assertEquals(nodeStats.getHttp().getCurrentStreams(), deserializedNodeStats.getHttp().getCurrentStreams());
+                    assertEquals(nodeStats.getHttp().getTotalStreams(), deserializedNodeStats.getHttp().getTotalStreams());
+                    assertEquals(nodeStats.getHttp().getRoutes(), deserializedNodeStats.getHttp().getRoutes());
                 }
                 if (nodeStats.getBreaker() == null) {
                     assertNull(deserializedNodeStats.getBreaker());
@@ -432,8 +444,18 @@ public class NodeStatsTests extends ESTestCase {
             }
             fsInfo = new FsInfo(randomNonNegativeLong(), ioStats, paths);
         }
-        TransportStats transportStats = frequently() ? new TransportStats(randomNonNegativeLong(), randomNonNegativeLong(),
-                randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong()) : null;
+        TransportStats transportStats = null;
+        if (frequently()) {
+            Map<String, TransportStats.CompressionStats> compressionStats = new HashMap<>();
+            int numActions = randomIntBetween(0, 5);
+            for (int i = 0; i < numActions; i++) {
+                compressionStats.put(randomAlphaOfLengthBetween(3, 10), new TransportStats.CompressionStats(randomNonNegativeLong(),
+                    randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong()));
+            }
+            transportStats = new TransportStats(randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(),
+                randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(),
+                randomNonNegativeLong(), compressionStats, randomRequestHandlerStats());
+        }
         HttpStats httpStats = null;
         if (frequently()) {
             int numClients = randomIntBetween(0, 50);
@@ -454,7 +476,8 @@ public class NodeStatsTests extends ESTestCase {
                 );
                 clientStats.add(cs);
             }
-            httpStats = new HttpStats(clientStats, randomNonNegativeLong(), randomNonNegativeLong());
+            httpStats = new HttpStats(clientStats, randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(),
+                randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(), randomRequestHandlerStats());
         }
         AllCircuitBreakerStats allCircuitBreakerStats = null;
         if (frequently()) {
@@ -561,4 +584,18 @@ public class NodeStatsTests extends ESTestCase {
     private IngestStats.Stats getPipelineStats(List<IngestStats.PipelineStat> pipelineStats, String id) {
         return pipelineStats.stream().filter(p1 -> p1.getPipelineId().equals(id)).findFirst().map(p2 -> p2.getStats()).orElse(null);
     }
+
+    private static Map<String, RequestHandlerStats> randomRequestHandlerStats() {
+        Map<String, RequestHandlerStats> stats = new HashMap<>();
+        int numHandlers = randomIntBetween(0, 5);
+        for (int i = 0; i < numHandlers; i++) {
+            stats.put(randomAlphaOfLengthBetween(3, 10), new RequestHandlerStats(randomDistributionStats(), randomDistributionStats()));
+        }
+        return stats;
+    }
+
+    private static DistributionStats randomDistributionStats() {
+        return new DistributionStats(randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(),
+            randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong());
+    }
 }
@@ -66,6 +66,7 @@ import java.util.stream.IntStream;
 
 import static org.elasticsearch.action.search.SearchAsyncActionTests.getShardsIter;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.mockito.Mockito.mock;
 
 public class CanMatchPreFilterSearchPhaseTests extends ESTestCase {
@@ -85,7 +86,7 @@ public class CanMatchPreFilterSearchPhaseTests extends ESTestCase {
         final boolean shard1 = randomBoolean();
         final boolean shard2 = randomBoolean();
 
-        SearchTransportService searchTransportService = new SearchTransportService(null, null, null) {
+        SearchTransportService searchTransportService = new ShardLevelCanMatchTransportService() {
             @Override
             public void sendCanMatch(Transport.Connection connection, ShardSearchRequest request, SearchTask task,
                                      ActionListener<SearchService.CanMatchResponse> listener) {
@@ -142,7 +143,7 @@ public class CanMatchPreFilterSearchPhaseTests extends ESTestCase {
         lookup.put("node1", new SearchAsyncActionTests.MockConnection(primaryNode));
         lookup.put("node2", new SearchAsyncActionTests.MockConnection(replicaNode));
         final boolean shard1 = randomBoolean();
-        SearchTransportService searchTransportService = new SearchTransportService(null, null, null) {
+        SearchTransportService searchTransportService = new ShardLevelCanMatchTransportService() {
             @Override
             public void sendCanMatch(Transport.Connection connection, ShardSearchRequest request, SearchTask task,
                                      ActionListener<SearchService.CanMatchResponse> listener) {
@@ -208,7 +209,7 @@ public class CanMatchPreFilterSearchPhaseTests extends ESTestCase {
 
 
         final SearchTransportService searchTransportService =
-            new SearchTransportService(null, null, null) {
+            new ShardLevelCanMatchTransportService() {
                 @Override
                 public void sendCanMatch(
                     Transport.Connection connection,
@@ -307,7 +308,7 @@ public class CanMatchPreFilterSearchPhaseTests extends ESTestCase {
             List<MinAndMax<?>> minAndMaxes = new ArrayList<>();
             Set<ShardId> shardToSkip = new HashSet<>();
 
-            SearchTransportService searchTransportService = new SearchTransportService(null, null, null) {
+            SearchTransportService searchTransportService = new ShardLevelCanMatchTransportService() {
                 @Override
                 public void sendCanMatch(Transport.Connection connection, ShardSearchRequest request, SearchTask task,
                                          ActionListener<SearchService.CanMatchResponse> listener) {
@@ -383,7 +384,7 @@ public class CanMatchPreFilterSearchPhaseTests extends ESTestCase {
             List<ShardId> shardIds = new ArrayList<>();
             Set<ShardId> shardToSkip = new HashSet<>();
 
-            SearchTransportService searchTransportService = new SearchTransportService(null, null, null) {
+            SearchTransportService searchTransportService = new ShardLevelCanMatchTransportService() {
                 @Override
                 public void sendCanMatch(Transport.Connection connection, ShardSearchRequest request, SearchTask task,
                                          ActionListener<SearchService.CanMatchResponse> listener) {
@@ -704,7 +705,7 @@ public class CanMatchPreFilterSearchPhaseTests extends ESTestCase {
 
         // We respond by default that the query can match
         final List<ShardSearchRequest> requests = Collections.synchronizedList(new ArrayList<>());
-        SearchTransportService searchTransportService = new SearchTransportService(null, null, null) {
+        SearchTransportService searchTransportService = new ShardLevelCanMatchTransportService() {
             @Override
             public void sendCanMatch(Transport.Connection connection, ShardSearchRequest request, SearchTask task,
                                      ActionListener<SearchService.CanMatchResponse> listener) {
@@ -751,6 +752,88 @@ public class CanMatchPreFilterSearchPhaseTests extends ESTestCase {
         canMatchResultsConsumer.accept(updatedSearchShardIterators, requests);
     }
 
+    public void testBatchRequestsPerNode() throws InterruptedException {
+        final TransportSearchAction.SearchTimeProvider timeProvider =
+            new TransportSearchAction.SearchTimeProvider(0, System.nanoTime(), System::nanoTime);
+
+        Map<String, Transport.Connection> lookup = new ConcurrentHashMap<>();
+        DiscoveryNode primaryNode = new DiscoveryNode("node_1", buildNewFakeTransportAddress(), Version.CURRENT);
+        DiscoveryNode replicaNode = new DiscoveryNode("node_2", buildNewFakeTransportAddress(), Version.CURRENT);
+        lookup.put("node_1", new SearchAsyncActionTests.MockConnection(primaryNode));
+        lookup.put("node_2", new SearchAsyncActionTests.MockConnection(replicaNode));
+
+        final int numShards = randomIntBetween(2, 200);
+        final Map<String, Integer> requestsPerNode = new ConcurrentHashMap<>();
+        final Set<ShardId> shardToSkip = ConcurrentHashMap.newKeySet();
+        SearchTransportService searchTransportService = new SearchTransportService(null, null, null) {
+            @Override
+            public void sendCanMatch(Transport.Connection connection, CanMatchNodeRequest request, SearchTask task,
+                                     ActionListener<CanMatchNodeResponse> listener) {
+                requestsPerNode.merge(connection.getNode().getId(), 1, Integer::sum);
+                List<ShardSearchNodeResponse.ResponseOrFailure<SearchService.CanMatchResponse>> responses = new ArrayList<>();
+                for (ShardSearchRequest shardRequest : request.getShardLevelRequests()) {
+                    boolean canMatch = shardRequest.shardId().id() % 2 == 0;
+                    if (canMatch == false) {
+                        shardToSkip.add(shardRequest.shardId());
+                    }
+                    responses.add(new ShardSearchNodeResponse.ResponseOrFailure<>(new SearchService.CanMatchResponse(canMatch, null)));
+                }
+                new Thread(() -> listener.onResponse(new CanMatchNodeResponse(responses))).start();
+            }
+        };
+
+        AtomicReference<GroupShardsIterator<SearchShardIterator>> result = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        GroupShardsIterator<SearchShardIterator> shardsIter = getShardsIter("idx",
+            new OriginalIndices(new String[]{"idx"}, SearchRequest.DEFAULT_INDICES_OPTIONS),
+            numShards, randomBoolean(), primaryNode, replicaNode);
+        final SearchRequest searchRequest = new SearchRequest();
+        searchRequest.allowPartialSearchResults(true);
+
+        CanMatchPreFilterSearchPhase canMatchPhase = new CanMatchPreFilterSearchPhase(logger,
+            searchTransportService,
+            (clusterAlias, node) -> lookup.get(node),
+            Collections.singletonMap("_na_", new AliasFilter(null, Strings.EMPTY_ARRAY)),
+            Collections.emptyMap(), EsExecutors.DIRECT_EXECUTOR_SERVICE,
+            searchRequest, null, shardsIter, timeProvider, ClusterState.EMPTY_STATE, null,
+            (iter) -> new SearchPhase("test") {
+                @Override
+                public void run() {
+                    result.set(iter);
+                    latch.countDown();
+                }
+            }, SearchResponse.Clusters.EMPTY, EMPTY_CONTEXT_PROVIDER);
+
+        canMatchPhase.start();
+        latch.await();
+
+        // a single request is sent to each node, whatever the number of shards
+        assertThat(requestsPerNode.size(), lessThanOrEqualTo(2));
+        for (int numRequests : requestsPerNode.values()) {
+            assertThat(numRequests, equalTo(1));
+        }
+        assertThat(result.get().size(), equalTo(numShards));
+        for (SearchShardIterator i : result.get()) {
+            assertEquals(shardToSkip.contains(i.shardId()), i.skip());
+        }
+    }
+
+    /**
+     * A {@link SearchTransportService} that answers node level can_match requests with one request per shard.
+     */
+    private static class ShardLevelCanMatchTransportService extends SearchTransportService {
+
+        ShardLevelCanMatchTransportService() {
+            super(null, null, null);
+        }
+
+        @Override
+        public void sendCanMatch(Transport.Connection connection, CanMatchNodeRequest request, SearchTask task,
+                                 ActionListener<CanMatchNodeResponse> listener) {
+            sendCanMatchPerShard(connection, request, task, listener);
+        }
+    }
+
     private static class StaticCoordinatorRewriteContextProviderBuilder {
         private ClusterState clusterState = ClusterState.EMPTY_STATE;
         private final Map<Index, DateFieldMapper.DateFieldType> fields = new HashMap<>();
@@ -0,0 +1,162 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.block.ClusterBlock;
+import org.elasticsearch.cluster.block.ClusterBlocks;
+import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.cluster.metadata.Metadata;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.SearchModule;
+import org.elasticsearch.search.SearchPhaseResult;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.elasticsearch.search.query.QuerySearchResult;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+
+public class CoordinatorSearchResponseCacheTests extends ESTestCase {
+
+    private static final NamedWriteableRegistry REGISTRY =
+        new NamedWriteableRegistry(new SearchModule(Settings.EMPTY, emptyList()).getNamedWriteables());
+
+    private static ClusterState clusterState(boolean writeBlock) {
+        return clusterState(writeBlock ? IndexMetadata.INDEX_WRITE_BLOCK : null);
+    }
+
+    private static ClusterState clusterState(ClusterBlock block) {
+        IndexMetadata indexMetadata = IndexMetadata.builder("index")
+            .settings(settings(Version.CURRENT))
+            .numberOfShards(1)
+            .numberOfReplicas(0)
+            .build();
+        ClusterBlocks.Builder blocks = ClusterBlocks.builder();
+        if (block != null) {
+            blocks.addIndexBlock("index", block);
+        }
+        return ClusterState.builder(new ClusterName("test"))
+            .metadata(Metadata.builder().put(indexMetadata, false))
+            .blocks(blocks)
+            .build();
+    }
+
+    private static SearchRequest searchRequest() {
+        return new SearchRequest("index").source(new SearchSourceBuilder().query(QueryBuilders.termQuery("field", "value")));
+    }
+
+    private static List<SearchPhaseResult> queryResults(boolean cacheable) {
+        QuerySearchResult result = new QuerySearchResult();
+        result.cacheable(cacheable);
+        return Collections.singletonList(result);
+    }
+
+    public void testDisabledByDefault() {
+        CoordinatorSearchResponseCache cache = new CoordinatorSearchResponseCache(Settings.EMPTY, REGISTRY);
+        assertNull(cache.cacheKey(searchRequest(), clusterState(true), new String[] {"index"}, emptyMap(), emptyMap()));
+    }
+
+    public void testCacheKey() {
+        Settings settings = Settings.builder().put(CoordinatorSearchResponseCache.SIZE_SETTING.getKey(), "1mb").build();
+        CoordinatorSearchResponseCache cache = new CoordinatorSearchResponseCache(settings, REGISTRY);
+        String[] indices = new String[] {"index"};
+        ClusterState clusterState = clusterState(true);
+
+        BytesReference key = cache.cacheKey(searchRequest(), clusterState, indices, emptyMap(), emptyMap());
+        assertNotNull(key);
+        assertEquals(key, cache.cacheKey(searchRequest(), clusterState, indices, emptyMap(), emptyMap()));
+
+        // different users get different keys
+        BytesReference userKey = cache.cacheKey(searchRequest(), clusterState, indices, emptyMap(),
+            Map.of("_xpack_security_authentication", "foo"));
+        assertNotEquals(key, userKey);
+        // but headers that differ between requests of the same user are not part of the key
+        assertEquals(userKey, cache.cacheKey(searchRequest(), clusterState, indices, emptyMap(),
+            Map.of("_xpack_security_authentication", "foo", "X-Opaque-Id", randomAlphaOfLength(10),
+                "traceparent", randomAlphaOfLength(10))));
+        // different queries get different keys
+        SearchRequest other = new SearchRequest("index").source(new SearchSourceBuilder().query(QueryBuilders.termQuery("field", "other")));
+        assertNotEquals(key, cache.cacheKey(other, clusterState, indices, emptyMap(), emptyMap()));
+
+        // indices without a write block can change at any time
+        assertNull(cache.cacheKey(searchRequest(), clusterState(false), indices, emptyMap(), emptyMap()));
+        // documents can still be deleted from indices that are read-only-allow-delete
+        assertNull(cache.cacheKey(searchRequest(), clusterState(IndexMetadata.INDEX_READ_ONLY_ALLOW_DELETE_BLOCK), indices,
+            emptyMap(), emptyMap()));
+        assertNotNull(cache.cacheKey(searchRequest(), clusterState(IndexMetadata.INDEX_READ_ONLY_BLOCK), indices, emptyMap(), emptyMap()));
+        assertNull(cache.cacheKey(searchRequest().scroll("1m"), clusterState, indices, emptyMap(), emptyMap()));
+        assertNull(cache.cacheKey(searchRequest().requestCache(false), clusterState, indices, emptyMap(), emptyMap()));
+        assertNull(cache.cacheKey(searchRequest().searchType(SearchType.DFS_QUERY_THEN_FETCH), clusterState, indices,
+            emptyMap(), emptyMap()));
+    }
+
+    public void testKeyHeaders() {
+        Settings settings = Settings.builder()
+            .put(CoordinatorSearchResponseCache.SIZE_SETTING.getKey(), "1mb")
+            .putList(CoordinatorSearchResponseCache.KEY_HEADERS_SETTING.getKey(), "es-role")
+            .build();
+        CoordinatorSearchResponseCache cache = new CoordinatorSearchResponseCache(settings, REGISTRY);
+        String[] indices = new String[] {"index"};
+        ClusterState clusterState = clusterState(true);
+
+        BytesReference key = cache.cacheKey(searchRequest(), clusterState, indices, emptyMap(), Map.of("es-role", "admin"));
+        assertNotEquals(key, cache.cacheKey(searchRequest(), clusterState, indices, emptyMap(), Map.of("es-role", "viewer")));
+        assertEquals(key, cache.cacheKey(searchRequest(), clusterState, indices, emptyMap(),
+            Map.of("es-role", "admin", "_xpack_security_authentication", "foo")));
+    }
+
+    public void testCacheResponse() {
+        Settings settings = Settings.builder().put(CoordinatorSearchResponseCache.SIZE_SETTING.getKey(), "1mb").build();
+        CoordinatorSearchResponseCache cache = new CoordinatorSearchResponseCache(settings, REGISTRY);
+        BytesReference key = cache.cacheKey(searchRequest(), clusterState(true), new String[] {"index"}, emptyMap(), emptyMap());
+        assertNull(cache.get(key, 1L));
+
+        SearchResponse response = new SearchResponse(InternalSearchResponse.empty(), null, 1, 1, 0, 10L,
+            ShardSearchFailure.EMPTY_ARRAY, SearchResponse.Clusters.EMPTY);
+
+        // one of the shards used the current time
+        {
+            PlainActionFuture<SearchResponse> future = PlainActionFuture.newFuture();
+            CoordinatorSearchResponseCache.CachingListener listener =
+                (CoordinatorSearchResponseCache.CachingListener) cache.wrap(key, future);
+            listener.onQueryResults(queryResults(false));
+            listener.onResponse(response);
+            assertSame(response, future.actionGet());
+            assertEquals(0, cache.count());
+        }
+
+        {
+            PlainActionFuture<SearchResponse> future = PlainActionFuture.newFuture();
+            CoordinatorSearchResponseCache.CachingListener listener =
+                (CoordinatorSearchResponseCache.CachingListener) cache.wrap(key, future);
+            listener.onQueryResults(queryResults(true));
+            listener.onResponse(response);
+            assertSame(response, future.actionGet());
+            assertEquals(1, cache.count());
+        }
+
+        SearchResponse cached = cache.get(key, 1L);
+        assertNotNull(cached);
+        assertEquals(1L, cached.getTook().millis());
+        assertEquals(response.getTotalShards(), cached.getTotalShards());
+        assertEquals(response.getSuccessfulShards(), cached.getSuccessfulShards());
+    }
+}
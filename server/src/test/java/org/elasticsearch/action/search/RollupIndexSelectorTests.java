@@ -0,0 +1,191 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.action.search;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.metadata.IndexMetadata;
+import org.elasticsearch.cluster.metadata.Metadata;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
+import org.elasticsearch.search.aggregations.bucket.histogram.LongBounds;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.test.ESTestCase;
+
+import java.time.ZoneId;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.arrayContaining;
+
+public class RollupIndexSelectorTests extends ESTestCase {
+
+    private static IndexMetadata index(String name, String source, String mapping) {
+        Settings.Builder settings = settings(Version.CURRENT).put(IndexMetadata.SETTING_INDEX_UUID, name + "-uuid");
+        if (source != null) {
+            settings.put(IndexMetadata.INDEX_ROLLUP_SOURCE_NAME.getKey(), source);
+            settings.put(IndexMetadata.INDEX_ROLLUP_SOURCE_UUID.getKey(), source + "-uuid");
+        }
+        IndexMetadata.Builder builder = IndexMetadata.builder(name).settings(settings).numberOfShards(1).numberOfReplicas(0);
+        if (mapping != null) {
+            builder.putMapping(mapping);
+        }
+        return builder.build();
+    }
+
+    private static IndexMetadata rollup(String name, String source, String intervalType, String interval) {
+        return index(name, source, "{\"properties\":{"
+            + "\"@timestamp\":{\"type\":\"date\",\"meta\":{\"" + intervalType + "\":\"" + interval + "\",\"time_zone\":\"UTC\"}},"
+            + "\"host\":{\"properties\":{\"cpu\":{\"type\":\"aggregate_metric_double\","
+            + "\"metrics\":[\"min\",\"max\",\"sum\",\"value_count\"],\"default_metric\":\"value_count\"}}},"
+            + "\"host.memory\":{\"type\":\"aggregate_metric_double\",\"metrics\":[\"max\"],\"default_metric\":\"max\"}"
+            + "}}");
+    }
+
+    private static final IndexMetadata RAW = index("raw", null, null);
+    private static final IndexMetadata HOURLY = rollup("hourly", "raw", "calendar_interval", "1h");
+    private static final IndexMetadata DAILY = rollup("daily", "raw", "fixed_interval", "1d");
+    // a rollup of the hourly rollup that only records its direct source
+    private static final IndexMetadata DAILY_OF_HOURLY = rollup("daily_of_hourly", "hourly", "calendar_interval", "1d");
+    private static final IndexMetadata OTHER = index("other", null, null);
+
+    private static Index[] select(SearchSourceBuilder source, IndexMetadata... indices) {
+        return select(source, new IndexMetadata[0], indices);
+    }
+
+    private static Index[] select(SearchSourceBuilder source, IndexMetadata[] otherIndices, IndexMetadata... indices) {
+        Metadata.Builder metadata = Metadata.builder();
+        for (IndexMetadata otherIndex : otherIndices) {
+            metadata.put(otherIndex, false);
+        }
+        Index[] concreteIndices = new Index[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            metadata.put(indices[i], false);
+            concreteIndices[i] = indices[i].getIndex();
+        }
+        return new RollupIndexSelector().selectIndices(new SearchRequest().source(source), metadata.build(), concreteIndices);
+    }
+
+    private static SearchSourceBuilder aggregationsOnly() {
+        return new SearchSourceBuilder().size(0).trackTotalHits(false);
+    }
+
+    private static SearchSourceBuilder histogram(DateHistogramInterval interval) {
+        return aggregationsOnly().aggregation(new DateHistogramAggregationBuilder("histo").field("@timestamp")
+            .calendarInterval(interval)
+            .subAggregation(AggregationBuilders.avg("avg").field("host.cpu"))
+            .subAggregation(AggregationBuilders.max("max").field("host.memory")));
+    }
+
+    public void testNoRollups() {
+        Index[] indices = new Index[] { RAW.getIndex(), OTHER.getIndex() };
+        assertSame(indices, new RollupIndexSelector().selectIndices(new SearchRequest(),
+            Metadata.builder().put(RAW, false).put(OTHER, false).build(), indices));
+    }
+
+    public void testSelectCoarsestAnsweringRollup() {
+        assertThat(select(histogram(DateHistogramInterval.DAY), RAW, HOURLY, DAILY, OTHER),
+            arrayContaining(DAILY.getIndex(), OTHER.getIndex()));
+        assertThat(select(histogram(DateHistogramInterval.HOUR), RAW, HOURLY, DAILY, OTHER),
+            arrayContaining(HOURLY.getIndex(), OTHER.getIndex()));
+        assertThat(select(histogram(DateHistogramInterval.MINUTE), RAW, HOURLY, DAILY, OTHER),
+            arrayContaining(RAW.getIndex(), OTHER.getIndex()));
+    }
+
+    public void testRequestsThatNeedTheRawIndex() {
+        SearchSourceBuilder withHits = histogram(DateHistogramInterval.DAY).size(10);
+        assertThat(select(withHits, RAW, HOURLY), arrayContaining(RAW.getIndex()));
+
+        SearchSourceBuilder withQuery = histogram(DateHistogramInterval.DAY).query(QueryBuilders.termQuery("host.name", "a"));
+        assertThat(select(withQuery, RAW, HOURLY), arrayContaining(RAW.getIndex()));
+
+        SearchSourceBuilder otherTimeZone = aggregationsOnly().aggregation(
+            new DateHistogramAggregationBuilder("histo").field("@timestamp").calendarInterval(DateHistogramInterval.DAY)
+                .timeZone(ZoneId.of("Europe/Paris")));
+        assertThat(select(otherTimeZone, RAW, HOURLY), arrayContaining(RAW.getIndex()));
+
+        SearchSourceBuilder missingMetric = aggregationsOnly().aggregation(
+            new DateHistogramAggregationBuilder("histo").field("@timestamp").calendarInterval(DateHistogramInterval.DAY)
+                .subAggregation(AggregationBuilders.min("min").field("host.memory")));
+        assertThat(select(missingMetric, RAW, HOURLY), arrayContaining(RAW.getIndex()));
+
+        SearchSourceBuilder withTotalHits = histogram(DateHistogramInterval.DAY)
+            .trackTotalHitsUpTo(randomFrom(SearchContext.DEFAULT_TRACK_TOTAL_HITS_UP_TO, Integer.MAX_VALUE));
+        assertThat(select(withTotalHits, RAW, HOURLY), arrayContaining(RAW.getIndex()));
+        SearchSourceBuilder withDefaultTotalHits = new SearchSourceBuilder().size(0);
+        histogram(DateHistogramInterval.DAY).aggregations().getAggregatorFactories().forEach(withDefaultTotalHits::aggregation);
+        assertThat(select(withDefaultTotalHits, RAW, HOURLY), arrayContaining(RAW.getIndex()));
+
+        SearchSourceBuilder withTerminateAfter = histogram(DateHistogramInterval.DAY).terminateAfter(10);
+        assertThat(select(withTerminateAfter, RAW, HOURLY), arrayContaining(RAW.getIndex()));
+
+        SearchSourceBuilder withMinScore = histogram(DateHistogramInterval.DAY).minScore(1f);
+        assertThat(select(withMinScore, RAW, HOURLY), arrayContaining(RAW.getIndex()));
+
+        SearchSourceBuilder withRuntimeMappings = histogram(DateHistogramInterval.DAY)
+            .runtimeMappings(Map.of("day_of_week", Map.of("type", "keyword")));
+        assertThat(select(withRuntimeMappings, RAW, HOURLY), arrayContaining(RAW.getIndex()));
+
+        SearchSourceBuilder withHardBounds = aggregationsOnly().aggregation(
+            new DateHistogramAggregationBuilder("histo").field("@timestamp").calendarInterval(DateHistogramInterval.DAY)
+                .hardBounds(new LongBounds(0L, 1000L)));
+        assertThat(select(withHardBounds, RAW, HOURLY), arrayContaining(RAW.getIndex()));
+
+        SearchSourceBuilder withExtendedBounds = aggregationsOnly().aggregation(
+            new DateHistogramAggregationBuilder("histo").field("@timestamp").calendarInterval(DateHistogramInterval.DAY)
+                .minDocCount(0).extendedBounds(new LongBounds(0L, 1000L)));
+        assertThat(select(withExtendedBounds, RAW, HOURLY), arrayContaining(RAW.getIndex()));
+
+        SearchSourceBuilder otherAggregation = aggregationsOnly().aggregation(
+            AggregationBuilders.terms("terms").field("host.name"));
+        assertThat(select(otherAggregation, RAW, HOURLY), arrayContaining(RAW.getIndex()));
+    }
+
+    public void testRollupsWithoutRawIndex() {
+        assertThat(select(histogram(DateHistogramInterval.DAY), HOURLY, DAILY), arrayContaining(DAILY.getIndex()));
+        assertThat(select(new SearchSourceBuilder(), HOURLY, DAILY), arrayContaining(HOURLY.getIndex()));
+        assertThat(select(new SearchSourceBuilder(), DAILY), arrayContaining(DAILY.getIndex()));
+    }
+
+    public void testRollupOfRollup() {
+        assertThat(select(histogram(DateHistogramInterval.DAY), RAW, HOURLY, DAILY_OF_HOURLY, OTHER),
+            arrayContaining(DAILY_OF_HOURLY.getIndex(), OTHER.getIndex()));
+        assertThat(select(histogram(DateHistogramInterval.HOUR), RAW, HOURLY, DAILY_OF_HOURLY, OTHER),
+            arrayContaining(HOURLY.getIndex(), OTHER.getIndex()));
+        assertThat(select(histogram(DateHistogramInterval.MINUTE), RAW, HOURLY, DAILY_OF_HOURLY, OTHER),
+            arrayContaining(RAW.getIndex(), OTHER.getIndex()));
+        assertThat(select(new SearchSourceBuilder(), HOURLY, DAILY_OF_HOURLY), arrayContaining(HOURLY.getIndex()));
+
+        // the lineage is followed through the metadata of rollup indices that are not searched
+        assertThat(select(histogram(DateHistogramInterval.DAY), new IndexMetadata[] { HOURLY }, RAW, DAILY_OF_HOURLY),
+            arrayContaining(DAILY_OF_HOURLY.getIndex()));
+        assertThat(select(histogram(DateHistogramInterval.MINUTE), new IndexMetadata[] { HOURLY }, RAW, DAILY_OF_HOURLY),
+            arrayContaining(RAW.getIndex()));
+    }
+
+    public void testParsedMappingIsCachedPerMappingVersion() {
+        RollupIndexSelector selector = new RollupIndexSelector();
+        RollupIndexSelector.RollupIndex hourly = selector.rollupIndex(HOURLY);
+        assertNotNull(hourly);
+        assertSame(hourly, selector.rollupIndex(HOURLY));
+        assertNull(selector.rollupIndex(RAW));
+        assertNull(selector.rollupIndex(RAW));
+        assertEquals(2, selector.cacheCount());
+
+        IndexMetadata updated = IndexMetadata.builder(HOURLY).mappingVersion(HOURLY.getMappingVersion() + 1).build();
+        RollupIndexSelector.RollupIndex updatedHourly = selector.rollupIndex(updated);
+        assertNotNull(updatedHourly);
+        assertNotSame(hourly, updatedHourly);
+        assertSame(updatedHourly, selector.rollupIndex(updated));
+        assertEquals(2, selector.cacheCount());
+    }
+}
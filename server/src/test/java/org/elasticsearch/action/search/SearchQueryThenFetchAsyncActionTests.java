@@ -196,6 +196,99 @@ public class SearchQueryThenFetchAsyncActionTests extends ESTestCase {
         assertThat(((FieldDoc) phase.sortedTopDocs.scoreDocs[0]).fields[0], equalTo(0));
     }
 
+    public void testBatchPerNode() throws Exception {
+        final TransportSearchAction.SearchTimeProvider timeProvider =
+            new TransportSearchAction.SearchTimeProvider(0, System.nanoTime(), System::nanoTime);
+
+        Map<String, Transport.Connection> lookup = new ConcurrentHashMap<>();
+        DiscoveryNode primaryNode = new DiscoveryNode("node1", buildNewFakeTransportAddress(), Version.CURRENT);
+        DiscoveryNode replicaNode = new DiscoveryNode("node2", buildNewFakeTransportAddress(), Version.CURRENT);
+        lookup.put("node1", new SearchAsyncActionTests.MockConnection(primaryNode));
+        lookup.put("node2", new SearchAsyncActionTests.MockConnection(replicaNode));
+
+        int numShards = randomIntBetween(2, 50);
+        int numConcurrent = randomIntBetween(1, 4);
+        Map<String, Integer> requestsPerNode = new ConcurrentHashMap<>();
+        AtomicInteger numShardRequests = new AtomicInteger();
+        SearchTransportService searchTransportService = new SearchTransportService(null, null, null) {
+            @Override
+            public void sendExecuteQuery(Transport.Connection connection, ShardSearchRequest request,
+                                         SearchTask task, SearchActionListener<SearchPhaseResult> listener) {
+                throw new AssertionError("shard level requests should be batched");
+            }
+
+            @Override
+            public void sendExecuteQuery(Transport.Connection connection, QueryNodeRequest request, SearchTask task,
+                                         List<SearchActionListener<SearchPhaseResult>> listeners) {
+                assertThat(request.getMaxConcurrentShardRequests(), equalTo(numConcurrent));
+                requestsPerNode.merge(connection.getNode().getId(), 1, Integer::sum);
+                List<QuerySearchResult> results = new ArrayList<>();
+                for (ShardSearchRequest shardRequest : request.getShardLevelRequests()) {
+                    numShardRequests.incrementAndGet();
+                    int shardId = shardRequest.shardId().id();
+                    QuerySearchResult queryResult = new QuerySearchResult(new ShardSearchContextId("N/A", shardId),
+                        new SearchShardTarget(connection.getNode().getId(), new ShardId("idx", "na", shardId), null, OriginalIndices.NONE),
+                        null);
+                    queryResult.topDocs(new TopDocsAndMaxScore(new TopFieldDocs(new TotalHits(1, TotalHits.Relation.EQUAL_TO),
+                            new FieldDoc[]{ new FieldDoc(randomInt(1000), Float.NaN, new Object[]{ shardId }) },
+                            new SortField[]{ new SortField("timestamp", SortField.Type.INT) }), Float.NaN),
+                        new DocValueFormat[]{DocValueFormat.RAW});
+                    queryResult.from(0);
+                    queryResult.size(1);
+                    results.add(queryResult);
+                }
+                new Thread(() -> {
+                    for (int i = 0; i < listeners.size(); i++) {
+                        listeners.get(i).onResponse(results.get(i));
+                    }
+                }).start();
+            }
+        };
+        CountDownLatch latch = new CountDownLatch(1);
+        GroupShardsIterator<SearchShardIterator> shardsIter = SearchAsyncActionTests.getShardsIter("idx",
+            new OriginalIndices(new String[]{"idx"}, SearchRequest.DEFAULT_INDICES_OPTIONS),
+            numShards, randomBoolean(), primaryNode, replicaNode);
+        final SearchRequest searchRequest = new SearchRequest();
+        searchRequest.setMaxConcurrentShardRequests(numConcurrent);
+        searchRequest.source(new SearchSourceBuilder()
+            .size(1)
+            .sort(SortBuilders.fieldSort("timestamp")));
+        searchRequest.allowPartialSearchResults(false);
+        SearchPhaseController controller = new SearchPhaseController(
+            writableRegistry(), r -> InternalAggregationTestCase.emptyReduceContextBuilder());
+        SearchTask task = new SearchTask(0, "n/a", "n/a", () -> "test", null, Collections.emptyMap());
+        QueryPhaseResultConsumer resultConsumer = new QueryPhaseResultConsumer(searchRequest, EsExecutors.DIRECT_EXECUTOR_SERVICE,
+            new NoopCircuitBreaker(CircuitBreaker.REQUEST), controller, task.getProgressListener(), writableRegistry(),
+            shardsIter.size(), exc -> {});
+        SearchQueryThenFetchAsyncAction action = new SearchQueryThenFetchAsyncAction(logger,
+            searchTransportService, (clusterAlias, node) -> lookup.get(node),
+            Collections.singletonMap("_na_", new AliasFilter(null, Strings.EMPTY_ARRAY)),
+            Collections.emptyMap(), controller, EsExecutors.DIRECT_EXECUTOR_SERVICE,
+            resultConsumer, searchRequest, null, shardsIter, timeProvider, null,
+            task, SearchResponse.Clusters.EMPTY, true) {
+            @Override
+            protected SearchPhase getNextPhase(SearchPhaseResults<SearchPhaseResult> results, SearchPhaseContext context) {
+                return new SearchPhase("test") {
+                    @Override
+                    public void run() {
+                        latch.countDown();
+                    }
+                };
+            }
+        };
+        action.start();
+        latch.await();
+        assertThat(numShardRequests.get(), equalTo(numShards));
+        assertThat(requestsPerNode.size(), greaterThanOrEqualTo(1));
+        for (int numRequests : requestsPerNode.values()) {
+            assertThat(numRequests, equalTo(1));
+        }
+        SearchPhaseController.ReducedQueryPhase phase = action.results.reduce();
+        assertThat(phase.totalHits.value, equalTo((long) numShards));
+        assertThat(phase.sortedTopDocs.scoreDocs.length, equalTo(1));
+        assertThat(((FieldDoc) phase.sortedTopDocs.scoreDocs[0]).fields[0], equalTo(0));
+    }
+
     public void testMinimumVersionSameAsNewVersion() throws Exception {
         Version newVersion = Version.CURRENT;
         Version oldVersion = VersionUtils.randomPreviousCompatibleVersion(random(), newVersion);
@@ -40,6 +40,8 @@ import org.elasticsearch.cluster.routing.TestShardRouting;
 import org.elasticsearch.cluster.routing.allocation.AllocationService;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.core.Nullable;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -1166,6 +1168,27 @@ public class TransportReplicationActionTests extends ESTestCase {
         assertEquals(retryable, action.isRetryableClusterBlockException(new ClusterBlockException(singleton(randomBlock))));
     }
 
+    public void testPeekShardId() throws IOException {
+        final ShardId shardId = new ShardId("index", "_na_", randomIntBetween(0, 5));
+        final Request request = new Request(shardId);
+        request.setParentTask(randomAlphaOfLength(5), randomNonNegativeLong());
+        final TransportReplicationAction.ConcreteShardRequest<Request> concreteShardRequest = randomBoolean()
+            ? new TransportReplicationAction.ConcreteShardRequest<>(request, randomAlphaOfLength(10), randomNonNegativeLong())
+            : new TransportReplicationAction.ConcreteReplicaRequest<>(request, randomAlphaOfLength(10), randomNonNegativeLong(),
+                randomNonNegativeLong(), randomNonNegativeLong());
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            concreteShardRequest.writeTo(out);
+            try (StreamInput in = new NamedWriteableAwareStreamInput(out.bytes().streamInput(), writableRegistry())) {
+                assertEquals(shardId, TransportReplicationAction.ConcreteShardRequest.peekShardId(in));
+                // the stream is left where it was
+                final TransportReplicationAction.ConcreteShardRequest<Request> read =
+                    new TransportReplicationAction.ConcreteShardRequest<>(Request::new, in);
+                assertEquals(concreteShardRequest.getTargetAllocationID(), read.getTargetAllocationID());
+                assertEquals(shardId, read.getRequest().shardId());
+            }
+        }
+    }
+
     private void assertConcreteShardRequest(TransportRequest capturedRequest, Request expectedRequest, AllocationId expectedAllocationId) {
         final TransportReplicationAction.ConcreteShardRequest<?> concreteShardRequest =
             (TransportReplicationAction.ConcreteShardRequest<?>) capturedRequest;
@@ -9,7 +9,10 @@
 package org.elasticsearch.action.support.replication;
 
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.Version;
 import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionListenerResponseHandler;
 import org.elasticsearch.action.support.ActionFilters;
 import org.elasticsearch.action.support.ActionTestUtils;
 import org.elasticsearch.action.support.PlainActionFuture;
@@ -26,9 +29,13 @@ import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.routing.ShardRoutingState;
 import org.elasticsearch.cluster.routing.TestShardRouting;
 import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.core.Releasable;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.core.internal.io.IOUtils;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.IndexingPressure;
@@ -42,8 +49,10 @@ import org.elasticsearch.node.NodeClosedException;
 import org.elasticsearch.test.ClusterServiceUtils;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.transport.CapturingTransport;
+import org.elasticsearch.test.transport.MockTransportService;
 import org.elasticsearch.threadpool.TestThreadPool;
 import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.AbstractSimpleTransportTestCase;
 import org.elasticsearch.transport.Transport;
 import org.elasticsearch.transport.TransportException;
 import org.elasticsearch.transport.TransportResponse;
@@ -68,6 +77,7 @@ import java.util.stream.Collectors;
 
 import static org.elasticsearch.test.ClusterServiceUtils.createClusterService;
 import static org.hamcrest.Matchers.arrayWithSize;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.mockito.Matchers.any;
@@ -343,6 +353,75 @@ public class TransportWriteActionTests extends ESTestCase {
         }
     }
 
+    public void testReplicaRequestIsRejectedBeforeDeserialization() throws Exception {
+        // the replica limit is 1.5 times the indexing pressure limit
+        final Settings settings = Settings.builder().put(IndexingPressure.MAX_INDEXING_BYTES.getKey(), "1kb").build();
+        final MockTransportService sender = MockTransportService.createNewService(Settings.EMPTY, Version.CURRENT, threadPool);
+        final MockTransportService receiver = MockTransportService.createNewService(Settings.EMPTY, Version.CURRENT, threadPool);
+        try {
+            sender.start();
+            sender.acceptIncomingRequests();
+            receiver.start();
+            receiver.acceptIncomingRequests();
+            final TestAction action = new TestAction(settings, "internal:testAction", receiver, clusterService, null, threadPool) {
+                @Override
+                protected boolean accountsOperationBytes() {
+                    return true;
+                }
+            };
+            AbstractSimpleTransportTestCase.connectToNode(sender, receiver.getLocalNode());
+
+            final TestRequest request = new TestRequest(randomByteArrayOfLength(4096));
+            final PlainActionFuture<TransportReplicationAction.ReplicaResponse> future = new PlainActionFuture<>();
+            sender.sendRequest(receiver.getLocalNode(), action.transportReplicaAction,
+                new TransportReplicationAction.ConcreteReplicaRequest<>(request, randomAlphaOfLength(10), randomNonNegativeLong(),
+                    randomNonNegativeLong(), randomNonNegativeLong()),
+                new ActionListenerResponseHandler<>(future, TransportReplicationAction.ReplicaResponse::new));
+            final ExecutionException e = expectThrows(ExecutionException.class, future::get);
+            final EsRejectedExecutionException rejection =
+                (EsRejectedExecutionException) ExceptionsHelper.unwrap(e, EsRejectedExecutionException.class);
+            assertNotNull(rejection);
+            // the request was rejected on its serialized size by its reader, before the request itself was read
+            assertThat(rejection.getMessage(), containsString("replica_operation_serialized_bytes="));
+            assertEquals(1, action.indexingPressure.stats().getReplicaRejections());
+            assertEquals(0, action.indexingPressure.stats().getCurrentReplicaBytes());
+        } finally {
+            IOUtils.close(sender, receiver);
+        }
+    }
+
+    public void testSerializedLimitsOnlyApplyToActionsThatAccountForOperationBytes() throws IOException {
+        final Settings settings = Settings.builder().put(IndexingPressure.MAX_INDEXING_BYTES.getKey(), "1kb").build();
+        final CapturingTransport transport = new CapturingTransport();
+        final TransportService transportService = transport.createTransportService(settings, threadPool,
+            TransportService.NOOP_TRANSPORT_INTERCEPTOR, x -> clusterService.localNode(), null, Collections.emptySet());
+        // like retention lease syncs, which are not accounted for with their size once they are deserialized either
+        final TestAction action = new TestAction(settings, "internal:testAction", transportService, clusterService, null, threadPool);
+        final TestAction sizedAction = new TestAction(settings, "internal:sizedTestAction", transportService, clusterService, null,
+            threadPool) {
+            @Override
+            protected boolean accountsOperationBytes() {
+                return true;
+            }
+        };
+
+        final TestRequest request = new TestRequest(randomByteArrayOfLength(4096));
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            new TransportReplicationAction.ConcreteReplicaRequest<>(request, randomAlphaOfLength(10), randomNonNegativeLong(),
+                randomNonNegativeLong(), randomNonNegativeLong()).writeTo(out);
+            try (StreamInput in = out.bytes().streamInput()) {
+                action.checkSerializedPrimaryLimits(in);
+                action.checkSerializedReplicaLimits(in);
+                expectThrows(EsRejectedExecutionException.class, () -> sizedAction.checkSerializedPrimaryLimits(in));
+                expectThrows(EsRejectedExecutionException.class, () -> sizedAction.checkSerializedReplicaLimits(in));
+            }
+        }
+        assertEquals(0, action.indexingPressure.stats().getPrimaryRejections());
+        assertEquals(0, action.indexingPressure.stats().getReplicaRejections());
+        assertEquals(1, sizedAction.indexingPressure.stats().getPrimaryRejections());
+        assertEquals(1, sizedAction.indexingPressure.stats().getReplicaRejections());
+    }
+
     private class TestAction extends TransportWriteAction<TestRequest, TestRequest, TestResponse> {
 
         private final boolean withDocumentFailureOnPrimary;
@@ -482,12 +561,26 @@ public class TransportWriteActionTests extends ESTestCase {
     }
 
     private static class TestRequest extends ReplicatedWriteRequest<TestRequest> {
+        private final byte[] payload;
+
         TestRequest(StreamInput in) throws IOException {
             super(in);
+            payload = in.readByteArray();
         }
 
         TestRequest() {
+            this(new byte[0]);
+        }
+
+        TestRequest(byte[] payload) {
             super(new ShardId("test", "test", 1));
+            this.payload = payload;
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeByteArray(payload);
         }
 
         @Override
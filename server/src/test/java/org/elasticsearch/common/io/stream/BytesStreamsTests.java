@@ -851,6 +851,34 @@ public class BytesStreamsTests extends ESTestCase {
         }
     }
 
+    public void testVIntAndVLongArraysAcrossPages() throws IOException {
+        final int[] ints = new int[between(1, 10000)];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = randomBoolean() ? randomIntBetween(0, 1 << 14) : randomInt();
+        }
+        final long[] longs = new long[between(1, 10000)];
+        for (int i = 0; i < longs.length; i++) {
+            longs[i] = randomBoolean() ? randomLongBetween(0, 1 << 21) : randomNonNegativeLong();
+        }
+        BytesStreamOutput output = new BytesStreamOutput();
+        // don't start the arrays at the start of a page
+        final int prefix = between(0, 16);
+        output.writeBytes(new byte[prefix]);
+        output.writeVIntArray(ints);
+        output.writeVLongArray(longs);
+        output.writeInt(42);
+
+        StreamInput input = output.bytes().streamInput();
+        assertEquals(prefix, input.skip(prefix));
+        if (randomBoolean()) {
+            input = new NamedWriteableAwareStreamInput(input, new NamedWriteableRegistry(Collections.emptyList()));
+        }
+        assertArrayEquals(ints, input.readVIntArray());
+        assertArrayEquals(longs, input.readVLongArray());
+        assertEquals(42, input.readInt());
+        assertEquals(0, input.available());
+    }
+
     public enum TestEnum {
         ONE,
         TWO,
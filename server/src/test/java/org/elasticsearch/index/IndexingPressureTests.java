@@ -135,6 +135,29 @@ public class IndexingPressureTests extends ESTestCase {
         assertEquals(1024 * 14, indexingPressure.stats().getTotalReplicaBytes());
     }
 
+    public void testSerializedBytesRejections() {
+        IndexingPressure indexingPressure = new IndexingPressure(settings);
+        try (Releasable coordinating = indexingPressure.markCoordinatingOperationStarted(1, 1024 * 3, false);
+             Releasable primary = indexingPressure.markPrimaryOperationStarted(1, 1024 * 3, false);
+             Releasable replica = indexingPressure.markReplicaOperationStarted(1, 1024 * 3, false)) {
+            indexingPressure.checkPrimaryOperationBytes(1024, false);
+            expectThrows(EsRejectedExecutionException.class, () -> indexingPressure.checkPrimaryOperationBytes(1024 * 2, false));
+            indexingPressure.checkPrimaryOperationBytes(1024 * 2, true);
+            assertEquals(1, indexingPressure.stats().getPrimaryRejections());
+
+            indexingPressure.checkReplicaOperationBytes(1024 * 12, false);
+            expectThrows(EsRejectedExecutionException.class, () -> indexingPressure.checkReplicaOperationBytes(1024 * 13, false));
+            indexingPressure.checkReplicaOperationBytes(1024 * 13, true);
+            assertEquals(1, indexingPressure.stats().getReplicaRejections());
+
+            // the checks do not account for the operations
+            IndexingPressureStats stats = indexingPressure.stats();
+            assertEquals(1024 * 6, stats.getCurrentCombinedCoordinatingAndPrimaryBytes());
+            assertEquals(1024 * 3, stats.getCurrentPrimaryBytes());
+            assertEquals(1024 * 3, stats.getCurrentReplicaBytes());
+        }
+    }
+
     public void testForceExecutionOnCoordinating() {
         IndexingPressure indexingPressure = new IndexingPressure(settings);
         expectThrows(EsRejectedExecutionException.class, () -> indexingPressure.markCoordinatingOperationStarted(1, 1024 * 11, false));
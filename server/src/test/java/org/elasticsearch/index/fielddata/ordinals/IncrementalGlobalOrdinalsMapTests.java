@@ -0,0 +1,162 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+package org.elasticsearch.index.fielddata.ordinals;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.OrdinalMap;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.LongValues;
+import org.apache.lucene.util.packed.PackedInts;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.Collections;
+
+public class IncrementalGlobalOrdinalsMapTests extends ESTestCase {
+
+    private static void addSegment(IndexWriter writer, String segment, int numTerms) throws IOException {
+        for (int i = 0; i < numTerms; i++) {
+            Document doc = new Document();
+            doc.add(new StringField("segment", segment, Field.Store.NO));
+            int numValues = randomIntBetween(1, 3);
+            for (int j = 0; j < numValues; j++) {
+                doc.add(new SortedSetDocValuesField("field", new BytesRef(Integer.toString(randomIntBetween(0, 5000)))));
+            }
+            writer.addDocument(doc);
+        }
+        writer.flush();
+    }
+
+    private static SortedSetDocValues[] subs(IndexReader reader) throws IOException {
+        SortedSetDocValues[] subs = new SortedSetDocValues[reader.leaves().size()];
+        for (int i = 0; i < subs.length; i++) {
+            subs[i] = DocValues.getSortedSet(reader.leaves().get(i).reader(), "field");
+        }
+        return subs;
+    }
+
+    private static IndexReader.CacheKey[] keys(IndexReader reader) {
+        IndexReader.CacheKey[] keys = new IndexReader.CacheKey[reader.leaves().size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = reader.leaves().get(i).reader().getCoreCacheHelper().getKey();
+        }
+        return keys;
+    }
+
+    private static CircuitBreaker fieldDataBreaker(long limit) {
+        return new HierarchyCircuitBreakerService(
+            Settings.builder()
+                .put(HierarchyCircuitBreakerService.FIELDDATA_CIRCUIT_BREAKER_LIMIT_SETTING.getKey(), limit, ByteSizeUnit.BYTES)
+                .put(HierarchyCircuitBreakerService.USE_REAL_MEMORY_USAGE_SETTING.getKey(), false)
+                .build(),
+            Collections.emptyList(),
+            new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS)
+        ).getBreaker(CircuitBreaker.FIELDDATA);
+    }
+
+    public void testBuild() throws IOException {
+        try (Directory dir = newDirectory();
+             IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE))) {
+            int numSegments = randomIntBetween(2, 5);
+            for (int i = 0; i < numSegments; i++) {
+                addSegment(writer, Integer.toString(i), randomIntBetween(300, 500));
+            }
+            try (DirectoryReader previousReader = DirectoryReader.open(writer)) {
+                GlobalOrdinalsMap previous = GlobalOrdinalsMap.wrap(OrdinalMap.build(null, subs(previousReader), PackedInts.DEFAULT));
+
+                // drop a segment and add a few small ones
+                writer.deleteDocuments(new Term("segment", Integer.toString(randomIntBetween(0, numSegments - 1))));
+                int numNewSegments = randomIntBetween(0, 3);
+                for (int i = 0; i < numNewSegments; i++) {
+                    addSegment(writer, "new_" + i, randomIntBetween(1, 5));
+                }
+                try (DirectoryReader reader = DirectoryReader.openIfChanged(previousReader, writer)) {
+                    assertNotNull(reader);
+                    SortedSetDocValues[] subs = subs(reader);
+                    CircuitBreaker breaker = fieldDataBreaker(Long.MAX_VALUE);
+                    GlobalOrdinalsMap globalOrdinals =
+                        IncrementalGlobalOrdinalsMap.build(previous, keys(previousReader), keys(reader), subs, breaker);
+                    assertNotNull(globalOrdinals);
+                    // the breaker is charged with the size of the new global ordinals, not the size of the previous ones
+                    assertEquals(globalOrdinals.ramBytesUsed(), breaker.getUsed());
+
+                    OrdinalMap expected = OrdinalMap.build(null, subs(reader), PackedInts.DEFAULT);
+                    assertEquals(expected.getValueCount(), globalOrdinals.getValueCount());
+                    for (int i = 0; i < subs.length; i++) {
+                        LongValues expectedGlobalOrds = expected.getGlobalOrds(i);
+                        LongValues globalOrds = globalOrdinals.getGlobalOrds(i);
+                        for (long ord = 0; ord < subs[i].getValueCount(); ord++) {
+                            assertEquals(expectedGlobalOrds.get(ord), globalOrds.get(ord));
+                        }
+                    }
+                    SortedSetDocValues[] lookups = subs(reader);
+                    for (long globalOrd = 0; globalOrd < expected.getValueCount(); globalOrd++) {
+                        BytesRef expectedTerm = BytesRef.deepCopyOf(lookups[expected.getFirstSegmentNumber(globalOrd)]
+                            .lookupOrd(expected.getFirstSegmentOrd(globalOrd)));
+                        BytesRef term = lookups[globalOrdinals.getFirstSegmentNumber(globalOrd)]
+                            .lookupOrd(globalOrdinals.getFirstSegmentOrd(globalOrd));
+                        assertEquals(expectedTerm, term);
+                    }
+                }
+            }
+        }
+    }
+
+    public void testTooManyNewTerms() throws IOException {
+        try (Directory dir = newDirectory();
+             IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE))) {
+            addSegment(writer, "0", 10);
+            addSegment(writer, "1", 10);
+            try (DirectoryReader previousReader = DirectoryReader.open(writer)) {
+                GlobalOrdinalsMap previous = GlobalOrdinalsMap.wrap(OrdinalMap.build(null, subs(previousReader), PackedInts.DEFAULT));
+                addSegment(writer, "2", 1000);
+                try (DirectoryReader reader = DirectoryReader.openIfChanged(previousReader, writer)) {
+                    CircuitBreaker breaker = fieldDataBreaker(Long.MAX_VALUE);
+                    assertNull(IncrementalGlobalOrdinalsMap.build(previous, keys(previousReader), keys(reader), subs(reader), breaker));
+                    assertEquals(0, breaker.getUsed());
+                }
+            }
+        }
+    }
+
+    public void testCircuitBreaker() throws IOException {
+        try (Directory dir = newDirectory();
+             IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE))) {
+            addSegment(writer, "0", 300);
+            addSegment(writer, "1", 300);
+            try (DirectoryReader previousReader = DirectoryReader.open(writer)) {
+                GlobalOrdinalsMap previous = GlobalOrdinalsMap.wrap(OrdinalMap.build(null, subs(previousReader), PackedInts.DEFAULT));
+                addSegment(writer, "2", 1);
+                try (DirectoryReader reader = DirectoryReader.openIfChanged(previousReader, writer)) {
+                    CircuitBreaker breaker = fieldDataBreaker(previous.ramBytesUsed() / 2);
+                    expectThrows(CircuitBreakingException.class,
+                        () -> IncrementalGlobalOrdinalsMap.build(previous, keys(previousReader), keys(reader), subs(reader), breaker));
+                    assertEquals(0, breaker.getUsed());
+                }
+            }
+        }
+    }
+}
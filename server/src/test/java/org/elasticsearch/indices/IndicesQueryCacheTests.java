@@ -36,6 +36,8 @@ import org.elasticsearch.test.ESTestCase;
 import java.io.IOException;
 import java.util.Set;
 
+import static org.hamcrest.Matchers.greaterThan;
+
 public class IndicesQueryCacheTests extends ESTestCase {
 
     private static class DummyQuery extends Query {
@@ -163,6 +165,85 @@ public class IndicesQueryCacheTests extends ESTestCase {
         cache.close(); // this triggers some assertions
     }
 
+    public void testCostAwarePolicyRequiresTheWrappedPolicy() throws IOException {
+        final boolean[] wrappedAdmits = new boolean[] { false };
+        final QueryCachingPolicy wrapped = new QueryCachingPolicy() {
+            @Override
+            public void onUse(Query query) {}
+
+            @Override
+            public boolean shouldCache(Query query) {
+                return wrappedAdmits[0];
+            }
+        };
+        final CostAwareQueryCachingPolicy.QueryCost cost = new CostAwareQueryCachingPolicy.QueryCost();
+        final CostAwareQueryCachingPolicy policy = new CostAwareQueryCachingPolicy(wrapped, q -> cost, 1d);
+        final Query query = new DummyQuery(0);
+
+        // expensive for its size, but the wrapped policy has not seen it used often enough yet
+        cost.record(1000, 10, 1, 1);
+        assertFalse(policy.shouldCache(query));
+        wrappedAdmits[0] = true;
+        assertTrue(policy.shouldCache(query));
+
+        // too cheap for its size, even if the wrapped policy admits it
+        cost.record(0, 10000, 1, 1);
+        assertFalse(policy.shouldCache(query));
+
+        // never measured, so the wrapped policy decides alone
+        assertTrue(new CostAwareQueryCachingPolicy(wrapped, q -> null, 1d).shouldCache(query));
+        wrappedAdmits[0] = false;
+        assertFalse(new CostAwareQueryCachingPolicy(wrapped, q -> null, 1d).shouldCache(query));
+    }
+
+    public void testCostAwarePolicy() throws IOException {
+        Directory dir = newDirectory();
+        IndexWriter w = new IndexWriter(dir, newIndexWriterConfig());
+        w.addDocument(new Document());
+        DirectoryReader r = DirectoryReader.open(w);
+        w.close();
+        ShardId shard = new ShardId("index", "_na_", 0);
+        r = ElasticsearchDirectoryReader.wrap(r, shard);
+        IndexSearcher s = new IndexSearcher(r);
+        s.setQueryCachingPolicy(alwaysCachePolicy());
+
+        Settings settings = Settings.builder()
+                .put(IndicesQueryCache.INDICES_CACHE_QUERY_COUNT_SETTING.getKey(), 10)
+                .put(IndicesQueryCache.INDICES_QUERIES_CACHE_ALL_SEGMENTS_SETTING.getKey(), true)
+                .put(IndicesQueryCache.INDICES_QUERIES_CACHE_COST_AWARE_SETTING.getKey(), true)
+                .put(IndicesQueryCache.INDICES_QUERIES_CACHE_COST_AWARE_MIN_NANOS_PER_BYTE_SETTING.getKey(), 1e12)
+                .build();
+        IndicesQueryCache cache = new IndicesQueryCache(settings);
+        s.setQueryCache(cache);
+
+        // never seen before, so the wrapped policy decides
+        assertEquals(1, s.count(new DummyQuery(0)));
+        QueryCacheStats stats = cache.getStats(shard);
+        assertEquals(1L, stats.getCacheSize());
+        assertEquals(1L, stats.getCacheCount());
+        assertEquals(0L, stats.getHitCount());
+        assertEquals(1L, stats.getMissCount());
+        assertEquals(0L, stats.getCostSaved().nanos());
+
+        assertEquals(1, s.count(new DummyQuery(0)));
+        stats = cache.getStats(shard);
+        assertEquals(1L, stats.getHitCount());
+        assertThat(stats.getCostSaved().nanos(), greaterThan(0L));
+
+        // once evicted, the query is not admitted again since it is too cheap for its size
+        cache.clearIndex("index");
+        assertEquals(1, s.count(new DummyQuery(0)));
+        stats = cache.getStats(shard);
+        assertEquals(0L, stats.getCacheSize());
+        assertEquals(1L, stats.getCacheCount());
+        assertEquals(1L, stats.getHitCount());
+        assertEquals(2L, stats.getMissCount());
+
+        IOUtils.close(r, dir);
+        cache.onClose(shard);
+        cache.close(); // this triggers some assertions
+    }
+
     public void testTwoShards() throws IOException {
         Directory dir1 = newDirectory();
         IndexWriter w1 = new IndexWriter(dir1, newIndexWriterConfig());
@@ -0,0 +1,96 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.indices.recovery;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.CompositeBytesReference;
+import org.elasticsearch.common.bytes.ReleasableBytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.store.StoreFileMetadata;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.VersionUtils;
+
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class RecoveryFileChunkRequestTests extends ESTestCase {
+
+    public void testSerialization() throws IOException {
+        final Version version = VersionUtils.randomCompatibleVersion(random(), Version.CURRENT);
+        final RecoveryFileChunkRequest outRequest = randomRequest();
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.setVersion(version);
+            outRequest.writeTo(out);
+            assertRequestsEqual(outRequest, copy(out.bytes(), version));
+        } finally {
+            outRequest.decRef();
+        }
+    }
+
+    public void testContentIsWrittenSeparately() throws IOException {
+        final RecoveryFileChunkRequest outRequest = randomRequest();
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.setVersion(Version.CURRENT);
+            final BytesReference content = outRequest.writeWithoutTrailingBytes(out);
+            assertSame(outRequest.content(), content);
+            assertRequestsEqual(outRequest, copy(CompositeBytesReference.of(out.bytes(), content), Version.CURRENT));
+        } finally {
+            outRequest.decRef();
+        }
+    }
+
+    public void testContentIsWrittenInlineForOldVersions() throws IOException {
+        final Version version = VersionUtils.getPreviousVersion(Version.V_8_0_0);
+        final RecoveryFileChunkRequest outRequest = randomRequest();
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.setVersion(version);
+            assertThat(outRequest.writeWithoutTrailingBytes(out).length(), equalTo(0));
+            assertRequestsEqual(outRequest, copy(out.bytes(), version));
+        } finally {
+            outRequest.decRef();
+        }
+    }
+
+    private static RecoveryFileChunkRequest randomRequest() {
+        final StoreFileMetadata metadata = new StoreFileMetadata(randomAlphaOfLength(10), randomNonNegativeLong(),
+            randomAlphaOfLength(8), org.apache.lucene.util.Version.LATEST.toString());
+        final ReleasableBytesReference content = ReleasableBytesReference.wrap(new BytesArray(randomByteArrayOfLength(between(0, 1024))));
+        try {
+            return new RecoveryFileChunkRequest(randomNonNegativeLong(), randomNonNegativeLong(), new ShardId("test", "_na_", 0), metadata,
+                randomNonNegativeLong(), content, randomBoolean(), randomIntBetween(0, 100), randomNonNegativeLong());
+        } finally {
+            content.decRef();
+        }
+    }
+
+    private static RecoveryFileChunkRequest copy(BytesReference bytes, Version version) throws IOException {
+        try (StreamInput in = bytes.streamInput()) {
+            in.setVersion(version);
+            return new RecoveryFileChunkRequest(in);
+        }
+    }
+
+    private static void assertRequestsEqual(RecoveryFileChunkRequest expected, RecoveryFileChunkRequest actual) {
+        assertThat(actual.recoveryId(), equalTo(expected.recoveryId()));
+        assertThat(actual.requestSeqNo(), equalTo(expected.requestSeqNo()));
+        assertThat(actual.shardId(), equalTo(expected.shardId()));
+        assertTrue(actual.metadata().isSame(expected.metadata()));
+        assertThat(actual.metadata().writtenBy(), equalTo(expected.metadata().writtenBy()));
+        assertThat(actual.position(), equalTo(expected.position()));
+        assertThat(actual.content(), equalTo(expected.content()));
+        assertThat(actual.lastChunk(), equalTo(expected.lastChunk()));
+        assertThat(actual.totalTranslogOps(), equalTo(expected.totalTranslogOps()));
+        assertThat(actual.sourceThrottleTimeInNanos(), equalTo(expected.sourceThrottleTimeInNanos()));
+    }
+}
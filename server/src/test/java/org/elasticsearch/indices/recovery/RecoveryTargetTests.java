@@ -289,6 +289,7 @@ public class RecoveryTargetTests extends ESTestCase {
             assertThat(filesToRecover.size(), equalTo(0));
             index.stop();
             assertThat(index.time(), greaterThanOrEqualTo(0L));
+            assertThat(index.recoveredBytesPerSecond(), equalTo(index.time() == 0 ? 0L : recoveredBytes * 1000 / index.time()));
         }
 
         logger.info("testing serialized information");
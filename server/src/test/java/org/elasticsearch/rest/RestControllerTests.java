@@ -14,6 +14,7 @@ import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
+import org.elasticsearch.common.metrics.RequestHandlerStats;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.BoundTransportAddress;
@@ -324,6 +325,25 @@ public class RestControllerTests extends ESTestCase {
         assertEquals(0, inFlightRequestsBreaker.getUsed());
     }
 
+    public void testDispatchRequestRecordsRouteStats() {
+        assertEquals(Map.of(), restController.getRouteStats());
+        // stay below the in flight requests breaker limit
+        String content = randomAlphaOfLength((int) (BREAKER_LIMIT.bytesAsInt() / inFlightRequestsBreaker.getOverhead()));
+        RestRequest request = testRestRequest("/", content, XContentType.JSON);
+        restController.dispatchRequest(request, new AssertingChannel(request, true, RestStatus.OK), client.threadPool().getThreadContext());
+        request = testRestRequest("/error", content, XContentType.JSON);
+        restController.dispatchRequest(request, new AssertingChannel(request, true, RestStatus.BAD_REQUEST),
+            client.threadPool().getThreadContext());
+
+        Map<String, RequestHandlerStats> stats = restController.getRouteStats();
+        assertEquals(Set.of("GET /", "GET /error"), stats.keySet());
+        for (RequestHandlerStats routeStats : stats.values()) {
+            assertEquals(1, routeStats.getLatencyMicros().getCount());
+            assertEquals(1, routeStats.getRequestSizeBytes().getCount());
+            assertEquals(content.length(), routeStats.getRequestSizeBytes().getMax());
+        }
+    }
+
     public void testDispatchRequestAddsAndFreesBytesOnlyOnceOnError() {
         int contentLength = BREAKER_LIMIT.bytesAsInt();
         String content = randomAlphaOfLength((int) Math.round(contentLength / inFlightRequestsBreaker.getOverhead()));
@@ -39,6 +39,7 @@ import org.elasticsearch.search.aggregations.bucket.range.InternalDateRangeTests
 import org.elasticsearch.search.aggregations.bucket.range.InternalGeoDistanceTests;
 import org.elasticsearch.search.aggregations.bucket.range.InternalRangeTests;
 import org.elasticsearch.search.aggregations.bucket.sampler.InternalSamplerTests;
+import org.elasticsearch.search.aggregations.bucket.sampler.random.InternalRandomSamplerTests;
 import org.elasticsearch.search.aggregations.bucket.terms.DoubleTermsTests;
 import org.elasticsearch.search.aggregations.bucket.terms.LongRareTermsTests;
 import org.elasticsearch.search.aggregations.bucket.terms.LongTermsTests;
@@ -48,6 +49,8 @@ import org.elasticsearch.search.aggregations.bucket.terms.StringRareTermsTests;
 import org.elasticsearch.search.aggregations.bucket.terms.StringTermsTests;
 import org.elasticsearch.search.aggregations.metrics.InternalAvgTests;
 import org.elasticsearch.search.aggregations.metrics.InternalCardinalityTests;
+import org.elasticsearch.search.aggregations.metrics.InternalDDSketchPercentilesRanksTests;
+import org.elasticsearch.search.aggregations.metrics.InternalDDSketchPercentilesTests;
 import org.elasticsearch.search.aggregations.metrics.InternalExtendedStatsTests;
 import org.elasticsearch.search.aggregations.metrics.InternalGeoBoundsTests;
 import org.elasticsearch.search.aggregations.metrics.InternalGeoCentroidTests;
@@ -100,6 +103,8 @@ public class AggregationsTests extends ESTestCase {
             new InternalTDigestPercentilesRanksTests(),
             new InternalHDRPercentilesTests(),
             new InternalHDRPercentilesRanksTests(),
+            new InternalDDSketchPercentilesTests(),
+            new InternalDDSketchPercentilesRanksTests(),
             new InternalPercentilesBucketTests(),
             new InternalMinTests(),
             new InternalMaxTests(),
@@ -131,6 +136,7 @@ public class AggregationsTests extends ESTestCase {
             new InternalGlobalTests(),
             new InternalFilterTests(),
             new InternalSamplerTests(),
+            new InternalRandomSamplerTests(),
             new GeoHashGridTests(),
             new GeoTileGridTests(),
             new InternalRangeTests(),
@@ -0,0 +1,66 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations;
+
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class BlockLeafBucketCollectorTests extends ESTestCase {
+
+    private static class RecordingCollector extends BlockLeafBucketCollector {
+        final List<String> blocks = new ArrayList<>();
+
+        RecordingCollector(boolean buffer) {
+            super(LeafBucketCollector.NO_OP_COLLECTOR, null, buffer);
+        }
+
+        @Override
+        public void collect(int[] docs, int count, long owningBucketOrd) {
+            blocks.add(owningBucketOrd + ":" + Arrays.toString(Arrays.copyOf(docs, count)));
+        }
+    }
+
+    public void testFlushOnBucketChange() throws IOException {
+        RecordingCollector collector = new RecordingCollector(true);
+        collector.collect(1, 0);
+        collector.collect(2, 0);
+        collector.collect(3, 1);
+        collector.collect(5, 0);
+        assertThat(collector.blocks, equalTo(List.of("0:[1, 2]", "1:[3]")));
+        collector.flush();
+        assertThat(collector.blocks, equalTo(List.of("0:[1, 2]", "1:[3]", "0:[5]")));
+        collector.flush();
+        assertThat(collector.blocks.size(), equalTo(3));
+    }
+
+    public void testFlushWhenFull() throws IOException {
+        RecordingCollector collector = new RecordingCollector(true);
+        int blockSize = BlockLeafBucketCollector.BLOCK_SIZE;
+        int numDocs = randomIntBetween(blockSize, blockSize * 3);
+        for (int doc = 0; doc < numDocs; doc++) {
+            collector.collect(doc, 0);
+        }
+        assertThat(collector.blocks.size(), equalTo(numDocs / blockSize));
+        collector.flush();
+        assertThat(collector.blocks.size(), equalTo((numDocs + blockSize - 1) / blockSize));
+    }
+
+    public void testNoBuffering() throws IOException {
+        RecordingCollector collector = new RecordingCollector(false);
+        collector.collect(1, 0);
+        collector.collect(2, 0);
+        assertThat(collector.blocks, equalTo(List.of("0:[1]", "0:[2]")));
+    }
+}
@@ -15,6 +15,7 @@ import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.IndexSearcher;
@@ -26,9 +27,18 @@ import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.store.Directory;
 import org.elasticsearch.common.CheckedBiConsumer;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
 import org.elasticsearch.search.aggregations.AggregatorTestCase;
 import org.elasticsearch.search.aggregations.BucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -38,6 +48,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.function.BiFunction;
 
 import static org.hamcrest.Matchers.equalTo;
@@ -179,6 +190,140 @@ public class BestBucketsDeferringCollectorTests extends AggregatorTestCase {
         });
     }
 
+    public void testConcurrentReplay() throws Exception {
+        ThreadPool threadPool = new TestThreadPool(getTestName());
+        try (Directory directory = newDirectory()) {
+            indexSegments(directory);
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+                int numBuckets = randomIntBetween(1, 20);
+                long[] selectedBuckets = randomSubsetOf(randomIntBetween(1, numBuckets), allBuckets(numBuckets)).stream()
+                    .mapToLong(Long::longValue)
+                    .toArray();
+
+                List<String> expected = replay(indexSearcher, numBuckets, selectedBuckets, null, 0,
+                    new NoopCircuitBreaker(CircuitBreaker.REQUEST));
+                assertFalse(expected.isEmpty());
+                Executor executor = threadPool.executor(ThreadPool.Names.SEARCH_WORKER);
+                CircuitBreaker breaker = requestBreaker(Long.MAX_VALUE);
+                assertEquals(expected, replay(indexSearcher, numBuckets, selectedBuckets, executor, randomIntBetween(1, 4), breaker));
+                assertEquals(0, breaker.getUsed());
+            }
+        } finally {
+            terminate(threadPool);
+        }
+    }
+
+    public void testConcurrentReplayCircuitBreaker() throws Exception {
+        ThreadPool threadPool = new TestThreadPool(getTestName());
+        try (Directory directory = newDirectory()) {
+            indexSegments(directory);
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+                Executor executor = threadPool.executor(ThreadPool.Names.SEARCH_WORKER);
+                CircuitBreaker breaker = requestBreaker(between(1, 100));
+                expectThrows(CircuitBreakingException.class,
+                    () -> replay(indexSearcher, 1, new long[] { 0 }, executor, randomIntBetween(1, 4), breaker));
+                assertEquals(0, breaker.getUsed());
+            }
+        } finally {
+            terminate(threadPool);
+        }
+    }
+
+    private void indexSegments(Directory directory) throws IOException {
+        IndexWriterConfig config = new IndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+        try (IndexWriter indexWriter = new IndexWriter(directory, config)) {
+            int numSegments = randomIntBetween(2, 10);
+            for (int s = 0; s < numSegments; s++) {
+                int numDocs = randomIntBetween(1, 100);
+                for (int i = 0; i < numDocs; i++) {
+                    indexWriter.addDocument(new Document());
+                }
+                indexWriter.commit();
+            }
+        }
+    }
+
+    private static CircuitBreaker requestBreaker(long limit) {
+        return new HierarchyCircuitBreakerService(
+            Settings.builder()
+                .put(HierarchyCircuitBreakerService.REQUEST_CIRCUIT_BREAKER_LIMIT_SETTING.getKey(), limit, ByteSizeUnit.BYTES)
+                .put(HierarchyCircuitBreakerService.USE_REAL_MEMORY_USAGE_SETTING.getKey(), false)
+                .build(),
+            Collections.emptyList(),
+            new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS)
+        ).getBreaker(CircuitBreaker.REQUEST);
+    }
+
+    private static List<Long> allBuckets(int numBuckets) {
+        List<Long> buckets = new ArrayList<>(numBuckets);
+        for (long bucket = 0; bucket < numBuckets; bucket++) {
+            buckets.add(bucket);
+        }
+        return buckets;
+    }
+
+    /**
+     * Collects every document in bucket {@code doc % numBuckets} and returns the replayed documents and buckets in order.
+     */
+    private List<String> replay(IndexSearcher indexSearcher, int numBuckets, long[] selectedBuckets,
+                                Executor executor, int helpers, CircuitBreaker breaker) throws IOException {
+        Query query = new MatchAllDocsQuery();
+        BestBucketsDeferringCollector deferringCollector = new BestBucketsDeferringCollector(query, indexSearcher, false,
+            executor, helpers, breaker);
+        List<String> replayed = new ArrayList<>();
+        deferringCollector.setDeferredCollector(Collections.singleton(new BucketCollector() {
+            @Override
+            public ScoreMode scoreMode() {
+                return ScoreMode.COMPLETE_NO_SCORES;
+            }
+
+            @Override
+            public void preCollection() throws IOException {}
+
+            @Override
+            public void postCollection() throws IOException {}
+
+            @Override
+            public LeafBucketCollector getLeafCollector(LeafReaderContext ctx) throws IOException {
+                return new LeafBucketCollector() {
+                    @Override
+                    public void collect(int doc, long bucket) throws IOException {
+                        replayed.add((ctx.docBase + doc) + ":" + bucket);
+                    }
+                };
+            }
+        }));
+        deferringCollector.preCollection();
+        indexSearcher.search(query, new BucketCollector() {
+            @Override
+            public ScoreMode scoreMode() {
+                return ScoreMode.COMPLETE_NO_SCORES;
+            }
+
+            @Override
+            public void preCollection() throws IOException {}
+
+            @Override
+            public void postCollection() throws IOException {}
+
+            @Override
+            public LeafBucketCollector getLeafCollector(LeafReaderContext ctx) throws IOException {
+                LeafBucketCollector delegate = deferringCollector.getLeafCollector(ctx);
+                return new LeafBucketCollector() {
+                    @Override
+                    public void collect(int doc, long owningBucketOrd) throws IOException {
+                        delegate.collect(doc, (ctx.docBase + doc) % numBuckets);
+                    }
+                };
+            }
+        });
+        deferringCollector.postCollection();
+        deferringCollector.prepareSelectedBuckets(selectedBuckets);
+        return replayed;
+    }
+
     private void testCase(
         BiFunction<BestBucketsDeferringCollector, LeafBucketCollector, LeafBucketCollector> leafCollector,
         CheckedBiConsumer<BestBucketsDeferringCollector, CollectingBucketCollector, IOException> verify
@@ -0,0 +1,89 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.BaseAggregationTestCase;
+import org.elasticsearch.search.aggregations.bucket.sampler.DiversifiedAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.sampler.SamplerAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.sampler.random.RandomSamplerAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.CardinalityAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.MaxAggregationBuilder;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class RandomSamplerTests extends BaseAggregationTestCase<RandomSamplerAggregationBuilder> {
+
+    @Override
+    protected final RandomSamplerAggregationBuilder createTestAggregatorBuilder() {
+        RandomSamplerAggregationBuilder factory = new RandomSamplerAggregationBuilder(randomAlphaOfLengthBetween(3, 10));
+        factory.probability(randomBoolean() ? 1 : randomDoubleBetween(0.0001, 1, false));
+        if (randomBoolean()) {
+            factory.seed(randomInt());
+        }
+        return factory;
+    }
+
+    public void testRejectsSubAggregationsThatCannotBeSampled() {
+        RandomSamplerAggregationBuilder sampler = new RandomSamplerAggregationBuilder("sampler").probability(0.5);
+        sampler.subAggregation(new TermsAggregationBuilder("terms").field("field").subAggregation(new MaxAggregationBuilder("max")));
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> sampler.subAggregation(
+            new TermsAggregationBuilder("terms").field("field").subAggregation(new CardinalityAggregationBuilder("cardinality"))));
+        assertThat(e.getMessage(), equalTo("[random_sampler] aggregation [sampler] does not support sub-aggregation [cardinality] "
+            + "of type [cardinality]"));
+    }
+
+    public void testParsingRejectsSubAggregationsThatCannotBeSampled() throws IOException {
+        final String aggregation = "{\n" +
+            "  \"sampler\" : {\n" +
+            "    \"random_sampler\" : { \"probability\" : 0.1 },\n" +
+            "    \"aggs\" : {\n" +
+            "      \"hits\" : { \"top_hits\" : { } }\n" +
+            "    }\n" +
+            "  }\n" +
+            "}";
+        try (XContentParser parser = createParser(JsonXContent.jsonXContent, aggregation)) {
+            assertSame(XContentParser.Token.START_OBJECT, parser.nextToken());
+            IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+                () -> AggregatorFactories.parseAggregators(parser));
+            assertThat(e.getMessage(), equalTo("[random_sampler] aggregation [sampler] does not support sub-aggregation [hits] "
+                + "of type [top_hits]"));
+        }
+    }
+
+    public void testRejectsSamplerSubAggregations() {
+        RandomSamplerAggregationBuilder sampler = new RandomSamplerAggregationBuilder("sampler").probability(0.5);
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> sampler.subAggregation(new SamplerAggregationBuilder("shard_sampler")));
+        assertThat(e.getMessage(), equalTo("[random_sampler] aggregation [sampler] does not support sub-aggregation [shard_sampler] "
+            + "of type [sampler]"));
+        e = expectThrows(IllegalArgumentException.class,
+            () -> sampler.subAggregation(new DiversifiedAggregationBuilder("diversified").field("field")));
+        assertThat(e.getMessage(), equalTo("[random_sampler] aggregation [sampler] does not support sub-aggregation [diversified] "
+            + "of type [diversified_sampler]"));
+    }
+
+    public void testValidationRejectsNestedRandomSampler() {
+        AggregatorFactories.Builder aggs = new AggregatorFactories.Builder().addAggregator(new TermsAggregationBuilder("terms")
+            .field("field")
+            .subAggregation(new RandomSamplerAggregationBuilder("sampler").probability(0.5)));
+        ActionRequestValidationException e = aggs.validate(null);
+        assertNotNull(e);
+        assertThat(e.validationErrors(), equalTo(List.of("Aggregation [terms] cannot have a random_sampler sub-aggregation [sampler]. "
+            + "Random sampler aggregations can only be defined as top level aggregations")));
+        assertNull(new AggregatorFactories.Builder().addAggregator(createTestAggregatorBuilder()).validate(null));
+    }
+}
@@ -8,11 +8,30 @@
 
 package org.elasticsearch.search.aggregations.bucket.adjacency;
 
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LRUQueryCache;
 import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.mapper.KeywordFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
 import org.elasticsearch.index.query.MatchAllQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.elasticsearch.index.query.TermQueryBuilder;
 import org.elasticsearch.search.SearchModule;
+import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorTestCase;
 
 import java.io.IOException;
@@ -20,7 +39,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static io.github.nik9000.mapmatcher.MapMatcher.assertMap;
+import static io.github.nik9000.mapmatcher.MapMatcher.matchesMap;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasSize;
 
 public class AdjacencyMatrixAggregatorTests extends AggregatorTestCase {
@@ -76,4 +98,116 @@ public class AdjacencyMatrixAggregatorTests extends AggregatorTestCase {
             assertThat(ab.getDocCount(), equalTo(1L));
         });
     }
+
+    public void testCountFromCachedBitSets() throws IOException {
+        AdjacencyMatrixAggregationBuilder builder = new AdjacencyMatrixAggregationBuilder(
+            "dummy",
+            Map.of(
+                "a",
+                new TermQueryBuilder("kwd", "a"),
+                "b",
+                new RangeQueryBuilder("n").gte(5),
+                "c",
+                new RangeQueryBuilder("n").lt(3)
+            )
+        );
+        try (Directory directory = newDirectory()) {
+            RandomIndexWriter iw = new RandomIndexWriter(random(), directory);
+            for (int i = 0; i < 10; i++) {
+                String kwd = i % 2 == 0 ? "a" : "b";
+                iw.addDocument(
+                    List.of(
+                        new Field("kwd", kwd, KeywordFieldMapper.Defaults.FIELD_TYPE),
+                        new SortedSetDocValuesField("kwd", new BytesRef(kwd)),
+                        new LongPoint("n", i),
+                        new SortedNumericDocValuesField("n", i)
+                    )
+                );
+            }
+            iw.close();
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                searcher.setQueryCache(new LRUQueryCache(1000, Long.MAX_VALUE, context -> true, Float.POSITIVE_INFINITY));
+                searcher.setQueryCachingPolicy(ALWAYS_CACHE);
+
+                assertCountedFromBitSets(
+                    builder,
+                    new MatchAllDocsQuery(),
+                    searcher,
+                    Map.of("a", 5L, "b", 5L, "c", 3L, "a&b", 2L, "a&c", 2L)
+                );
+                assertCountedFromBitSets(
+                    builder,
+                    LongPoint.newRangeQuery("n", 0, 7),
+                    searcher,
+                    Map.of("a", 4L, "b", 3L, "c", 3L, "a&b", 1L, "a&c", 2L)
+                );
+            }
+        }
+    }
+
+    private void assertCountedFromBitSets(
+        AdjacencyMatrixAggregationBuilder builder,
+        Query query,
+        IndexSearcher searcher,
+        Map<String, Long> expectedCounts
+    ) throws IOException {
+        MappedFieldType kft = new KeywordFieldMapper.KeywordFieldType("kwd");
+        MappedFieldType nft = new NumberFieldMapper.NumberFieldType("n", NumberFieldMapper.NumberType.LONG);
+        debugTestCase(
+            builder,
+            query,
+            searcher,
+            (InternalAdjacencyMatrix result, Class<? extends Aggregator> impl, Map<String, Map<String, Object>> debug) -> {
+                Map<String, Long> counts = new HashMap<>();
+                for (InternalAdjacencyMatrix.InternalBucket bucket : result.getBuckets()) {
+                    counts.put(bucket.getKeyAsString(), bucket.getDocCount());
+                }
+                assertThat(counts, equalTo(expectedCounts));
+                assertMap(
+                    debug,
+                    matchesMap().entry(
+                        "dummy",
+                        matchesMap().entry("segments_counted_from_bitsets", greaterThan(0)).entry("segments_collected", 0)
+                    )
+                );
+            },
+            kft,
+            nft
+        );
+    }
+
+    public void testIntersectionCount() {
+        int length = between(1, 1000);
+        FixedBitSet a = randomBitSet(length);
+        FixedBitSet b = randomBitSet(length);
+        FixedBitSet c = randomBitSet(length);
+        long expected = 0;
+        for (int i = 0; i < length; i++) {
+            if (a.get(i) && b.get(i) && c.get(i)) {
+                expected++;
+            }
+        }
+        assertThat(AdjacencyMatrixAggregator.intersectionCount(a, b, c), equalTo(expected));
+    }
+
+    private static FixedBitSet randomBitSet(int length) {
+        FixedBitSet bits = new FixedBitSet(length);
+        for (int i = 0; i < length; i++) {
+            if (randomBoolean()) {
+                bits.set(i);
+            }
+        }
+        return bits;
+    }
+
+    private static final QueryCachingPolicy ALWAYS_CACHE = new QueryCachingPolicy() {
+        @Override
+        public void onUse(Query query) {}
+
+        @Override
+        public boolean shouldCache(Query query) {
+            return true;
+        }
+    };
 }
@@ -106,6 +106,6 @@ public class CompositeAggregationBuilderTests extends BaseAggregationTestCase<Co
                     throw new AssertionError("wrong branch");
             }
         }
-        return new CompositeAggregationBuilder(randomAlphaOfLength(10), sources);
+        return new CompositeAggregationBuilder(randomAlphaOfLength(10), sources).exhaustive(randomBoolean());
     }
 }
@@ -22,8 +22,10 @@ import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.search.CollectionTerminatedException;
 import org.apache.lucene.search.DocValuesFieldExistsQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
@@ -42,6 +44,8 @@ import org.elasticsearch.common.geo.GeoPoint;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.time.DateFormatter;
 import org.elasticsearch.common.time.DateFormatters;
+import org.elasticsearch.core.CheckedConsumer;
+import org.elasticsearch.core.RefCounted;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.mapper.DateFieldMapper;
@@ -57,6 +61,9 @@ import org.elasticsearch.index.mapper.SeqNoFieldMapper;
 import org.elasticsearch.index.mapper.Uid;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorTestCase;
+import org.elasticsearch.search.aggregations.BucketCollector;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.MultiBucketCollector;
 import org.elasticsearch.search.aggregations.bucket.InternalSingleBucketAggregation;
 import org.elasticsearch.search.aggregations.bucket.geogrid.GeoTileGridAggregationBuilder;
 import org.elasticsearch.search.aggregations.bucket.geogrid.GeoTileUtils;
@@ -68,6 +75,7 @@ import org.elasticsearch.search.aggregations.metrics.InternalMax;
 import org.elasticsearch.search.aggregations.metrics.MaxAggregationBuilder;
 import org.elasticsearch.search.aggregations.metrics.TopHits;
 import org.elasticsearch.search.aggregations.metrics.TopHitsAggregationBuilder;
+import org.elasticsearch.search.aggregations.support.AggregationContext;
 import org.elasticsearch.search.aggregations.support.ValueType;
 import org.elasticsearch.search.sort.SortOrder;
 import org.elasticsearch.test.IndexSettingsModule;
@@ -88,10 +96,18 @@ import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.any;
 
 import static org.elasticsearch.search.aggregations.bucket.nested.NestedAggregatorTests.nestedObject;
 import static org.hamcrest.Matchers.containsString;
@@ -1185,6 +1201,214 @@ public class CompositeAggregatorTests  extends AggregatorTestCase {
         );
     }
 
+    public void testExhaustive() throws Exception {
+        final List<Map<String, List<Object>>> dataset = new ArrayList<>();
+        int numDocs = randomIntBetween(1, 200);
+        for (int i = 0; i < numDocs; i++) {
+            List<Object> fields = new ArrayList<>();
+            if (randomBoolean()) {
+                fields.add("keyword");
+                fields.add(randomFrom("a", "b", "c", "d", "e\u0000", "e"));
+            }
+            fields.add("long");
+            fields.add(randomLongBetween(-5, 5));
+            fields.add("double");
+            fields.add(randomFrom(-1.5d, 0d, 2.5d));
+            dataset.add(createDocument(fields.toArray()));
+        }
+        SortOrder keywordOrder = randomFrom(SortOrder.values());
+        SortOrder longOrder = randomFrom(SortOrder.values());
+        int size = randomIntBetween(1, 20);
+        Function<Map<String, Object>, CompositeAggregationBuilder> create = after -> new CompositeAggregationBuilder("name",
+            Arrays.asList(
+                new TermsValuesSourceBuilder("keyword").field("keyword").missingBucket(true).order(keywordOrder),
+                new TermsValuesSourceBuilder("long").field("long").order(longOrder),
+                new TermsValuesSourceBuilder("double").field("double")
+            )
+        ).size(size).aggregateAfter(after);
+        withDatasetSearcher(dataset, indexSearcher -> {
+            Map<String, Object> afterKey = null;
+            do {
+                InternalComposite expected = searchAndReduce(indexSearcher, new MatchAllDocsQuery(), create.apply(afterKey), FIELD_TYPES);
+                // each page runs against a new point in time so that it sorts the keys that follow its after key
+                Map<String, RefCounted> readerStates = new HashMap<>();
+                InternalComposite actual;
+                try {
+                    actual = collectExhaustivePage(indexSearcher, create.apply(afterKey).exhaustive(true), readerStates, true);
+                } finally {
+                    readerStates.values().forEach(RefCounted::decRef);
+                }
+                assertEquals(expected.getBuckets().size(), actual.getBuckets().size());
+                for (int i = 0; i < expected.getBuckets().size(); i++) {
+                    InternalComposite.InternalBucket expectedBucket = expected.getBuckets().get(i);
+                    InternalComposite.InternalBucket actualBucket = actual.getBuckets().get(i);
+                    assertEquals(expectedBucket.getKeyAsString(), actualBucket.getKeyAsString());
+                    assertEquals(expectedBucket.getDocCount(), actualBucket.getDocCount());
+                }
+                assertEquals(expected.afterKey(), actual.afterKey());
+                afterKey = actual.afterKey();
+            } while (afterKey != null);
+        });
+    }
+
+    public void testExhaustiveWithoutPointInTime() throws Exception {
+        final List<Map<String, List<Object>>> dataset = new ArrayList<>();
+        int numDocs = randomIntBetween(1, 50);
+        for (int i = 0; i < numDocs; i++) {
+            dataset.add(createDocument("keyword", randomFrom("a", "b", "c", "d"), "long", randomLongBetween(-5, 5)));
+        }
+        int size = randomIntBetween(1, 5);
+        Supplier<CompositeAggregationBuilder> create = () -> new CompositeAggregationBuilder("name",
+            Arrays.asList(
+                new TermsValuesSourceBuilder("keyword").field("keyword"),
+                new TermsValuesSourceBuilder("long").field("long")
+            )
+        ).size(size);
+        withDatasetSearcher(dataset, indexSearcher -> {
+            InternalComposite expected = searchAndReduce(indexSearcher, new MatchAllDocsQuery(), create.get(), FIELD_TYPES);
+            // the keys can't be reused by the next pages so they are collected in the queue rather than sorted on disk
+            AggregationContext context = spy(createAggregationContext(indexSearcher, new MatchAllDocsQuery(), FIELD_TYPES));
+            Aggregator aggregator = createAggregator(create.get().exhaustive(true), context);
+            aggregator.preCollection();
+            indexSearcher.search(new MatchAllDocsQuery(), aggregator);
+            aggregator.postCollection();
+            InternalComposite actual = (InternalComposite) aggregator.buildTopLevel();
+            verify(context, never()).tempDirectory();
+            verify(context, never()).putReaderState(anyString(), any());
+            assertEquals(expected.getBuckets().size(), actual.getBuckets().size());
+            for (int i = 0; i < expected.getBuckets().size(); i++) {
+                assertEquals(expected.getBuckets().get(i).getKeyAsString(), actual.getBuckets().get(i).getKeyAsString());
+                assertEquals(expected.getBuckets().get(i).getDocCount(), actual.getBuckets().get(i).getDocCount());
+            }
+        });
+    }
+
+    /**
+     * Indexes the provided documents in a new directory and runs {@code consumer} with a searcher on them.
+     */
+    private void withDatasetSearcher(List<Map<String, List<Object>>> dataset,
+                                     CheckedConsumer<IndexSearcher, IOException> consumer) throws IOException {
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+                Document document = new Document();
+                for (int id = 0; id < dataset.size(); id++) {
+                    document.clear();
+                    addToDocument(id, document, dataset.get(id));
+                    indexWriter.addDocument(document);
+                }
+            }
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                consumer.accept(new IndexSearcher(indexReader));
+            }
+        }
+    }
+
+    public void testExhaustiveReusesCursor() throws Exception {
+        final List<Map<String, List<Object>>> dataset = new ArrayList<>();
+        int numDocs = randomIntBetween(2, 100);
+        for (int i = 0; i < numDocs; i++) {
+            dataset.add(createDocument("keyword", randomFrom("a", "b", "c", "d"), "long", randomLongBetween(-5, 5)));
+        }
+        int size = randomIntBetween(1, 5);
+        Supplier<CompositeAggregationBuilder> create = () -> new CompositeAggregationBuilder("name",
+            Arrays.asList(
+                new TermsValuesSourceBuilder("keyword").field("keyword"),
+                new TermsValuesSourceBuilder("long").field("long")
+            )
+        ).size(size).exhaustive(true);
+        // the state that the reader of a point in time keeps between the pages
+        Map<String, RefCounted> readerStates = new HashMap<>();
+        withDatasetSearcher(dataset, indexSearcher -> {
+            try {
+                InternalComposite firstPage = collectExhaustivePage(indexSearcher, create.get(), readerStates, true);
+                assertEquals(1, readerStates.size());
+                assertNotNull(firstPage.afterKey());
+
+                InternalComposite expected = searchAndReduce(indexSearcher, new MatchAllDocsQuery(),
+                    create.get().exhaustive(false).aggregateAfter(firstPage.afterKey()), FIELD_TYPES);
+                InternalComposite secondPage = collectExhaustivePage(indexSearcher,
+                    create.get().aggregateAfter(firstPage.afterKey()), readerStates, false);
+                assertEquals(expected.getBuckets().size(), secondPage.getBuckets().size());
+                for (int i = 0; i < expected.getBuckets().size(); i++) {
+                    assertEquals(expected.getBuckets().get(i).getKeyAsString(), secondPage.getBuckets().get(i).getKeyAsString());
+                    assertEquals(expected.getBuckets().get(i).getDocCount(), secondPage.getBuckets().get(i).getDocCount());
+                }
+            } finally {
+                readerStates.values().forEach(RefCounted::decRef);
+            }
+        });
+    }
+
+    public void testExhaustiveCursorDependsOnRuntimeMappings() throws Exception {
+        final List<Map<String, List<Object>>> dataset = new ArrayList<>();
+        int numDocs = randomIntBetween(2, 50);
+        for (int i = 0; i < numDocs; i++) {
+            dataset.add(createDocument("keyword", randomFrom("a", "b", "c", "d"), "long", randomLongBetween(-5, 5)));
+        }
+        Supplier<CompositeAggregationBuilder> create = () -> new CompositeAggregationBuilder("name",
+            Arrays.asList(new TermsValuesSourceBuilder("keyword").field("keyword"))
+        ).size(1).exhaustive(true);
+        Map<String, RefCounted> readerStates = new HashMap<>();
+        withDatasetSearcher(dataset, indexSearcher -> {
+            try {
+                InternalComposite firstPage = collectExhaustivePage(indexSearcher, create.get(), readerStates, true);
+                // the same field may be a different runtime field on the next page so its keys must be collected again
+                Map<String, Object> runtimeMappings = Map.of("keyword", Map.of("type", "keyword"));
+                collectExhaustivePage(indexSearcher, create.get().aggregateAfter(firstPage.afterKey()), readerStates,
+                    runtimeMappings, true);
+            } finally {
+                readerStates.values().forEach(RefCounted::decRef);
+            }
+        });
+    }
+
+    /**
+     * Collects a page of an exhaustive composite aggregation with a context that stores
+     * the reader state in {@code readerStates}, checking whether the segments are collected.
+     */
+    private InternalComposite collectExhaustivePage(IndexSearcher searcher, CompositeAggregationBuilder builder,
+                                                    Map<String, RefCounted> readerStates, boolean expectCollection) throws IOException {
+        return collectExhaustivePage(searcher, builder, readerStates, Collections.emptyMap(), expectCollection);
+    }
+
+    private InternalComposite collectExhaustivePage(IndexSearcher searcher, CompositeAggregationBuilder builder,
+                                                    Map<String, RefCounted> readerStates, Map<String, Object> runtimeMappings,
+                                                    boolean expectCollection) throws IOException {
+        AggregationContext context = spy(createAggregationContext(searcher, new MatchAllDocsQuery(), FIELD_TYPES));
+        doReturn(true).when(context).pointInTime();
+        doReturn(runtimeMappings).when(context).runtimeMappings();
+        doReturn(createTempDir()).when(context).tempDirectory();
+        doAnswer(invocation -> {
+            RefCounted state = readerStates.get((String) invocation.getArguments()[0]);
+            return state != null && state.tryIncRef() ? state : null;
+        }).when(context).acquireReaderState(anyString());
+        doAnswer(invocation -> {
+            RefCounted state = (RefCounted) invocation.getArguments()[1];
+            state.incRef();
+            RefCounted previous = readerStates.put((String) invocation.getArguments()[0], state);
+            if (previous != null) {
+                previous.decRef();
+            }
+            return true;
+        }).when(context).putReaderState(anyString(), any());
+        Aggregator aggregator = createAggregator(builder, context);
+        aggregator.preCollection();
+        BucketCollector collector = MultiBucketCollector.wrap(true, List.of(aggregator));
+        for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+            if (expectCollection) {
+                LeafBucketCollector leafCollector = collector.getLeafCollector(leaf);
+                for (int doc = 0; doc < leaf.reader().maxDoc(); doc++) {
+                    leafCollector.collect(doc);
+                }
+            } else {
+                // the keys are read from the cursor that the first page built so the segments aren't collected
+                expectThrows(CollectionTerminatedException.class, () -> collector.getLeafCollector(leaf));
+            }
+        }
+        aggregator.postCollection();
+        return (InternalComposite) aggregator.buildTopLevel();
+    }
+
     public void testWithKeywordLongAndMissingBucket() throws Exception {
         final List<Map<String, List<Object>>> dataset = new ArrayList<>();
         dataset.addAll(
@@ -0,0 +1,191 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.composite;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeKeyCursor.ValueType;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class CompositeKeyCursorTests extends ESTestCase {
+
+    private static ValueType[] randomTypes() {
+        ValueType[] types = new ValueType[randomIntBetween(1, 3)];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = randomFrom(ValueType.values());
+        }
+        return types;
+    }
+
+    private static int[] randomReverseMuls(int length) {
+        int[] reverseMuls = new int[length];
+        for (int i = 0; i < length; i++) {
+            reverseMuls[i] = randomBoolean() ? 1 : -1;
+        }
+        return reverseMuls;
+    }
+
+    private static CompositeKey randomKey(ValueType[] types) {
+        Comparable<?>[] values = new Comparable<?>[types.length];
+        for (int i = 0; i < types.length; i++) {
+            if (rarely()) {
+                values[i] = null;
+                continue;
+            }
+            switch (types[i]) {
+                case LONG:
+                    values[i] = randomBoolean() ? randomLong() : randomLongBetween(-3, 3);
+                    break;
+                case DOUBLE:
+                    values[i] = randomBoolean() ? randomDouble() : randomFrom(-1.5d, -0d, 0d, 1.5d);
+                    break;
+                case BYTES:
+                    values[i] = new BytesRef(randomFrom("", "a", "ab", "a\u0000", "a\u0000b", "b", randomUnicodeOfLength(3)));
+                    break;
+                default:
+                    throw new AssertionError();
+            }
+        }
+        return new CompositeKey(values);
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static Comparator<CompositeKey> keyComparator(int[] reverseMuls) {
+        return (a, b) -> {
+            for (int i = 0; i < reverseMuls.length; i++) {
+                Comparable va = a.get(i);
+                Comparable vb = b.get(i);
+                int cmp;
+                if (va == null) {
+                    cmp = vb == null ? 0 : -1;
+                } else if (vb == null) {
+                    cmp = 1;
+                } else {
+                    cmp = va.compareTo(vb);
+                }
+                if (cmp != 0) {
+                    return cmp * reverseMuls[i];
+                }
+            }
+            return 0;
+        };
+    }
+
+    private static BytesRef encode(CompositeKey key, ValueType[] types, int[] reverseMuls) {
+        BytesRefBuilder builder = new BytesRefBuilder();
+        CompositeKeyCursor.encode(key, types, reverseMuls, builder);
+        return builder.toBytesRef();
+    }
+
+    public void testEncode() {
+        ValueType[] types = randomTypes();
+        int[] reverseMuls = randomReverseMuls(types.length);
+        Comparator<CompositeKey> comparator = keyComparator(reverseMuls);
+        for (int i = 0; i < 1000; i++) {
+            CompositeKey a = randomKey(types);
+            CompositeKey b = randomKey(types);
+            BytesRef encodedA = encode(a, types, reverseMuls);
+            BytesRef encodedB = encode(b, types, reverseMuls);
+            assertEquals(Integer.signum(comparator.compare(a, b)), Integer.signum(encodedA.compareTo(encodedB)));
+            assertEquals(a, CompositeKeyCursor.decode(encodedA, types, reverseMuls));
+            assertEquals(b, CompositeKeyCursor.decode(encodedB, types, reverseMuls));
+        }
+    }
+
+    public void testReadPages() throws Exception {
+        ValueType[] types = randomTypes();
+        int[] reverseMuls = randomReverseMuls(types.length);
+        Map<CompositeKey, Long> expected = new TreeMap<>(keyComparator(reverseMuls));
+        Path tempDirectory = createTempDir();
+        CompositeKeyCursor cursor;
+        try (CompositeKeyCursor.Builder builder = new CompositeKeyCursor.Builder(tempDirectory, BigArrays.NON_RECYCLING_INSTANCE,
+                types, reverseMuls)) {
+            int numKeys = randomIntBetween(0, 500);
+            for (int i = 0; i < numKeys; i++) {
+                CompositeKey key = randomKey(types);
+                long docCount = randomIntBetween(1, 10);
+                expected.merge(key, docCount, Long::sum);
+                builder.add(key, docCount);
+            }
+            cursor = builder.build("identity", null);
+        }
+        try {
+            assertTrue(cursor.canResume("identity", null));
+            assertFalse(cursor.canResume("other", null));
+
+            int size = randomIntBetween(1, 50);
+            List<CompositeKey> keys = new ArrayList<>();
+            byte[] after = null;
+            while (true) {
+                List<CompositeKey> page = new ArrayList<>();
+                cursor.readPage(after, size, (key, docCount) -> {
+                    assertEquals(expected.get(key), docCount);
+                    page.add(key);
+                });
+                assertTrue(page.size() <= size);
+                if (page.isEmpty()) {
+                    break;
+                }
+                keys.addAll(page);
+                after = CompositeKeyCursor.encode(page.get(page.size() - 1), types, reverseMuls);
+                assertTrue(cursor.canResume("identity", after));
+            }
+            assertEquals(new ArrayList<>(expected.keySet()), keys);
+        } finally {
+            cursor.decRef();
+        }
+        assertTempFilesDeleted(tempDirectory);
+    }
+
+    public void testKeysLongerThanShortLength() throws Exception {
+        ValueType[] types = new ValueType[] { ValueType.BYTES };
+        int[] reverseMuls = randomReverseMuls(types.length);
+        List<CompositeKey> expected = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            // longer than the Short.MAX_VALUE bytes that OfflineSorter's default records support
+            expected.add(new CompositeKey(new BytesRef(randomAlphaOfLength(Short.MAX_VALUE + randomIntBetween(1, 1000)))));
+        }
+        expected.sort(keyComparator(reverseMuls));
+        Path tempDirectory = createTempDir();
+        CompositeKeyCursor cursor;
+        try (CompositeKeyCursor.Builder builder = new CompositeKeyCursor.Builder(tempDirectory, BigArrays.NON_RECYCLING_INSTANCE,
+                types, reverseMuls)) {
+            for (CompositeKey key : expected) {
+                builder.add(key, 1);
+            }
+            cursor = builder.build("identity", null);
+        }
+        try {
+            List<CompositeKey> keys = new ArrayList<>();
+            cursor.readPage(null, expected.size(), (key, docCount) -> keys.add(key));
+            assertEquals(expected, keys);
+        } finally {
+            cursor.decRef();
+        }
+        assertTempFilesDeleted(tempDirectory);
+    }
+
+    private static void assertTempFilesDeleted(Path tempDirectory) throws IOException {
+        try (Stream<Path> files = Files.list(tempDirectory)) {
+            assertEquals(List.of(), files.collect(Collectors.toList()));
+        }
+    }
+}
@@ -24,9 +24,11 @@ import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.IndexOrDocValuesQuery;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LRUQueryCache;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.MatchNoDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryCachingPolicy;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.Accountable;
@@ -392,12 +394,85 @@ public class FiltersAggregatorTests extends AggregatorTestCase {
                         .entry("segments_with_deleted_docs", 0)
                         .entry("segments_collected", 0)
                         .entry("segments_counted", greaterThanOrEqualTo(1))
-                        .entry("filters", matchesList().item(matchesMap().entry("query", "test:[1577836800000 TO 1583020799999]")))
+                        .entry(
+                            "filters",
+                            matchesList().item(
+                                matchesMap().entry("query", "test:[1577836800000 TO 1583020799999]")
+                                    .entry("results_from_cached_bitset", greaterThanOrEqualTo(0))
+                            )
+                        )
                 )
             );
         }, ft);
     }
 
+    public void testRangeFilterFromCachedBitSet() throws IOException {
+        MappedFieldType ft = new DateFieldMapper.DateFieldType(
+            "test",
+            true,
+            false,
+            false,
+            DateFieldMapper.DEFAULT_DATE_TIME_FORMATTER,
+            Resolution.MILLISECONDS,
+            null,
+            null,
+            Collections.emptyMap()
+        );
+        AggregationBuilder builder = new FiltersAggregationBuilder(
+            "test",
+            new KeyedFilter("q1", new RangeQueryBuilder("test").from("2020-01-01").to("2020-03-01").includeUpper(false))
+        );
+        try (Directory directory = newDirectory()) {
+            RandomIndexWriter iw = new RandomIndexWriter(random(), directory);
+            iw.addDocument(List.of(new LongPoint("test", DateFieldMapper.DEFAULT_DATE_TIME_FORMATTER.parseMillis("2010-01-02"))));
+            iw.addDocument(List.of(new LongPoint("test", DateFieldMapper.DEFAULT_DATE_TIME_FORMATTER.parseMillis("2020-01-02"))));
+            iw.addDocument(List.of(new LongPoint("test", DateFieldMapper.DEFAULT_DATE_TIME_FORMATTER.parseMillis("2020-02-02"))));
+            iw.close();
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                searcher.setQueryCache(new LRUQueryCache(1000, Long.MAX_VALUE, context -> true, Float.POSITIVE_INFINITY));
+                searcher.setQueryCachingPolicy(new QueryCachingPolicy() {
+                    @Override
+                    public void onUse(Query query) {}
+
+                    @Override
+                    public boolean shouldCache(Query query) {
+                        return true;
+                    }
+                });
+                debugTestCase(
+                    builder,
+                    new MatchAllDocsQuery(),
+                    searcher,
+                    (InternalFilters filters, Class<? extends Aggregator> impl, Map<String, Map<String, Object>> debug) -> {
+                        assertThat(filters.getBuckets(), hasSize(1));
+                        assertThat(filters.getBucketByKey("q1").getDocCount(), equalTo(2L));
+
+                        assertThat(impl, equalTo(FilterByFilterAggregator.class));
+                        assertMap(
+                            debug,
+                            matchesMap().entry(
+                                "test",
+                                matchesMap().entry("segments_with_doc_count_field", 0)
+                                    .entry("segments_with_deleted_docs", 0)
+                                    .entry("segments_collected", 0)
+                                    .entry("segments_counted", greaterThanOrEqualTo(1))
+                                    .entry(
+                                        "filters",
+                                        matchesList().item(
+                                            matchesMap().entry("query", "test:[1577836800000 TO 1583020799999]")
+                                                .entry("results_from_cached_bitset", greaterThanOrEqualTo(1))
+                                        )
+                                    )
+                            )
+                        );
+                    },
+                    ft
+                );
+            }
+        }
+    }
+
     /**
      * Check that we don't accidentally find nested documents when the filter
      * matches it.
@@ -459,6 +534,7 @@ public class FiltersAggregatorTests extends AggregatorTestCase {
                                 "filters",
                                 matchesList().item(
                                     matchesMap().entry("query", "*:*")
+                                        .entry("results_from_cached_bitset", greaterThanOrEqualTo(0))
                                         .entry("specialized_for", "match_all")
                                         .entry("results_from_metadata", greaterThanOrEqualTo(1))
                                 )
@@ -497,6 +573,7 @@ public class FiltersAggregatorTests extends AggregatorTestCase {
                                 "filters",
                                 matchesList().item(
                                     matchesMap().entry("query", "*:*")
+                                        .entry("results_from_cached_bitset", greaterThanOrEqualTo(0))
                                         .entry("specialized_for", "match_all")
                                         .entry("results_from_metadata", 0)
                                 )
@@ -567,6 +644,7 @@ public class FiltersAggregatorTests extends AggregatorTestCase {
                             "filters",
                             matchesList().item(
                                 matchesMap().entry("query", "*:*")
+                                    .entry("results_from_cached_bitset", greaterThanOrEqualTo(0))
                                     .entry("specialized_for", "match_all")
                                     .entry("results_from_metadata", 0)
                             )
@@ -617,7 +695,12 @@ public class FiltersAggregatorTests extends AggregatorTestCase {
                 debug,
                 matchesMap().entry(
                     "test",
-                    matchesMap().entry("filters", matchesList().item(matchesMap().entry("query", "date:[1577836800000 TO 1583020799999]")))
+                    matchesMap().entry(
+                        "filters",
+                        matchesList().item(
+                            matchesMap().entry("query", "date:[1577836800000 TO 1583020799999]").entry("results_from_cached_bitset", 0)
+                        )
+                    )
                 )
             );
         }, dft, kft);
@@ -651,6 +734,7 @@ public class FiltersAggregatorTests extends AggregatorTestCase {
                                 "filters",
                                 matchesList().item(
                                     matchesMap().entry("query", "MatchNoDocsQuery(\"User requested \"match_none\" query.\")")
+                                        .entry("results_from_cached_bitset", greaterThanOrEqualTo(0))
                                         .entry("specialized_for", "match_none")
                                 )
                             )
@@ -688,6 +772,7 @@ public class FiltersAggregatorTests extends AggregatorTestCase {
                                 "filters",
                                 matchesList().item(
                                     matchesMap().entry("query", "MatchNoDocsQuery(\"User requested \"match_none\" query.\")")
+                                        .entry("results_from_cached_bitset", greaterThanOrEqualTo(0))
                                         .entry("specialized_for", "match_none")
                                 )
                             )
@@ -727,6 +812,7 @@ public class FiltersAggregatorTests extends AggregatorTestCase {
                                 "filters",
                                 matchesList().item(
                                     matchesMap().entry("query", "f:0")
+                                        .entry("results_from_cached_bitset", greaterThanOrEqualTo(0))
                                         .entry("specialized_for", "term")
                                         .entry("results_from_metadata", greaterThan(0))
                                 )
@@ -768,6 +854,7 @@ public class FiltersAggregatorTests extends AggregatorTestCase {
                                 "filters",
                                 matchesList().item(
                                     matchesMap().entry("query", "f:0")
+                                        .entry("results_from_cached_bitset", greaterThanOrEqualTo(0))
                                         .entry("specialized_for", "term")
                                         .entry("results_from_metadata", greaterThan(0))
                                 )
@@ -854,8 +941,14 @@ public class FiltersAggregatorTests extends AggregatorTestCase {
                             .entry("segments_counted", 0)
                             .entry(
                                 "filters",
-                                matchesList().item(matchesMap().entry("query", "test:[1262304000000 TO 1267401599999]"))
-                                    .item(matchesMap().entry("query", "test:[1577836800000 TO 1583020799999]"))
+                                matchesList().item(
+                                    matchesMap().entry("query", "test:[1262304000000 TO 1267401599999]")
+                                        .entry("results_from_cached_bitset", 0)
+                                )
+                                    .item(
+                                        matchesMap().entry("query", "test:[1577836800000 TO 1583020799999]")
+                                            .entry("results_from_cached_bitset", 0)
+                                    )
                             )
                     ).entry("test.s", matchesMap()).entry("test.m", matchesMap())
                 );
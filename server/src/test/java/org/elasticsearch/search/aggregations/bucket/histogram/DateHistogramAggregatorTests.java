@@ -53,6 +53,7 @@ import static io.github.nik9000.mapmatcher.MapMatcher.matchesMap;
 import static java.util.stream.Collectors.toList;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.not;
@@ -1278,6 +1279,7 @@ public class DateHistogramAggregatorTests extends DateHistogramAggregatorTestCas
                                 .entry("segments_collected", 0)
                                 .entry("filters", matchesList().item(matchesMap()
                                     .entry("query", "DocValuesFieldExistsQuery [field=f]")
+                                    .entry("results_from_cached_bitset", greaterThanOrEqualTo(0))
                                     .entry("specialized_for", "docvalues_field_exists")
                                     .entry("results_from_metadata", greaterThan(0)))
                                 )
@@ -0,0 +1,86 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.histogram;
+
+import org.elasticsearch.test.ESTestCase;
+
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.containsString;
+
+public class RollupIntervalTests extends ESTestCase {
+
+    private static DateIntervalWrapper calendar(String interval) {
+        DateIntervalWrapper wrapper = new DateIntervalWrapper();
+        wrapper.calendarInterval(new DateHistogramInterval(interval));
+        return wrapper;
+    }
+
+    private static DateIntervalWrapper fixed(String interval) {
+        DateIntervalWrapper wrapper = new DateIntervalWrapper();
+        wrapper.fixedInterval(new DateHistogramInterval(interval));
+        return wrapper;
+    }
+
+    public void testFromMeta() {
+        assertNull(RollupInterval.fromMeta(Map.of()));
+        RollupInterval interval = RollupInterval.fromMeta(Map.of("calendar_interval", "1d", "time_zone", "Europe/Paris"));
+        assertEquals(calendar("1d"), interval.getInterval());
+        assertEquals(ZoneId.of("Europe/Paris"), interval.getTimeZone());
+        interval = RollupInterval.fromMeta(Map.of("fixed_interval", "5m"));
+        assertEquals(fixed("5m"), interval.getInterval());
+        assertEquals(ZoneOffset.UTC, interval.getTimeZone());
+    }
+
+    public void testFixedRollup() {
+        RollupInterval rollup = new RollupInterval(fixed("5m"), ZoneOffset.UTC);
+        assertNull(rollup.incompatibility(fixed("5m"), null, 0));
+        assertNull(rollup.incompatibility(fixed("15m"), ZoneId.of("UTC"), 0));
+        assertNull(rollup.incompatibility(fixed("15m"), null, 10 * 60 * 1000));
+        assertNull(rollup.incompatibility(calendar("1h"), null, 0));
+        assertNull(rollup.incompatibility(calendar("1M"), null, 0));
+        assertThat(rollup.incompatibility(fixed("7m"), null, 0), containsString("isn't a multiple of the rollup interval [5m]"));
+        assertThat(rollup.incompatibility(calendar("1m"), null, 0), containsString("isn't a multiple of the rollup interval [5m]"));
+        assertThat(rollup.incompatibility(fixed("15m"), null, 1000), containsString("offset [1000ms]"));
+        assertThat(rollup.incompatibility(fixed("15m"), ZoneId.of("Europe/Paris"), 0), containsString("time_zone [Europe/Paris]"));
+    }
+
+    public void testCalendarRollup() {
+        RollupInterval hourly = new RollupInterval(calendar("1h"), ZoneOffset.UTC);
+        assertNull(hourly.incompatibility(calendar("1h"), null, 0));
+        assertNull(hourly.incompatibility(fixed("3h"), null, 0));
+        assertNull(hourly.incompatibility(calendar("1w"), null, 0));
+        assertNotNull(hourly.incompatibility(fixed("90m"), null, 0));
+
+        RollupInterval monthly = new RollupInterval(calendar("1M"), ZoneOffset.UTC);
+        assertNull(monthly.incompatibility(calendar("1q"), null, 0));
+        assertNull(monthly.incompatibility(calendar("1y"), null, 0));
+        assertNotNull(monthly.incompatibility(calendar("1w"), null, 0));
+        assertNotNull(monthly.incompatibility(fixed("30d"), null, 0));
+        assertThat(monthly.incompatibility(calendar("1y"), null, 1), containsString("offset [1ms] isn't supported"));
+
+        RollupInterval weekly = new RollupInterval(calendar("1w"), ZoneOffset.UTC);
+        assertNull(weekly.incompatibility(calendar("1w"), null, 0));
+        assertNotNull(weekly.incompatibility(calendar("1M"), null, 0));
+
+        // days aren't all as long in a time zone with daylight savings time
+        RollupInterval daily = new RollupInterval(calendar("1d"), ZoneId.of("Europe/Paris"));
+        assertNull(daily.incompatibility(calendar("1M"), ZoneId.of("Europe/Paris"), 0));
+        assertNotNull(daily.incompatibility(fixed("2d"), ZoneId.of("Europe/Paris"), 0));
+        assertNull(new RollupInterval(calendar("1d"), ZoneOffset.UTC).incompatibility(fixed("2d"), null, 0));
+    }
+
+    public void testEstimateMillis() {
+        assertEquals(5 * 60 * 1000, new RollupInterval(fixed("5m"), ZoneOffset.UTC).estimateMillis());
+        assertTrue(new RollupInterval(calendar("1M"), ZoneOffset.UTC).estimateMillis()
+            > new RollupInterval(calendar("1d"), ZoneOffset.UTC).estimateMillis());
+    }
+}
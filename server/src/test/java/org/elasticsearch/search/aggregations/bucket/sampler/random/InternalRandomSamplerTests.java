@@ -0,0 +1,36 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.sampler.random;
+
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.InternalSingleBucketAggregationTestCase;
+import org.elasticsearch.search.aggregations.bucket.ParsedSingleBucketAggregation;
+
+import java.util.List;
+import java.util.Map;
+
+public class InternalRandomSamplerTests extends InternalSingleBucketAggregationTestCase<InternalRandomSampler> {
+    @Override
+    protected InternalRandomSampler createTestInstance(String name, long docCount, InternalAggregations aggregations,
+                                                       Map<String, Object> metadata) {
+        // the reduction is checked against the sum of the doc counts so the instances are not sampled,
+        // the scaling of sampled results is tested in RandomSamplerAggregatorTests
+        return new InternalRandomSampler(name, docCount, 1.0, randomInt(), aggregations, metadata);
+    }
+
+    @Override
+    protected void extraAssertReduced(InternalRandomSampler reduced, List<InternalRandomSampler> inputs) {
+        // Nothing extra to assert
+    }
+
+    @Override
+    protected Class<? extends ParsedSingleBucketAggregation> implementationClass() {
+        return ParsedRandomSampler.class;
+    }
+}
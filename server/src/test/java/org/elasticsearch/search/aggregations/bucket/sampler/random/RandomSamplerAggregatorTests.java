@@ -0,0 +1,155 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.sampler.random;
+
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.elasticsearch.core.CheckedConsumer;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+import org.elasticsearch.index.query.MatchAllQueryBuilder;
+import org.elasticsearch.search.aggregations.AggregatorTestCase;
+import org.elasticsearch.search.aggregations.bucket.filter.FilterAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.filter.Filters;
+import org.elasticsearch.search.aggregations.bucket.filter.FiltersAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
+import org.elasticsearch.search.aggregations.bucket.histogram.HistogramAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.range.Range;
+import org.elasticsearch.search.aggregations.bucket.range.RangeAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.ExtendedStats;
+import org.elasticsearch.search.aggregations.metrics.ExtendedStatsAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.Stats;
+import org.elasticsearch.search.aggregations.metrics.StatsAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.Sum;
+import org.elasticsearch.search.aggregations.metrics.SumAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.ValueCount;
+import org.elasticsearch.search.aggregations.metrics.ValueCountAggregationBuilder;
+import org.elasticsearch.search.internal.ContextIndexSearcher;
+import org.elasticsearch.tasks.TaskCancelledException;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+
+public class RandomSamplerAggregatorTests extends AggregatorTestCase {
+    private static final int NUM_DOCS = 5000;
+    private static final MappedFieldType NUMBER = new NumberFieldMapper.NumberFieldType("number", NumberFieldMapper.NumberType.LONG);
+
+    private static final CheckedConsumer<RandomIndexWriter, IOException> INDEX = iw -> {
+        for (int i = 0; i < NUM_DOCS; i++) {
+            long value = i % 2;
+            iw.addDocument(List.of(new SortedNumericDocValuesField("number", value), new LongPoint("number", value)));
+        }
+    };
+
+    private static RandomSamplerAggregationBuilder sampler(double probability) {
+        return new RandomSamplerAggregationBuilder("sampler")
+            .probability(probability)
+            .seed(randomInt())
+            .subAggregation(new SumAggregationBuilder("sum").field("number"))
+            .subAggregation(new ValueCountAggregationBuilder("count").field("number"))
+            .subAggregation(new HistogramAggregationBuilder("histo").field("number").interval(1));
+    }
+
+    public void testNoSampling() throws IOException {
+        testCase(sampler(1), new MatchAllDocsQuery(), INDEX, (InternalRandomSampler result) -> {
+            assertThat(result.getDocCount(), equalTo((long) NUM_DOCS));
+            assertThat(((Sum) result.getAggregations().get("sum")).getValue(), equalTo(NUM_DOCS / 2d));
+            assertThat(((ValueCount) result.getAggregations().get("count")).getValue(), equalTo((long) NUM_DOCS));
+        }, NUMBER);
+    }
+
+    /**
+     * The tolerance on an estimate of the number of documents out of {@code count} that were sampled with the provided
+     * probability: ten times the standard deviation of the scaled binomial distribution.
+     */
+    private static double tolerance(long count, double probability) {
+        return 10 * Math.sqrt(count * (1 - probability) / probability);
+    }
+
+    public void testScalesResults() throws IOException {
+        final double probability = 0.2;
+        testCase(sampler(probability), new MatchAllDocsQuery(), INDEX, (InternalRandomSampler result) -> {
+            assertThat((double) result.getDocCount(), closeTo(NUM_DOCS, tolerance(NUM_DOCS, probability)));
+            assertThat(((Sum) result.getAggregations().get("sum")).getValue(),
+                closeTo(NUM_DOCS / 2d, tolerance(NUM_DOCS / 2, probability)));
+            assertThat((double) ((ValueCount) result.getAggregations().get("count")).getValue(),
+                closeTo(NUM_DOCS, tolerance(NUM_DOCS, probability)));
+            List<? extends Histogram.Bucket> buckets = ((Histogram) result.getAggregations().get("histo")).getBuckets();
+            assertThat(buckets.size(), equalTo(2));
+            for (Histogram.Bucket bucket : buckets) {
+                assertThat((double) bucket.getDocCount(), closeTo(NUM_DOCS / 2d, tolerance(NUM_DOCS / 2, probability)));
+            }
+        }, NUMBER);
+    }
+
+    public void testScalesCountsOfSubAggregations() throws IOException {
+        final double probability = 0.2;
+        RandomSamplerAggregationBuilder sampler = new RandomSamplerAggregationBuilder("sampler")
+            .probability(probability)
+            .seed(randomInt())
+            .subAggregation(new StatsAggregationBuilder("stats").field("number"))
+            .subAggregation(new ExtendedStatsAggregationBuilder("extended_stats").field("number"))
+            .subAggregation(new RangeAggregationBuilder("range").field("number").addUnboundedTo(1).addUnboundedFrom(1))
+            .subAggregation(new FiltersAggregationBuilder("filters", new MatchAllQueryBuilder()));
+        testCase(sampler, new MatchAllDocsQuery(), INDEX, (InternalRandomSampler result) -> {
+            Stats stats = result.getAggregations().get("stats");
+            assertThat((double) stats.getCount(), closeTo(NUM_DOCS, tolerance(NUM_DOCS, probability)));
+            assertThat(stats.getSum(), closeTo(NUM_DOCS / 2d, tolerance(NUM_DOCS / 2, probability)));
+            assertThat(stats.getMin(), equalTo(0d));
+            assertThat(stats.getMax(), equalTo(1d));
+            ExtendedStats extendedStats = result.getAggregations().get("extended_stats");
+            assertThat((double) extendedStats.getCount(), closeTo(NUM_DOCS, tolerance(NUM_DOCS, probability)));
+            // the values are zeros and ones so the sum of squares is the sum
+            assertThat(extendedStats.getSumOfSquares(), equalTo(extendedStats.getSum()));
+            for (Range.Bucket bucket : ((Range) result.getAggregations().get("range")).getBuckets()) {
+                assertThat((double) bucket.getDocCount(), closeTo(NUM_DOCS / 2d, tolerance(NUM_DOCS / 2, probability)));
+            }
+            Filters.Bucket filter = ((Filters) result.getAggregations().get("filters")).getBuckets().get(0);
+            assertThat(filter.getDocCount(), equalTo(result.getDocCount()));
+        }, NUMBER);
+    }
+
+    public void testSamplesTopLevelQuery() throws IOException {
+        testCase(sampler(randomDoubleBetween(0.1, 1, true)), LongPoint.newExactQuery("number", 1), INDEX,
+            (InternalRandomSampler result) -> {
+                List<? extends Histogram.Bucket> buckets = ((Histogram) result.getAggregations().get("histo")).getBuckets();
+                assertThat(buckets.size(), equalTo(1));
+                assertThat(buckets.get(0).getKey(), equalTo(1d));
+                assertThat(((Sum) result.getAggregations().get("sum")).getValue(), closeTo(result.getDocCount(), 1));
+            }, NUMBER);
+    }
+
+    public void testMustBeTopLevel() {
+        FilterAggregationBuilder filter = new FilterAggregationBuilder("filter", new MatchAllQueryBuilder())
+            .subAggregation(sampler(0.5));
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> testCase(filter, new MatchAllDocsQuery(), INDEX, result -> {}, NUMBER));
+        assertThat(e.getMessage(), equalTo("Aggregation [filter] cannot have a random_sampler sub-aggregation [sampler]. "
+            + "Random sampler aggregations can only be defined as top level aggregations"));
+    }
+
+    public void testSampleCollectionIsCancellable() throws IOException {
+        withIndex(INDEX, indexSearcher -> {
+            ContextIndexSearcher searcher = new ContextIndexSearcher(indexSearcher.getIndexReader(), indexSearcher.getSimilarity(),
+                IndexSearcher.getDefaultQueryCache(), IndexSearcher.getDefaultQueryCachingPolicy(), false);
+            RandomSamplerAggregator aggregator = createAggregator(sampler(0.5), searcher, NUMBER);
+            aggregator.preCollection();
+            searcher.addQueryCancellation(() -> {
+                throw new TaskCancelledException("cancelled");
+            });
+            expectThrows(TaskCancelledException.class, () -> aggregator.getLeafCollector(searcher.getIndexReader().leaves().get(0)));
+        });
+    }
+}
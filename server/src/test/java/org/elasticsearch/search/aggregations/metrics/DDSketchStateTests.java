@@ -0,0 +1,169 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations.metrics;
+
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.lessThan;
+
+public class DDSketchStateTests extends ESTestCase {
+
+    private static double[] randomValues(int numValues) {
+        double[] values = new double[numValues];
+        for (int i = 0; i < numValues; i++) {
+            if (rarely()) {
+                values[i] = 0;
+            } else {
+                double value = Math.exp(randomDoubleBetween(-10, 10, true));
+                values[i] = randomBoolean() ? value : -value;
+            }
+        }
+        return values;
+    }
+
+    private static DDSketchState sketch(double relativeAccuracy, double[] values, int from, int to) {
+        DDSketchState state = new DDSketchState(relativeAccuracy);
+        for (int i = from; i < to; i++) {
+            state.add(values[i]);
+        }
+        return state;
+    }
+
+    public void testRelativeAccuracy() {
+        double relativeAccuracy = randomFrom(0.01, 0.02, 0.05);
+        double[] values = randomValues(randomIntBetween(1, 10000));
+        DDSketchState state = sketch(relativeAccuracy, values, 0, values.length);
+        assertEquals(values.length, state.size());
+
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        assertEquals(sorted[0], state.quantile(0), 0d);
+        assertEquals(sorted[sorted.length - 1], state.quantile(1), 0d);
+        for (double q : new double[] { 0.01, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999, randomDouble() }) {
+            double expected = sorted[(int) (q * (sorted.length - 1))];
+            double actual = state.quantile(q);
+            assertEquals("q=" + q, expected, actual, Math.abs(expected) * relativeAccuracy * 1.0001);
+        }
+    }
+
+    public void testRelativeAccuracyOnSkewedData() {
+        double relativeAccuracy = randomFrom(0.01, 0.02, 0.05);
+        // latency-like data: most values in a narrow band and a heavy pareto tail that spans several orders of magnitude
+        double[] values = new double[randomIntBetween(1000, 20000)];
+        for (int i = 0; i < values.length; i++) {
+            if (randomDouble() < 0.9) {
+                values[i] = randomDoubleBetween(1, 1.5, true);
+            } else {
+                values[i] = 10 / Math.pow(randomDoubleBetween(1e-6, 1, true), 1 / 1.1);
+            }
+        }
+
+        // the values are split across shards so that the bound also holds after a reduce
+        DDSketchState state = new DDSketchState(relativeAccuracy);
+        int from = 0;
+        while (from < values.length) {
+            int to = randomIntBetween(from + 1, values.length);
+            state.add(sketch(relativeAccuracy, values, from, to));
+            from = to;
+        }
+        assertEquals(values.length, state.size());
+
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double q : new double[] { 0.1, 0.5, 0.89, 0.9, 0.95, 0.99, 0.999, 0.9999, randomDouble() }) {
+            double expected = sorted[(int) (q * (sorted.length - 1))];
+            double actual = state.quantile(q);
+            assertEquals("q=" + q, expected, actual, expected * relativeAccuracy * 1.0001);
+        }
+    }
+
+    public void testCdf() {
+        double[] values = randomValues(randomIntBetween(1, 1000));
+        DDSketchState state = sketch(0.01, values, 0, values.length);
+        double prev = 0;
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        for (double value : sorted) {
+            double cdf = state.cdf(value);
+            assertTrue(cdf >= prev);
+            assertTrue(cdf <= 1);
+            prev = cdf;
+        }
+        assertEquals(0, state.cdf(Math.nextDown(sorted[0])), 0d);
+        assertEquals(1, state.cdf(sorted[sorted.length - 1]), 0d);
+        assertTrue(Double.isNaN(new DDSketchState(0.01).cdf(randomDouble())));
+    }
+
+    public void testMerge() {
+        double relativeAccuracy = randomFrom(0.01, 0.02, 0.05);
+        double[] values = randomValues(randomIntBetween(0, 5000));
+        DDSketchState expected = sketch(relativeAccuracy, values, 0, values.length);
+
+        int split = randomIntBetween(0, values.length);
+        DDSketchState first = sketch(relativeAccuracy, values, 0, split);
+        DDSketchState second = sketch(relativeAccuracy, values, split, values.length);
+        DDSketchState merged = new DDSketchState(relativeAccuracy);
+        if (randomBoolean()) {
+            merged.add(first);
+            merged.add(second);
+        } else {
+            merged.add(second);
+            merged.add(first);
+        }
+        assertEquals(expected, merged);
+        assertEquals(expected.hashCode(), merged.hashCode());
+
+        DDSketchState other = new DDSketchState(relativeAccuracy * 2);
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> other.add(first));
+        assertThat(e.getMessage(), containsString("Cannot merge DDSketch with relative accuracy"));
+    }
+
+    public void testCollapseLowestBuckets() {
+        double relativeAccuracy = 0.01;
+        DDSketchState state = new DDSketchState(relativeAccuracy);
+        // values spanning far more orders of magnitude than the buckets cover
+        for (int exponent = -300; exponent <= 300; exponent++) {
+            state.add(Math.pow(10, exponent));
+        }
+        assertEquals(601, state.size());
+        assertThat(state.ramBytesUsed(), lessThan(2L * Long.BYTES * DDSketchState.MAX_NUM_BUCKETS + 1024));
+        // the highest values are still accurate
+        double expected = Math.pow(10, 299);
+        assertEquals(expected, state.quantile(0.999), expected * relativeAccuracy * 1.0001);
+        assertEquals(Math.pow(10, -300), state.quantile(0), 0d);
+    }
+
+    public void testSerialization() throws IOException {
+        double[] values = randomValues(randomIntBetween(0, 5000));
+        DDSketchState state = sketch(randomFrom(0.01, 0.02, 0.05), values, 0, values.length);
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            DDSketchState.write(state, out);
+            try (StreamInput in = out.bytes().streamInput()) {
+                DDSketchState read = DDSketchState.read(in);
+                assertEquals(state, read);
+                assertEquals(state.size(), read.size());
+                assertEquals(state.quantile(0.5), read.quantile(0.5), 0d);
+            }
+        }
+    }
+
+    public void testInvalidValues() {
+        DDSketchState state = new DDSketchState(0.01);
+        expectThrows(IllegalArgumentException.class, () -> state.add(Double.NaN));
+        expectThrows(IllegalArgumentException.class, () -> state.add(Double.POSITIVE_INFINITY));
+        expectThrows(IllegalArgumentException.class, () -> new DDSketchState(0));
+        expectThrows(IllegalArgumentException.class, () -> new DDSketchState(1));
+    }
+}
@@ -11,16 +11,22 @@ package org.elasticsearch.search.aggregations.metrics;
 import com.carrotsearch.hppc.BitMixer;
 import com.carrotsearch.hppc.IntHashSet;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.ByteUtils;
 import org.elasticsearch.common.util.MockBigArrays;
 import org.elasticsearch.common.util.PageCacheRecycler;
 import org.elasticsearch.indices.breaker.CircuitBreakerService;
 import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.VersionUtils;
 
+import java.io.IOException;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.elasticsearch.search.aggregations.metrics.AbstractCardinalityAlgorithm.MAX_PRECISION;
@@ -103,6 +109,44 @@ public class HyperLogLogPlusPlusTests extends ESTestCase {
         }
     }
 
+    public void testMaxRunLens() {
+        for (int i = 0; i < 1000; i++) {
+            final byte[] a = new byte[Long.BYTES];
+            final byte[] b = new byte[Long.BYTES];
+            final byte[] expected = new byte[Long.BYTES];
+            for (int j = 0; j < Long.BYTES; j++) {
+                a[j] = (byte) randomIntBetween(0, 64);
+                b[j] = (byte) randomIntBetween(0, 64);
+                expected[j] = (byte) Math.max(a[j], b[j]);
+            }
+            final long max = HyperLogLogPlusPlus.maxRunLens(ByteUtils.readLongLE(a, 0), ByteUtils.readLongLE(b, 0));
+            assertEquals(ByteUtils.readLongLE(expected, 0), max);
+        }
+    }
+
+    public void testSerialization() throws IOException {
+        final int p = randomIntBetween(MIN_PRECISION, MAX_PRECISION);
+        final HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(p, BigArrays.NON_RECYCLING_INSTANCE, 1);
+        final int numValues = randomIntBetween(1, randomBoolean() ? 100 : 100000);
+        for (int i = 0; i < numValues; ++i) {
+            counts.collect(0, BitMixer.mix64(randomInt()));
+        }
+        if (counts.getAlgorithm(0) == AbstractHyperLogLogPlusPlus.LINEAR_COUNTING && randomBoolean()) {
+            counts.upgradeToHll(0);
+        }
+        final Version version = randomBoolean() ? Version.CURRENT : VersionUtils.randomPreviousCompatibleVersion(random(), Version.V_8_0_0);
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.setVersion(version);
+            counts.writeTo(0, out);
+            try (StreamInput in = out.bytes().streamInput()) {
+                in.setVersion(version);
+                final AbstractHyperLogLogPlusPlus copy = AbstractHyperLogLogPlusPlus.readFrom(in, BigArrays.NON_RECYCLING_INSTANCE);
+                assertTrue(counts.equals(0, copy, 0));
+                assertEquals(counts.cardinality(0), copy.cardinality(0));
+            }
+        }
+    }
+
     public void testFakeHashes() {
         // hashes with lots of leading zeros trigger different paths in the code that we try to go through here
         final int p = randomIntBetween(MIN_PRECISION, MAX_PRECISION);
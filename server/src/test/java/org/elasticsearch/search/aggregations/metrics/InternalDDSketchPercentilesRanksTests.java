@@ -0,0 +1,87 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.search.aggregations.metrics;
+
+import org.elasticsearch.search.DocValueFormat;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class InternalDDSketchPercentilesRanksTests extends InternalPercentilesRanksTestCase<InternalDDSketchPercentileRanks> {
+
+    @Override
+    protected InternalDDSketchPercentileRanks createTestInstance(String name, Map<String, Object> metadata,
+                                                                 boolean keyed, DocValueFormat format, double[] percents, double[] values) {
+        final DDSketchState state = new DDSketchState(0.01);
+        Arrays.stream(values).forEach(state::add);
+
+        assertEquals(values.length, state.size());
+        return new InternalDDSketchPercentileRanks(name, percents, state, keyed, format, metadata);
+    }
+
+    @Override
+    protected void assertReduced(InternalDDSketchPercentileRanks reduced, List<InternalDDSketchPercentileRanks> inputs) {
+        // merging adds up the bucket counts so the reduced sketch doesn't depend on the order of the inputs
+        final DDSketchState expectedState = new DDSketchState(reduced.state.relativeAccuracy());
+        for (InternalDDSketchPercentileRanks input : inputs) {
+            assertArrayEquals(reduced.keys, input.keys, 0d);
+            expectedState.add(input.state);
+        }
+        assertEquals(expectedState, reduced.state);
+    }
+
+    @Override
+    protected Class<? extends ParsedPercentiles> implementationClass() {
+        return ParsedDDSketchPercentileRanks.class;
+    }
+
+    @Override
+    protected InternalDDSketchPercentileRanks mutateInstance(InternalDDSketchPercentileRanks instance) {
+        String name = instance.getName();
+        double[] percents = instance.keys;
+        DDSketchState state = instance.state;
+        boolean keyed = instance.keyed;
+        DocValueFormat formatter = instance.formatter();
+        Map<String, Object> metadata = instance.getMetadata();
+        switch (between(0, 4)) {
+        case 0:
+            name += randomAlphaOfLength(5);
+            break;
+        case 1:
+            percents = Arrays.copyOf(percents, percents.length + 1);
+            percents[percents.length - 1] = randomDouble() * 100;
+            Arrays.sort(percents);
+            break;
+        case 2:
+            DDSketchState newState = new DDSketchState(state.relativeAccuracy());
+            newState.add(state);
+            for (int i = 0; i < between(10, 100); i++) {
+                newState.add(randomDouble());
+            }
+            state = newState;
+            break;
+        case 3:
+            keyed = keyed == false;
+            break;
+        case 4:
+            if (metadata == null) {
+                metadata = new HashMap<>(1);
+            } else {
+                metadata = new HashMap<>(instance.getMetadata());
+            }
+            metadata.put(randomAlphaOfLength(15), randomInt());
+            break;
+        default:
+            throw new AssertionError("Illegal randomisation branch");
+        }
+        return new InternalDDSketchPercentileRanks(name, percents, state, keyed, formatter, metadata);
+    }
+}
@@ -8,10 +8,13 @@
 
 package org.elasticsearch.search.aggregations.metrics;
 
+import org.elasticsearch.Version;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.xcontent.XContentParseException;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.json.JsonXContent;
 import org.elasticsearch.search.aggregations.BaseAggregationTestCase;
+import org.elasticsearch.test.VersionUtils;
 
 import java.io.IOException;
 
@@ -37,6 +40,8 @@ public class PercentilesTests extends BaseAggregationTestCase<PercentilesAggrega
             factory.numberOfSignificantValueDigits(randomIntBetween(0, 5));
         } else if (randomBoolean()) {
             factory.compression(randomIntBetween(1, 50000));
+        } else if (randomBoolean()) {
+            factory.percentilesConfig(new PercentilesConfig.DDSketch(randomDoubleBetween(0.0001, 0.5, true)));
         }
         String field = randomNumericField();
         randomFieldOrScript(factory, field);
@@ -91,6 +96,36 @@ public class PercentilesTests extends BaseAggregationTestCase<PercentilesAggrega
         assertEquals(XContentParser.Token.FIELD_NAME, parser.nextToken());
         XContentParseException e = expectThrows(XContentParseException.class,
                 () -> PercentilesAggregationBuilder.PARSER.parse(parser, "myPercentiles"));
-        assertThat(e.getMessage(), containsString("[percentiles] failed to parse field [hdr]"));
+        assertThat(e.getMessage(), containsString("Failed to build [percentiles] after last required field arrived"));
+        assertThat(e.getCause().getMessage(), containsString("Only one percentiles method should be declared."));
+    }
+
+    public void testExceptionDDSketchAndOtherMethod() throws IOException {
+        final String illegalAgg = "{\n" +
+            "       \"percentiles\": {\n" +
+            "           \"field\": \"load_time\",\n" +
+            "           \"percents\": [99],\n" +
+            "           \"ddsketch\": {\n" +
+            "               \"relative_accuracy\": 0.01\n" +
+            "           },\n" +
+            "           \"" + randomFrom("tdigest", "hdr") + "\": {}\n" +
+            "   }\n" +
+            "}";
+        XContentParser parser = createParser(JsonXContent.jsonXContent, illegalAgg);
+        assertEquals(XContentParser.Token.START_OBJECT, parser.nextToken());
+        assertEquals(XContentParser.Token.FIELD_NAME, parser.nextToken());
+        XContentParseException e = expectThrows(XContentParseException.class,
+                () -> PercentilesAggregationBuilder.PARSER.parse(parser, "myPercentiles"));
+        assertThat(e.getCause().getMessage(), containsString("Only one percentiles method should be declared."));
+    }
+
+    public void testDDSketchRequiresCurrentVersion() throws IOException {
+        PercentilesAggregationBuilder builder = new PercentilesAggregationBuilder("testAgg")
+            .percentilesConfig(new PercentilesConfig.DDSketch());
+        try (BytesStreamOutput out = new BytesStreamOutput()) {
+            out.setVersion(VersionUtils.randomPreviousCompatibleVersion(random(), Version.V_8_0_0));
+            IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> builder.writeTo(out));
+            assertThat(e.getMessage(), containsString("The [ddsketch] percentiles method requires all nodes to be on version"));
+        }
     }
 }
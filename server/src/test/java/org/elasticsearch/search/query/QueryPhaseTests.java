@@ -42,8 +42,10 @@ import org.apache.lucene.search.LeafCollector;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.MatchNoDocsQuery;
 import org.apache.lucene.search.MultiTermQuery;
+import org.apache.lucene.search.PointRangeQuery;
 import org.apache.lucene.search.PrefixQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryVisitor;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
@@ -91,8 +93,10 @@ import static org.elasticsearch.search.query.QueryPhase.pointsHaveDuplicateData;
 import static org.elasticsearch.search.query.TopDocsCollectorContext.hasInfMaxScore;
 import static org.hamcrest.Matchers.anyOf;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
@@ -783,6 +787,72 @@ public class QueryPhaseTests extends IndexShardTestCase {
         dir.close();
     }
 
+    public void testSearchAfterLongSortOptimization() throws Exception {
+        final String fieldName = "long-field";
+        MappedFieldType fieldType = new NumberFieldMapper.NumberFieldType(fieldName, NumberFieldMapper.NumberType.LONG);
+        SearchExecutionContext searchExecutionContext = mock(SearchExecutionContext.class);
+        when(searchExecutionContext.getFieldType(fieldName)).thenReturn(fieldType);
+        final int numDocs = randomIntBetween(500, 2000);
+        Directory dir = newDirectory();
+        IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(null));
+        for (int i = 1; i <= numDocs; ++i) {
+            Document doc = new Document();
+            long value = randomLongBetween(-1000L, 1000L);
+            doc.add(new LongPoint(fieldName, value));
+            doc.add(new NumericDocValuesField(fieldName, value));
+            writer.addDocument(doc);
+            if (i % 300 == 0) writer.commit();
+        }
+        writer.close();
+        final IndexReader reader = DirectoryReader.open(dir);
+
+        final boolean reverse = randomBoolean();
+        final SortField sortField = new SortField(fieldName, SortField.Type.LONG, reverse);
+        sortField.setMissingValue(reverse ? Long.MIN_VALUE : Long.MAX_VALUE);
+        final Sort sort = new Sort(sortField, SortField.FIELD_DOC);
+        final SortAndFormats sortAndFormats = new SortAndFormats(sort, new DocValueFormat[]{DocValueFormat.RAW, DocValueFormat.RAW});
+        final int size = randomIntBetween(10, 100);
+
+        int collected = 0;
+        FieldDoc after = null;
+        while (true) {
+            ContextIndexSearcher searcher = after == null ? newContextSearcher(reader) : newSearchAfterContextSearcher(reader);
+            TestSearchContext context = new TestSearchContext(searchExecutionContext, indexShard, searcher);
+            context.sort(sortAndFormats);
+            context.parsedQuery(new ParsedQuery(new MatchAllDocsQuery()));
+            context.setTask(new SearchShardTask(123L, "", "", "", null, Collections.emptyMap()));
+            context.setSize(size);
+            context.trackTotalHitsUpTo(SearchContext.TRACK_TOTAL_HITS_DISABLED);
+            context.searchAfter(after);
+            QueryPhase.executeInternal(context);
+            ScoreDoc[] scoreDocs = context.queryResult().topDocs().topDocs.scoreDocs;
+            if (scoreDocs.length == 0) {
+                break;
+            }
+            for (ScoreDoc scoreDoc : scoreDocs) {
+                FieldDoc fieldDoc = (FieldDoc) scoreDoc;
+                if (after != null) {
+                    long prevValue = (long) after.fields[0];
+                    long value = (long) fieldDoc.fields[0];
+                    // test that docs are strictly sorted after the previous one
+                    if (value == prevValue) {
+                        assertThat((int) fieldDoc.fields[1], greaterThan((int) after.fields[1]));
+                    } else if (reverse) {
+                        assertThat(value, lessThan(prevValue));
+                    } else {
+                        assertThat(value, greaterThan(prevValue));
+                    }
+                }
+                after = fieldDoc;
+            }
+            collected += scoreDocs.length;
+        }
+        assertEquals(numDocs, collected);
+
+        reader.close();
+        dir.close();
+    }
+
     public void testIndexHasDuplicateData() throws IOException {
         int docsCount = 5000;
         int maxPointsInLeafNode = 40;
@@ -1038,6 +1108,34 @@ public class QueryPhaseTests extends IndexShardTestCase {
         };
     }
 
+    // used to check that the search_after range filter was added to the query
+    private static ContextIndexSearcher newSearchAfterContextSearcher(IndexReader reader) throws IOException {
+        return new ContextIndexSearcher(reader, IndexSearcher.getDefaultSimilarity(),
+            IndexSearcher.getDefaultQueryCache(), IndexSearcher.getDefaultQueryCachingPolicy(), true) {
+
+            @Override
+            public void search(List<LeafReaderContext> ctx, Weight weight, Collector collector) throws IOException {
+                // the boolean query is rewritten by Lucene, e.g. to a constant score query when it wraps a match_all query
+                final List<Query> rangeQueries = new ArrayList<>();
+                weight.getQuery().visit(new QueryVisitor() {
+                    @Override
+                    public QueryVisitor getSubVisitor(Occur occur, Query parent) {
+                        return this;
+                    }
+
+                    @Override
+                    public void visitLeaf(Query query) {
+                        if (query instanceof PointRangeQuery) {
+                            rangeQueries.add(query);
+                        }
+                    }
+                });
+                assertEquals(1, rangeQueries.size());
+                super.search(ctx, weight, collector);
+            }
+        };
+    }
+
     private static class AssertingEarlyTerminationFilterCollector extends FilterCollector {
         private final int size;
 
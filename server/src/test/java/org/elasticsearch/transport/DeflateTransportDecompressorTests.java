@@ -24,6 +24,8 @@ import org.elasticsearch.test.ESTestCase;
 import java.io.IOException;
 import java.io.OutputStream;
 
+import static org.hamcrest.Matchers.lessThan;
+
 public class DeflateTransportDecompressorTests extends ESTestCase {
 
     public void testSimpleCompression() throws IOException {
@@ -117,4 +119,32 @@ public class DeflateTransportDecompressorTests extends ESTestCase {
 
         }
     }
+
+    public void testDictionaryCompression() throws IOException {
+        final String document = "{\"@timestamp\":\"2021-06-01T00:00:00Z\",\"message\":\"" + randomAlphaOfLength(10)
+            + "\",\"host\":{\"name\":\"" + randomAlphaOfLength(5) + "\"},\"log\":{\"level\":\"info\"}}";
+        try (BytesStreamOutput plain = new BytesStreamOutput(); BytesStreamOutput withDictionary = new BytesStreamOutput()) {
+            try (StreamOutput deflateStream = new OutputStreamStreamOutput(CompressorFactory.COMPRESSOR.threadLocalOutputStream(
+                    Streams.flushOnCloseStream(plain)))) {
+                deflateStream.writeString(document);
+            }
+            try (StreamOutput deflateStream = new OutputStreamStreamOutput(Compression.Scheme.deflateDictionaryOutputStream(
+                    Streams.flushOnCloseStream(withDictionary)))) {
+                deflateStream.writeString(document);
+            }
+            assertThat(withDictionary.size(), lessThan(plain.size()));
+
+            BytesReference bytes = withDictionary.bytes();
+            assertTrue(Compression.Scheme.isDeflateDictionary(bytes));
+            assertFalse(Compression.Scheme.isDeflate(bytes));
+            try (TransportDecompressor decompressor = TransportDecompressor.getDecompressor(PageCacheRecycler.NON_RECYCLING_INSTANCE,
+                    bytes)) {
+                int bytesConsumed = decompressor.decompress(bytes);
+                assertEquals(bytes.length(), bytesConsumed);
+                try (ReleasableBytesReference reference = decompressor.pollDecompressedPage(true)) {
+                    assertEquals(document, reference.streamInput().readString());
+                }
+            }
+        }
+    }
 }
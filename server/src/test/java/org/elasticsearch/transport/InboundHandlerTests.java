@@ -39,6 +39,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
@@ -147,6 +148,9 @@ public class InboundHandlerTests extends ESTestCase {
         } else {
             transportChannel.sendResponse(new TestResponse(responseValue));
         }
+        assertEquals(Set.of(action), requestHandlers.getStats().keySet());
+        assertEquals(1, requestHandlers.getStats().get(action).getLatencyMicros().getCount());
+        assertEquals(1, requestHandlers.getStats().get(action).getRequestSizeBytes().getCount());
 
         BytesReference fullResponseBytes = channel.getMessageCaptor().get();
         BytesReference responseContent = fullResponseBytes.slice(headerSize, fullResponseBytes.length() - headerSize);
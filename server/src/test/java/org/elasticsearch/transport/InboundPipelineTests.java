@@ -9,12 +9,14 @@
 package org.elasticsearch.transport;
 
 import org.elasticsearch.Version;
+import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.breaker.NoopCircuitBreaker;
 import org.elasticsearch.common.breaker.TestCircuitBreaker;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.CompositeBytesReference;
 import org.elasticsearch.common.bytes.ReleasableBytesReference;
 import org.elasticsearch.core.Tuple;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
@@ -27,14 +29,20 @@ import org.elasticsearch.core.internal.io.Streams;
 import org.elasticsearch.test.ESTestCase;
 
 import java.io.IOException;
+import java.io.StreamCorruptedException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.LongSupplier;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.containsString;
 
 import static org.hamcrest.Matchers.instanceOf;
 
@@ -79,7 +87,8 @@ public class InboundPipelineTests extends ESTestCase {
         final TestCircuitBreaker circuitBreaker = new TestCircuitBreaker();
         circuitBreaker.startBreaking();
         final InboundAggregator aggregator = new InboundAggregator(() -> circuitBreaker, canTripBreaker);
-        final InboundPipeline pipeline = new InboundPipeline(statsTracker, millisSupplier, decoder, aggregator, messageHandler);
+        final InboundPipeline pipeline = new InboundPipeline(statsTracker, millisSupplier, decoder, aggregator, () -> circuitBreaker,
+            messageHandler);
         final FakeTcpChannel channel = new FakeTcpChannel();
 
         final int iterations = randomIntBetween(100, 500);
@@ -100,7 +109,7 @@ public class InboundPipelineTests extends ESTestCase {
                     if (randomBoolean()) {
                         scheme = null;
                     } else {
-                        scheme = randomFrom(Compression.Scheme.DEFLATE, Compression.Scheme.LZ4);
+                        scheme = randomFrom(Compression.Scheme.values());
                     }
                     boolean isCompressed = isCompressed(version, scheme);
                     final long requestId = totalMessages++;
@@ -172,6 +181,204 @@ public class InboundPipelineTests extends ESTestCase {
         }
     }
 
+    public void testInterleavedFrames() throws IOException {
+        final Map<Long, String> received = new HashMap<>();
+        final BiConsumer<TcpChannel, InboundMessage> messageHandler = (c, m) -> {
+            try {
+                final String value = m.getHeader().isRequest()
+                    ? new TestRequest(m.openOrGetStreamInput()).value
+                    : new TestResponse(m.openOrGetStreamInput()).value;
+                assertNull(received.put(m.getHeader().getRequestId(), value));
+            } catch (IOException e) {
+                throw new AssertionError(e);
+            }
+        };
+        final AccountingCircuitBreaker breaker = new AccountingCircuitBreaker();
+        final StatsTracker statsTracker = new StatsTracker();
+        final LongSupplier millisSupplier = () -> TimeValue.nsecToMSec(System.nanoTime());
+        final InboundDecoder decoder = new InboundDecoder(Version.CURRENT, PageCacheRecycler.NON_RECYCLING_INSTANCE);
+        final InboundAggregator aggregator = new InboundAggregator(() -> breaker, (Predicate<String>) action -> false);
+        final InboundPipeline pipeline = new InboundPipeline(statsTracker, millisSupplier, decoder, aggregator, () -> breaker,
+            messageHandler);
+
+        // frames smaller than the message length prefix split it over several frames
+        final int frameSize = randomFrom(randomIntBetween(1, 8), randomIntBetween(9, 2048));
+        final Map<Long, String> expected = new HashMap<>();
+        final List<Tuple<BytesReference, OutboundFrameQueue.Priority>> messages = new ArrayList<>();
+        final int numMessages = randomIntBetween(2, 20);
+        for (long requestId = 0; requestId < numMessages; requestId++) {
+            final String value = randomAlphaOfLength(randomIntBetween(1, 4096));
+            final OutboundMessage message = randomBoolean()
+                ? new OutboundMessage.Request(threadContext, new TestRequest(value), Version.CURRENT, "actionName", requestId, false,
+                    null)
+                : new OutboundMessage.Response(threadContext, new TestResponse(value), Version.CURRENT, requestId, false, null);
+            expected.put(requestId, value);
+            messages.add(new Tuple<>(message.serialize(new BytesStreamOutput()), randomFrom(OutboundFrameQueue.Priority.values())));
+        }
+
+        // the first write is held so that all the messages queue up behind it and the queue interleaves their frames
+        final List<BytesReference> writes = new ArrayList<>();
+        final List<ActionListener<Void>> held = new ArrayList<>();
+        final FakeTcpChannel channel = new FakeTcpChannel() {
+            @Override
+            public void sendMessage(BytesReference reference, ActionListener<Void> listener) {
+                writes.add(reference);
+                if (writes.size() == 1) {
+                    held.add(listener);
+                } else {
+                    listener.onResponse(null);
+                }
+            }
+        };
+        final OutboundFrameQueue queue = new OutboundFrameQueue(channel, frameSize);
+        for (Tuple<BytesReference, OutboundFrameQueue.Priority> message : messages) {
+            queue.send(message.v1(), message.v2(), ActionListener.wrap(() -> {}));
+        }
+        held.forEach(listener -> listener.onResponse(null));
+
+        final BytesReference networkBytes = CompositeBytesReference.of(writes.toArray(new BytesReference[0]));
+        int currentOffset = 0;
+        while (currentOffset != networkBytes.length()) {
+            final int bytesToRead = Math.min(randomIntBetween(1, 4096), networkBytes.length() - currentOffset);
+            try (ReleasableBytesReference reference = ReleasableBytesReference.wrap(networkBytes.slice(currentOffset, bytesToRead))) {
+                pipeline.handleBytes(channel, reference);
+            }
+            currentOffset += bytesToRead;
+        }
+        assertEquals(expected, received);
+        assertEquals(numMessages, statsTracker.getMessagesReceived());
+        if (messages.stream().anyMatch(message -> message.v1().length() > frameSize)) {
+            // the frames were accounted for while they were waiting for the rest of their message
+            assertThat(breaker.maxUsed, greaterThan(0L));
+        }
+        assertEquals(0L, breaker.getUsed());
+        pipeline.close();
+    }
+
+    public void testFramedMessageSizeIsLimited() throws IOException {
+        final AccountingCircuitBreaker breaker = new AccountingCircuitBreaker();
+        final AtomicInteger received = new AtomicInteger();
+        final InboundDecoder decoder = new InboundDecoder(Version.CURRENT, PageCacheRecycler.NON_RECYCLING_INSTANCE);
+        final InboundAggregator aggregator = new InboundAggregator(() -> breaker, (Predicate<String>) action -> true);
+        final InboundPipeline pipeline = new InboundPipeline(new StatsTracker(), () -> 0L, decoder, aggregator, () -> breaker,
+            (c, m) -> received.incrementAndGet());
+        final FakeTcpChannel channel = new FakeTcpChannel();
+        negotiateFrames(pipeline, channel);
+
+        try (BytesStreamOutput output = new BytesStreamOutput()) {
+            final BytesReference message;
+            try (BytesStreamOutput messageStart = new BytesStreamOutput()) {
+                messageStart.writeBytes(new byte[] { 'E', 'S' });
+                // a message that is larger than the transport accepts, the rest of it never arrives
+                messageStart.writeInt(Integer.MAX_VALUE);
+                messageStart.writeBytes(new byte[randomIntBetween(1, 16)]);
+                message = messageStart.copyBytes();
+            }
+            TcpHeader.writeFrameHeader(output, randomIntBetween(0, Integer.MAX_VALUE), false, message.length());
+            message.writeTo(output);
+            try (ReleasableBytesReference reference = ReleasableBytesReference.wrap(output.bytes())) {
+                final IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+                    () -> pipeline.handleBytes(channel, reference));
+                assertThat(e.getMessage(), containsString("which exceeds 30% of this node's heap size"));
+            }
+        }
+        // only the message that negotiated the frames was received
+        assertEquals(1, received.get());
+        pipeline.close();
+        assertEquals(0L, breaker.getUsed());
+    }
+
+    public void testFramesLongerThanTheirMessage() throws IOException {
+        final AccountingCircuitBreaker breaker = new AccountingCircuitBreaker();
+        final AtomicInteger received = new AtomicInteger();
+        final InboundDecoder decoder = new InboundDecoder(Version.CURRENT, PageCacheRecycler.NON_RECYCLING_INSTANCE);
+        final InboundAggregator aggregator = new InboundAggregator(() -> breaker, (Predicate<String>) action -> true);
+        final InboundPipeline pipeline = new InboundPipeline(new StatsTracker(), () -> 0L, decoder, aggregator, () -> breaker,
+            (c, m) -> received.incrementAndGet());
+        final FakeTcpChannel channel = new FakeTcpChannel();
+        negotiateFrames(pipeline, channel);
+
+        final BytesReference message = new OutboundMessage.Response(threadContext, new TestResponse(randomAlphaOfLength(100)),
+            Version.CURRENT, randomNonNegativeLong(), false, null).serialize(new BytesStreamOutput());
+        final int streamId = randomIntBetween(0, Integer.MAX_VALUE);
+        try (BytesStreamOutput output = new BytesStreamOutput()) {
+            TcpHeader.writeFrameHeader(output, streamId, false, message.length());
+            message.writeTo(output);
+            // the message is complete so there is no room for another frame
+            TcpHeader.writeFrameHeader(output, streamId, false, 1);
+            output.writeByte((byte) 0);
+            try (ReleasableBytesReference reference = ReleasableBytesReference.wrap(output.bytes())) {
+                final StreamCorruptedException e = expectThrows(StreamCorruptedException.class,
+                    () -> pipeline.handleBytes(channel, reference));
+                assertThat(e.getMessage(), containsString("frames of stream [" + streamId + "] hold"));
+            }
+        }
+        // only the message that negotiated the frames was received
+        assertEquals(1, received.get());
+        pipeline.close();
+        assertEquals(0L, breaker.getUsed());
+    }
+
+    public void testFramesAreRejectedBeforeNegotiation() throws IOException {
+        final InboundDecoder decoder = new InboundDecoder(Version.CURRENT, PageCacheRecycler.NON_RECYCLING_INSTANCE);
+        final AccountingCircuitBreaker breaker = new AccountingCircuitBreaker();
+        final InboundAggregator aggregator = new InboundAggregator(() -> breaker, (Predicate<String>) action -> true);
+        final InboundPipeline pipeline = new InboundPipeline(new StatsTracker(), () -> 0L, decoder, aggregator, () -> breaker,
+            (c, m) -> fail("no message should be received"));
+
+        final BytesReference message = new OutboundMessage.Response(threadContext, new TestResponse(randomAlphaOfLength(100)),
+            Version.CURRENT, randomNonNegativeLong(), false, null).serialize(new BytesStreamOutput());
+        try (BytesStreamOutput output = new BytesStreamOutput()) {
+            // the channel didn't carry a whole message of a version that reads frames yet
+            TcpHeader.writeFrameHeader(output, randomIntBetween(0, Integer.MAX_VALUE), true, message.length());
+            message.writeTo(output);
+            try (ReleasableBytesReference reference = ReleasableBytesReference.wrap(output.bytes())) {
+                final StreamCorruptedException e = expectThrows(StreamCorruptedException.class,
+                    () -> pipeline.handleBytes(new FakeTcpChannel(), reference));
+                assertThat(e.getMessage(), containsString("invalid data length: -2"));
+            }
+        }
+        pipeline.close();
+        assertEquals(0L, breaker.getUsed());
+    }
+
+    public void testFramesTripTheBreaker() throws IOException {
+        final TestCircuitBreaker breaker = new TestCircuitBreaker();
+        final InboundDecoder decoder = new InboundDecoder(Version.CURRENT, PageCacheRecycler.NON_RECYCLING_INSTANCE);
+        final InboundAggregator aggregator = new InboundAggregator(() -> breaker, (Predicate<String>) action -> true);
+        final AtomicInteger received = new AtomicInteger();
+        final InboundPipeline pipeline = new InboundPipeline(new StatsTracker(), () -> 0L, decoder, aggregator, () -> breaker,
+            (c, m) -> received.incrementAndGet());
+        final FakeTcpChannel channel = new FakeTcpChannel();
+        negotiateFrames(pipeline, channel);
+
+        final BytesReference message = new OutboundMessage.Response(threadContext, new TestResponse(randomAlphaOfLength(100)),
+            Version.CURRENT, randomNonNegativeLong(), false, null).serialize(new BytesStreamOutput());
+        try (BytesStreamOutput output = new BytesStreamOutput()) {
+            TcpHeader.writeFrameHeader(output, randomIntBetween(0, Integer.MAX_VALUE), false, message.length() - 1);
+            message.slice(0, message.length() - 1).writeTo(output);
+            breaker.startBreaking();
+            try (ReleasableBytesReference reference = ReleasableBytesReference.wrap(output.bytes())) {
+                expectThrows(CircuitBreakingException.class, () -> pipeline.handleBytes(channel, reference));
+            }
+        }
+        // the rest of the message can't be read without the frame that was dropped
+        assertFalse(channel.isOpen());
+        assertEquals(1, received.get());
+        pipeline.close();
+    }
+
+    /**
+     * Sends a whole message on the channel, which tells the pipeline that the remote node reads and writes frames.
+     */
+    private void negotiateFrames(InboundPipeline pipeline, TcpChannel channel) throws IOException {
+        final BytesReference message = new OutboundMessage.Response(threadContext, new TestResponse(randomAlphaOfLength(10)),
+            Version.CURRENT, randomNonNegativeLong(), false, null).serialize(new BytesStreamOutput());
+        try (ReleasableBytesReference reference = ReleasableBytesReference.wrap(message)) {
+            pipeline.handleBytes(channel, reference);
+        }
+    }
+
     private static boolean isCompressed(Version version, Compression.Scheme scheme) {
         if (version.before(Compression.Scheme.LZ4_VERSION) && scheme == Compression.Scheme.LZ4) {
             return false;
@@ -187,7 +394,7 @@ public class InboundPipelineTests extends ESTestCase {
         final InboundDecoder decoder = new InboundDecoder(Version.CURRENT, PageCacheRecycler.NON_RECYCLING_INSTANCE);
         final Supplier<CircuitBreaker> breaker = () -> new NoopCircuitBreaker("test");
         final InboundAggregator aggregator = new InboundAggregator(breaker, (Predicate<String>) action -> true);
-        final InboundPipeline pipeline = new InboundPipeline(statsTracker, millisSupplier, decoder, aggregator, messageHandler);
+        final InboundPipeline pipeline = new InboundPipeline(statsTracker, millisSupplier, decoder, aggregator, breaker, messageHandler);
 
         try (BytesStreamOutput streamOutput = new BytesStreamOutput()) {
             String actionName = "actionName";
@@ -224,7 +431,7 @@ public class InboundPipelineTests extends ESTestCase {
         final InboundDecoder decoder = new InboundDecoder(Version.CURRENT, PageCacheRecycler.NON_RECYCLING_INSTANCE);
         final Supplier<CircuitBreaker> breaker = () -> new NoopCircuitBreaker("test");
         final InboundAggregator aggregator = new InboundAggregator(breaker, (Predicate<String>) action -> true);
-        final InboundPipeline pipeline = new InboundPipeline(statsTracker, millisSupplier, decoder, aggregator, messageHandler);
+        final InboundPipeline pipeline = new InboundPipeline(statsTracker, millisSupplier, decoder, aggregator, breaker, messageHandler);
 
         try (BytesStreamOutput streamOutput = new BytesStreamOutput()) {
             String actionName = "actionName";
@@ -267,6 +474,34 @@ public class InboundPipelineTests extends ESTestCase {
         }
     }
 
+    /**
+     * Keeps track of the bytes that are added without breaking.
+     */
+    private static class AccountingCircuitBreaker extends NoopCircuitBreaker {
+        private long used;
+        private long maxUsed;
+
+        AccountingCircuitBreaker() {
+            super(CircuitBreaker.IN_FLIGHT_REQUESTS);
+        }
+
+        @Override
+        public void addEstimateBytesAndMaybeBreak(long bytes, String label) {
+            addWithoutBreaking(bytes);
+        }
+
+        @Override
+        public void addWithoutBreaking(long bytes) {
+            used += bytes;
+            maxUsed = Math.max(maxUsed, used);
+        }
+
+        @Override
+        public long getUsed() {
+            return used;
+        }
+    }
+
     private static class MessageData {
 
         private final Version version;
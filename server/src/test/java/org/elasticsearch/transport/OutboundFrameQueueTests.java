@@ -0,0 +1,137 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0 and the Server Side Public License, v 1; you may not use this file except
+ * in compliance with, at your election, the Elastic License 2.0 or the Server
+ * Side Public License, v 1.
+ */
+
+package org.elasticsearch.transport;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.core.Tuple;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class OutboundFrameQueueTests extends ESTestCase {
+
+    private static final int FRAME_SIZE = 10;
+
+    private final List<Tuple<BytesReference, ActionListener<Void>>> writes = new ArrayList<>();
+    private final FakeTcpChannel channel = new FakeTcpChannel() {
+        @Override
+        public void sendMessage(BytesReference reference, ActionListener<Void> listener) {
+            writes.add(new Tuple<>(reference, listener));
+        }
+    };
+    private final OutboundFrameQueue queue = new OutboundFrameQueue(channel, FRAME_SIZE);
+
+    public void testSmallMessagesAreWrittenAsTheyAre() {
+        BytesReference message = bytes(FRAME_SIZE, 'a');
+        AtomicBoolean sent = new AtomicBoolean();
+        queue.send(message, randomFrom(OutboundFrameQueue.Priority.values()), ActionListener.wrap(() -> sent.set(true)));
+        assertEquals(1, writes.size());
+        assertSame(message, writes.get(0).v1());
+        writes.get(0).v2().onResponse(null);
+        assertTrue(sent.get());
+    }
+
+    public void testFirstMessageIsNotFramed() throws IOException {
+        BytesReference message = bytes(25, 'f');
+        queue.send(message, randomFrom(OutboundFrameQueue.Priority.values()), ActionListener.wrap(() -> {}));
+        assertEquals(1, writes.size());
+        assertSame(message, writes.get(0).v1());
+        writes.get(0).v2().onResponse(null);
+
+        // the receiving node accepts frames once it received a whole message
+        queue.send(bytes(25, 'l'), randomFrom(OutboundFrameQueue.Priority.values()), ActionListener.wrap(() -> {}));
+        assertEquals(2, writes.size());
+        assertFrame(writes.get(1).v1(), 0, false, bytes(10, 'l'));
+    }
+
+    public void testFramesAreInterleavedWithOtherMessages() throws IOException {
+        negotiateFrames();
+        AtomicBoolean largeSent = new AtomicBoolean();
+        queue.send(bytes(25, 'l'), OutboundFrameQueue.Priority.LOW, ActionListener.wrap(() -> largeSent.set(true)));
+        assertEquals(1, writes.size());
+        assertFrame(writes.get(0).v1(), 0, false, bytes(10, 'l'));
+
+        // these wait for the frame that is being written
+        queue.send(bytes(5, 'b'), OutboundFrameQueue.Priority.LOW, ActionListener.wrap(() -> {}));
+        queue.send(bytes(5, 'p'), OutboundFrameQueue.Priority.HIGH, ActionListener.wrap(() -> {}));
+        assertEquals(1, writes.size());
+
+        writes.get(0).v2().onResponse(null);
+        assertEquals(4, writes.size());
+        assertEquals(bytes(5, 'p'), writes.get(1).v1());
+        assertEquals(bytes(5, 'b'), writes.get(2).v1());
+        assertFrame(writes.get(3).v1(), 0, false, bytes(10, 'l'));
+
+        writes.get(3).v2().onResponse(null);
+        assertEquals(5, writes.size());
+        assertFrame(writes.get(4).v1(), 0, true, bytes(5, 'l'));
+        assertFalse(largeSent.get());
+        writes.get(4).v2().onResponse(null);
+        assertTrue(largeSent.get());
+    }
+
+    public void testFailedFrameFailsMessage() {
+        negotiateFrames();
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        queue.send(bytes(25, 'l'), OutboundFrameQueue.Priority.NORMAL, ActionListener.wrap(r -> fail("should have failed"), failure::set));
+        queue.send(bytes(5, 's'), OutboundFrameQueue.Priority.NORMAL, ActionListener.wrap(() -> {}));
+        IOException e = new IOException("failed");
+        writes.get(0).v2().onFailure(e);
+        assertSame(e, failure.get());
+        // the remaining frames are dropped and the channel is closed, the other messages go to the closed channel
+        assertFalse(channel.isOpen());
+        assertEquals(2, writes.size());
+        assertEquals(bytes(5, 's'), writes.get(1).v1());
+    }
+
+    public void testStreamIds() throws IOException {
+        negotiateFrames();
+        queue.send(bytes(15, 'a'), OutboundFrameQueue.Priority.NORMAL, ActionListener.wrap(() -> {}));
+        queue.send(bytes(15, 'b'), OutboundFrameQueue.Priority.NORMAL, ActionListener.wrap(() -> {}));
+        for (int i = 0; i < writes.size(); i++) {
+            writes.get(i).v2().onResponse(null);
+        }
+        assertEquals(4, writes.size());
+        assertFrame(writes.get(0).v1(), 0, false, bytes(10, 'a'));
+        assertFrame(writes.get(1).v1(), 1, false, bytes(10, 'b'));
+        assertFrame(writes.get(2).v1(), 0, true, bytes(5, 'a'));
+        assertFrame(writes.get(3).v1(), 1, true, bytes(5, 'b'));
+    }
+
+    /**
+     * Writes a first message so that the following messages are framed.
+     */
+    private void negotiateFrames() {
+        queue.send(bytes(randomIntBetween(1, FRAME_SIZE), 'n'), OutboundFrameQueue.Priority.NORMAL, ActionListener.wrap(() -> {}));
+        assertEquals(1, writes.size());
+        writes.remove(0).v2().onResponse(null);
+    }
+
+    private static BytesReference bytes(int length, char c) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) c;
+        }
+        return new BytesArray(bytes);
+    }
+
+    private static void assertFrame(BytesReference frame, int streamId, boolean last, BytesReference content) throws IOException {
+        assertEquals(TcpHeader.FRAME_MARKER, TcpTransport.readMessageLength(frame, true));
+        assertEquals(streamId, frame.getInt(TcpHeader.BYTES_REQUIRED_FOR_MESSAGE_SIZE));
+        assertEquals(last ? TcpHeader.FRAME_LAST : 0, frame.get(TcpHeader.BYTES_REQUIRED_FOR_MESSAGE_SIZE + TcpHeader.STREAM_ID_SIZE));
+        assertEquals(content.length(), frame.getInt(TcpHeader.FRAME_HEADER_SIZE - TcpHeader.MESSAGE_LENGTH_SIZE));
+        assertEquals(content, frame.slice(TcpHeader.FRAME_HEADER_SIZE, frame.length() - TcpHeader.FRAME_HEADER_SIZE));
+    }
+}
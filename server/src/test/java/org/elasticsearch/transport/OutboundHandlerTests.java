@@ -25,6 +25,7 @@ import org.elasticsearch.core.Tuple;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.transport.TransportAddress;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.PageCacheRecycler;
@@ -47,6 +48,8 @@ import java.util.function.LongSupplier;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.instanceOf;
 
 public class OutboundHandlerTests extends ESTestCase {
@@ -59,6 +62,7 @@ public class OutboundHandlerTests extends ESTestCase {
     private FakeTcpChannel channel;
     private DiscoveryNode node;
     private Compression.Scheme compressionScheme;
+    private StatsTracker statsTracker;
 
     @Before
     public void setUp() throws Exception {
@@ -66,8 +70,8 @@ public class OutboundHandlerTests extends ESTestCase {
         channel = new FakeTcpChannel(randomBoolean(), buildNewFakeTransportAddress().address(), buildNewFakeTransportAddress().address());
         TransportAddress transportAddress = buildNewFakeTransportAddress();
         node = new DiscoveryNode("", transportAddress, Version.CURRENT);
-        StatsTracker statsTracker = new StatsTracker();
-        compressionScheme = randomFrom(Compression.Scheme.DEFLATE, Compression.Scheme.LZ4);
+        statsTracker = new StatsTracker();
+        compressionScheme = randomFrom(Compression.Scheme.values());
         handler = new OutboundHandler("node", Version.CURRENT, statsTracker, threadPool, BigArrays.NON_RECYCLING_INSTANCE,
             compressionScheme);
 
@@ -75,7 +79,7 @@ public class OutboundHandlerTests extends ESTestCase {
         final InboundDecoder decoder = new InboundDecoder(Version.CURRENT, PageCacheRecycler.NON_RECYCLING_INSTANCE);
         final Supplier<CircuitBreaker> breaker = () -> new NoopCircuitBreaker("test");
         final InboundAggregator aggregator = new InboundAggregator(breaker, (Predicate<String>) action -> true);
-        pipeline = new InboundPipeline(statsTracker, millisSupplier, decoder, aggregator,
+        pipeline = new InboundPipeline(statsTracker, millisSupplier, decoder, aggregator, breaker,
             (c, m) -> {
                 try (BytesStreamOutput streamOutput = new BytesStreamOutput()) {
                     Streams.copy(m.openOrGetStreamInput(), streamOutput);
@@ -171,10 +175,20 @@ public class OutboundHandlerTests extends ESTestCase {
         } else {
             assertFalse(header.isHandshake());
         }
+        if (isHandshake || version.before(TcpHeader.VERSION_WITH_FRAMES)) {
+            assertEquals(OutboundFrameQueue.Priority.NORMAL, header.getPriority());
+        } else {
+            assertEquals(OutboundFrameQueue.Priority.of(options.type()), header.getPriority());
+        }
         if (compress && compressUnsupportedDueToVersion == false) {
             assertTrue(header.isCompressed());
+            final TransportStats.CompressionStats compressionStats = statsTracker.getCompressionStats().get(action);
+            assertEquals(1, compressionStats.getMessages());
+            assertThat(compressionStats.getUncompressedSize().getBytes(), greaterThan(0L));
+            assertThat(compressionStats.getCompressedSize().getBytes(), greaterThan(0L));
         } else {
             assertFalse(header.isCompressed());
+            assertThat(statsTracker.getCompressionStats().keySet(), empty());
         }
 
         assertEquals(value, message.value);
@@ -206,7 +220,8 @@ public class OutboundHandlerTests extends ESTestCase {
                 responseRef.set(response);
             }
         });
-        handler.sendResponse(version, channel, requestId, action, response, compress, isHandshake);
+        OutboundFrameQueue.Priority priority = randomFrom(OutboundFrameQueue.Priority.values());
+        handler.sendResponse(version, channel, requestId, action, response, compress, isHandshake, priority);
 
         BytesReference reference = channel.getMessageCaptor().get();
         ActionListener<Void> sendListener = channel.getListenerCaptor().get();
@@ -233,6 +248,11 @@ public class OutboundHandlerTests extends ESTestCase {
         } else {
             assertFalse(header.isHandshake());
         }
+        if (isHandshake || version.before(TcpHeader.VERSION_WITH_FRAMES)) {
+            assertEquals(OutboundFrameQueue.Priority.NORMAL, header.getPriority());
+        } else {
+            assertEquals(priority, header.getPriority());
+        }
         if (compress && compressUnsupportedDueToVersion == false) {
             assertTrue(header.isCompressed());
         } else {
@@ -245,6 +265,50 @@ public class OutboundHandlerTests extends ESTestCase {
         assertEquals("header_value", header.getHeaders().v1().get("header"));
     }
 
+    public void testSendFramedResponse() throws IOException {
+        handler.setFrameSize(ByteSizeValue.ofBytes(randomIntBetween(1, 64)));
+        long requestId = randomLongBetween(0, 300);
+        boolean compress = randomBoolean();
+        String value = randomAlphaOfLength(randomIntBetween(200, 1000));
+        AtomicBoolean sent = new AtomicBoolean();
+        handler.setMessageListener(new TransportMessageListener() {
+            @Override
+            public void onResponseSent(long requestId, String action, TransportResponse response) {
+                sent.set(true);
+            }
+        });
+        // the first message on the channel is written whole, it tells the remote node that frames can follow
+        handler.sendResponse(Version.CURRENT, channel, requestId + 1, "action", new TestResponse(value), compress, false,
+            OutboundFrameQueue.Priority.NORMAL);
+        assertNotNull(channel.getListenerCaptor().getAndSet(null));
+        pipeline.handleBytes(channel, new ReleasableBytesReference(channel.getMessageCaptor().get(), () -> {
+        }));
+        assertEquals(requestId + 1, message.getAndSet(null).v1().getRequestId());
+        sent.set(false);
+
+        handler.sendResponse(Version.CURRENT, channel, requestId, "action", new TestResponse(value), compress, false,
+            OutboundFrameQueue.Priority.NORMAL);
+
+        int frames = 0;
+        ActionListener<Void> sendListener;
+        while ((sendListener = channel.getListenerCaptor().getAndSet(null)) != null) {
+            assertFalse(sent.get());
+            assertNull(message.get());
+            frames++;
+            pipeline.handleBytes(channel, new ReleasableBytesReference(channel.getMessageCaptor().get(), () -> {
+            }));
+            sendListener.onResponse(null);
+        }
+        assertTrue(sent.get());
+        assertThat(frames, greaterThan(1));
+
+        final Tuple<Header, BytesReference> tuple = message.get();
+        final Header header = tuple.v1();
+        assertEquals(requestId, header.getRequestId());
+        assertTrue(header.isResponse());
+        assertEquals(value, new TestResponse(tuple.v2().streamInput()).value);
+    }
+
     public void testErrorResponse() throws IOException {
         ThreadContext threadContext = threadPool.getThreadContext();
         Version version = randomFrom(Version.CURRENT, Version.CURRENT.minimumCompatibilityVersion());
@@ -240,13 +240,29 @@ public class TcpTransportTests extends ESTestCase {
         streamOutput.write('M');
         streamOutput.write('A');
 
+        // -2 marks a frame, which is only valid once the remote node may send frames on the channel
         try {
-            TcpTransport.readMessageLength(streamOutput.bytes());
+            if (randomBoolean()) {
+                TcpTransport.readMessageLength(streamOutput.bytes());
+            } else {
+                TcpTransport.readMessageLength(streamOutput.bytes(), false);
+            }
             fail("Expected exception");
         } catch (Exception ex) {
             assertThat(ex, instanceOf(StreamCorruptedException.class));
             assertEquals("invalid data length: -2", ex.getMessage());
         }
+        assertEquals(TcpHeader.FRAME_MARKER, TcpTransport.readMessageLength(streamOutput.bytes(), true));
+
+        BytesStreamOutput otherLength = new BytesStreamOutput(1 << 14);
+        otherLength.write('E');
+        otherLength.write('S');
+        otherLength.writeInt(-3);
+        otherLength.write('M');
+        otherLength.write('A');
+        StreamCorruptedException ex = expectThrows(StreamCorruptedException.class,
+            () -> TcpTransport.readMessageLength(otherLength.bytes(), randomBoolean()));
+        assertEquals("invalid data length: -3", ex.getMessage());
     }
 
     public void testInvalidHeader() throws IOException {
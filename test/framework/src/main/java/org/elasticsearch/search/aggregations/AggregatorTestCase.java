@@ -293,8 +293,13 @@ public abstract class AggregatorTestCase extends ESTestCase {
             randomInt(),
             () -> 0L,
             () -> false,
+            null,
             q -> q,
-            true
+            true,
+            null,
+            emptyMap(),
+            null,
+            0
         );
         releasables.add(context);
         return context;
@@ -21,6 +21,6 @@ public class TestTransportChannels {
         return new TcpTransportChannel(
             new OutboundHandler(nodeName, version, new StatsTracker(), threadPool, BigArrays.NON_RECYCLING_INSTANCE,
                 randomFrom(Compression.Scheme.DEFLATE, Compression.Scheme.LZ4)),
-            channel, action, requestId, version, false, false, () -> {});
+            channel, action, requestId, version, false, false, OutboundFrameQueue.Priority.NORMAL, () -> {});
     }
 }
@@ -21,6 +21,8 @@ import org.elasticsearch.search.aggregations.support.ValuesSourceRegistry;
 import org.elasticsearch.xpack.analytics.aggregations.bucket.histogram.HistoBackedHistogramAggregator;
 import org.elasticsearch.xpack.analytics.aggregations.bucket.range.HistoBackedRangeAggregator;
 import org.elasticsearch.xpack.analytics.aggregations.metrics.HistoBackedAvgAggregator;
+import org.elasticsearch.xpack.analytics.aggregations.metrics.HistoBackedDDSketchPercentileRanksAggregator;
+import org.elasticsearch.xpack.analytics.aggregations.metrics.HistoBackedDDSketchPercentilesAggregator;
 import org.elasticsearch.xpack.analytics.aggregations.metrics.HistoBackedHDRPercentileRanksAggregator;
 import org.elasticsearch.xpack.analytics.aggregations.metrics.HistoBackedHDRPercentilesAggregator;
 import org.elasticsearch.xpack.analytics.aggregations.metrics.HistoBackedMaxAggregator;
@@ -46,6 +48,11 @@ public class AnalyticsAggregatorFactory {
                     int numSigFig = ((PercentilesConfig.Hdr)percentilesConfig).getNumberOfSignificantValueDigits();
                     return new HistoBackedHDRPercentilesAggregator(name, valuesSource, context, parent,
                         percents, numSigFig, keyed, formatter, metadata);
+
+                } else if (percentilesConfig.getMethod().equals(PercentilesMethod.DDSKETCH)) {
+                    double relativeAccuracy = ((PercentilesConfig.DDSketch)percentilesConfig).getRelativeAccuracy();
+                    return new HistoBackedDDSketchPercentilesAggregator(name, valuesSource, context, parent,
+                        percents, relativeAccuracy, keyed, formatter, metadata);
                 }
 
                 throw new IllegalArgumentException("Percentiles algorithm: [" + percentilesConfig.getMethod().toString() + "] " +
@@ -66,6 +73,11 @@ public class AnalyticsAggregatorFactory {
                     int numSigFig = ((PercentilesConfig.Hdr)percentilesConfig).getNumberOfSignificantValueDigits();
                     return new HistoBackedHDRPercentileRanksAggregator(name, valuesSource, context, parent,
                         percents, numSigFig, keyed, formatter, metadata);
+
+                } else if (percentilesConfig.getMethod().equals(PercentilesMethod.DDSKETCH)) {
+                    double relativeAccuracy = ((PercentilesConfig.DDSketch)percentilesConfig).getRelativeAccuracy();
+                    return new HistoBackedDDSketchPercentileRanksAggregator(name, valuesSource, context, parent,
+                        percents, relativeAccuracy, keyed, formatter, metadata);
                 }
 
                 throw new IllegalArgumentException("Percentiles algorithm: [" + percentilesConfig.getMethod().toString() + "] " +
@@ -9,7 +9,9 @@ package org.elasticsearch.xpack.analytics.multiterms;
 
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
 import org.apache.lucene.util.PriorityQueue;
@@ -19,6 +21,9 @@ import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.util.LongLongHash;
+import org.elasticsearch.core.Releasable;
+import org.elasticsearch.core.Releasables;
 import org.elasticsearch.index.fielddata.SortedBinaryDocValues;
 import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
 import org.elasticsearch.search.DocValueFormat;
@@ -33,6 +38,7 @@ import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
 import org.elasticsearch.search.aggregations.bucket.DeferableBucketAggregator;
 import org.elasticsearch.search.aggregations.bucket.terms.BucketPriorityQueue;
 import org.elasticsearch.search.aggregations.bucket.terms.BytesKeyedBucketOrds;
+import org.elasticsearch.search.aggregations.bucket.terms.LongKeyedBucketOrds;
 import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregator;
 import org.elasticsearch.search.aggregations.support.AggregationContext;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
@@ -45,6 +51,7 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
 import static java.util.Collections.emptyList;
@@ -71,7 +78,7 @@ class MultiTermsAggregator extends DeferableBucketAggregator {
     private final boolean needsScore;
     private final List<InternalMultiTerms.KeyConverter> keyConverters;
 
-    private final BytesKeyedBucketOrds bucketOrds;
+    private final CollectionStrategy collectionStrategy;
 
     protected MultiTermsAggregator(
         String name,
@@ -109,8 +116,8 @@ class MultiTermsAggregator extends DeferableBucketAggregator {
             .map(c -> context.getValuesSourceRegistry().getAggregator(REGISTRY_KEY, c).build(c))
             .collect(Collectors.toList());
         keyConverters = values.stream().map(TermValuesSource::keyConverter).collect(Collectors.toList());
-        bucketOrds = BytesKeyedBucketOrds.build(context.bigArrays(), cardinality);
-
+        CollectionStrategy packed = PackedCollectionStrategy.build(this, context, cardinality);
+        collectionStrategy = packed != null ? packed : new BytesCollectionStrategy(context, cardinality);
     }
 
     private boolean subAggsNeedScore() {
@@ -156,9 +163,8 @@ class MultiTermsAggregator extends DeferableBucketAggregator {
     }
 
     /**
-     * Packs a list of terms into ByteRef so we can use BytesKeyedBucketOrds
-     *
-     * TODO: this is a temporary solution, we should replace it with a more optimal mechanism instead of relying on BytesKeyedBucketOrds
+     * Packs a list of terms into ByteRef so we can use BytesKeyedBucketOrds. Only used
+     * when the terms can't be {@link PackedCollectionStrategy packed} into {@code long}s.
      */
     static BytesRef packKey(List<Object> terms) {
         try (BytesStreamOutput output = new BytesStreamOutput()) {
@@ -171,8 +177,6 @@ class MultiTermsAggregator extends DeferableBucketAggregator {
 
     /**
      * Unpacks ByteRef back into a list of terms
-     *
-     * TODO: this is a temporary solution, we should replace it with a more optimal mechanism instead of relying on BytesKeyedBucketOrds
      */
     static List<Object> unpackTerms(BytesRef termsBytes) {
         try (StreamInput input = new BytesArray(termsBytes).streamInput()) {
@@ -184,40 +188,19 @@ class MultiTermsAggregator extends DeferableBucketAggregator {
 
     @Override
     public LeafBucketCollector getLeafCollector(LeafReaderContext ctx, LeafBucketCollector sub) throws IOException {
-        List<TermValues> termValuesList = termValuesList(ctx);
-
-        return new LeafBucketCollectorBase(sub, values) {
-            @Override
-            public void collect(int doc, long owningBucketOrd) throws IOException {
-                List<List<Object>> terms = docTerms(termValuesList, doc);
-                if (terms != null) {
-                    List<Object> path = new ArrayList<>(terms.size());
-                    new CheckedConsumer<Integer, IOException>() {
-                        @Override
-                        public void accept(Integer start) throws IOException {
-                            for (Object term : terms.get(start)) {
-                                if (start == path.size()) {
-                                    path.add(term);
-                                } else {
-                                    path.set(start, term);
-                                }
-                                if (start < terms.size() - 1) {
-                                    this.accept(start + 1);
-                                } else {
-                                    long bucketOrd = bucketOrds.add(owningBucketOrd, packKey(path));
-                                    if (bucketOrd < 0) { // already seen
-                                        bucketOrd = -1 - bucketOrd;
-                                        collectExistingBucket(sub, doc, bucketOrd);
-                                    } else {
-                                        collectBucket(sub, doc, bucketOrd);
-                                    }
-                                }
-                            }
-                        }
-                    }.accept(0);
-                }
-            }
-        };
+        return collectionStrategy.getLeafCollector(ctx, sub);
+    }
+
+    /**
+     * Collects a bucket for a document given the result of adding its key to the bucket ords.
+     */
+    private void collectBucketOrd(LeafBucketCollector sub, int doc, long bucketOrd) throws IOException {
+        if (bucketOrd < 0) { // already seen
+            bucketOrd = -1 - bucketOrd;
+            collectExistingBucket(sub, doc, bucketOrd);
+        } else {
+            collectBucket(sub, doc, bucketOrd);
+        }
     }
 
     @Override
@@ -225,13 +208,12 @@ class MultiTermsAggregator extends DeferableBucketAggregator {
         InternalMultiTerms.Bucket[][] topBucketsPerOrd = new InternalMultiTerms.Bucket[owningBucketOrds.length][];
         long[] otherDocCounts = new long[owningBucketOrds.length];
         for (int ordIdx = 0; ordIdx < owningBucketOrds.length; ordIdx++) {
-            long bucketsInOrd = bucketOrds.bucketsInOrd(owningBucketOrds[ordIdx]);
+            long bucketsInOrd = collectionStrategy.bucketsInOrd(owningBucketOrds[ordIdx]);
 
             int size = (int) Math.min(bucketsInOrd, bucketCountThresholds.getShardSize());
             PriorityQueue<InternalMultiTerms.Bucket> ordered = new BucketPriorityQueue<>(size, partiallyBuiltBucketComparator);
             InternalMultiTerms.Bucket spare = null;
-            BytesRef spareKey = null;
-            BytesKeyedBucketOrds.BucketOrdsEnum ordsEnum = bucketOrds.ordsEnum(owningBucketOrds[ordIdx]);
+            BucketOrdsEnum ordsEnum = collectionStrategy.ordsEnum(owningBucketOrds[ordIdx]);
             while (ordsEnum.next()) {
                 long docCount = bucketDocCount(ordsEnum.ord());
                 otherDocCounts[ordIdx] += docCount;
@@ -240,10 +222,8 @@ class MultiTermsAggregator extends DeferableBucketAggregator {
                 }
                 if (spare == null) {
                     spare = new InternalMultiTerms.Bucket(null, 0, null, showTermDocCountError, 0, formats, keyConverters);
-                    spareKey = new BytesRef();
                 }
-                ordsEnum.readValue(spareKey);
-                spare.terms = unpackTerms(spareKey);
+                spare.terms = ordsEnum.terms();
                 spare.docCount = docCount;
                 spare.bucketOrd = ordsEnum.ord();
                 spare = ordered.insertWithOverflow(spare);
@@ -292,6 +272,17 @@ class MultiTermsAggregator extends DeferableBucketAggregator {
         );
     }
 
+    @Override
+    public void collectDebugInfo(BiConsumer<String, Object> add) {
+        super.collectDebugInfo(add);
+        add.accept("collection_strategy", collectionStrategy.describe());
+    }
+
+    @Override
+    protected void doClose() {
+        Releasables.close(collectionStrategy);
+    }
+
     @Override
     public InternalAggregation buildEmptyAggregation() {
         return new InternalMultiTerms(
@@ -311,6 +302,331 @@ class MultiTermsAggregator extends DeferableBucketAggregator {
         );
     }
 
+    /**
+     * Maps the term tuples of the documents to bucket ordinals.
+     */
+    private abstract static class CollectionStrategy implements Releasable {
+        abstract LeafBucketCollector getLeafCollector(LeafReaderContext ctx, LeafBucketCollector sub) throws IOException;
+
+        abstract long bucketsInOrd(long owningBucketOrd);
+
+        abstract BucketOrdsEnum ordsEnum(long owningBucketOrd);
+
+        abstract String describe();
+    }
+
+    /**
+     * Iterates the buckets collected into an owning bucket.
+     */
+    private interface BucketOrdsEnum {
+        boolean next();
+
+        long ord();
+
+        /**
+         * The terms of the current bucket.
+         */
+        List<Object> terms() throws IOException;
+    }
+
+    /**
+     * Encodes every tuple of terms into a {@link BytesRef}. This works for any
+     * mix of terms but allocates a few objects for every tuple.
+     */
+    private class BytesCollectionStrategy extends CollectionStrategy {
+        private final BytesKeyedBucketOrds bucketOrds;
+
+        BytesCollectionStrategy(AggregationContext context, CardinalityUpperBound cardinality) {
+            bucketOrds = BytesKeyedBucketOrds.build(context.bigArrays(), cardinality);
+        }
+
+        @Override
+        LeafBucketCollector getLeafCollector(LeafReaderContext ctx, LeafBucketCollector sub) throws IOException {
+            List<TermValues> termValuesList = termValuesList(ctx);
+
+            return new LeafBucketCollectorBase(sub, values) {
+                @Override
+                public void collect(int doc, long owningBucketOrd) throws IOException {
+                    List<List<Object>> terms = docTerms(termValuesList, doc);
+                    if (terms != null) {
+                        List<Object> path = new ArrayList<>(terms.size());
+                        new CheckedConsumer<Integer, IOException>() {
+                            @Override
+                            public void accept(Integer start) throws IOException {
+                                for (Object term : terms.get(start)) {
+                                    if (start == path.size()) {
+                                        path.add(term);
+                                    } else {
+                                        path.set(start, term);
+                                    }
+                                    if (start < terms.size() - 1) {
+                                        this.accept(start + 1);
+                                    } else {
+                                        collectBucketOrd(sub, doc, bucketOrds.add(owningBucketOrd, packKey(path)));
+                                    }
+                                }
+                            }
+                        }.accept(0);
+                    }
+                }
+            };
+        }
+
+        @Override
+        long bucketsInOrd(long owningBucketOrd) {
+            return bucketOrds.bucketsInOrd(owningBucketOrd);
+        }
+
+        @Override
+        BucketOrdsEnum ordsEnum(long owningBucketOrd) {
+            BytesKeyedBucketOrds.BucketOrdsEnum ordsEnum = bucketOrds.ordsEnum(owningBucketOrd);
+            BytesRef spareKey = new BytesRef();
+            return new BucketOrdsEnum() {
+                @Override
+                public boolean next() {
+                    return ordsEnum.next();
+                }
+
+                @Override
+                public long ord() {
+                    return ordsEnum.ord();
+                }
+
+                @Override
+                public List<Object> terms() {
+                    ordsEnum.readValue(spareKey);
+                    return unpackTerms(spareKey);
+                }
+            };
+        }
+
+        @Override
+        String describe() {
+            return "bytes";
+        }
+
+        @Override
+        public void close() {
+            bucketOrds.close();
+        }
+    }
+
+    /**
+     * Packs every tuple of terms into one or two {@code long}s. This works when
+     * all of the terms are numbers or have global ordinals and they fit into
+     * 128 bits. Numbers take 64 bits and global ordinals take as many bits as
+     * the largest ordinal. Tuples that fit into 64 bits go straight into
+     * {@link LongKeyedBucketOrds}. Wider tuples get an id from a
+     * {@link LongLongHash} first.
+     */
+    private static class PackedCollectionStrategy extends CollectionStrategy {
+        /**
+         * Build the strategy if all terms can be packed or return {@code null} if they can't.
+         */
+        static PackedCollectionStrategy build(
+            MultiTermsAggregator aggregator,
+            AggregationContext context,
+            CardinalityUpperBound cardinality
+        ) throws IOException {
+            LongEncodedTerms[] terms = new LongEncodedTerms[aggregator.values.size()];
+            int[] words = new int[terms.length];
+            int[] shifts = new int[terms.length];
+            int word = 0;
+            int used = 0;
+            for (int i = 0; i < terms.length; i++) {
+                terms[i] = aggregator.values.get(i).longEncoded(context);
+                if (terms[i] == null) {
+                    return null;
+                }
+                if (used + terms[i].bits > Long.SIZE) {
+                    word++;
+                    used = 0;
+                }
+                if (word > 1) {
+                    return null;
+                }
+                words[i] = word;
+                shifts[i] = used;
+                used += terms[i].bits;
+            }
+            return new PackedCollectionStrategy(aggregator, context, cardinality, terms, words, shifts, word == 1);
+        }
+
+        private final MultiTermsAggregator aggregator;
+        private final LongEncodedTerms[] terms;
+        /**
+         * The word that each term is packed into.
+         */
+        private final int[] words;
+        /**
+         * The position of each term in its word.
+         */
+        private final int[] shifts;
+        /**
+         * Maps tuples that need two words to an id or {@code null} if all tuples fit in one word.
+         */
+        private final LongLongHash tupleIds;
+        private final LongKeyedBucketOrds bucketOrds;
+
+        private PackedCollectionStrategy(
+            MultiTermsAggregator aggregator,
+            AggregationContext context,
+            CardinalityUpperBound cardinality,
+            LongEncodedTerms[] terms,
+            int[] words,
+            int[] shifts,
+            boolean twoWords
+        ) {
+            this.aggregator = aggregator;
+            this.terms = terms;
+            this.words = words;
+            this.shifts = shifts;
+            boolean success = false;
+            try {
+                tupleIds = twoWords ? new LongLongHash(1, context.bigArrays()) : null;
+                bucketOrds = LongKeyedBucketOrds.build(context.bigArrays(), cardinality);
+                success = true;
+            } finally {
+                if (success == false) {
+                    close();
+                }
+            }
+        }
+
+        @Override
+        LeafBucketCollector getLeafCollector(LeafReaderContext ctx, LeafBucketCollector sub) throws IOException {
+            EncodedTermValues[] leafValues = new EncodedTermValues[terms.length];
+            for (int i = 0; i < terms.length; i++) {
+                leafValues[i] = terms[i].getValues(ctx);
+            }
+            return new LeafBucketCollectorBase(sub, aggregator.values) {
+                @Override
+                public void collect(int doc, long owningBucketOrd) throws IOException {
+                    for (EncodedTermValues termValues : leafValues) {
+                        if (termValues.advanceExact(doc) == false) {
+                            return;
+                        }
+                    }
+                    collect(doc, owningBucketOrd, 0, 0, 0);
+                }
+
+                private void collect(int doc, long owningBucketOrd, int term, long word0, long word1) throws IOException {
+                    EncodedTermValues termValues = leafValues[term];
+                    for (int v = 0; v < termValues.count; v++) {
+                        long shifted = termValues.values[v] << shifts[term];
+                        long w0 = words[term] == 0 ? word0 | shifted : word0;
+                        long w1 = words[term] == 0 ? word1 : word1 | shifted;
+                        if (term < leafValues.length - 1) {
+                            collect(doc, owningBucketOrd, term + 1, w0, w1);
+                        } else {
+                            aggregator.collectBucketOrd(sub, doc, add(owningBucketOrd, w0, w1));
+                        }
+                    }
+                }
+            };
+        }
+
+        private long add(long owningBucketOrd, long word0, long word1) {
+            if (tupleIds == null) {
+                return bucketOrds.add(owningBucketOrd, word0);
+            }
+            long id = tupleIds.add(word0, word1);
+            if (id < 0) {
+                id = -1 - id;
+            }
+            return bucketOrds.add(owningBucketOrd, id);
+        }
+
+        @Override
+        long bucketsInOrd(long owningBucketOrd) {
+            return bucketOrds.bucketsInOrd(owningBucketOrd);
+        }
+
+        @Override
+        BucketOrdsEnum ordsEnum(long owningBucketOrd) {
+            LongKeyedBucketOrds.BucketOrdsEnum ordsEnum = bucketOrds.ordsEnum(owningBucketOrd);
+            return new BucketOrdsEnum() {
+                @Override
+                public boolean next() {
+                    return ordsEnum.next();
+                }
+
+                @Override
+                public long ord() {
+                    return ordsEnum.ord();
+                }
+
+                @Override
+                public List<Object> terms() throws IOException {
+                    long word0 = ordsEnum.value();
+                    long word1 = 0;
+                    if (tupleIds != null) {
+                        word1 = tupleIds.getKey2(word0);
+                        word0 = tupleIds.getKey1(word0);
+                    }
+                    List<Object> result = new ArrayList<>(terms.length);
+                    for (int i = 0; i < terms.length; i++) {
+                        long word = words[i] == 0 ? word0 : word1;
+                        long mask = terms[i].bits == Long.SIZE ? -1L : (1L << terms[i].bits) - 1;
+                        result.add(terms[i].decode((word >>> shifts[i]) & mask));
+                    }
+                    return result;
+                }
+            };
+        }
+
+        @Override
+        String describe() {
+            return tupleIds == null ? "packed_long" : "packed_long_long";
+        }
+
+        @Override
+        public void close() {
+            Releasables.close(tupleIds, bucketOrds);
+        }
+    }
+
+    /**
+     * Terms that can be encoded into the low {@link #bits} of a {@code long}.
+     */
+    abstract static class LongEncodedTerms {
+        final int bits;
+
+        LongEncodedTerms(int bits) {
+            this.bits = bits;
+        }
+
+        /**
+         * Used in getLeafCollector to obtain the encoded terms for the given leaf.
+         */
+        abstract EncodedTermValues getValues(LeafReaderContext ctx) throws IOException;
+
+        /**
+         * Converts an encoded term into the term that {@link TermValues#collectValues} returns.
+         */
+        abstract Object decode(long encoded) throws IOException;
+    }
+
+    /**
+     * The distinct encoded terms of the current document.
+     */
+    abstract static class EncodedTermValues {
+        long[] values = new long[1];
+        int count;
+
+        /**
+         * Reads the terms of a document.
+         *
+         * @return {@code false} if the document doesn't have any terms
+         */
+        abstract boolean advanceExact(int doc) throws IOException;
+
+        final void add(long value) {
+            values = ArrayUtil.grow(values, count + 1);
+            values[count++] = value;
+        }
+    }
+
     static TermValuesSource buildNumericTermValues(ValuesSourceConfig config) {
         final ValuesSource.Numeric vs = (ValuesSource.Numeric) config.getValuesSource();
         if (vs.isFloatingPoint()) {
@@ -333,6 +649,13 @@ class MultiTermsAggregator extends DeferableBucketAggregator {
          * Returns a key converter that knows how to convert key values into user-friendly representation and format them as a string
          */
         InternalMultiTerms.KeyConverter keyConverter();
+
+        /**
+         * Returns the terms encoded as {@code long}s or {@code null} if they can't be encoded that way
+         */
+        default LongEncodedTerms longEncoded(AggregationContext context) throws IOException {
+            return null;
+        }
     }
 
     interface TermValues {
@@ -384,6 +707,40 @@ class MultiTermsAggregator extends DeferableBucketAggregator {
         public InternalMultiTerms.KeyConverter keyConverter() {
             return converter;
         }
+
+        @Override
+        public LongEncodedTerms longEncoded(AggregationContext context) {
+            return new LongEncodedTerms(Long.SIZE) {
+                @Override
+                EncodedTermValues getValues(LeafReaderContext ctx) throws IOException {
+                    SortedNumericDocValues docValues = source.longValues(ctx);
+                    return new EncodedTermValues() {
+                        @Override
+                        boolean advanceExact(int doc) throws IOException {
+                            count = 0;
+                            if (docValues.advanceExact(doc) == false) {
+                                return false;
+                            }
+                            int valuesCount = docValues.docValueCount();
+                            long previous = Long.MAX_VALUE;
+                            for (int i = 0; i < valuesCount; ++i) {
+                                long val = docValues.nextValue();
+                                if (previous != val || i == 0) {
+                                    add(val);
+                                    previous = val;
+                                }
+                            }
+                            return true;
+                        }
+                    };
+                }
+
+                @Override
+                Object decode(long encoded) {
+                    return encoded;
+                }
+            };
+        }
     }
 
     /**
@@ -422,6 +779,40 @@ class MultiTermsAggregator extends DeferableBucketAggregator {
         public InternalMultiTerms.KeyConverter keyConverter() {
             return InternalMultiTerms.KeyConverter.DOUBLE;
         }
+
+        @Override
+        public LongEncodedTerms longEncoded(AggregationContext context) {
+            return new LongEncodedTerms(Long.SIZE) {
+                @Override
+                EncodedTermValues getValues(LeafReaderContext ctx) throws IOException {
+                    SortedNumericDoubleValues docValues = source.doubleValues(ctx);
+                    return new EncodedTermValues() {
+                        @Override
+                        boolean advanceExact(int doc) throws IOException {
+                            count = 0;
+                            if (docValues.advanceExact(doc) == false) {
+                                return false;
+                            }
+                            int valuesCount = docValues.docValueCount();
+                            double previous = Double.MAX_VALUE;
+                            for (int i = 0; i < valuesCount; ++i) {
+                                double val = docValues.nextValue();
+                                if (previous != val || i == 0) {
+                                    add(Double.doubleToLongBits(val));
+                                    previous = val;
+                                }
+                            }
+                            return true;
+                        }
+                    };
+                }
+
+                @Override
+                Object decode(long encoded) {
+                    return Double.longBitsToDouble(encoded);
+                }
+            };
+        }
     }
 
     /**
@@ -459,6 +850,45 @@ class MultiTermsAggregator extends DeferableBucketAggregator {
                 }
             };
         }
+
+        /**
+         * Encodes the terms as their global ordinals if the source has them.
+         */
+        @Override
+        public LongEncodedTerms longEncoded(AggregationContext context) throws IOException {
+            if (source instanceof ValuesSource.Bytes.WithOrdinals == false) {
+                return null;
+            }
+            ValuesSource.Bytes.WithOrdinals ordinalsSource = (ValuesSource.Bytes.WithOrdinals) source;
+            long maxOrd = ordinalsSource.globalMaxOrd(context.searcher());
+            int bits = maxOrd <= 1 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(maxOrd - 1);
+            List<LeafReaderContext> leaves = context.searcher().getIndexReader().leaves();
+            SortedSetDocValues lookup = leaves.isEmpty() ? null : ordinalsSource.globalOrdinalsValues(leaves.get(0));
+            return new LongEncodedTerms(bits) {
+                @Override
+                EncodedTermValues getValues(LeafReaderContext ctx) throws IOException {
+                    SortedSetDocValues globalOrds = ordinalsSource.globalOrdinalsValues(ctx);
+                    return new EncodedTermValues() {
+                        @Override
+                        boolean advanceExact(int doc) throws IOException {
+                            count = 0;
+                            if (globalOrds.advanceExact(doc) == false) {
+                                return false;
+                            }
+                            for (long ord = globalOrds.nextOrd(); ord != SortedSetDocValues.NO_MORE_ORDS; ord = globalOrds.nextOrd()) {
+                                add(ord);
+                            }
+                            return true;
+                        }
+                    };
+                }
+
+                @Override
+                Object decode(long encoded) throws IOException {
+                    return BytesRef.deepCopyOf(lookup.lookupOrd(encoded));
+                }
+            };
+        }
     }
 
     /**
@@ -0,0 +1,135 @@
+/*
+ * Copyright Elasticsearch B.V. and/or licensed to Elasticsearch B.V. under one
+ * or more contributor license agreements. Licensed under the Elastic License
+ * 2.0; you may not use this file except in compliance with the Elastic License
+ * 2.0.
+ */
+package org.elasticsearch.xpack.analytics.aggregations.metrics;
+
+import static java.util.Collections.singleton;
+import static org.elasticsearch.xpack.analytics.AnalyticsTestsUtils.histogramFieldDocValues;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.DocValuesFieldExistsQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.core.CheckedConsumer;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.plugins.SearchPlugin;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorTestCase;
+import org.elasticsearch.search.aggregations.metrics.InternalDDSketchPercentiles;
+import org.elasticsearch.search.aggregations.metrics.PercentilesAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.PercentilesConfig;
+import org.elasticsearch.search.aggregations.support.AggregationInspectionHelper;
+import org.elasticsearch.search.aggregations.support.CoreValuesSourceType;
+import org.elasticsearch.search.aggregations.support.ValuesSourceType;
+import org.elasticsearch.xpack.analytics.AnalyticsPlugin;
+import org.elasticsearch.xpack.analytics.aggregations.support.AnalyticsValuesSourceType;
+import org.elasticsearch.xpack.analytics.mapper.HistogramFieldMapper;
+
+public class DDSketchPreAggregatedPercentilesAggregatorTests extends AggregatorTestCase {
+
+    private static final double RELATIVE_ACCURACY = 0.01;
+
+    @Override
+    protected List<SearchPlugin> getSearchPlugins() {
+        return List.of(new AnalyticsPlugin());
+    }
+
+    @Override
+    protected AggregationBuilder createAggBuilderForTypeTest(MappedFieldType fieldType, String fieldName) {
+        return new PercentilesAggregationBuilder("ddsketch_percentiles")
+            .field(fieldName)
+            .percentilesConfig(new PercentilesConfig.DDSketch());
+    }
+
+    @Override
+    protected List<ValuesSourceType> getSupportedValuesSourceTypes() {
+        // Note: this is the same list as Core, plus Analytics
+        return List.of(CoreValuesSourceType.NUMERIC,
+            CoreValuesSourceType.DATE,
+            CoreValuesSourceType.BOOLEAN,
+            AnalyticsValuesSourceType.HISTOGRAM);
+    }
+
+    public void testNoMatchingField() throws IOException {
+        testCase(new MatchAllDocsQuery(), iw -> {
+            iw.addDocument(singleton(histogramFieldDocValues("wrong_number", new double[]{7, 1})));
+        }, ddsketch -> {
+            assertEquals(0L, ddsketch.getState().size());
+            assertFalse(AggregationInspectionHelper.hasValue(ddsketch));
+        });
+    }
+
+    public void testEmptyField() throws IOException {
+        testCase(new MatchAllDocsQuery(), iw -> {
+            iw.addDocument(singleton(histogramFieldDocValues("number", new double[0])));
+        }, ddsketch -> {
+            assertFalse(AggregationInspectionHelper.hasValue(ddsketch));
+        });
+    }
+
+    public void testSomeMatchesBinaryDocValues() throws IOException {
+        testCase(new DocValuesFieldExistsQuery("number"), iw -> {
+            iw.addDocument(singleton(histogramFieldDocValues("number", new double[]{60, 40, 20, 10})));
+        }, ddsketch -> {
+            assertEquals(4L, ddsketch.getState().size());
+            assertEquals(10.0d, ddsketch.percentile(25), 10.0d * RELATIVE_ACCURACY);
+            assertEquals(20.0d, ddsketch.percentile(50), 20.0d * RELATIVE_ACCURACY);
+            assertEquals(40.0d, ddsketch.percentile(75), 40.0d * RELATIVE_ACCURACY);
+            assertEquals(60.0d, ddsketch.percentile(100), 0.0d);
+            assertTrue(AggregationInspectionHelper.hasValue(ddsketch));
+        });
+    }
+
+    public void testSomeMatchesMultiBinaryDocValues() throws IOException {
+        testCase(new DocValuesFieldExistsQuery("number"), iw -> {
+            iw.addDocument(singleton(histogramFieldDocValues("number", new double[]{60, 40, 20, 10})));
+            iw.addDocument(singleton(histogramFieldDocValues("number", new double[]{60, 40, 20, 10})));
+            iw.addDocument(singleton(histogramFieldDocValues("number", new double[]{60, 40, 20, 10})));
+            iw.addDocument(singleton(histogramFieldDocValues("number", new double[]{60, 40, 20, 10})));
+        }, ddsketch -> {
+            assertEquals(16L, ddsketch.getState().size());
+            assertEquals(10.0d, ddsketch.percentile(25), 10.0d * RELATIVE_ACCURACY);
+            assertEquals(20.0d, ddsketch.percentile(50), 20.0d * RELATIVE_ACCURACY);
+            assertEquals(40.0d, ddsketch.percentile(75), 40.0d * RELATIVE_ACCURACY);
+            assertEquals(60.0d, ddsketch.percentile(99), 60.0d * RELATIVE_ACCURACY);
+            assertTrue(AggregationInspectionHelper.hasValue(ddsketch));
+        });
+    }
+
+    private void testCase(Query query, CheckedConsumer<RandomIndexWriter, IOException> buildIndex,
+                          Consumer<InternalDDSketchPercentiles> verify) throws IOException {
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+                buildIndex.accept(indexWriter);
+            }
+
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                IndexSearcher indexSearcher = newSearcher(indexReader, true, true);
+
+                PercentilesAggregationBuilder builder = new PercentilesAggregationBuilder("test").field("number")
+                    .percentilesConfig(new PercentilesConfig.DDSketch(RELATIVE_ACCURACY));
+
+                MappedFieldType fieldType = new HistogramFieldMapper.HistogramFieldType("number", Collections.emptyMap());
+                Aggregator aggregator = createAggregator(builder, indexSearcher, fieldType);
+                aggregator.preCollection();
+                indexSearcher.search(query, aggregator);
+                aggregator.postCollection();
+                verify.accept((InternalDDSketchPercentiles) aggregator.buildTopLevel());
+
+            }
+        }
+    }
+}
@@ -37,6 +37,7 @@ import org.elasticsearch.script.ScriptModule;
 import org.elasticsearch.script.ScriptService;
 import org.elasticsearch.script.ScriptType;
 import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorTestCase;
 import org.elasticsearch.search.aggregations.BucketOrder;
 import org.elasticsearch.search.aggregations.metrics.InternalMax;
@@ -563,6 +564,97 @@ public class MultiTermsAggregatorTests extends AggregatorTestCase {
         );
     }
 
+    public void testPackedOrdinals() throws IOException {
+        String otherKeywordField = "kVal2";
+        collectionStrategyTestCase(new String[] { KEYWORD_FIELD, otherKeywordField }, "packed_long", iw -> {
+            iw.addDocument(
+                List.of(
+                    new SortedSetDocValuesField(KEYWORD_FIELD, new BytesRef("a")),
+                    new SortedSetDocValuesField(otherKeywordField, new BytesRef("x")),
+                    new SortedSetDocValuesField(otherKeywordField, new BytesRef("y"))
+                )
+            );
+            iw.addDocument(
+                List.of(
+                    new SortedSetDocValuesField(KEYWORD_FIELD, new BytesRef("a")),
+                    new SortedSetDocValuesField(otherKeywordField, new BytesRef("y"))
+                )
+            );
+            iw.addDocument(
+                List.of(
+                    new SortedSetDocValuesField(KEYWORD_FIELD, new BytesRef("b")),
+                    new SortedSetDocValuesField(otherKeywordField, new BytesRef("x"))
+                )
+            );
+            iw.addDocument(List.of(new SortedSetDocValuesField(KEYWORD_FIELD, new BytesRef("b"))));
+        }, h -> {
+            assertThat(h.getBuckets(), hasSize(3));
+            assertThat(h.getBuckets().get(0).getKey(), contains(equalTo("a"), equalTo("y")));
+            assertThat(h.getBuckets().get(0).getDocCount(), equalTo(2L));
+            assertThat(h.getBuckets().get(1).getKey(), contains(equalTo("a"), equalTo("x")));
+            assertThat(h.getBuckets().get(1).getDocCount(), equalTo(1L));
+            assertThat(h.getBuckets().get(2).getKey(), contains(equalTo("b"), equalTo("x")));
+            assertThat(h.getBuckets().get(2).getDocCount(), equalTo(1L));
+        });
+    }
+
+    public void testPackedNumbersAndOrdinals() throws IOException {
+        collectionStrategyTestCase(new String[] { INT_FIELD, FLOAT_FIELD }, "packed_long_long", iw -> {
+            iw.addDocument(List.of(new NumericDocValuesField(INT_FIELD, -3), new FloatDocValuesField(FLOAT_FIELD, -1.5f)));
+            iw.addDocument(List.of(new NumericDocValuesField(INT_FIELD, -3), new FloatDocValuesField(FLOAT_FIELD, -1.5f)));
+            iw.addDocument(List.of(new NumericDocValuesField(INT_FIELD, 4), new FloatDocValuesField(FLOAT_FIELD, 2.0f)));
+        }, h -> {
+            assertThat(h.getBuckets(), hasSize(2));
+            assertThat(h.getBuckets().get(0).getKey(), contains(equalTo(-3L), equalTo(-1.5)));
+            assertThat(h.getBuckets().get(0).getDocCount(), equalTo(2L));
+            assertThat(h.getBuckets().get(1).getKey(), contains(equalTo(4L), equalTo(2.0)));
+            assertThat(h.getBuckets().get(1).getDocCount(), equalTo(1L));
+        });
+        collectionStrategyTestCase(new String[] { KEYWORD_FIELD, INT_FIELD }, "packed_long_long", iw -> {
+            iw.addDocument(
+                List.of(
+                    new SortedSetDocValuesField(KEYWORD_FIELD, new BytesRef("a")),
+                    new SortedNumericDocValuesField(INT_FIELD, Long.MIN_VALUE),
+                    new SortedNumericDocValuesField(INT_FIELD, Long.MAX_VALUE)
+                )
+            );
+            iw.addDocument(
+                List.of(
+                    new SortedSetDocValuesField(KEYWORD_FIELD, new BytesRef("b")),
+                    new SortedNumericDocValuesField(INT_FIELD, Long.MAX_VALUE)
+                )
+            );
+        }, h -> {
+            assertThat(h.getBuckets(), hasSize(3));
+            assertThat(h.getBuckets().get(0).getKey(), contains(equalTo("a"), equalTo(Long.MIN_VALUE)));
+            assertThat(h.getBuckets().get(1).getKey(), contains(equalTo("a"), equalTo(Long.MAX_VALUE)));
+            assertThat(h.getBuckets().get(2).getKey(), contains(equalTo("b"), equalTo(Long.MAX_VALUE)));
+        });
+    }
+
+    public void testBytesWhenTermsDoNotFitInTwoLongs() throws IOException {
+        collectionStrategyTestCase(new String[] { KEYWORD_FIELD, INT_FIELD, FLOAT_FIELD }, "bytes", iw -> {
+            iw.addDocument(
+                List.of(
+                    new SortedSetDocValuesField(KEYWORD_FIELD, new BytesRef("a")),
+                    new NumericDocValuesField(INT_FIELD, 1),
+                    new FloatDocValuesField(FLOAT_FIELD, 1.0f)
+                )
+            );
+            iw.addDocument(
+                List.of(
+                    new SortedSetDocValuesField(KEYWORD_FIELD, new BytesRef("b")),
+                    new NumericDocValuesField(INT_FIELD, 1),
+                    new FloatDocValuesField(FLOAT_FIELD, 1.0f)
+                )
+            );
+        }, h -> {
+            assertThat(h.getBuckets(), hasSize(2));
+            assertThat(h.getBuckets().get(0).getKey(), contains(equalTo("a"), equalTo(1L), equalTo(1.0)));
+            assertThat(h.getBuckets().get(1).getKey(), contains(equalTo("b"), equalTo(1L), equalTo(1.0)));
+        });
+    }
+
     public void testNoTerms() {
         for (List<MultiValuesSourceFieldConfig> terms : Arrays.<List<MultiValuesSourceFieldConfig>>asList(
             Collections.singletonList(randomTermConfig()),
@@ -637,6 +729,32 @@ public class MultiTermsAggregatorTests extends AggregatorTestCase {
         testCase(builder, query, buildIndex, verify, dateType, intType, floatType, keywordType);
     }
 
+    private void collectionStrategyTestCase(
+        String[] terms,
+        String expectedStrategy,
+        CheckedConsumer<RandomIndexWriter, IOException> buildIndex,
+        Consumer<InternalMultiTerms> verify
+    ) throws IOException {
+        List<MultiValuesSourceFieldConfig> termConfigs = new ArrayList<>();
+        for (String term : terms) {
+            termConfigs.add(new MultiValuesSourceFieldConfig.Builder().setFieldName(term).build());
+        }
+        MultiTermsAggregationBuilder builder = new MultiTermsAggregationBuilder("my_terms").terms(termConfigs);
+        debugTestCase(
+            builder,
+            new MatchAllDocsQuery(),
+            buildIndex,
+            (InternalMultiTerms h, Class<? extends Aggregator> impl, Map<String, Map<String, Object>> debug) -> {
+                assertThat(debug.get("my_terms").get("collection_strategy"), equalTo(expectedStrategy));
+                verify.accept(h);
+            },
+            new NumberFieldMapper.NumberFieldType(INT_FIELD, NumberFieldMapper.NumberType.LONG),
+            new NumberFieldMapper.NumberFieldType(FLOAT_FIELD, NumberFieldMapper.NumberType.FLOAT),
+            new KeywordFieldMapper.KeywordFieldType(KEYWORD_FIELD),
+            new KeywordFieldMapper.KeywordFieldType("kVal2")
+        );
+    }
+
     @Override
     protected List<SearchPlugin> getSearchPlugins() {
         return Collections.singletonList(new AnalyticsPlugin());
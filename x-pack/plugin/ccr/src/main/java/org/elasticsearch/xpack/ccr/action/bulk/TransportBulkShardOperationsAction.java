@@ -94,6 +94,11 @@ public class TransportBulkShardOperationsAction
             request.getOperations(), request.getMaxSeqNoOfUpdatesOrDeletes(), primary, logger));
     }
 
+    @Override
+    protected boolean accountsOperationBytes() {
+        return true;
+    }
+
     @Override
     protected long primaryOperationSize(BulkShardOperationsRequest request) {
         return request.getOperations().stream().mapToLong(Translog.Operation::estimateSize).sum();
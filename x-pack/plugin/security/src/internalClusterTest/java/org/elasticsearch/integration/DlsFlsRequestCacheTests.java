@@ -11,8 +11,11 @@ import org.elasticsearch.ElasticsearchSecurityException;
 import org.elasticsearch.action.admin.indices.alias.Alias;
 import org.elasticsearch.action.admin.indices.forcemerge.ForceMergeResponse;
 import org.elasticsearch.action.admin.indices.refresh.RefreshResponse;
+import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.TransportSearchAction;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.metadata.IndexMetadata;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.settings.SecureString;
 import org.elasticsearch.common.settings.Settings;
@@ -64,6 +67,8 @@ public class DlsFlsRequestCacheTests extends SecuritySingleNodeTestCase {
     private static final String DLS_TEMPLATE_ROLE_QUERY_ROLE = "dls_template_role_query_role";
     private static final String DLS_TEMPLATE_ROLE_QUERY_INDEX = "dls-template-role-query-index";
     private static final String DLS_TEMPLATE_ROLE_QUERY_ALIAS = "dls-template-role-query-alias";
+    private static final String DLS_TEMPLATE_ROLE_QUERY_MULTI_SHARD_INDEX = "dls-template-role-query-multi-shard-index";
+    private static final String DLS_TEMPLATE_ROLE_QUERY_MULTI_SHARD_ALIAS = "dls-template-role-query-multi-shard-alias";
 
     @Override
     protected Settings nodeSettings() {
@@ -151,6 +156,7 @@ public class DlsFlsRequestCacheTests extends SecuritySingleNodeTestCase {
             + "    query: {\"template\":{\"source\":{\"match\":{\"username\":\"{{_user.username}}\"}}}}\n"
             + "  - names:\n"
             + "    - \"dls-template-role-query-alias\"\n"
+            + "    - \"dls-template-role-query-multi-shard-alias\"\n"
             + "    privileges:\n"
             + "    - \"read\"\n"
             + "    query: {\"template\":{\"id\":\"my-script\"}}\n";
@@ -320,6 +326,39 @@ public class DlsFlsRequestCacheTests extends SecuritySingleNodeTestCase {
         assertCacheState(DLS_TEMPLATE_ROLE_QUERY_INDEX, 2, 2);
     }
 
+    public void testRequestCacheWithTemplateRoleQueryAndBatchedQueryPhase() {
+        assertAcked(client().admin().cluster().prepareUpdateSettings()
+            .setPersistentSettings(Settings.builder().put(TransportSearchAction.BATCH_QUERY_PHASE_SETTING.getKey(), true)));
+        try {
+            final Client client1 = client().filterWithHeader(Map.of(
+                "Authorization", basicAuthHeaderValue(DLS_TEMPLATE_ROLE_QUERY_USER_1, new SecureString(TEST_PASSWORD.toCharArray()))));
+            // the shards of the index are on the same node so both the can_match and the query phases send a single
+            // request to the node that wraps the shard level requests
+            final int preFilterShardSize = randomFrom(1, SearchRequest.DEFAULT_PRE_FILTER_SHARD_SIZE);
+
+            assertSearchResponse(client1.prepareSearch(DLS_TEMPLATE_ROLE_QUERY_MULTI_SHARD_INDEX)
+                    .setPreFilterShardSize(preFilterShardSize).setRequestCache(true).get(),
+                Set.of("1"), Set.of("username"));
+            assertCacheState(DLS_TEMPLATE_ROLE_QUERY_MULTI_SHARD_INDEX, 0, 2);
+            assertSearchResponse(client1.prepareSearch(DLS_TEMPLATE_ROLE_QUERY_MULTI_SHARD_INDEX)
+                    .setPreFilterShardSize(preFilterShardSize).setRequestCache(true).get(),
+                Set.of("1"), Set.of("username"));
+            assertCacheState(DLS_TEMPLATE_ROLE_QUERY_MULTI_SHARD_INDEX, 2, 2);
+
+            // The DLS for the alias uses a stored script, the request cache must be disabled on each of the batched shard requests
+            assertSearchResponse(client1.prepareSearch(DLS_TEMPLATE_ROLE_QUERY_MULTI_SHARD_ALIAS)
+                    .setPreFilterShardSize(preFilterShardSize).setRequestCache(true).get(),
+                Set.of("1"), Set.of("username"));
+            assertSearchResponse(client1.prepareSearch(DLS_TEMPLATE_ROLE_QUERY_MULTI_SHARD_ALIAS)
+                    .setPreFilterShardSize(preFilterShardSize).setRequestCache(true).get(),
+                Set.of("1"), Set.of("username"));
+            assertCacheState(DLS_TEMPLATE_ROLE_QUERY_MULTI_SHARD_INDEX, 2, 2);
+        } finally {
+            assertAcked(client().admin().cluster().prepareUpdateSettings()
+                .setPersistentSettings(Settings.builder().putNull(TransportSearchAction.BATCH_QUERY_PHASE_SETTING.getKey())));
+        }
+    }
+
     private void prepareIndices() {
         final Client client = client();
 
@@ -349,20 +388,30 @@ public class DlsFlsRequestCacheTests extends SecuritySingleNodeTestCase {
         client.prepareIndex(DLS_TEMPLATE_ROLE_QUERY_INDEX).setId("1").setSource("username", DLS_TEMPLATE_ROLE_QUERY_USER_1).get();
         client.prepareIndex(DLS_TEMPLATE_ROLE_QUERY_INDEX).setId("2").setSource("username", DLS_TEMPLATE_ROLE_QUERY_USER_2).get();
 
-        ensureGreen(DLS_INDEX, FLS_INDEX, INDEX, DLS_TEMPLATE_ROLE_QUERY_INDEX);
+        assertAcked(client.admin().indices().prepareCreate(DLS_TEMPLATE_ROLE_QUERY_MULTI_SHARD_INDEX)
+            .setSettings(Settings.builder().put(IndexMetadata.SETTING_NUMBER_OF_SHARDS, 2))
+            .addAlias(new Alias(DLS_TEMPLATE_ROLE_QUERY_MULTI_SHARD_ALIAS)).get());
+        client.prepareIndex(DLS_TEMPLATE_ROLE_QUERY_MULTI_SHARD_INDEX).setId("1").setSource("username", DLS_TEMPLATE_ROLE_QUERY_USER_1)
+            .get();
+        client.prepareIndex(DLS_TEMPLATE_ROLE_QUERY_MULTI_SHARD_INDEX).setId("2").setSource("username", DLS_TEMPLATE_ROLE_QUERY_USER_2)
+            .get();
+
+        ensureGreen(DLS_INDEX, FLS_INDEX, INDEX, DLS_TEMPLATE_ROLE_QUERY_INDEX, DLS_TEMPLATE_ROLE_QUERY_MULTI_SHARD_INDEX);
         assertCacheState(DLS_INDEX, 0, 0);
         assertCacheState(FLS_INDEX, 0, 0);
         assertCacheState(INDEX, 0, 0);
         assertCacheState(DLS_TEMPLATE_ROLE_QUERY_INDEX, 0, 0);
+        assertCacheState(DLS_TEMPLATE_ROLE_QUERY_MULTI_SHARD_INDEX, 0, 0);
 
         // Force merge the index to ensure there can be no background merges during the subsequent searches that would invalidate the cache
         final ForceMergeResponse forceMergeResponse = client.admin().indices()
-            .prepareForceMerge(DLS_INDEX, FLS_INDEX, INDEX, DLS_TEMPLATE_ROLE_QUERY_INDEX).setFlush(true).get();
+            .prepareForceMerge(DLS_INDEX, FLS_INDEX, INDEX, DLS_TEMPLATE_ROLE_QUERY_INDEX, DLS_TEMPLATE_ROLE_QUERY_MULTI_SHARD_INDEX)
+            .setFlush(true).get();
         ElasticsearchAssertions.assertAllSuccessful(forceMergeResponse);
         final RefreshResponse refreshResponse = client.admin().indices()
-            .prepareRefresh(DLS_INDEX, FLS_INDEX, INDEX, DLS_TEMPLATE_ROLE_QUERY_INDEX).get();
+            .prepareRefresh(DLS_INDEX, FLS_INDEX, INDEX, DLS_TEMPLATE_ROLE_QUERY_INDEX, DLS_TEMPLATE_ROLE_QUERY_MULTI_SHARD_INDEX).get();
         assertThat(refreshResponse.getFailedShards(), equalTo(0));
-        ensureGreen(DLS_INDEX, FLS_INDEX, INDEX, DLS_TEMPLATE_ROLE_QUERY_INDEX);
+        ensureGreen(DLS_INDEX, FLS_INDEX, INDEX, DLS_TEMPLATE_ROLE_QUERY_INDEX, DLS_TEMPLATE_ROLE_QUERY_MULTI_SHARD_INDEX);
     }
 
     private Client limitedClient() {
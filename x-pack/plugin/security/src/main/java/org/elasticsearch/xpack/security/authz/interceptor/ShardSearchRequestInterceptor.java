@@ -11,6 +11,7 @@ import org.apache.logging.log4j.Logger;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.IndicesRequest;
+import org.elasticsearch.action.search.ShardSearchNodeRequest;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.license.XPackLicenseState;
 import org.elasticsearch.search.internal.ShardSearchRequest;
@@ -19,6 +20,7 @@ import org.elasticsearch.xpack.core.security.authz.accesscontrol.IndicesAccessCo
 import org.elasticsearch.xpack.core.security.authz.permission.DocumentPermissions;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
 import static org.elasticsearch.xpack.security.authz.interceptor.SearchRequestInterceptor.VERSION_SHARD_SEARCH_INTERCEPTOR;
@@ -38,28 +40,40 @@ public class ShardSearchRequestInterceptor extends FieldAndDocumentLevelSecurity
     void disableFeatures(IndicesRequest indicesRequest,
                          Map<String, IndicesAccessControl.IndexAccessControl> indexAccessControlByIndex,
                          ActionListener<Void> listener) {
-        final ShardSearchRequest request = (ShardSearchRequest) indicesRequest;
-        // The 7.11.2 version check is needed because request caching has a bug related to DLS/FLS
-        // versions before 7.11.2. It is fixed by #69505. See also ESA-2021-08.
-        // TODO: The version check can be removed in 8.0 because 7.last will have support for request caching with DLS/FLS
-        if (clusterService.state().nodes().getMinNodeVersion().before(VERSION_SHARD_SEARCH_INTERCEPTOR)) {
-            request.requestCache(false);
-        } else if (dlsUsesStoredScripts(request, indexAccessControlByIndex)) {
-            logger.debug("Disable shard search request cache because DLS queries use stored scripts");
-            request.requestCache(false);
+        // node level requests wrap the shard level requests of all the shards of the node that they target
+        for (ShardSearchRequest request : shardLevelRequests(indicesRequest)) {
+            if (indexAccessControlByIndex.containsKey(request.shardId().getIndexName()) == false) {
+                continue;
+            }
+            // The 7.11.2 version check is needed because request caching has a bug related to DLS/FLS
+            // versions before 7.11.2. It is fixed by #69505. See also ESA-2021-08.
+            // TODO: The version check can be removed in 8.0 because 7.last will have support for request caching with DLS/FLS
+            if (clusterService.state().nodes().getMinNodeVersion().before(VERSION_SHARD_SEARCH_INTERCEPTOR)) {
+                request.requestCache(false);
+            } else if (dlsUsesStoredScripts(request, indexAccessControlByIndex)) {
+                logger.debug("Disable shard search request cache because DLS queries use stored scripts");
+                request.requestCache(false);
+            }
         }
         listener.onResponse(null);
     }
 
     @Override
     String[] requestIndices(IndicesRequest indicesRequest) {
-        final ShardSearchRequest request = (ShardSearchRequest) indicesRequest;
-        return new String[] { request.shardId().getIndexName() };
+        return shardLevelRequests(indicesRequest).stream().map(request -> request.shardId().getIndexName()).distinct()
+            .toArray(String[]::new);
     }
 
     @Override
     public boolean supports(IndicesRequest request) {
-        return request instanceof ShardSearchRequest;
+        return request instanceof ShardSearchRequest || request instanceof ShardSearchNodeRequest;
+    }
+
+    private static List<ShardSearchRequest> shardLevelRequests(IndicesRequest indicesRequest) {
+        if (indicesRequest instanceof ShardSearchNodeRequest) {
+            return ((ShardSearchNodeRequest) indicesRequest).getShardLevelRequests();
+        }
+        return List.of((ShardSearchRequest) indicesRequest);
     }
 
     boolean dlsUsesStoredScripts(ShardSearchRequest request,
@@ -45,7 +45,7 @@ public class SSLEngineUtils {
     public static SSLEngine getSSLEngine(HttpChannel httpChannel) {
         if (httpChannel instanceof Netty4HttpChannel) {
             Channel nettyChannel = ((Netty4HttpChannel) httpChannel).getNettyChannel();
-            SslHandler handler = nettyChannel.pipeline().get(SslHandler.class);
+            SslHandler handler = getSslHandler(nettyChannel);
             assert handler != null : "Must have SslHandler";
             return handler.engine();
         } else if (httpChannel instanceof NioHttpChannel) {
@@ -60,7 +60,7 @@ public class SSLEngineUtils {
     public static SSLEngine getSSLEngine(TcpChannel tcpChannel) {
         if (tcpChannel instanceof Netty4TcpChannel) {
             Channel nettyChannel = ((Netty4TcpChannel) tcpChannel).getNettyChannel();
-            SslHandler handler = nettyChannel.pipeline().get(SslHandler.class);
+            SslHandler handler = getSslHandler(nettyChannel);
             if (handler == null) {
                 if (nettyChannel.isOpen()) {
                     assert false : "Must have SslHandler";
@@ -78,6 +78,20 @@ public class SSLEngineUtils {
         }
     }
 
+    /**
+     * Returns the {@link SslHandler} of the channel. The streams of an HTTP/2 connection are child channels whose pipelines only
+     * hold the handlers of the stream, so the handler is looked up in the pipelines of the parent channels too.
+     */
+    private static SslHandler getSslHandler(Channel nettyChannel) {
+        for (Channel channel = nettyChannel; channel != null; channel = channel.parent()) {
+            SslHandler handler = channel.pipeline().get(SslHandler.class);
+            if (handler != null) {
+                return handler;
+            }
+        }
+        return null;
+    }
+
     private static void extract(Logger logger, ThreadContext threadContext, SSLEngine sslEngine, Object channel) {
         try {
             Certificate[] certs = sslEngine.getSession().getPeerCertificates();
@@ -8,6 +8,9 @@
 package org.elasticsearch.xpack.security.authz.interceptor;
 
 import org.elasticsearch.Version;
+import org.elasticsearch.action.search.CanMatchNodeRequest;
+import org.elasticsearch.action.search.QueryNodeRequest;
+import org.elasticsearch.action.search.ShardSearchNodeRequest;
 import org.elasticsearch.action.support.PlainActionFuture;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
@@ -25,9 +28,11 @@ import org.elasticsearch.xpack.core.security.authz.permission.FieldPermissions;
 import org.junit.After;
 import org.junit.Before;
 
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import static org.hamcrest.Matchers.arrayContaining;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -93,4 +98,38 @@ public class ShardSearchRequestInterceptorTests extends ESTestCase {
         verify(shardSearchRequest, never()).requestCache(false);
     }
 
+    public void testRequestCacheWillBeDisabledOnWrappedShardRequestsWhenDlsUsesStoredScripts() {
+        configureMinMondeVersion(Version.CURRENT);
+        final DocumentPermissions storedScriptPermissions = DocumentPermissions.filteredBy(
+            Set.of(new BytesArray("{\"template\":{\"id\":\"my-script\"}}")));
+        final DocumentPermissions inlinePermissions = DocumentPermissions.filteredBy(
+            Set.of(new BytesArray("{\"term\":{\"username\":\"foo\"}}")));
+        final String storedScriptIndex = randomAlphaOfLengthBetween(3, 8);
+        final String inlineIndex = storedScriptIndex + "-inline";
+        final String otherIndex = storedScriptIndex + "-other";
+        final ShardSearchRequest storedScriptRequest = mock(ShardSearchRequest.class);
+        when(storedScriptRequest.shardId()).thenReturn(new ShardId(storedScriptIndex, randomAlphaOfLength(22), randomInt(3)));
+        final ShardSearchRequest inlineRequest = mock(ShardSearchRequest.class);
+        when(inlineRequest.shardId()).thenReturn(new ShardId(inlineIndex, randomAlphaOfLength(22), randomInt(3)));
+        final ShardSearchRequest otherRequest = mock(ShardSearchRequest.class);
+        when(otherRequest.shardId()).thenReturn(new ShardId(otherIndex, randomAlphaOfLength(22), randomInt(3)));
+        final List<ShardSearchRequest> shardRequests = List.of(storedScriptRequest, inlineRequest, otherRequest);
+        final ShardSearchNodeRequest nodeRequest = randomBoolean()
+            ? new CanMatchNodeRequest(shardRequests)
+            : new QueryNodeRequest(shardRequests, randomIntBetween(1, 5));
+
+        assertTrue(interceptor.supports(nodeRequest));
+        assertThat(interceptor.requestIndices(nodeRequest), arrayContaining(storedScriptIndex, inlineIndex, otherIndex));
+
+        final PlainActionFuture<Void> listener = new PlainActionFuture<>();
+        interceptor.disableFeatures(nodeRequest,
+            Map.of(storedScriptIndex, new IndicesAccessControl.IndexAccessControl(true, FieldPermissions.DEFAULT, storedScriptPermissions),
+                inlineIndex, new IndicesAccessControl.IndexAccessControl(true, FieldPermissions.DEFAULT, inlinePermissions)),
+            listener);
+        listener.actionGet();
+        verify(storedScriptRequest).requestCache(false);
+        verify(inlineRequest, never()).requestCache(false);
+        verify(otherRequest, never()).requestCache(false);
+    }
+
 }
@@ -6,36 +6,82 @@
  */
 package org.elasticsearch.xpack.security.transport.netty4;
 
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2StreamChannelBootstrap;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.handler.codec.http2.HttpConversionUtil;
+import io.netty.handler.ssl.ApplicationProtocolNames;
 import io.netty.handler.ssl.SslHandler;
 import org.elasticsearch.common.network.NetworkService;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.MockSecureSettings;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.transport.TransportAddress;
 import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.env.Environment;
 import org.elasticsearch.env.TestEnvironment;
+import org.elasticsearch.http.HttpServerTransport;
+import org.elasticsearch.http.HttpTransportSettings;
 import org.elasticsearch.http.NullDispatcher;
+import org.elasticsearch.http.netty4.Netty4HttpServerTransport;
+import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.RestChannel;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.threadpool.TestThreadPool;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.SharedGroupFactory;
 import org.elasticsearch.xpack.core.XPackSettings;
 import org.elasticsearch.xpack.core.ssl.SSLClientAuth;
 import org.elasticsearch.xpack.core.ssl.SSLService;
+import org.elasticsearch.xpack.security.authc.pki.PkiRealm;
+import org.elasticsearch.xpack.security.transport.SSLEngineUtils;
 import org.elasticsearch.xpack.security.transport.filter.IPFilter;
 import org.junit.Before;
 
 import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.security.cert.X509Certificate;
 import java.util.Collections;
 import java.util.Locale;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.hamcrest.Matchers.arrayContaining;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class SecurityNetty4HttpServerTransportTests extends ESTestCase {
 
@@ -156,6 +202,102 @@ public class SecurityNetty4HttpServerTransportTests extends ESTestCase {
         assertThat(customEngine.getEnabledProtocols(), not(equalTo(defaultEngine.getEnabledProtocols())));
     }
 
+    public void testHttp2OverTls() throws Exception {
+        Settings settings = Settings.builder()
+                .put(env.settings())
+                .put(XPackSettings.HTTP_SSL_ENABLED.getKey(), true)
+                .put("xpack.security.http.ssl.certificate_authorities", testnodeCert)
+                .put("xpack.security.http.ssl.client_authentication", SSLClientAuth.OPTIONAL.name().toLowerCase(Locale.ROOT))
+                .put(Netty4HttpServerTransport.SETTING_HTTP_NETTY_HTTP2_ENABLED.getKey(), true)
+                .put(HttpTransportSettings.SETTING_HTTP_PORT.getKey(), getPortRange())
+                .build();
+        sslService = new SSLService(TestEnvironment.newEnvironment(settings));
+        IPFilter ipFilter = mock(IPFilter.class);
+        when(ipFilter.accept(anyString(), any(InetSocketAddress.class))).thenReturn(true);
+
+        AtomicReference<String> applicationProtocol = new AtomicReference<>();
+        AtomicReference<Object> clientCertificates = new AtomicReference<>();
+        HttpServerTransport.Dispatcher dispatcher = new HttpServerTransport.Dispatcher() {
+            @Override
+            public void dispatchRequest(RestRequest request, RestChannel channel, ThreadContext threadContext) {
+                // the request arrives on the channel of its stream but the TLS session belongs to the connection
+                applicationProtocol.set(SSLEngineUtils.getSSLEngine(request.getHttpChannel()).getApplicationProtocol());
+                try (ThreadContext.StoredContext ignore = threadContext.stashContext()) {
+                    SSLEngineUtils.extractClientCertificates(logger, threadContext, request.getHttpChannel());
+                    clientCertificates.set(threadContext.getTransient(PkiRealm.PKI_CERT_HEADER_NAME));
+                }
+                channel.sendResponse(new BytesRestResponse(RestStatus.OK, request.uri()));
+            }
+
+            @Override
+            public void dispatchBadRequest(RestChannel channel, ThreadContext threadContext, Throwable cause) {
+                throw new AssertionError(cause);
+            }
+        };
+
+        ThreadPool threadPool = new TestThreadPool(getTestName());
+        NioEventLoopGroup group = new NioEventLoopGroup(1);
+        try (SecurityNetty4HttpServerTransport transport = new SecurityNetty4HttpServerTransport(settings,
+                new NetworkService(Collections.emptyList()), BigArrays.NON_RECYCLING_INSTANCE, ipFilter, sslService, threadPool,
+                xContentRegistry(), dispatcher, new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS),
+                new SharedGroupFactory(settings))) {
+            transport.start();
+            TransportAddress remoteAddress = randomFrom(transport.boundAddress().boundAddresses());
+
+            SSLEngine clientEngine = sslService.createSSLEngine(sslService.getHttpTransportSSLConfiguration(), null, -1);
+            clientEngine.setUseClientMode(true);
+            SSLParameters sslParameters = clientEngine.getSSLParameters();
+            sslParameters.setApplicationProtocols(new String[] { ApplicationProtocolNames.HTTP_2 });
+            clientEngine.setSSLParameters(sslParameters);
+            Channel connection = new Bootstrap()
+                    .channel(NioSocketChannel.class)
+                    .handler(new ChannelInitializer<SocketChannel>() {
+                        @Override
+                        protected void initChannel(SocketChannel ch) {
+                            ch.pipeline().addLast(new SslHandler(clientEngine));
+                            ch.pipeline().addLast(Http2FrameCodecBuilder.forClient().build());
+                            ch.pipeline().addLast(new Http2MultiplexHandler(new ChannelHandlerAdapter() {}));
+                        }
+                    }).group(group).connect(remoteAddress.address()).sync().channel();
+            try {
+                BlockingQueue<FullHttpResponse> responses = new LinkedBlockingQueue<>();
+                Channel stream = new Http2StreamChannelBootstrap(connection)
+                        .handler(new ChannelInitializer<Channel>() {
+                            @Override
+                            protected void initChannel(Channel ch) {
+                                ch.pipeline().addLast(new Http2StreamFrameToHttpObjectCodec(false));
+                                ch.pipeline().addLast(new HttpObjectAggregator(1024));
+                                ch.pipeline().addLast(new SimpleChannelInboundHandler<FullHttpResponse>() {
+                                    @Override
+                                    protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse response) {
+                                        responses.add(response.retain());
+                                    }
+                                });
+                            }
+                        }).open().sync().getNow();
+                FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/h2");
+                request.headers().set(HttpConversionUtil.ExtensionHeaderNames.SCHEME.text(), "https");
+                stream.writeAndFlush(request);
+
+                FullHttpResponse response = responses.poll(10, TimeUnit.SECONDS);
+                assertNotNull("no response received", response);
+                try {
+                    assertThat(response.status(), equalTo(HttpResponseStatus.OK));
+                    assertThat(response.content().toString(StandardCharsets.UTF_8), equalTo("/h2"));
+                } finally {
+                    response.release();
+                }
+            } finally {
+                connection.close().sync();
+            }
+            assertThat(applicationProtocol.get(), equalTo(ApplicationProtocolNames.HTTP_2));
+            assertThat(clientCertificates.get(), instanceOf(X509Certificate[].class));
+        } finally {
+            group.shutdownGracefully().await();
+            terminate(threadPool);
+        }
+    }
+
     public void testNoExceptionWhenConfiguredWithoutSslKeySSLDisabled() throws Exception {
         MockSecureSettings secureSettings = new MockSecureSettings();
         secureSettings.setString("xpack.security.http.ssl.secure_key_passphrase", "testnode");